@@ -3,6 +3,7 @@ package org.asamk.signal.manager;
 import com.google.i18n.phonenumbers.PhoneNumberUtil;
 
 import org.asamk.signal.manager.api.AlreadyReceivingException;
+import org.asamk.signal.manager.api.AttachmentDownload;
 import org.asamk.signal.manager.api.AttachmentInvalidException;
 import org.asamk.signal.manager.api.CallInfo;
 import org.asamk.signal.manager.api.CallOffer;
@@ -37,6 +38,7 @@ import org.asamk.signal.manager.api.PinLockedException;
 import org.asamk.signal.manager.api.RateLimitException;
 import org.asamk.signal.manager.api.ReceiveConfig;
 import org.asamk.signal.manager.api.Recipient;
+import org.asamk.signal.manager.api.RecipientAddress;
 import org.asamk.signal.manager.api.RecipientIdentifier;
 import org.asamk.signal.manager.api.SendGroupMessageResults;
 import org.asamk.signal.manager.api.SendMessageResult;
@@ -463,6 +465,18 @@ public interface Manager extends Closeable {
 
     void removeCallEventListener(CallEventListener listener);
 
+    void addAttachmentDownloadListener(AttachmentDownloadListener listener);
+
+    void removeAttachmentDownloadListener(AttachmentDownloadListener listener);
+
+    void addGroupChangeListener(GroupChangeListener listener);
+
+    void removeGroupChangeListener(GroupChangeListener listener);
+
+    void addIdentityChangeListener(IdentityChangeListener listener);
+
+    void removeIdentityChangeListener(IdentityChangeListener listener);
+
     interface ReceiveMessageHandler {
 
         ReceiveMessageHandler EMPTY = (envelope, e) -> {
@@ -475,4 +489,25 @@ public interface Manager extends Closeable {
 
         void handleCallEvent(CallInfo callInfo, String reason);
     }
+
+    interface AttachmentDownloadListener {
+
+        void handleAttachmentDownload(AttachmentDownload download);
+    }
+
+    /**
+     * Called after a group was stored or deleted.
+     */
+    interface GroupChangeListener {
+
+        void handleGroupChange(GroupId groupId);
+    }
+
+    /**
+     * Called after an identity was stored, its trust level changed or it was deleted.
+     */
+    interface IdentityChangeListener {
+
+        void handleIdentityChange(RecipientAddress recipient);
+    }
 }
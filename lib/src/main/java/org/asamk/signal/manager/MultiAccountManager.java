@@ -1,5 +1,7 @@
 package org.asamk.signal.manager;
 
+import org.asamk.signal.manager.api.AccountResourceUsage;
+
 import java.io.IOException;
 import java.net.URI;
 import java.util.List;
@@ -12,12 +14,26 @@ public interface MultiAccountManager extends AutoCloseable {
 
     List<Manager> getManagers();
 
+    /**
+     * Load all accounts that aren't loaded yet, e.g. for a subscription that covers all accounts.
+     *
+     * @return all loaded managers
+     */
+    default List<Manager> loadAllManagers() {
+        return getManagers();
+    }
+
     void addOnManagerAddedHandler(Consumer<Manager> handler);
 
     void addOnManagerRemovedHandler(Consumer<Manager> handler);
 
     Manager getManager(String phoneNumber);
 
+    /**
+     * Resources used by each loaded account.
+     */
+    List<AccountResourceUsage> getResourceUsage();
+
     URI getNewProvisioningDeviceLinkUri() throws TimeoutException, IOException;
 
     ProvisioningManager getProvisioningManagerFor(URI deviceLinkUri);
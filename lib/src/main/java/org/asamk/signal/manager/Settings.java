@@ -1,8 +1,33 @@
 package org.asamk.signal.manager;
 
 import org.asamk.signal.manager.api.TrustNewIdentity;
+import org.asamk.signal.manager.config.ServiceConfig;
 
-public record Settings(TrustNewIdentity trustNewIdentity, boolean disableMessageSendLog) {
+public record Settings(
+        TrustNewIdentity trustNewIdentity,
+        boolean disableMessageSendLog,
+        boolean useMessageCacheJournal,
+        int sendParallelism,
+        boolean crashSafeSessions,
+        long profileTtl,
+        int profileRefreshRate,
+        long attachmentQuota,
+        int uploadParallelism,
+        boolean lazyAccounts,
+        long accountIdleTimeout,
+        int databaseConnectionTarget
+) {
 
-    public static final Settings DEFAULT = new Settings(TrustNewIdentity.ON_FIRST_USE, false);
+    public static final Settings DEFAULT = new Settings(TrustNewIdentity.ON_FIRST_USE,
+            false,
+            false,
+            ServiceConfig.DEFAULT_SEND_PARALLELISM,
+            false,
+            ServiceConfig.DEFAULT_PROFILE_TTL,
+            ServiceConfig.DEFAULT_PROFILE_REFRESH_RATE,
+            0,
+            ServiceConfig.DEFAULT_UPLOAD_PARALLELISM,
+            false,
+            0,
+            ServiceConfig.DEFAULT_DATABASE_CONNECTION_TARGET);
 }
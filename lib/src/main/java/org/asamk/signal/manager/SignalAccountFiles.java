@@ -12,7 +12,10 @@ import org.asamk.signal.manager.internal.MultiAccountManagerImpl;
 import org.asamk.signal.manager.internal.PathConfig;
 import org.asamk.signal.manager.internal.ProvisioningManagerImpl;
 import org.asamk.signal.manager.internal.RegistrationManagerImpl;
+import org.asamk.signal.manager.internal.ResourceManager;
+import org.asamk.signal.manager.storage.AttachmentStore;
 import org.asamk.signal.manager.storage.SignalAccount;
+import org.asamk.signal.manager.storage.accounts.AccountsStorage;
 import org.asamk.signal.manager.storage.accounts.AccountsStore;
 import org.asamk.signal.manager.util.KeyUtils;
 import org.slf4j.Logger;
@@ -21,6 +24,7 @@ import org.whispersystems.signalservice.api.push.exceptions.DeprecatedVersionExc
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Consumer;
@@ -35,6 +39,9 @@ public class SignalAccountFiles {
     private final String userAgent;
     private final Settings settings;
     private final AccountsStore accountsStore;
+    private final ResourceManager resourceManager;
+    // Shared by all accounts, because they store their attachments in the same directory
+    private final AttachmentStore attachmentStore;
 
     public SignalAccountFiles(
             final File settingsPath,
@@ -47,6 +54,8 @@ public class SignalAccountFiles {
         this.serviceEnvironmentConfig = ServiceConfig.getServiceEnvironmentConfig(this.serviceEnvironment, userAgent);
         this.userAgent = userAgent;
         this.settings = settings;
+        this.resourceManager = new ResourceManager(settings.databaseConnectionTarget());
+        this.attachmentStore = new AttachmentStore(pathConfig.attachmentsPath(), settings.attachmentQuota());
         this.accountsStore = new AccountsStore(pathConfig.dataPath(), serviceEnvironment, accountPath -> {
             if (accountPath == null || !SignalAccount.accountFileExists(pathConfig.dataPath(), accountPath)) {
                 return null;
@@ -65,6 +74,20 @@ public class SignalAccountFiles {
     }
 
     public MultiAccountManager initMultiAccountManager() throws IOException {
+        if (settings.lazyAccounts()) {
+            // Accounts are only loaded when they are first used
+            final var accountNumbers = accountsStore.getAllAccounts()
+                    .stream()
+                    .map(AccountsStorage.Account::number)
+                    .toList();
+            logger.debug("Found {} accounts, loading them on first use", accountNumbers.size());
+            return new MultiAccountManagerImpl(List.of(),
+                    accountNumbers,
+                    this,
+                    resourceManager,
+                    settings.accountIdleTimeout());
+        }
+
         final var managerPairs = accountsStore.getAllAccounts().parallelStream().map(a -> {
             try {
                 return new Pair<Manager, Throwable>(initManager(a.number(), a.path()), null);
@@ -87,7 +110,7 @@ public class SignalAccountFiles {
                 .filter(p -> p != null && p.first() != null)
                 .map(Pair::first)
                 .toList();
-        return new MultiAccountManagerImpl(managers, this);
+        return new MultiAccountManagerImpl(managers, List.of(), this, resourceManager, 0);
     }
 
     public Manager initManager(String number) throws IOException, NotRegisteredException, AccountCheckException {
@@ -125,6 +148,7 @@ public class SignalAccountFiles {
 
         final var manager = new ManagerImpl(account,
                 pathConfig,
+                attachmentStore,
                 new AccountFileUpdaterImpl(accountsStore, accountPath),
                 serviceEnvironmentConfig,
                 userAgent);
@@ -144,6 +168,8 @@ public class SignalAccountFiles {
             accountsStore.updateAccount(accountPath, account.getNumber(), account.getAci());
         }
 
+        resourceManager.register(manager, account.getAccountDatabase());
+
         return manager;
     }
 
@@ -153,6 +179,7 @@ public class SignalAccountFiles {
 
     public ProvisioningManager initProvisioningManager(Consumer<Manager> newManagerListener) {
         return new ProvisioningManagerImpl(pathConfig,
+                attachmentStore,
                 serviceEnvironmentConfig,
                 userAgent,
                 newManagerListener,
@@ -186,6 +213,7 @@ public class SignalAccountFiles {
 
             return new RegistrationManagerImpl(account,
                     pathConfig,
+                    attachmentStore,
                     serviceEnvironmentConfig,
                     userAgent,
                     newManagerListener,
@@ -201,6 +229,7 @@ public class SignalAccountFiles {
 
         return new RegistrationManagerImpl(account,
                 pathConfig,
+                attachmentStore,
                 serviceEnvironmentConfig,
                 userAgent,
                 newManagerListener,
@@ -0,0 +1,19 @@
+package org.asamk.signal.manager.api;
+
+/**
+ * Resources currently used by a loaded account.
+ *
+ * @param maximumConnections   database connections the account may open, its share of the connection target
+ * @param activeConnections    database connections currently in use
+ * @param idleConnections      open database connections that are currently unused
+ * @param waitingForConnection threads waiting for a database connection
+ * @param receiving            if the account is continuously receiving messages
+ */
+public record AccountResourceUsage(
+        String account,
+        int maximumConnections,
+        int activeConnections,
+        int idleConnections,
+        int waitingForConnection,
+        boolean receiving
+) {}
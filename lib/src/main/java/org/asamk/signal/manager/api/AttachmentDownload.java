@@ -0,0 +1,17 @@
+package org.asamk.signal.manager.api;
+
+import java.io.File;
+
+/**
+ * Result of a received attachment that was downloaded in the background.
+ *
+ * @param id    id of the attachment, as in {@link MessageEnvelope.Data.Attachment#id()}
+ * @param error reason of the last failed attempt, if the download failed
+ */
+public record AttachmentDownload(String id, File file, Status status, int attempts, String error) {
+
+    public enum Status {
+        DOWNLOADED,
+        FAILED
+    }
+}
@@ -317,7 +317,8 @@ public record MessageEnvelope(
                 Optional<Integer> height,
                 boolean isVoiceNote,
                 boolean isGif,
-                boolean isBorderless
+                boolean isBorderless,
+                boolean isDownloadPending
         ) {
 
             static Attachment from(SignalServiceAttachment signalAttachment, AttachmentFileProvider fileProvider) {
@@ -337,7 +338,8 @@ public record MessageEnvelope(
                             a.getHeight() == 0 ? Optional.empty() : Optional.of(a.getHeight()),
                             a.getVoiceNote(),
                             a.isGif(),
-                            a.isBorderless());
+                            a.isBorderless(),
+                            fileProvider.isDownloadPending(a));
                 } else {
                     Attachment attachment = null;
                     try (final var a = signalAttachment.asStream()) {
@@ -354,7 +356,8 @@ public record MessageEnvelope(
                                 a.getHeight() == 0 ? Optional.empty() : Optional.of(a.getHeight()),
                                 a.getVoiceNote(),
                                 a.isGif(),
-                                a.isBorderless());
+                                a.isBorderless(),
+                                false);
                         return attachment;
                     } catch (IOException e) {
                         return attachment;
@@ -381,6 +384,7 @@ public record MessageEnvelope(
                         Optional.empty(),
                         false,
                         false,
+                        false,
                         false);
             }
         }
@@ -1095,5 +1099,12 @@ public record MessageEnvelope(
     public interface AttachmentFileProvider {
 
         File getFile(SignalServiceAttachmentPointer pointer);
+
+        /**
+         * @return true if the attachment is still being downloaded in the background
+         */
+        default boolean isDownloadPending(SignalServiceAttachmentPointer pointer) {
+            return false;
+        }
     }
 }
@@ -5,5 +5,9 @@ public record ReceiveConfig(
         boolean ignoreStories,
         boolean ignoreAvatars,
         boolean ignoreStickers,
-        boolean sendReadReceipts
-) {}
+        boolean sendReadReceipts,
+        int batchSize
+) {
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+}
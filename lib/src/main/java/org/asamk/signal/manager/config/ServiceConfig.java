@@ -12,6 +12,7 @@ import okhttp3.Interceptor;
 public class ServiceConfig {
 
     public static final int PREKEY_MINIMUM_COUNT = 10;
+    public static final int PREKEY_POOL_COUNT = 30;
     public static final int PREKEY_BATCH_SIZE = 100;
     public static final int PREKEY_MAXIMUM_ID = Medium.MAX_VALUE;
     public static final long PREKEY_ARCHIVE_AGE = TimeUnit.DAYS.toMillis(30);
@@ -19,14 +20,27 @@ public class ServiceConfig {
     public static final long SIGNED_PREKEY_ROTATE_AGE = TimeUnit.DAYS.toMillis(2);
 
     public static final int MAX_ATTACHMENT_SIZE = 150 * 1024 * 1024;
+    public static final int ATTACHMENT_DOWNLOAD_PARALLELISM = 4;
+    public static final int ATTACHMENT_DOWNLOAD_MAX_ATTEMPTS = 5;
+    public static final long ATTACHMENT_DOWNLOAD_RETRY_DELAY = TimeUnit.SECONDS.toMillis(5);
+    public static final long ATTACHMENT_DOWNLOAD_CLOSE_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+    public static final int ATTACHMENT_UPLOAD_MAX_ATTEMPTS = 3;
+    public static final long ATTACHMENT_UPLOAD_REUSE_AGE = TimeUnit.DAYS.toMillis(3);
     public static final long MAX_ENVELOPE_SIZE = 0;
     public static final int MAX_INCREMENTAL_MACS_PER_ENVELOPE = 10;
     public static final int MAX_MESSAGE_SIZE_BYTES = 2000;
+    public static final long MAX_MESSAGE_TIMESTAMP_SKEW = TimeUnit.SECONDS.toMillis(1);
     public static final long AVATAR_DOWNLOAD_FAILSAFE_MAX_SIZE = 10 * 1024 * 1024;
     public static final boolean AUTOMATIC_NETWORK_RETRY = true;
     public static final int GROUP_MAX_SIZE = 1001;
     public static final int MAXIMUM_ONE_OFF_REQUEST_SIZE = 3;
     public static final long UNREGISTERED_LIFESPAN = TimeUnit.DAYS.toMillis(30);
+    public static final int DEFAULT_SEND_PARALLELISM = 8;
+    public static final long DEFAULT_PROFILE_TTL = TimeUnit.HOURS.toMillis(6);
+    public static final int DEFAULT_PROFILE_REFRESH_RATE = 30;
+    public static final int DEFAULT_UPLOAD_PARALLELISM = 4;
+    public static final int DEFAULT_DATABASE_CONNECTION_TARGET = 200;
+    public static final int MIN_DATABASE_CONNECTIONS_PER_ACCOUNT = 2;
 
     public static AccountAttributes.Capabilities getCapabilities(boolean isPrimaryDevice) {
         final var attachmentBackfill = !isPrimaryDevice;
@@ -0,0 +1,308 @@
+package org.asamk.signal.manager.helper;
+
+import org.asamk.signal.manager.Manager;
+import org.asamk.signal.manager.api.AttachmentDownload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downloads received attachments in the background, so a large attachment doesn't delay handling the following
+ * messages.
+ * <p>
+ * At most {@code parallelism} attachments are downloaded at the same time, smallest first. Failed downloads are
+ * retried with exponential backoff. Listeners are notified once an attachment is downloaded or has finally failed.
+ * <p>
+ * Downloads that are still pending when the queue is closed are dropped without notifying the listeners, the caller is
+ * expected to have persisted them.
+ */
+class AttachmentDownloadQueue implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttachmentDownloadQueue.class);
+
+    private final int parallelism;
+    private final int maxAttempts;
+    private final long retryDelay;
+    private final long closeTimeout;
+    private final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Manager.AttachmentDownloadListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final PriorityQueue<Download> queue = new PriorityQueue<>();
+    // Registered with hold(), but not started yet
+    private final List<Download> held = new ArrayList<>();
+    // Held, queued, running and waiting for a retry
+    private final Map<String, Download> pending = new HashMap<>();
+    private long nextSequence;
+    private int running;
+    private boolean closed;
+
+    AttachmentDownloadQueue(
+            final int parallelism,
+            final int maxAttempts,
+            final long retryDelay,
+            final long closeTimeout
+    ) {
+        this.parallelism = parallelism;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+        this.closeTimeout = closeTimeout;
+    }
+
+    void addListener(Manager.AttachmentDownloadListener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(Manager.AttachmentDownloadListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @param file       the file the attachment is stored in, its name is the attachment id
+     * @param size       expected size of the attachment, smaller attachments are downloaded first
+     * @param downloader downloads and stores the attachment
+     */
+    void enqueue(final File file, final long size, final Downloader downloader) {
+        final var download = add(file, size, downloader);
+        if (download == null) {
+            return;
+        }
+        synchronized (this) {
+            queue.add(download);
+        }
+        runNext();
+    }
+
+    /**
+     * Like {@link #enqueue}, but the download is only started by the next call to {@link #startHeld()}.
+     * The download is already reported as pending, until then.
+     */
+    void hold(final File file, final long size, final Downloader downloader) {
+        final var download = add(file, size, downloader);
+        if (download == null) {
+            return;
+        }
+        synchronized (this) {
+            held.add(download);
+        }
+    }
+
+    void startHeld() {
+        synchronized (this) {
+            if (held.isEmpty()) {
+                return;
+            }
+            queue.addAll(held);
+            held.clear();
+        }
+        runNext();
+    }
+
+    private synchronized Download add(final File file, final long size, final Downloader downloader) {
+        final var id = file.getName();
+        if (closed) {
+            logger.debug("Not enqueuing download of attachment {}, shutting down", id);
+            return null;
+        }
+        if (pending.containsKey(id)) {
+            return null;
+        }
+        final var download = new Download(id, file, size, nextSequence++, downloader);
+        pending.put(id, download);
+        return download;
+    }
+
+    synchronized boolean isPending(final String id) {
+        return pending.containsKey(id);
+    }
+
+    /**
+     * Wait until the attachment with the given id is downloaded or has finally failed, if it's still pending.
+     */
+    void awaitDownload(final String id) throws InterruptedException {
+        final Download download;
+        synchronized (this) {
+            download = pending.get(id);
+        }
+        if (download != null) {
+            download.done.await();
+        }
+    }
+
+    private void runNext() {
+        while (true) {
+            final Download download;
+            synchronized (this) {
+                if (running >= parallelism || queue.isEmpty()) {
+                    return;
+                }
+                download = queue.poll();
+                running++;
+            }
+            executorService.execute(() -> run(download));
+        }
+    }
+
+    private void run(final Download download) {
+        download.attempts++;
+        logger.debug("Downloading attachment {} with size {} (attempt {})",
+                download.id,
+                download.size,
+                download.attempts);
+        IOException error = null;
+        try {
+            download.downloader.download();
+        } catch (IOException e) {
+            error = e;
+        } catch (Throwable e) {
+            logger.warn("Unexpected error downloading attachment {}", download.id, e);
+            error = new IOException(e);
+        }
+
+        final boolean dropped;
+        final boolean retry;
+        synchronized (this) {
+            running--;
+            // A download that failed while shutting down, e.g. because it was interrupted, isn't final
+            dropped = error != null && closed;
+            retry = error != null && !closed && download.attempts < maxAttempts;
+            if (!retry) {
+                pending.remove(download.id);
+            }
+            this.notifyAll();
+        }
+        if (dropped) {
+            logger.debug("Dropping download of attachment {}, shutting down: {}", download.id, error.getMessage());
+            download.done.countDown();
+        } else if (retry) {
+            final var delay = retryDelay << (download.attempts - 1);
+            logger.debug("Failed to download attachment {}, retrying in {}ms: {}",
+                    download.id,
+                    delay,
+                    error.getMessage());
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> retry(download));
+        } else {
+            finish(download, error == null ? null : error.getMessage());
+        }
+        runNext();
+    }
+
+    private void retry(final Download download) {
+        synchronized (this) {
+            if (closed) {
+                // Already dropped by close()
+                return;
+            }
+            queue.add(download);
+        }
+        runNext();
+    }
+
+    private void finish(final Download download, final String error) {
+        if (error != null) {
+            logger.warn("Failed to download attachment {} after {} attempts, ignoring: {}",
+                    download.id,
+                    download.attempts,
+                    error);
+        }
+        download.done.countDown();
+        final var result = new AttachmentDownload(download.id,
+                download.file,
+                error == null ? AttachmentDownload.Status.DOWNLOADED : AttachmentDownload.Status.FAILED,
+                download.attempts,
+                error);
+        for (final var listener : listeners) {
+            try {
+                listener.handleAttachmentDownload(result);
+            } catch (Throwable e) {
+                logger.warn("Attachment download listener failed, ignoring", e);
+            }
+        }
+    }
+
+    /**
+     * Waits up to the close timeout for the queued and running downloads to finish.
+     * Downloads that are still pending after that, held or waiting for a retry are dropped.
+     */
+    @Override
+    public void close() {
+        final List<Download> dropped;
+        synchronized (this) {
+            closed = true;
+            final var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(closeTimeout);
+            while (running > 0 || !queue.isEmpty()) {
+                final var remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    break;
+                }
+                try {
+                    this.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            queue.clear();
+            held.clear();
+            dropped = List.copyOf(pending.values());
+            pending.clear();
+        }
+        if (!dropped.isEmpty()) {
+            logger.debug("Dropping {} pending attachment downloads, shutting down", dropped.size());
+        }
+        for (final var download : dropped) {
+            download.done.countDown();
+        }
+        // Interrupts the downloads that are still running after the timeout
+        executorService.shutdownNow();
+    }
+
+    @FunctionalInterface
+    interface Downloader {
+
+        void download() throws IOException;
+    }
+
+    private static final class Download implements Comparable<Download> {
+
+        private final String id;
+        private final File file;
+        private final long size;
+        private final long sequence;
+        private final Downloader downloader;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private int attempts;
+
+        private Download(
+                final String id,
+                final File file,
+                final long size,
+                final long sequence,
+                final Downloader downloader
+        ) {
+            this.id = id;
+            this.file = file;
+            this.size = size;
+            this.sequence = sequence;
+            this.downloader = downloader;
+        }
+
+        @Override
+        public int compareTo(final Download other) {
+            final var bySize = Long.compare(size, other.size);
+            return bySize != 0 ? bySize : Long.compare(sequence, other.sequence);
+        }
+    }
+}
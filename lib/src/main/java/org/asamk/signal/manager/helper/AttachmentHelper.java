@@ -1,6 +1,9 @@
 package org.asamk.signal.manager.helper;
 
+import org.asamk.signal.manager.Manager;
 import org.asamk.signal.manager.api.AttachmentInvalidException;
+import org.asamk.signal.manager.api.MessageEnvelope;
+import org.asamk.signal.manager.api.Pair;
 import org.asamk.signal.manager.config.ServiceConfig;
 import org.asamk.signal.manager.internal.SignalDependencies;
 import org.asamk.signal.manager.storage.AttachmentStore;
@@ -8,6 +11,7 @@ import org.asamk.signal.manager.util.AttachmentUtils;
 import org.asamk.signal.manager.util.IOUtils;
 import org.asamk.signal.manager.util.Utils;
 import org.signal.libsignal.protocol.InvalidMessageException;
+import org.signal.network.exceptions.PushNetworkException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.signalservice.api.crypto.AttachmentCipherInputStream;
@@ -16,6 +20,7 @@ import org.whispersystems.signalservice.api.messages.SignalServiceAttachment;
 import org.whispersystems.signalservice.api.messages.SignalServiceAttachmentPointer;
 import org.whispersystems.signalservice.api.messages.SignalServiceAttachmentStream;
 import org.whispersystems.signalservice.api.push.exceptions.MissingConfigurationException;
+import org.whispersystems.signalservice.api.push.exceptions.ResumeLocationInvalidException;
 import org.whispersystems.signalservice.api.util.StreamDetails;
 import org.whispersystems.signalservice.internal.crypto.PaddingInputStream;
 import org.whispersystems.signalservice.internal.push.http.ResumableUploadSpec;
@@ -23,10 +28,22 @@ import org.whispersystems.signalservice.internal.push.http.ResumableUploadSpec;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
 
 public class AttachmentHelper {
 
@@ -35,108 +52,269 @@ public class AttachmentHelper {
     private final SignalDependencies dependencies;
     private final AttachmentStore attachmentStore;
     private final Context context;
+    private final AttachmentDownloadQueue downloadQueue;
+    private final AttachmentUploadCache<SignalServiceAttachmentPointer> uploadCache = new AttachmentUploadCache<>(
+            ServiceConfig.ATTACHMENT_UPLOAD_REUSE_AGE,
+            SignalServiceAttachmentPointer::getUploadTimestamp);
+    private final ExecutorService uploadExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final LongAdder uploads = new LongAdder();
+    private final LongAdder reusedUploads = new LongAdder();
+    private final LongAdder resumedUploads = new LongAdder();
 
     public AttachmentHelper(final Context context) {
         this.context = context;
         this.dependencies = context.getDependencies();
         this.attachmentStore = context.getAttachmentStore();
+        this.downloadQueue = new AttachmentDownloadQueue(ServiceConfig.ATTACHMENT_DOWNLOAD_PARALLELISM,
+                ServiceConfig.ATTACHMENT_DOWNLOAD_MAX_ATTEMPTS,
+                ServiceConfig.ATTACHMENT_DOWNLOAD_RETRY_DELAY,
+                ServiceConfig.ATTACHMENT_DOWNLOAD_CLOSE_TIMEOUT);
+        // Finally failed downloads are also removed, they'd otherwise be retried after every restart
+        this.downloadQueue.addListener(download -> context.getAccount()
+                .getAttachmentDownloadStore()
+                .deleteDownload(download.id()));
     }
 
     public File getAttachmentFile(SignalServiceAttachmentPointer pointer) {
         return attachmentStore.getAttachmentFile(pointer);
     }
 
+    public MessageEnvelope.AttachmentFileProvider getAttachmentFileProvider() {
+        return new MessageEnvelope.AttachmentFileProvider() {
+            @Override
+            public File getFile(final SignalServiceAttachmentPointer pointer) {
+                return getAttachmentFile(pointer);
+            }
+
+            @Override
+            public boolean isDownloadPending(final SignalServiceAttachmentPointer pointer) {
+                return downloadQueue.isPending(getAttachmentFile(pointer).getName());
+            }
+        };
+    }
+
     public StreamDetails retrieveAttachment(final String id) throws IOException {
+        try {
+            // The attachment of a just received message may still be downloading
+            downloadQueue.awaitDownload(id);
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
         return attachmentStore.retrieveAttachment(id);
     }
 
+    public void addAttachmentDownloadListener(Manager.AttachmentDownloadListener listener) {
+        downloadQueue.addListener(listener);
+    }
+
+    public void removeAttachmentDownloadListener(Manager.AttachmentDownloadListener listener) {
+        downloadQueue.removeListener(listener);
+    }
+
     public List<SignalServiceAttachment> uploadAttachments(
             final List<String> attachments,
             boolean voiceNote
     ) throws AttachmentInvalidException, IOException {
-        final var attachmentStreams = createAttachmentStreams(attachments, voiceNote);
+        // Check all attachments first, so an invalid one fails the message before anything is uploaded
+        for (final var attachment : attachments) {
+            checkAttachmentLocation(attachment);
+        }
 
-        try {
-            // Upload attachments here, so we only upload once even for multiple recipients
-            final var attachmentPointers = new ArrayList<SignalServiceAttachment>(attachmentStreams.size());
-            for (final var attachmentStream : attachmentStreams) {
-                attachmentPointers.add(uploadAttachment(attachmentStream));
+        // Upload attachments here, so we only upload once even for multiple recipients
+        final var attachmentPointers = new ArrayList<SignalServiceAttachment>(attachments.size());
+        final var parallelism = Math.min(context.getAccount().getUploadParallelism(), attachments.size());
+        if (parallelism <= 1) {
+            for (final var attachment : attachments) {
+                attachmentPointers.add(uploadAttachment(attachment, voiceNote));
             }
             return attachmentPointers;
-        } finally {
-            for (final var attachmentStream : attachmentStreams) {
-                attachmentStream.close();
+        }
+
+        logger.debug("Uploading {} attachments with a parallelism of {}", attachments.size(), parallelism);
+        final var permits = new Semaphore(parallelism);
+        final var futures = new ArrayList<Future<SignalServiceAttachmentPointer>>(attachments.size());
+        for (final var attachment : attachments) {
+            futures.add(uploadExecutor.submit(() -> {
+                permits.acquire();
+                try {
+                    return uploadAttachment(attachment, voiceNote);
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+        try {
+            for (final var future : futures) {
+                attachmentPointers.add(future.get());
             }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while uploading attachments", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof AttachmentInvalidException attachmentInvalidException) {
+                throw attachmentInvalidException;
+            } else if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            } else if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("Failed to upload attachment", e.getCause());
         }
+        return attachmentPointers;
     }
 
     public List<SignalServiceAttachment> uploadAttachments(final List<String> attachments) throws AttachmentInvalidException, IOException {
         return uploadAttachments(attachments, false);
     }
 
-    private List<SignalServiceAttachmentStream> createAttachmentStreams(
-            List<String> attachments,
-            boolean voiceNote
+    public SignalServiceAttachmentPointer uploadAttachment(String attachment) throws IOException, AttachmentInvalidException {
+        checkAttachmentLocation(attachment);
+        return uploadAttachment(attachment, false);
+    }
+
+    public SignalServiceAttachmentPointer uploadAttachment(SignalServiceAttachmentStream attachment) throws IOException {
+        var messageSender = dependencies.getMessageSender();
+        return messageSender.uploadAttachment(attachment);
+    }
+
+    /**
+     * Uploads the attachment, unless the same content was uploaded recently.
+     * An interrupted upload is resumed with the same upload spec, which encrypts the content with the same key, so the
+     * CDN continues after the already uploaded part.
+     */
+    private SignalServiceAttachmentPointer uploadAttachment(
+            final String attachment,
+            final boolean voiceNote
     ) throws AttachmentInvalidException, IOException {
-        if (attachments == null) {
-            return null;
+        final long length;
+        final String cacheKey;
+        final var streamDetailsAndFileName = openAttachment(attachment);
+        try (final var streamDetails = streamDetailsAndFileName.first()) {
+            length = streamDetails.getLength();
+            cacheKey = getUploadCacheKey(streamDetails, streamDetailsAndFileName.second(), voiceNote);
+        } catch (IOException e) {
+            throw new AttachmentInvalidException(attachment, e);
         }
-        final var signalServiceAttachments = new ArrayList<SignalServiceAttachmentStream>(attachments.size());
-        for (var attachment : attachments) {
-            final var attachmentStream = getAttachmentStream(attachment, voiceNote);
-            signalServiceAttachments.add(attachmentStream);
+        final var cachedPointer = uploadCache.get(cacheKey, System.currentTimeMillis());
+        if (cachedPointer != null) {
+            logger.debug("Reusing recent upload {} of identical attachment", cachedPointer.getRemoteId());
+            reusedUploads.increment();
+            return cachedPointer;
         }
-        return signalServiceAttachments;
+
+        final var pointer = uploadResumable(() -> getResumableUploadSpec(length), uploadSpec -> {
+            try (final var streamDetails = openAttachment(attachment).first()) {
+                final var attachmentStream = AttachmentUtils.createAttachmentStream(streamDetails,
+                        streamDetailsAndFileName.second(),
+                        voiceNote,
+                        uploadSpec);
+                return uploadAttachment(attachmentStream);
+            }
+        }, ServiceConfig.ATTACHMENT_UPLOAD_MAX_ATTEMPTS, resumedUploads);
+        uploads.increment();
+        uploadCache.put(cacheKey, pointer);
+        return pointer;
     }
 
-    private SignalServiceAttachmentStream getAttachmentStream(
-            final String attachment,
-            final boolean voiceNote
-    ) throws AttachmentInvalidException {
-        try {
-            // Reject local files that point into the signal-cli data directory
-            if (attachment != null && !attachment.startsWith("data:")) {
-                try {
-                    final var file = new File(attachment);
-                    final var canonical = file.getCanonicalFile();
-                    final var dataPath = context.getAccount().getDataPath().getCanonicalFile();
-                    if (canonical.toPath().startsWith(dataPath.toPath())) {
-                        throw new AttachmentInvalidException(attachment,
-                                new IOException("Attaching files from the signal-cli data directory is not allowed"));
-                    }
-                } catch (IOException e) {
-                    throw new AttachmentInvalidException(attachment, e);
+    /**
+     * Runs the upload until it succeeds or the maximum attempts are reached.
+     * After a network error the upload is resumed with the same upload spec, only if the upload location is no longer
+     * valid a new upload spec is requested.
+     */
+    static <S, P> P uploadResumable(
+            final UploadSpecProvider<S> uploadSpecProvider,
+            final Uploader<S, P> uploader,
+            final int maxAttempts,
+            final LongAdder resumedUploads
+    ) throws IOException, AttachmentInvalidException {
+        var uploadSpec = uploadSpecProvider.get();
+        for (var attempt = 1; ; attempt++) {
+            try {
+                return uploader.upload(uploadSpec);
+            } catch (ResumeLocationInvalidException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                logger.debug("Upload location of attachment is no longer valid, restarting upload");
+                uploadSpec = uploadSpecProvider.get();
+            } catch (PushNetworkException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
                 }
+                logger.debug("Upload of attachment was interrupted, resuming: {}", e.getMessage());
+                resumedUploads.increment();
             }
+        }
+    }
 
-            final var streamDetailsAndFileName = Utils.createStreamDetails(attachment);
-            final var streamDetails = streamDetailsAndFileName.first();
-            final var uploadSpec = getResumableUploadSpec(streamDetails);
+    /**
+     * Reject local files that point into the signal-cli data directory
+     */
+    private void checkAttachmentLocation(final String attachment) throws AttachmentInvalidException {
+        if (attachment != null && !attachment.startsWith("data:")) {
+            try {
+                final var file = new File(attachment);
+                final var canonical = file.getCanonicalFile();
+                final var dataPath = context.getAccount().getDataPath().getCanonicalFile();
+                if (canonical.toPath().startsWith(dataPath.toPath())) {
+                    throw new AttachmentInvalidException(attachment,
+                            new IOException("Attaching files from the signal-cli data directory is not allowed"));
+                }
+            } catch (IOException e) {
+                throw new AttachmentInvalidException(attachment, e);
+            }
+        }
+    }
 
-            return AttachmentUtils.createAttachmentStream(streamDetails,
-                    streamDetailsAndFileName.second(),
-                    voiceNote,
-                    uploadSpec);
+    private static Pair<StreamDetails, Optional<String>> openAttachment(
+            final String attachment
+    ) throws AttachmentInvalidException {
+        try {
+            return Utils.createStreamDetails(attachment);
         } catch (IOException e) {
             throw new AttachmentInvalidException(attachment, e);
         }
     }
 
+    /**
+     * The key covers the content and everything else that ends up in the attachment pointer.
+     */
+    static String getUploadCacheKey(
+            final StreamDetails streamDetails,
+            final Optional<String> fileName,
+            final boolean voiceNote
+    ) throws IOException {
+        final MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+        try (final var input = new DigestInputStream(streamDetails.getStream(), sha256)) {
+            input.transferTo(OutputStream.nullOutputStream());
+        }
+        return String.join("/",
+                HexFormat.of().formatHex(sha256.digest()),
+                streamDetails.getContentType(),
+                fileName.orElse(""),
+                String.valueOf(voiceNote));
+    }
+
     public ResumableUploadSpec getResumableUploadSpec(final StreamDetails streamDetails) throws IOException {
-        final var streamLength = streamDetails.getLength();
+        return getResumableUploadSpec(streamDetails.getLength());
+    }
+
+    private ResumableUploadSpec getResumableUploadSpec(final long streamLength) throws IOException {
         final var ciphertextLength = AttachmentCipherStreamUtil.getCiphertextLength(PaddingInputStream.getPaddedSize(
                 streamLength));
         return dependencies.getCdnService().getResumableUploadSpecBlocking(ciphertextLength);
     }
 
-    public SignalServiceAttachmentPointer uploadAttachment(String attachment) throws IOException, AttachmentInvalidException {
-        final var attachmentStream = getAttachmentStream(attachment, false);
-        return uploadAttachment(attachmentStream);
-    }
-
-    public SignalServiceAttachmentPointer uploadAttachment(SignalServiceAttachmentStream attachment) throws IOException {
-        var messageSender = dependencies.getMessageSender();
-        return messageSender.uploadAttachment(attachment);
+    public AttachmentUploadStatistics getUploadStatistics() {
+        return new AttachmentUploadStatistics(uploads.sum(), reusedUploads.sum(), resumedUploads.sum());
     }
 
     public void downloadAttachment(final SignalServiceAttachment attachment) {
@@ -145,6 +323,63 @@ public class AttachmentHelper {
         }
 
         var pointer = attachment.asPointer();
+        storeAttachmentPreview(pointer);
+
+        try {
+            storeAttachment(pointer);
+        } catch (IOException e) {
+            logger.warn("Failed to download attachment ({}), ignoring: {}", pointer.getRemoteId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Like {@link #downloadAttachment}, but the attachment is downloaded in the background.
+     * Only the inline preview is stored before returning.
+     * <p>
+     * The download is persisted, so it's resumed after a restart, and only started by
+     * {@link #startAttachmentDownloads()}, after the message has been dispatched.
+     */
+    public void enqueueAttachmentDownload(final SignalServiceAttachment attachment) {
+        if (!attachment.isPointer()) {
+            logger.warn("Invalid state, can't store an attachment stream.");
+            return;
+        }
+
+        final var pointer = attachment.asPointer();
+        storeAttachmentPreview(pointer);
+        final var file = getAttachmentFile(pointer);
+        context.getAccount().getAttachmentDownloadStore().addDownload(file.getName(), pointer);
+        downloadQueue.hold(file, getDownloadSize(pointer), () -> storeAttachment(pointer));
+    }
+
+    /**
+     * Start the downloads enqueued while handling the last message.
+     */
+    public void startAttachmentDownloads() {
+        downloadQueue.startHeld();
+    }
+
+    /**
+     * Enqueue the downloads that were still pending when the account was last closed.
+     */
+    public void resumeAttachmentDownloads() {
+        final var downloads = context.getAccount().getAttachmentDownloadStore().getDownloads();
+        if (!downloads.isEmpty()) {
+            logger.debug("Resuming {} pending attachment downloads", downloads.size());
+        }
+        for (final var download : downloads) {
+            final var pointer = download.second();
+            downloadQueue.enqueue(getAttachmentFile(pointer),
+                    getDownloadSize(pointer),
+                    () -> storeAttachment(pointer));
+        }
+    }
+
+    private static long getDownloadSize(final SignalServiceAttachmentPointer pointer) {
+        return pointer.getSize().map(Integer::longValue).orElse(Long.MAX_VALUE);
+    }
+
+    private void storeAttachmentPreview(final SignalServiceAttachmentPointer pointer) {
         if (pointer.getPreview().isPresent()) {
             final var preview = pointer.getPreview().get();
             try {
@@ -154,11 +389,15 @@ public class AttachmentHelper {
                 logger.warn("Failed to download attachment preview, ignoring: {}", e.getMessage());
             }
         }
+    }
 
+    private void storeAttachment(final SignalServiceAttachmentPointer pointer) throws IOException {
         try {
             attachmentStore.storeAttachment(pointer, outputStream -> this.retrieveAttachment(pointer, outputStream));
         } catch (IOException e) {
-            logger.warn("Failed to download attachment ({}), ignoring: {}", pointer.getRemoteId(), e.getMessage());
+            // Don't leave a partially written file, that looks like a complete attachment
+            Files.deleteIfExists(getAttachmentFile(pointer).toPath());
+            throw e;
         }
     }
 
@@ -208,6 +447,25 @@ public class AttachmentHelper {
         }
     }
 
+    public void close() {
+        downloadQueue.close();
+        uploadExecutor.close();
+    }
+
+    public record AttachmentUploadStatistics(long uploads, long reusedUploads, long resumedUploads) {}
+
+    @FunctionalInterface
+    interface UploadSpecProvider<S> {
+
+        S get() throws IOException;
+    }
+
+    @FunctionalInterface
+    interface Uploader<S, P> {
+
+        P upload(S uploadSpec) throws IOException, AttachmentInvalidException;
+    }
+
     @FunctionalInterface
     public interface AttachmentHandler {
 
@@ -0,0 +1,49 @@
+package org.asamk.signal.manager.helper;
+
+import java.util.LinkedHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Remembers the pointers of recently uploaded attachments by their content, so a file that is sent again isn't
+ * uploaded again while the previous upload is still available on the CDN.
+ */
+class AttachmentUploadCache<P> {
+
+    static final int MAX_ENTRIES = 100;
+
+    private final long maxAge;
+    private final ToLongFunction<P> uploadTimestamp;
+    // Ordered by last access, least recently used first
+    private final LinkedHashMap<String, P> pointers = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @param maxAge          maximum age of an upload in milliseconds to still reuse it
+     * @param uploadTimestamp returns the time of the upload of a pointer
+     */
+    AttachmentUploadCache(final long maxAge, final ToLongFunction<P> uploadTimestamp) {
+        this.maxAge = maxAge;
+        this.uploadTimestamp = uploadTimestamp;
+    }
+
+    /**
+     * @return the pointer of a previous upload with the same key, or null if there is none or it's too old
+     */
+    synchronized P get(final String key, final long now) {
+        final var pointer = pointers.get(key);
+        if (pointer == null) {
+            return null;
+        }
+        if (now - uploadTimestamp.applyAsLong(pointer) >= maxAge) {
+            pointers.remove(key);
+            return null;
+        }
+        return pointer;
+    }
+
+    synchronized void put(final String key, final P pointer) {
+        pointers.put(key, pointer);
+        if (pointers.size() > MAX_ENTRIES) {
+            pointers.pollFirstEntry();
+        }
+    }
+}
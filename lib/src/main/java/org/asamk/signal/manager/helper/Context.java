@@ -180,6 +180,12 @@ public class Context implements AutoCloseable {
         if (callManager != null) {
             callManager.close();
         }
+        if (profileHelper != null) {
+            profileHelper.close();
+        }
+        if (attachmentHelper != null) {
+            attachmentHelper.close();
+        }
         jobExecutor.close();
     }
 
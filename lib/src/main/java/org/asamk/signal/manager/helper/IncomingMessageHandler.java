@@ -300,24 +300,30 @@ public final class IncomingMessageHandler {
                     envelope.getTimestamp());
             return List.of();
         } else {
-            List<HandleAction> actions;
-            Map<String, String> longTexts;
-            if (content != null) {
-                final var results = handleMessage(envelope, content, receiveConfig);
-                actions = results.first();
-                longTexts = results.second();
-            } else {
-                actions = List.of();
-                longTexts = Map.of();
+            try {
+                List<HandleAction> actions;
+                Map<String, String> longTexts;
+                if (content != null) {
+                    final var results = handleMessage(envelope, content, receiveConfig);
+                    actions = results.first();
+                    longTexts = results.second();
+                } else {
+                    actions = List.of();
+                    longTexts = Map.of();
+                }
+                handler.handleMessage(MessageEnvelope.from(envelope,
+                        content,
+                        longTexts,
+                        account.getRecipientResolver(),
+                        account.getRecipientAddressResolver(),
+                        context.getAttachmentHelper().getAttachmentFileProvider(),
+                        exception), exception);
+                return actions;
+            } finally {
+                // Only download the attachments after dispatching the message,
+                // so download events are never emitted before the message itself
+                context.getAttachmentHelper().startAttachmentDownloads();
             }
-            handler.handleMessage(MessageEnvelope.from(envelope,
-                    content,
-                    longTexts,
-                    account.getRecipientResolver(),
-                    account.getRecipientAddressResolver(),
-                    context.getAttachmentHelper()::getAttachmentFile,
-                    exception), exception);
-            return actions;
         }
     }
 
@@ -925,24 +931,26 @@ public final class IncomingMessageHandler {
         if (!receiveConfig.ignoreAttachments()) {
             if (message.getAttachments().isPresent()) {
                 for (var attachment : message.getAttachments().get()) {
-                    context.getAttachmentHelper().downloadAttachment(attachment);
-                    if (attachment.isPointer()) {
+                    if (MimeUtils.LONG_TEXT.equals(attachment.getContentType()) && attachment.isPointer()) {
+                        // The long text is part of the message body, so it's needed before the message is handled
+                        context.getAttachmentHelper().downloadAttachment(attachment);
                         final var file = context.getAttachmentHelper().getAttachmentFile(attachment.asPointer());
-                        if (MimeUtils.LONG_TEXT.equals(attachment.getContentType()) && attachment.isPointer()) {
-                            try {
-                                final var longText = Files.readString(file.toPath());
-                                longTexts.put(attachment.asPointer().getRemoteId().toString(), longText);
-                            } catch (IOException e) {
-                                logger.warn("Failed to read long text attachment, ignoring", e);
-                            }
+                        try {
+                            final var longText = Files.readString(file.toPath());
+                            longTexts.put(attachment.asPointer().getRemoteId().toString(), longText);
+                        } catch (IOException e) {
+                            logger.warn("Failed to read long text attachment, ignoring", e);
                         }
+                    } else {
+                        context.getAttachmentHelper().enqueueAttachmentDownload(attachment);
                     }
                 }
             }
             if (message.getSharedContacts().isPresent()) {
                 for (var contact : message.getSharedContacts().get()) {
                     if (contact.getAvatar().isPresent()) {
-                        context.getAttachmentHelper().downloadAttachment(contact.getAvatar().get().getAttachment());
+                        context.getAttachmentHelper()
+                                .enqueueAttachmentDownload(contact.getAvatar().get().getAttachment());
                     }
                 }
             }
@@ -950,7 +958,7 @@ public final class IncomingMessageHandler {
                 final var previews = message.getPreviews().get();
                 for (var preview : previews) {
                     if (preview.getImage().isPresent()) {
-                        context.getAttachmentHelper().downloadAttachment(preview.getImage().get());
+                        context.getAttachmentHelper().enqueueAttachmentDownload(preview.getImage().get());
                     }
                 }
             }
@@ -961,7 +969,7 @@ public final class IncomingMessageHandler {
                     for (var quotedAttachment : quote.getAttachments()) {
                         final var thumbnail = quotedAttachment.getThumbnail();
                         if (thumbnail != null) {
-                            context.getAttachmentHelper().downloadAttachment(thumbnail);
+                            context.getAttachmentHelper().enqueueAttachmentDownload(thumbnail);
                         }
                     }
                 }
@@ -1020,14 +1028,14 @@ public final class IncomingMessageHandler {
 
         if (!receiveConfig.ignoreAttachments()) {
             if (message.getFileAttachment().isPresent()) {
-                context.getAttachmentHelper().downloadAttachment(message.getFileAttachment().get());
+                context.getAttachmentHelper().enqueueAttachmentDownload(message.getFileAttachment().get());
             }
             if (message.getTextAttachment().isPresent()) {
                 final var textAttachment = message.getTextAttachment().get();
                 if (textAttachment.getPreview().isPresent()) {
                     final var preview = textAttachment.getPreview().get();
                     if (preview.getImage().isPresent()) {
-                        context.getAttachmentHelper().downloadAttachment(preview.getImage().get());
+                        context.getAttachmentHelper().enqueueAttachmentDownload(preview.getImage().get());
                     }
                 }
             }
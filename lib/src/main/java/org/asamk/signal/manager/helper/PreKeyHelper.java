@@ -20,6 +20,7 @@ import org.whispersystems.signalservice.api.push.exceptions.AuthorizationFailedE
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 import static org.asamk.signal.manager.config.ServiceConfig.PREKEY_STALE_AGE;
 import static org.asamk.signal.manager.config.ServiceConfig.SIGNED_PREKEY_ROTATE_AGE;
@@ -31,6 +32,10 @@ public class PreKeyHelper {
 
     private final SignalAccount account;
     private final SignalDependencies dependencies;
+    private final Map<ServiceIdType, PreKeyPool> preKeyPools = Map.of(ServiceIdType.ACI,
+            new PreKeyPool(),
+            ServiceIdType.PNI,
+            new PreKeyPool());
 
     public PreKeyHelper(final SignalAccount account, final SignalDependencies dependencies) {
         this.account = account;
@@ -107,6 +112,8 @@ public class PreKeyHelper {
                     preKeyCounts.getEcCount(),
                     ServiceConfig.PREKEY_MINIMUM_COUNT);
             preKeyRecords = generatePreKeys(serviceIdType);
+        } else if (preKeyCounts.getEcCount() < ServiceConfig.PREKEY_POOL_COUNT) {
+            prepareNextPreKeys(serviceIdType);
         }
 
         SignedPreKeyRecord signedPreKeyRecord = null;
@@ -122,6 +129,8 @@ public class PreKeyHelper {
                     preKeyCounts.getKyberCount(),
                     ServiceConfig.PREKEY_MINIMUM_COUNT);
             kyberPreKeyRecords = generateKyberPreKeys(serviceIdType, identityKeyPair);
+        } else if (preKeyCounts.getKyberCount() < ServiceConfig.PREKEY_POOL_COUNT) {
+            prepareNextKyberPreKeys(serviceIdType, identityKeyPair);
         }
 
         KyberPreKeyRecord lastResortKyberPreKeyRecord = null;
@@ -197,7 +206,17 @@ public class PreKeyHelper {
         final var accountData = account.getAccountData(serviceIdType);
         final var offset = accountData.getPreKeyMetadata().getNextPreKeyId();
 
-        return KeyUtils.generatePreKeyRecords(offset);
+        return preKeyPools.get(serviceIdType).takePreKeys(offset);
+    }
+
+    /**
+     * Start generating the next pre keys in the background, before the server runs out of them.
+     */
+    private void prepareNextPreKeys(ServiceIdType serviceIdType) {
+        final var accountData = account.getAccountData(serviceIdType);
+        final var offset = accountData.getPreKeyMetadata().getNextPreKeyId();
+
+        preKeyPools.get(serviceIdType).preparePreKeys(offset);
     }
 
     private boolean signedPreKeyNeedsRefresh(ServiceIdType serviceIdType) {
@@ -229,7 +248,14 @@ public class PreKeyHelper {
         final var accountData = account.getAccountData(serviceIdType);
         final var offset = accountData.getPreKeyMetadata().getNextKyberPreKeyId();
 
-        return KeyUtils.generateKyberPreKeyRecords(offset, identityKeyPair.getPrivateKey());
+        return preKeyPools.get(serviceIdType).takeKyberPreKeys(offset, identityKeyPair);
+    }
+
+    private void prepareNextKyberPreKeys(ServiceIdType serviceIdType, final IdentityKeyPair identityKeyPair) {
+        final var accountData = account.getAccountData(serviceIdType);
+        final var offset = accountData.getPreKeyMetadata().getNextKyberPreKeyId();
+
+        preKeyPools.get(serviceIdType).prepareKyberPreKeys(offset, identityKeyPair);
     }
 
     private boolean lastResortKyberPreKeyNeedsRefresh(ServiceIdType serviceIdType) {
@@ -0,0 +1,116 @@
+package org.asamk.signal.manager.helper;
+
+import org.asamk.signal.manager.util.KeyUtils;
+import org.signal.libsignal.protocol.IdentityKey;
+import org.signal.libsignal.protocol.IdentityKeyPair;
+import org.signal.libsignal.protocol.state.KyberPreKeyRecord;
+import org.signal.libsignal.protocol.state.PreKeyRecord;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Generates the next batch of one-time pre keys in the background, before the server runs out of pre keys.
+ * Refreshing the pre keys then only has to upload and store the already generated keys.
+ * <p>
+ * A batch is generated for the pre key id offset it starts at, it's only handed out if that's still the next
+ * pre key id, e.g. not after the offsets were reset. Without a matching batch the keys are generated on the calling
+ * thread, so a refresh never waits for the low priority background generator.
+ */
+class PreKeyPool {
+
+    // Shared by all accounts, runs with low priority so it only uses otherwise idle cores
+    private static final ThreadPoolExecutor generator = createGenerator();
+
+    private Batch<PreKeyRecord> preKeys;
+    private Batch<KyberPreKeyRecord> kyberPreKeys;
+
+    synchronized void preparePreKeys(final int offset) {
+        if (preKeys == null || !preKeys.matches(offset, null)) {
+            preKeys = Batch.generate(offset, null, () -> KeyUtils.generatePreKeyRecords(offset));
+        }
+    }
+
+    /**
+     * @return the pre keys starting at offset, waits for them if they are still being generated or generates them on
+     *         the calling thread if no matching batch was prepared
+     */
+    List<PreKeyRecord> takePreKeys(final int offset) {
+        final Batch<PreKeyRecord> batch;
+        synchronized (this) {
+            batch = preKeys;
+            preKeys = null;
+        }
+        if (batch == null || !batch.matches(offset, null)) {
+            return KeyUtils.generatePreKeyRecords(offset);
+        }
+        return batch.records().join();
+    }
+
+    synchronized void prepareKyberPreKeys(final int offset, final IdentityKeyPair identityKeyPair) {
+        final var identityKey = identityKeyPair.getPublicKey();
+        if (kyberPreKeys == null || !kyberPreKeys.matches(offset, identityKey)) {
+            kyberPreKeys = Batch.generate(offset,
+                    identityKey,
+                    () -> KeyUtils.generateKyberPreKeyRecords(offset, identityKeyPair.getPrivateKey()));
+        }
+    }
+
+    /**
+     * @return the kyber pre keys starting at offset, signed with the identity key pair, waits for them if they are
+     *         still being generated or generates them on the calling thread if no matching batch was prepared
+     */
+    List<KyberPreKeyRecord> takeKyberPreKeys(final int offset, final IdentityKeyPair identityKeyPair) {
+        final Batch<KyberPreKeyRecord> batch;
+        synchronized (this) {
+            batch = kyberPreKeys;
+            kyberPreKeys = null;
+        }
+        if (batch == null || !batch.matches(offset, identityKeyPair.getPublicKey())) {
+            return KeyUtils.generateKyberPreKeyRecords(offset, identityKeyPair.getPrivateKey());
+        }
+        return batch.records().join();
+    }
+
+    private static ThreadPoolExecutor createGenerator() {
+        final var threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        final var threadNumber = new AtomicInteger();
+        final var executor = new ThreadPoolExecutor(threads,
+                threads,
+                1,
+                TimeUnit.MINUTES,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    var t = new Thread(r, "pre-key-generator-" + threadNumber.incrementAndGet());
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * @param identityKey the identity key the pre keys are signed with, null if they aren't signed
+     */
+    private record Batch<T>(int offset, IdentityKey identityKey, CompletableFuture<List<T>> records) {
+
+        static <T> Batch<T> generate(
+                final int offset,
+                final IdentityKey identityKey,
+                final Supplier<List<T>> generator
+        ) {
+            return new Batch<>(offset, identityKey, CompletableFuture.supplyAsync(generator, PreKeyPool.generator));
+        }
+
+        boolean matches(final int offset, final IdentityKey identityKey) {
+            return this.offset == offset && Objects.equals(this.identityKey, identityKey);
+        }
+    }
+}
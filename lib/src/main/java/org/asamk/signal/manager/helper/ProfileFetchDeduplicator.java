@@ -0,0 +1,101 @@
+package org.asamk.signal.manager.helper;
+
+import org.asamk.signal.manager.storage.recipients.RecipientId;
+import org.whispersystems.signalservice.api.profiles.SignalServiceProfile;
+import org.whispersystems.signalservice.api.push.exceptions.NotFoundException;
+import org.whispersystems.signalservice.api.push.exceptions.RateLimitException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import io.reactivex.rxjava3.core.Single;
+
+/**
+ * Concurrent requests for the same recipient share a single network request. A request for the profile is also
+ * answered by a running request for the profile and credential.
+ * After a 404 or rate limit response, further requests fail without contacting the server for a short time.
+ */
+class ProfileFetchDeduplicator<T> {
+
+    static final long FAILED_FETCH_RETRY_DELAY = TimeUnit.MINUTES.toMillis(1);
+
+    private final LongSupplier clock;
+    private final Map<ProfileFetchKey, Single<T>> inFlightFetches = new HashMap<>();
+    private final Map<RecipientId, FailedFetch> failedFetches = new HashMap<>();
+    private final LongAdder profileFetches = new LongAdder();
+    private final LongAdder deduplicatedFetches = new LongAdder();
+    private final LongAdder suppressedFetches = new LongAdder();
+
+    ProfileFetchDeduplicator() {
+        this(System::currentTimeMillis);
+    }
+
+    ProfileFetchDeduplicator(final LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * @param fetcher creates the request, it's only called once the returned single is subscribed, outside the lock
+     */
+    Single<T> fetch(
+            final RecipientId recipientId,
+            final SignalServiceProfile.RequestType requestType,
+            final Supplier<Single<T>> fetcher
+    ) {
+        final var key = new ProfileFetchKey(recipientId, requestType);
+        synchronized (inFlightFetches) {
+            final var failedFetch = failedFetches.get(recipientId);
+            if (failedFetch != null) {
+                if (failedFetch.retryAt() > clock.getAsLong()) {
+                    suppressedFetches.increment();
+                    return Single.error(failedFetch.error());
+                }
+                failedFetches.remove(recipientId);
+            }
+
+            var fetch = inFlightFetches.get(key);
+            if (fetch == null && requestType == SignalServiceProfile.RequestType.PROFILE) {
+                fetch = inFlightFetches.get(new ProfileFetchKey(recipientId,
+                        SignalServiceProfile.RequestType.PROFILE_AND_CREDENTIAL));
+            }
+            if (fetch != null) {
+                deduplicatedFetches.increment();
+                return fetch;
+            }
+
+            profileFetches.increment();
+            fetch = Single.defer(fetcher::get).doOnError(e -> {
+                final var retryAfter = switch (e) {
+                    case NotFoundException ignored -> FAILED_FETCH_RETRY_DELAY;
+                    case RateLimitException r -> r.getRetryAfterMilliseconds().orElse(FAILED_FETCH_RETRY_DELAY);
+                    default -> 0L;
+                };
+                if (retryAfter > 0) {
+                    synchronized (inFlightFetches) {
+                        failedFetches.put(recipientId, new FailedFetch(e, clock.getAsLong() + retryAfter));
+                    }
+                }
+            }).doFinally(() -> {
+                synchronized (inFlightFetches) {
+                    inFlightFetches.remove(key);
+                }
+            }).cache();
+            inFlightFetches.put(key, fetch);
+            return fetch;
+        }
+    }
+
+    ProfileHelper.ProfileFetchStatistics getStatistics() {
+        return new ProfileHelper.ProfileFetchStatistics(profileFetches.sum(),
+                deduplicatedFetches.sum(),
+                suppressedFetches.sum());
+    }
+
+    private record ProfileFetchKey(RecipientId recipientId, SignalServiceProfile.RequestType requestType) {}
+
+    private record FailedFetch(Throwable error, long retryAt) {}
+}
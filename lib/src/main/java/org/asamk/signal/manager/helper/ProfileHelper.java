@@ -9,6 +9,7 @@ import org.asamk.signal.manager.internal.SignalDependencies;
 import org.asamk.signal.manager.jobs.SyncStorageJob;
 import org.asamk.signal.manager.storage.SignalAccount;
 import org.asamk.signal.manager.storage.groups.GroupInfoV2;
+import org.asamk.signal.manager.storage.recipients.Recipient;
 import org.asamk.signal.manager.storage.recipients.RecipientAddress;
 import org.asamk.signal.manager.storage.recipients.RecipientId;
 import org.asamk.signal.manager.util.IOUtils;
@@ -41,6 +42,7 @@ import java.util.Base64;
 import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -57,10 +59,17 @@ public final class ProfileHelper {
     private final SignalDependencies dependencies;
     private final Context context;
 
+    private final ProfileFetchDeduplicator<ProfileAndCredential> fetchDeduplicator = new ProfileFetchDeduplicator<>();
+    private final ProfileRefresher profileRefresher;
+
     public ProfileHelper(final Context context) {
         this.account = context.getAccount();
         this.dependencies = context.getDependencies();
         this.context = context;
+        final var refreshRate = account.getProfileRefreshRate();
+        this.profileRefresher = refreshRate > 0
+                ? new ProfileRefresher(account.getProfileTtl(), refreshRate, this::refreshRecipientProfile)
+                : null;
     }
 
     public void rotateProfileKey() throws IOException {
@@ -123,6 +132,10 @@ public final class ProfileHelper {
         return recipientIds.stream().map(r -> account.getProfileStore().getExpiringProfileKeyCredential(r)).toList();
     }
 
+    public ProfileFetchStatistics getProfileFetchStatistics() {
+        return fetchDeduplicator.getStatistics();
+    }
+
     public ExpiringProfileKeyCredential getExpiringProfileKeyCredential(RecipientId recipientId) {
         var profileKeyCredential = account.getProfileStore().getExpiringProfileKeyCredential(recipientId);
         if (ExpiringProfileCredentialUtil.isValid(profileKeyCredential)) {
@@ -244,22 +257,42 @@ public final class ProfileHelper {
     }
 
     private List<Profile> getRecipientProfiles(Collection<RecipientId> recipientIds, boolean force) {
-        final var profileStore = account.getProfileStore();
-        final var profileFetches = Flowable.fromIterable(recipientIds)
-                .filter(recipientId -> force || isProfileRefreshRequired(profileStore.getProfile(recipientId)))
-                .map(recipientId -> retrieveProfile(recipientId,
-                        SignalServiceProfile.RequestType.PROFILE,
-                        false).onErrorComplete());
-        Maybe.merge(profileFetches, 10).blockingSubscribe();
+        final var recipientStore = account.getRecipientStore();
+        final var storedRecipients = recipientStore.getRecipients(recipientIds);
+        final var outdatedRecipientIds = force
+                ? List.copyOf(recipientIds)
+                : recipientIds.stream().filter(recipientId -> {
+                    final var recipient = storedRecipients.get(recipientId);
+                    final var profile = recipient == null ? null : recipient.getProfile();
+                    markActive(recipientId, profile);
+                    return isBlockingRefreshRequired(recipientId, profile);
+                }).toList();
+        final Map<RecipientId, Recipient> recipients;
+        if (outdatedRecipientIds.isEmpty()) {
+            recipients = storedRecipients;
+        } else {
+            final var profileFetches = Flowable.fromIterable(outdatedRecipientIds)
+                    .map(recipientId -> retrieveProfile(recipientId,
+                            SignalServiceProfile.RequestType.PROFILE,
+                            false).onErrorComplete());
+            Maybe.merge(profileFetches, 10).blockingSubscribe();
+            recipients = recipientStore.getRecipients(recipientIds);
+        }
 
-        return recipientIds.stream().map(profileStore::getProfile).toList();
+        return recipientIds.stream().map(recipientId -> {
+            final var recipient = recipients.get(recipientId);
+            return recipient == null ? null : recipient.getProfile();
+        }).toList();
     }
 
     private Profile getRecipientProfile(RecipientId recipientId, boolean force) {
         var profile = account.getProfileStore().getProfile(recipientId);
 
-        if (!force && !isProfileRefreshRequired(profile)) {
-            return profile;
+        if (!force) {
+            markActive(recipientId, profile);
+            if (!isBlockingRefreshRequired(recipientId, profile)) {
+                return profile;
+            }
         }
 
         try {
@@ -273,13 +306,39 @@ public final class ProfileHelper {
         return account.getProfileStore().getProfile(recipientId);
     }
 
+    /**
+     * Outdated profiles of other recipients are returned as they are and refreshed by the background refresher,
+     * only missing profiles need to be retrieved before continuing.
+     */
+    private boolean isBlockingRefreshRequired(final RecipientId recipientId, final Profile profile) {
+        if (profile == null) {
+            return true;
+        }
+        if (profileRefresher == null || recipientId.equals(account.getSelfRecipientId())) {
+            return isProfileRefreshRequired(profile);
+        }
+        return false;
+    }
+
     private boolean isProfileRefreshRequired(final Profile profile) {
         if (profile == null) {
             return true;
         }
-        // Profiles are cached for 6h before retrieving them again, unless forced
+        // Profiles are cached for the configured TTL before retrieving them again, unless forced
         final var now = System.currentTimeMillis();
-        return now - profile.getLastUpdateTimestamp() >= 6 * 60 * 60 * 1000;
+        return now - profile.getLastUpdateTimestamp() >= account.getProfileTtl();
+    }
+
+    private void markActive(final RecipientId recipientId, final Profile profile) {
+        if (profileRefresher != null && !recipientId.equals(account.getSelfRecipientId())) {
+            profileRefresher.markActive(recipientId, profile);
+        }
+    }
+
+    public void close() {
+        if (profileRefresher != null) {
+            profileRefresher.close();
+        }
     }
 
     public void downloadProfileAvatar(
@@ -312,10 +371,23 @@ public final class ProfileHelper {
         }
     }
 
+    /**
+     * Concurrent requests for the same recipient share a single network request, see {@link ProfileFetchDeduplicator}.
+     */
     private Single<ProfileAndCredential> retrieveProfile(
             RecipientId recipientId,
             SignalServiceProfile.RequestType requestType,
             final boolean ignoreAvatars
+    ) {
+        return fetchDeduplicator.fetch(recipientId,
+                requestType,
+                () -> fetchProfile(recipientId, requestType, ignoreAvatars));
+    }
+
+    private Single<ProfileAndCredential> fetchProfile(
+            RecipientId recipientId,
+            SignalServiceProfile.RequestType requestType,
+            final boolean ignoreAvatars
     ) {
         var unidentifiedAccess = getUnidentifiedAccess(recipientId);
         var profileKey = Optional.ofNullable(account.getProfileStore().getProfileKey(recipientId));
@@ -473,4 +545,11 @@ public final class ProfileHelper {
     private @Nullable SealedSenderAccess getUnidentifiedAccess(RecipientId recipientId) {
         return context.getUnidentifiedAccessHelper().getSealedSenderAccessFor(recipientId, true);
     }
+
+    /**
+     * @param fetches             profile requests sent to the server
+     * @param deduplicatedFetches requests answered by a request that was already running
+     * @param suppressedFetches   requests not sent, because the last request for the recipient failed recently
+     */
+    public record ProfileFetchStatistics(long fetches, long deduplicatedFetches, long suppressedFetches) {}
 }
@@ -0,0 +1,131 @@
+package org.asamk.signal.manager.helper;
+
+import org.asamk.signal.manager.api.Profile;
+import org.asamk.signal.manager.storage.recipients.RecipientId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Refreshes the profiles of recently active recipients in the background, shortly before they expire.
+ * <p>
+ * Recipients are refreshed in order of their last activity, at most {@code refreshRate} per minute, so a large number
+ * of outdated profiles doesn't run into the server's rate limits.
+ * <p>
+ * The refreshers of all accounts share a single timer thread, which only starts the refreshes on virtual threads.
+ */
+class ProfileRefresher implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProfileRefresher.class);
+    private static final int MAX_ACTIVE_RECIPIENTS = 1000;
+    private static final ScheduledThreadPoolExecutor timer = createTimer();
+
+    private final long profileTtl;
+    private final long refreshInterval;
+    private final Consumer<RecipientId> refreshProfile;
+
+    // Ordered by last activity, most recently active last
+    private final LinkedHashMap<RecipientId, ActiveRecipient> activeRecipients = new LinkedHashMap<>();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private ScheduledFuture<?> refreshTask;
+    private boolean closed;
+
+    ProfileRefresher(final long profileTtl, final int refreshRate, final Consumer<RecipientId> refreshProfile) {
+        this.profileTtl = profileTtl;
+        this.refreshInterval = Math.max(1, TimeUnit.MINUTES.toMillis(1) / refreshRate);
+        this.refreshProfile = refreshProfile;
+    }
+
+    /**
+     * Profiles are refreshed ahead of their expiry, once three quarters of the TTL have passed.
+     */
+    boolean isRefreshAheadRequired(final long profileLastUpdateTimestamp, final long now) {
+        return now - profileLastUpdateTimestamp >= profileTtl - profileTtl / 4;
+    }
+
+    synchronized void markActive(final RecipientId recipientId, final Profile profile) {
+        if (closed) {
+            return;
+        }
+        final var profileUpdated = profile == null ? 0 : profile.getLastUpdateTimestamp();
+        activeRecipients.remove(recipientId);
+        activeRecipients.put(recipientId, new ActiveRecipient(System.currentTimeMillis(), profileUpdated));
+        if (activeRecipients.size() > MAX_ACTIVE_RECIPIENTS) {
+            activeRecipients.pollFirstEntry();
+        }
+        if (refreshTask == null) {
+            refreshTask = timer.scheduleWithFixedDelay(this::startRefreshNext,
+                    refreshInterval,
+                    refreshInterval,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    synchronized RecipientId nextRecipientToRefresh(final long now) {
+        activeRecipients.values().removeIf(r -> now - r.lastActivity() >= profileTtl);
+        for (final var entry : activeRecipients.reversed().entrySet()) {
+            final var recipient = entry.getValue();
+            if (isRefreshAheadRequired(recipient.profileUpdated(), now)) {
+                entry.setValue(new ActiveRecipient(recipient.lastActivity(), now));
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    private void startRefreshNext() {
+        // Skip the interval while the previous refresh is still running, so a slow server doesn't pile up refreshes
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("profile-refresher-task").start(() -> {
+            try {
+                refreshNext();
+            } finally {
+                refreshing.set(false);
+            }
+        });
+    }
+
+    private void refreshNext() {
+        final var recipientId = nextRecipientToRefresh(System.currentTimeMillis());
+        if (recipientId == null) {
+            return;
+        }
+        logger.trace("Refreshing profile of {} in background", recipientId);
+        try {
+            refreshProfile.accept(recipientId);
+        } catch (Throwable e) {
+            logger.debug("Failed to refresh profile of {} in background: {}", recipientId, e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        activeRecipients.clear();
+        if (refreshTask != null) {
+            refreshTask.cancel(false);
+            refreshTask = null;
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor createTimer() {
+        final var executor = new ScheduledThreadPoolExecutor(1, r -> {
+            var t = new Thread(r, "profile-refresher");
+            t.setDaemon(true);
+            return t;
+        });
+        // Don't keep the refreshes of closed accounts in the queue
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    private record ActiveRecipient(long lastActivity, long profileUpdated) {}
+}
@@ -19,6 +19,7 @@ import org.whispersystems.signalservice.api.websocket.WebSocketUnavailableExcept
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -26,7 +27,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 import io.reactivex.rxjava3.schedulers.Schedulers;
 
@@ -34,15 +40,28 @@ public class ReceiveHelper {
 
     private static final Logger logger = LoggerFactory.getLogger(ReceiveHelper.class);
     private static final int MAX_BACKOFF_COUNTER = 9;
+    // Number of batches that can be fetched ahead of the dispatch stage
+    private static final int RECEIVE_QUEUE_BATCHES = 4;
+    // Interval in which an idle dispatch stage checks for failed messages that need to be retried
+    private static final long RETRY_CHECK_INTERVAL_MILLIS = 1000;
+    private static final QueueEmpty QUEUE_EMPTY = new QueueEmpty();
+    private static final EndOfStream END_OF_STREAM = new EndOfStream();
 
     private final SignalAccount account;
     private final SignalDependencies dependencies;
     private final Context context;
 
-    private ReceiveConfig receiveConfig = new ReceiveConfig(false, false, false, false, false);
-    private boolean hasCaughtUpWithOldMessages = false;
-    private boolean isWaitingForMessage = false;
-    private boolean shouldStop = false;
+    private final Set<CachedMessage> inFlightMessages = ConcurrentHashMap.newKeySet();
+
+    private ReceiveConfig receiveConfig = new ReceiveConfig(false,
+            false,
+            false,
+            false,
+            false,
+            ReceiveConfig.DEFAULT_BATCH_SIZE);
+    private volatile boolean hasCaughtUpWithOldMessages = false;
+    private volatile boolean isWaitingForMessage = false;
+    private volatile boolean shouldStop = false;
     private Callable authenticationFailureListener;
     private Callable caughtUpWithOldMessagesListener;
 
@@ -88,6 +107,7 @@ public class ReceiveHelper {
     ) throws IOException {
         account.setNeedsToRetryFailedMessages(true);
         hasCaughtUpWithOldMessages = false;
+        context.getAttachmentHelper().resumeAttachmentDownloads();
 
         // Use a Map here because java Set doesn't have a get method ...
         Map<HandleAction, HandleAction> queuedActions = new HashMap<>();
@@ -101,12 +121,22 @@ public class ReceiveHelper {
         signalWebSocket.connect();
         signalWebSocket.registerKeepAliveToken("receive");
 
+        final var batchSize = Math.max(1, receiveConfig.batchSize());
+        final var queue = new ArrayBlockingQueue<ReceivedItem>(batchSize * RECEIVE_QUEUE_BATCHES);
+        final var stats = new ReceiveStats();
+        final var dispatcher = Thread.ofVirtual()
+                .name("receive-dispatch")
+                .start(() -> dispatchMessages(queue, handler, queuedActions, stats));
+
         try {
-            receiveMessagesInternal(signalWebSocket, timeout, maxMessages, handler, queuedActions);
+            receiveMessagesInternal(signalWebSocket, timeout, maxMessages, batchSize, queue, stats);
         } finally {
+            stopDispatcher(queue, dispatcher);
+            logger.debug("Receive pipeline stats: {}", stats);
             hasCaughtUpWithOldMessages = false;
             handleQueuedActions(queuedActions.keySet());
             queuedActions.clear();
+            inFlightMessages.clear();
             signalWebSocket.removeKeepAliveToken("receive");
             signalWebSocket.disconnect();
             webSocketStateDisposable.dispose();
@@ -114,12 +144,18 @@ public class ReceiveHelper {
         }
     }
 
+    /**
+     * Fetch stage of the receive pipeline.
+     * Reads envelopes from the server in batches, stores them in the message cache, acknowledges them and hands them
+     * over to the dispatch stage.
+     */
     private void receiveMessagesInternal(
             final SignalWebSocket.AuthenticatedWebSocket signalWebSocket,
             Optional<Duration> timeout,
             Integer maxMessages,
-            Manager.ReceiveMessageHandler handler,
-            final Map<HandleAction, HandleAction> queuedActions
+            final int batchSize,
+            final BlockingQueue<ReceivedItem> queue,
+            final ReceiveStats stats
     ) throws IOException {
         int remainingMessages = maxMessages == null ? -1 : maxMessages;
         var backOffCounter = 0;
@@ -127,25 +163,24 @@ public class ReceiveHelper {
 
         logger.debug("Start receiving messages");
         while (!shouldStop && remainingMessages != 0) {
-            if (account.getNeedsToRetryFailedMessages()) {
-                retryFailedReceivedMessages(handler);
-            }
-            SignalServiceEnvelope envelope;
-            final CachedMessage[] cachedMessage = {null};
+            final var cachedMessages = new ArrayList<CachedMessage>();
             final var nowMillis = System.currentTimeMillis();
             if (nowMillis - account.getLastReceiveTimestamp() > 4 * 60 * 60 * 1000) {
                 account.setLastReceiveTimestamp(nowMillis);
             }
             logger.trace("Checking for new message from server");
+            final boolean queueNotEmpty;
             try {
                 isWaitingForMessage = true;
                 final var timeoutMs = timeout.orElseGet(() -> Duration.ofMinutes(1)).toMillis();
                 if (timeoutMs <= 0L) {
                     return;
                 }
-                var queueNotEmpty = signalWebSocket.readMessageBatch(timeoutMs, 1, batch -> {
+                final var maxBatchSize = remainingMessages > 0 ? Math.min(batchSize, remainingMessages) : batchSize;
+                queueNotEmpty = signalWebSocket.readMessageBatch(timeoutMs, maxBatchSize, batch -> {
                     logger.debug("Retrieved {} envelopes!", batch.size());
                     isWaitingForMessage = false;
+                    final var start = System.nanoTime();
                     for (final var it : batch) {
                         SignalServiceEnvelope envelope1 = new SignalServiceEnvelope(it.getEnvelope(),
                                 it.getServerDeliveredTimestamp());
@@ -155,35 +190,19 @@ public class ReceiveHelper {
                                 : account.getRecipientResolver().resolveRecipient(sourceServiceId);
                         logger.trace("Storing new message from {}", recipientId);
                         // store message on disk, before acknowledging receipt to the server
-                        cachedMessage[0] = account.getMessageCache().cacheMessage(envelope1, recipientId);
+                        final var cachedMessage = account.getMessageCache().cacheMessage(envelope1, recipientId);
+                        inFlightMessages.add(cachedMessage);
+                        cachedMessages.add(cachedMessage);
                         try {
                             signalWebSocket.sendAck(it);
                         } catch (IOException e) {
                             logger.warn("Failed to ack envelope to server after storing it: {}", e.getMessage());
                         }
                     }
+                    stats.recordFetch(batch.size(), System.nanoTime() - start);
                 });
                 isWaitingForMessage = false;
                 backOffCounter = 0;
-
-                if (queueNotEmpty) {
-                    if (remainingMessages > 0) {
-                        remainingMessages -= 1;
-                    }
-                    envelope = cachedMessage[0].loadEnvelope();
-                    logger.debug("New message received from server");
-                } else {
-                    logger.debug("Received indicator that server queue is empty");
-                    handleQueuedActions(queuedActions.keySet());
-                    queuedActions.clear();
-
-                    context.getJobExecutor().enqueueJob(new CleanOldPreKeysJob());
-                    hasCaughtUpWithOldMessages = true;
-                    caughtUpWithOldMessagesListener.call();
-
-                    // Continue to wait another timeout for new messages
-                    continue;
-                }
             } catch (AssertionError e) {
                 if (e.getCause() instanceof InterruptedException) {
                     break;
@@ -218,55 +237,200 @@ public class ReceiveHelper {
             }
 
             try {
-                final var result = context.getIncomingMessageHandler().handleEnvelope(envelope, receiveConfig, handler);
-                for (final var h : result.first()) {
-                    final var existingAction = queuedActions.get(h);
-                    if (existingAction == null) {
-                        queuedActions.put(h, h);
-                    } else {
-                        existingAction.mergeOther(h);
+                for (final var cachedMessage : cachedMessages) {
+                    queue.put(new ReceivedEnvelope(cachedMessage, System.nanoTime()));
+                    if (remainingMessages > 0) {
+                        remainingMessages -= 1;
                     }
                 }
-                final var exception = result.second();
+                if (queueNotEmpty) {
+                    logger.debug("New message received from server");
+                } else {
+                    logger.debug("Received indicator that server queue is empty");
+                    queue.put(QUEUE_EMPTY);
+                }
+                stats.recordQueueDepth(queue.size());
+            } catch (InterruptedException e) {
+                // Messages that haven't been queued yet are kept in the message cache and retried later
+                logger.debug("Interrupted while handing over received messages");
+                return;
+            }
+        }
+    }
 
-                if (hasCaughtUpWithOldMessages) {
-                    handleQueuedActions(queuedActions.keySet());
-                    queuedActions.clear();
+    /**
+     * Dispatch stage of the receive pipeline.
+     * Decrypts and handles the envelopes in the order they were received, so messages from the same sender are
+     * always handled in order.
+     */
+    private void dispatchMessages(
+            final BlockingQueue<ReceivedItem> queue,
+            final Manager.ReceiveMessageHandler handler,
+            final Map<HandleAction, HandleAction> queuedActions,
+            final ReceiveStats stats
+    ) {
+        runDispatchLoop(queue, () -> {
+            if (account.getNeedsToRetryFailedMessages()) {
+                try {
+                    retryFailedReceivedMessages(handler);
+                } catch (RuntimeException e) {
+                    // The messages stay in the message cache and are retried with the next receive
+                    account.setNeedsToRetryFailedMessages(false);
+                    throw e;
                 }
-                if (cachedMessage[0] != null) {
-                    if (exception instanceof UntrustedIdentityException) {
-                        logger.debug("Keeping message with untrusted identity in message cache");
-                        final var address = ((UntrustedIdentityException) exception).getSender();
-                        if (envelope.getSourceServiceId() == null && address.aci().isPresent()) {
-                            final var recipientId = account.getRecipientResolver()
-                                    .resolveRecipient(ACI.parseOrThrow(address.aci().get()));
-                            try {
-                                cachedMessage[0] = account.getMessageCache()
-                                        .replaceSender(cachedMessage[0], recipientId);
-                            } catch (IOException ioException) {
-                                logger.warn("Failed to move cached message to recipient folder: {}",
-                                        ioException.getMessage(),
-                                        ioException);
-                            }
-                        }
-                    } else {
-                        cachedMessage[0].delete();
+            }
+        }, item -> dispatchItem(item, queue, handler, queuedActions, stats));
+    }
+
+    /**
+     * Dispatches the received items until the end of the stream or until the thread is interrupted.
+     * A failure is logged and the loop continues, otherwise the fetch stage would block forever on the full queue.
+     */
+    static void runDispatchLoop(
+            final BlockingQueue<ReceivedItem> queue,
+            final Runnable beforePoll,
+            final Consumer<ReceivedItem> dispatcher
+    ) {
+        while (true) {
+            try {
+                beforePoll.run();
+            } catch (RuntimeException e) {
+                logger.error("Unknown error when retrying received messages", e);
+            }
+            final ReceivedItem item;
+            try {
+                item = queue.poll(RETRY_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (item == null) {
+                continue;
+            }
+            try {
+                dispatcher.accept(item);
+            } catch (RuntimeException e) {
+                logger.error("Unknown error when dispatching received messages", e);
+            }
+            if (item instanceof EndOfStream) {
+                return;
+            }
+        }
+    }
+
+    private void dispatchItem(
+            final ReceivedItem item,
+            final BlockingQueue<ReceivedItem> queue,
+            final Manager.ReceiveMessageHandler handler,
+            final Map<HandleAction, HandleAction> queuedActions,
+            final ReceiveStats stats
+    ) {
+        switch (item) {
+            case EndOfStream ignored -> account.flushSessions();
+            case QueueEmpty ignored -> {
+                account.flushSessions();
+                handleQueuedActions(queuedActions.keySet());
+                queuedActions.clear();
+
+                context.getJobExecutor().enqueueJob(new CleanOldPreKeysJob());
+                hasCaughtUpWithOldMessages = true;
+                caughtUpWithOldMessagesListener.call();
+                logger.debug("Receive pipeline stats: {}", stats);
+            }
+            case ReceivedEnvelope(final var cachedMessage, final var enqueuedNanos) -> {
+                final var start = System.nanoTime();
+                try {
+                    handleCachedMessage(cachedMessage, handler, queuedActions);
+                } finally {
+                    inFlightMessages.remove(cachedMessage);
+                }
+                if (queue.isEmpty()) {
+                    // End of the fetched batch, write the session changes in one transaction
+                    account.flushSessions();
+                }
+                stats.recordDispatch(start - enqueuedNanos, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private void handleCachedMessage(
+            CachedMessage cachedMessage,
+            final Manager.ReceiveMessageHandler handler,
+            final Map<HandleAction, HandleAction> queuedActions
+    ) {
+        final var envelope = cachedMessage.loadEnvelope();
+        if (envelope == null) {
+            cachedMessage.delete();
+            return;
+        }
+        try {
+            final var result = context.getIncomingMessageHandler().handleEnvelope(envelope, receiveConfig, handler);
+            for (final var h : result.first()) {
+                final var existingAction = queuedActions.get(h);
+                if (existingAction == null) {
+                    queuedActions.put(h, h);
+                } else {
+                    existingAction.mergeOther(h);
+                }
+            }
+            final var exception = result.second();
+
+            if (hasCaughtUpWithOldMessages) {
+                handleQueuedActions(queuedActions.keySet());
+                queuedActions.clear();
+            }
+            if (exception instanceof UntrustedIdentityException) {
+                logger.debug("Keeping message with untrusted identity in message cache");
+                final var address = ((UntrustedIdentityException) exception).getSender();
+                if (envelope.getSourceServiceId() == null && address.aci().isPresent()) {
+                    final var recipientId = account.getRecipientResolver()
+                            .resolveRecipient(ACI.parseOrThrow(address.aci().get()));
+                    try {
+                        account.getMessageCache().replaceSender(cachedMessage, recipientId);
+                    } catch (IOException ioException) {
+                        logger.warn("Failed to move cached message to recipient folder: {}",
+                                ioException.getMessage(),
+                                ioException);
                     }
                 }
-            } catch (Exception e) {
-                logger.error("Unknown error when handling messages", e);
+            } else {
+                cachedMessage.delete();
+            }
+        } catch (Exception e) {
+            logger.error("Unknown error when handling messages", e);
+        }
+    }
+
+    private void stopDispatcher(final BlockingQueue<ReceivedItem> queue, final Thread dispatcher) {
+        // Let the dispatcher handle all messages that have already been fetched, before returning
+        var interrupted = Thread.interrupted();
+        while (dispatcher.isAlive()) {
+            try {
+                if (queue.offer(END_OF_STREAM, 100, TimeUnit.MILLISECONDS)) {
+                    dispatcher.join();
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
             }
         }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     private void retryFailedReceivedMessages(Manager.ReceiveMessageHandler handler) {
         Set<HandleAction> queuedActions = new HashSet<>();
         for (var cachedMessage : account.getMessageCache().getCachedMessages()) {
+            if (inFlightMessages.contains(cachedMessage)) {
+                // Still queued in the receive pipeline, will be handled by the dispatch stage
+                continue;
+            }
             var actions = retryFailedReceivedMessage(handler, cachedMessage);
             if (actions != null) {
                 queuedActions.addAll(actions);
             }
         }
+        account.flushSessions();
         handleQueuedActions(queuedActions);
         account.setNeedsToRetryFailedMessages(false);
     }
@@ -334,4 +498,12 @@ public class ReceiveHelper {
 
         void call();
     }
+
+    sealed interface ReceivedItem {}
+
+    record ReceivedEnvelope(CachedMessage cachedMessage, long enqueuedNanos) implements ReceivedItem {}
+
+    record QueueEmpty() implements ReceivedItem {}
+
+    record EndOfStream() implements ReceivedItem {}
 }
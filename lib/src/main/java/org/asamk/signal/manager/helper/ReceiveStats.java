@@ -0,0 +1,64 @@
+package org.asamk.signal.manager.helper;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for the staged receive pipeline: fetch/persist/ack stage, queue and decrypt/dispatch stage.
+ */
+final class ReceiveStats {
+
+    private final LongAdder fetchedBatches = new LongAdder();
+    private final LongAdder fetchedEnvelopes = new LongAdder();
+    private final LongAdder fetchNanos = new LongAdder();
+    private final LongAdder dispatchedEnvelopes = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder dispatchNanos = new LongAdder();
+    private final AtomicInteger lastQueueDepth = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    void recordFetch(int envelopes, long nanos) {
+        fetchedBatches.increment();
+        fetchedEnvelopes.add(envelopes);
+        fetchNanos.add(nanos);
+    }
+
+    void recordQueueDepth(int depth) {
+        lastQueueDepth.set(depth);
+        maxQueueDepth.accumulateAndGet(depth, Math::max);
+    }
+
+    void recordDispatch(long waitNanos, long nanos) {
+        dispatchedEnvelopes.increment();
+        queueWaitNanos.add(waitNanos);
+        dispatchNanos.add(nanos);
+    }
+
+    @Override
+    public String toString() {
+        final var fetched = fetchedEnvelopes.sum();
+        final var dispatched = dispatchedEnvelopes.sum();
+        return "fetched="
+                + fetched
+                + " in "
+                + fetchedBatches.sum()
+                + " batches (avg persist+ack "
+                + average(fetchNanos.sum(), fetched)
+                + " µs/envelope), dispatched="
+                + dispatched
+                + " (avg queue wait "
+                + average(queueWaitNanos.sum(), dispatched)
+                + " µs, avg handling "
+                + average(dispatchNanos.sum(), dispatched)
+                + " µs), queue depth="
+                + lastQueueDepth.get()
+                + " (max "
+                + maxQueueDepth.get()
+                + ")";
+    }
+
+    private static long average(long nanos, long count) {
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(nanos / count);
+    }
+}
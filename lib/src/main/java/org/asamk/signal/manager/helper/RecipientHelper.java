@@ -69,6 +69,27 @@ public class RecipientHelper {
                 .toSignalServiceAddress();
     }
 
+    /**
+     * Resolve the addresses of many recipients with a few bulk queries.
+     * Recipients that can't be resolved from the store alone fall back to {@link #resolveSignalServiceAddress}.
+     */
+    public Map<RecipientId, SignalServiceAddress> resolveSignalServiceAddresses(Collection<RecipientId> recipientIds) {
+        final var recipients = account.getRecipientStore().getRecipients(recipientIds);
+        final var addresses = new HashMap<RecipientId, SignalServiceAddress>(recipientIds.size());
+        for (final var recipientId : recipientIds) {
+            final var recipient = recipients.get(recipientId);
+            if (recipient != null) {
+                final var address = recipient.getAddress();
+                if (address.number().isEmpty() || address.serviceId().isPresent()) {
+                    addresses.put(recipientId, address.toSignalServiceAddress());
+                    continue;
+                }
+            }
+            addresses.put(recipientId, resolveSignalServiceAddress(recipientId));
+        }
+        return addresses;
+    }
+
     public Set<RecipientId> resolveRecipients(Collection<RecipientIdentifier.Single> recipients) throws UnregisteredRecipientException, IOException {
         final var recipientIds = new HashSet<RecipientId>(recipients.size());
         for (var number : recipients) {
@@ -10,6 +10,7 @@ import org.asamk.signal.manager.api.Profile;
 import org.asamk.signal.manager.api.UnregisteredRecipientException;
 import org.asamk.signal.manager.groups.GroupUtils;
 import org.asamk.signal.manager.internal.SignalDependencies;
+import org.asamk.signal.manager.internal.StripedSignalSessionLock;
 import org.asamk.signal.manager.storage.SignalAccount;
 import org.asamk.signal.manager.storage.groups.GroupInfo;
 import org.asamk.signal.manager.storage.groups.GroupInfoV2;
@@ -40,6 +41,7 @@ import org.whispersystems.signalservice.api.messages.calls.SignalServiceCallMess
 import org.whispersystems.signalservice.api.messages.multidevice.SentTranscriptMessage;
 import org.whispersystems.signalservice.api.messages.multidevice.SignalServiceSyncMessage;
 import org.whispersystems.signalservice.api.push.DistributionId;
+import org.whispersystems.signalservice.api.push.ServiceIdType;
 import org.whispersystems.signalservice.api.push.SignalServiceAddress;
 import org.whispersystems.signalservice.api.push.exceptions.NotFoundException;
 import org.whispersystems.signalservice.api.push.exceptions.ProofRequiredException;
@@ -95,15 +97,20 @@ public class SendHelper {
             account.getContactStore().storeContact(recipientId, contact);
         }
 
-        messageBuilder.withExpiration(contact.messageExpirationTime());
-        messageBuilder.withExpireTimerVersion(contact.messageExpirationTimeVersion());
+        // The builder may be shared by concurrent sends to multiple recipients, so the per-recipient fields are
+        // only set and read while holding its monitor.
+        final SignalServiceDataMessage message;
+        synchronized (messageBuilder) {
+            messageBuilder.withExpiration(contact.messageExpirationTime());
+            messageBuilder.withExpireTimerVersion(contact.messageExpirationTimeVersion());
 
-        if (!contact.isBlocked()) {
-            final var profileKey = account.getProfileKey().serialize();
-            messageBuilder.withProfileKey(profileKey);
-        }
+            if (!contact.isBlocked()) {
+                final var profileKey = account.getProfileKey().serialize();
+                messageBuilder.withProfileKey(profileKey);
+            }
 
-        final var message = messageBuilder.build();
+            message = messageBuilder.build();
+        }
         return sendMessage(message, recipientId, editTargetTimestamp, urgent);
     }
 
@@ -214,7 +221,7 @@ public class SendHelper {
             logger.trace("Not sending sync message because there are no linked devices.");
             return SendMessageResult.success(account.getSelfAddress(), List.of(), false, false, 0, Optional.empty());
         }
-        try {
+        try (final var ignored = declareSessionLockAddresses(List.of(), null)) {
             return messageSender.sendSyncMessage(message);
         } catch (Throwable e) {
             var address = context.getRecipientHelper().resolveSignalServiceAddress(account.getSelfRecipientId());
@@ -225,6 +232,8 @@ public class SendHelper {
                 logger.debug("Exception", e);
                 return SendMessageResult.networkFailure(address);
             }
+        } finally {
+            account.flushSessions();
         }
     }
 
@@ -505,10 +514,17 @@ public class SendHelper {
             final GroupInfo groupInfo,
             final boolean isRecipientUpdate
     ) throws IOException {
-        long startTime = System.currentTimeMillis();
-
-        final var addressesMap = recipientIds.stream()
-                .collect(Collectors.toMap(id -> id, context.getRecipientHelper()::resolveSignalServiceAddress));
+        final var startTime = System.nanoTime();
+
+        final var addressesMap = context.getRecipientHelper().resolveSignalServiceAddresses(recipientIds);
+        // Load the sessions of all members at once, instead of one query per member while encrypting
+        account.getAccountData(ServiceIdType.ACI)
+                .getSessionStore()
+                .loadSessions(addressesMap.values()
+                        .stream()
+                        .filter(SignalServiceAddress::hasValidServiceId)
+                        .map(address -> address.getServiceId().toString())
+                        .toList());
         final var unidentifiedAccessesMap = context.getUnidentifiedAccessHelper().getAccessFor(recipientIds);
         final var groupSendEndorsementsResult = getGroupSendEndorsements(groupInfo);
         final var groupSecretParams = groupInfo instanceof GroupInfoV2 gv2
@@ -536,6 +552,8 @@ public class SendHelper {
             logger.debug("Can use sender key for {}/{} recipients.", senderKeyTargets.size(), recipientIds.size());
         }
 
+        final var resolveEndTime = System.nanoTime();
+
         final var allResults = new ArrayList<SendMessageResult>(recipientIds.size());
         if (!senderKeyTargets.isEmpty()) {
             final var senderCertificate = this.context.getUnidentifiedAccessHelper().getSenderCertificateFor(null);
@@ -569,6 +587,8 @@ public class SendHelper {
             }
         }
 
+        final var senderKeyEndTime = System.nanoTime();
+
         final var legacyTargets = new HashSet<>(recipientIds);
         legacyTargets.removeAll(senderKeyTargets);
         final boolean onlyTargetIsSelfWithLinkedDevice = recipientIds.isEmpty() && account.isMultiDevice();
@@ -605,8 +625,13 @@ public class SendHelper {
                     isRecipientUpdate || !allResults.isEmpty());
             allResults.addAll(results);
         }
-        final var duration = Duration.ofMillis(System.currentTimeMillis() - startTime);
-        logger.debug("Sending took {}", duration.toString());
+        account.flushSessions();
+        final var endTime = System.nanoTime();
+        logger.debug("Sending took {} (resolving recipients {}, sender key sends {}, legacy sends {})",
+                Duration.ofNanos(endTime - startTime),
+                Duration.ofNanos(resolveEndTime - startTime),
+                Duration.ofNanos(senderKeyEndTime - resolveEndTime),
+                Duration.ofNanos(endTime - senderKeyEndTime));
         return allResults;
     }
 
@@ -655,13 +680,17 @@ public class SendHelper {
         return true;
     }
 
+    /**
+     * Send to the legacy targets in a single call, so linked devices get one sync transcript with all recipients.
+     * The message sender already sends to the individual recipients concurrently.
+     */
     private List<SendMessageResult> sendGroupMessageInternalWithLegacy(
             final LegacySenderHandler sender,
             final List<SignalServiceAddress> addresses,
             final List<SealedSenderAccess> unidentifiedAccesses,
             final boolean isRecipientUpdate
     ) throws IOException {
-        try {
+        try (final var ignored = declareSessionLockAddresses(addresses, null)) {
             final var results = sender.send(addresses, unidentifiedAccesses, isRecipientUpdate);
 
             final var successCount = results.stream().filter(SendMessageResult::isSuccess).count();
@@ -693,7 +722,7 @@ public class SendHelper {
             account.getSenderKeyStore().deleteOurKey(account.getAci(), distributionId);
         }
 
-        try {
+        try (final var ignored = declareSessionLockAddresses(addresses, "sender-key:" + distributionId)) {
             List<SendMessageResult> results = sender.send(distributionId,
                     addresses,
                     unidentifiedAccesses,
@@ -771,7 +800,7 @@ public class SendHelper {
         var address = context.getRecipientHelper().resolveSignalServiceAddress(recipientId);
         try {
             final boolean includePniSignature = account.getRecipientStore().needsPniSignature(recipientId);
-            try {
+            try (final var ignored = declareSessionLockAddresses(List.of(address), null)) {
                 return s.send(messageSender,
                         address,
                         context.getUnidentifiedAccessHelper().getSealedSenderAccessFor(recipientId),
@@ -784,10 +813,12 @@ public class SendHelper {
                     return SendMessageResult.unregisteredFailure(address);
                 }
                 address = context.getRecipientHelper().resolveSignalServiceAddress(newRecipientId);
-                return s.send(messageSender,
-                        address,
-                        context.getUnidentifiedAccessHelper().getSealedSenderAccessFor(newRecipientId),
-                        includePniSignature);
+                try (final var ignored = declareSessionLockAddresses(List.of(address), null)) {
+                    return s.send(messageSender,
+                            address,
+                            context.getUnidentifiedAccessHelper().getSealedSenderAccessFor(newRecipientId),
+                            includePniSignature);
+                }
             }
         } catch (Throwable e) {
             try {
@@ -797,7 +828,31 @@ public class SendHelper {
                 logger.debug("Exception", e);
                 return SendMessageResult.networkFailure(address);
             }
+        } finally {
+            account.flushSessions();
+        }
+    }
+
+    /**
+     * Restrict the session lock to the sessions of the given recipients while sending, so sends to different
+     * recipients can run concurrently.
+     * The own sessions are included if there are linked devices, because the sync transcript is sent by the same call.
+     */
+    private StripedSignalSessionLock.AddressScope declareSessionLockAddresses(
+            final List<SignalServiceAddress> addresses,
+            final String additionalLockName
+    ) {
+        final var lockNames = new ArrayList<String>(addresses.size() + 2);
+        for (final var address : addresses) {
+            lockNames.add(address.getIdentifier());
+        }
+        if (addresses.isEmpty() || account.isMultiDevice()) {
+            lockNames.add(account.getAci().toString());
+        }
+        if (additionalLockName != null) {
+            lockNames.add(additionalLockName);
         }
+        return dependencies.getSessionLock().declareAddresses(lockNames);
     }
 
     private SendMessageResult sendSelfMessage(SignalServiceDataMessage message, Optional<Long> editTargetTimestamp) {
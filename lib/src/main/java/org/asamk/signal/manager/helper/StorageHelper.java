@@ -1,8 +1,8 @@
 package org.asamk.signal.manager.helper;
 
+import org.asamk.signal.manager.api.GroupId;
 import org.asamk.signal.manager.api.GroupIdV1;
 import org.asamk.signal.manager.api.GroupIdV2;
-import org.asamk.signal.manager.api.Pair;
 import org.asamk.signal.manager.api.Profile;
 import org.asamk.signal.manager.internal.SignalDependencies;
 import org.asamk.signal.manager.storage.SignalAccount;
@@ -15,6 +15,7 @@ import org.asamk.signal.manager.syncStorage.StorageSyncModels;
 import org.asamk.signal.manager.syncStorage.StorageSyncValidations;
 import org.asamk.signal.manager.syncStorage.WriteOperationResult;
 import org.asamk.signal.manager.util.KeyUtils;
+import org.signal.core.models.ServiceId;
 import org.signal.core.models.storageservice.StorageKey;
 import org.signal.core.util.SetUtil;
 import org.signal.libsignal.protocol.InvalidKeyException;
@@ -189,6 +190,7 @@ public class StorageHelper {
             final SignalStorageManifest remoteManifest
     ) throws IOException {
         var needsForcePush = false;
+        ProcessedRecords processedRecords = null;
         try (final var connection = account.getAccountDatabase().getConnection()) {
             connection.setAutoCommit(false);
 
@@ -213,9 +215,9 @@ public class StorageHelper {
                             remoteOnlyRecords.size());
                 }
 
-                final var listListPair = processKnownRecords(connection, remoteOnlyRecords);
-                final var unknownInserts = listListPair.first();
-                final var updatedStorageIds = listListPair.second();
+                processedRecords = processKnownRecords(connection, remoteOnlyRecords);
+                final var unknownInserts = processedRecords.unknownIds();
+                final var updatedStorageIds = processedRecords.updatedIds();
                 final var oldUnregisteredLocalOnlyIds = new HashSet<>(idDifference.localOnlyIds());
                 updatedStorageIds.forEach(oldUnregisteredLocalOnlyIds::remove);
                 if (!idDifference.localOnlyIds().isEmpty()) {
@@ -245,6 +247,11 @@ public class StorageHelper {
                 logger.debug("Remote version was newer, but there were no remote-only IDs.");
             }
             connection.commit();
+            account.getIdentityKeyStore().invalidateCache();
+            account.getGroupStore().invalidateCache();
+            if (processedRecords != null) {
+                publishChanges(processedRecords);
+            }
         } catch (SQLException e) {
             throw new RuntimeException("Failed to sync remote storage", e);
         }
@@ -255,6 +262,7 @@ public class StorageHelper {
             final StorageKey storageKey,
             final SignalStorageManifest remoteManifest
     ) throws IOException {
+        ProcessedRecords processedRecords = null;
         try (final var connection = account.getAccountDatabase().getConnection()) {
             connection.setAutoCommit(false);
             final var knownUnknownIds = account.getUnknownStorageIdStore()
@@ -267,11 +275,16 @@ public class StorageHelper {
 
                 logger.debug("Found {} of the known-unknowns remotely.", remote.size());
 
-                processKnownRecords(connection, remote);
+                processedRecords = processKnownRecords(connection, remote);
                 account.getUnknownStorageIdStore()
                         .deleteUnknownStorageIds(connection, remote.stream().map(SignalStorageRecord::getId).toList());
             }
             connection.commit();
+            account.getIdentityKeyStore().invalidateCache();
+            account.getGroupStore().invalidateCache();
+            if (processedRecords != null) {
+                publishChanges(processedRecords);
+            }
         } catch (SQLException e) {
             throw new RuntimeException("Failed to sync remote storage", e);
         }
@@ -635,7 +648,7 @@ public class StorageHelper {
         return new IdDifferenceResult(remoteOnlyKeys, localOnlyKeys, hasTypeMismatch);
     }
 
-    private Pair<List<StorageId>, List<StorageId>> processKnownRecords(
+    private ProcessedRecords processKnownRecords(
             final Connection connection,
             List<SignalStorageRecord> records
     ) throws SQLException {
@@ -673,9 +686,30 @@ public class StorageHelper {
         processedRecords.addAll(groupV2RecordProcessor.getUpdatedStorageIds());
         processedRecords.addAll(contactRecordProcessor.getUpdatedStorageIds());
 
-        return new Pair<>(unknownRecords, processedRecords);
+        final var updatedGroupIds = new ArrayList<GroupId>(groupV1RecordProcessor.getUpdatedGroupIds());
+        updatedGroupIds.addAll(groupV2RecordProcessor.getUpdatedGroupIds());
+
+        return new ProcessedRecords(unknownRecords,
+                processedRecords,
+                updatedGroupIds,
+                contactRecordProcessor.getUpdatedIdentities());
+    }
+
+    /**
+     * Publish the groups and identities changed by the processed records, after the transaction was committed.
+     */
+    private void publishChanges(final ProcessedRecords processedRecords) {
+        account.getGroupStore().publishGroupChanges(processedRecords.updatedGroupIds());
+        account.getIdentityKeyStore().publishIdentityUpdates(processedRecords.updatedIdentities());
     }
 
+    private record ProcessedRecords(
+            List<StorageId> unknownIds,
+            List<StorageId> updatedIds,
+            List<GroupId> updatedGroupIds,
+            List<ServiceId> updatedIdentities
+    ) {}
+
     /**
      * hasTypeMismatches is True if there exist some keys that have matching raw ID's but different types, otherwise false.
      */
@@ -60,11 +60,43 @@ public class UnidentifiedAccessHelper {
     }
 
     public Map<RecipientId, UnidentifiedAccess> getAccessFor(Collection<RecipientId> recipients) {
+        if (recipients.isEmpty()) {
+            return Map.of();
+        }
+        var selfUnidentifiedAccessKey = getSelfUnidentifiedAccessKey(false);
+        if (selfUnidentifiedAccessKey == null) {
+            logger.trace("Unidentified access not available for self");
+            return Map.of();
+        }
+
+        // Refresh outdated profiles first, then load the stored profiles and profile keys in bulk
+        context.getProfileHelper().getRecipientProfiles(recipients);
+        final var storedRecipients = account.getRecipientStore().getRecipients(recipients);
+        final var sharingMode = account.getConfigurationStore().getPhoneNumberSharingMode();
+
         final var result = new HashMap<RecipientId, UnidentifiedAccess>();
-        for (final var recipient : recipients) {
-            final var access = this.getAccessFor(recipient);
-            if (access != null) {
-                result.put(recipient, access);
+        for (final var recipientId : recipients) {
+            final var recipient = storedRecipients.get(recipientId);
+            final var recipientUnidentifiedAccessKey = recipient == null || recipient.getProfile() == null
+                    ? null
+                    : getTargetUnidentifiedAccessKey(recipient.getProfile(), recipient.getProfileKey());
+            if (recipientUnidentifiedAccessKey == null) {
+                logger.trace("Unidentified access not available for {}", recipientId);
+                continue;
+            }
+
+            var senderCertificate = getSenderCertificateFor(sharingMode, recipient.getContact() != null);
+            if (senderCertificate == null) {
+                logger.trace("Unidentified access not available due to missing sender certificate");
+                continue;
+            }
+
+            try {
+                result.put(recipientId,
+                        new UnidentifiedAccess(recipientUnidentifiedAccessKey,
+                                senderCertificate.getSerialized(),
+                                false));
+            } catch (InvalidCertificateException ignored) {
             }
         }
         return result;
@@ -102,15 +134,21 @@ public class UnidentifiedAccessHelper {
 
     public SenderCertificate getSenderCertificateFor(final RecipientId recipientId) {
         final var sharingMode = account.getConfigurationStore().getPhoneNumberSharingMode();
+        final var isContact = recipientId != null
+                && sharingMode == PhoneNumberSharingMode.CONTACTS
+                && account.getContactStore().getContact(recipientId) != null;
+        logger.trace("Getting sender certificate for message to {}", recipientId);
+        return getSenderCertificateFor(sharingMode, isContact);
+    }
+
+    private SenderCertificate getSenderCertificateFor(final PhoneNumberSharingMode sharingMode, boolean isContact) {
         if (sharingMode == PhoneNumberSharingMode.EVERYBODY || (
-                recipientId != null
-                        && sharingMode == PhoneNumberSharingMode.CONTACTS
-                        && account.getContactStore().getContact(recipientId) != null
+                sharingMode == PhoneNumberSharingMode.CONTACTS && isContact
         )) {
-            logger.trace("Using normal sender certificate for message to {}", recipientId);
+            logger.trace("Using normal sender certificate");
             return getSenderCertificate();
         } else {
-            logger.trace("Using phone number privacy sender certificate for message to {}", recipientId);
+            logger.trace("Using phone number privacy sender certificate");
             return getSenderCertificateForPhoneNumberPrivacy();
         }
     }
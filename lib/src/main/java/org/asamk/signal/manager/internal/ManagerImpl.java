@@ -135,16 +135,19 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -154,6 +157,7 @@ import io.reactivex.rxjava3.schedulers.Schedulers;
 import okio.Utf8;
 
 import static org.asamk.signal.manager.config.ServiceConfig.MAX_MESSAGE_SIZE_BYTES;
+import static org.asamk.signal.manager.config.ServiceConfig.MAX_MESSAGE_TIMESTAMP_SKEW;
 import static org.asamk.signal.manager.util.Utils.handleResponseException;
 import static org.signal.core.util.StringExtensionsKt.splitByByteLength;
 
@@ -164,6 +168,7 @@ public class ManagerImpl implements Manager {
     private SignalAccount account;
     private final SignalDependencies dependencies;
     private final Context context;
+    private final AttachmentStore attachmentStore;
 
     private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
 
@@ -173,19 +178,23 @@ public class ManagerImpl implements Manager {
     private final Set<ReceiveMessageHandler> messageHandlers = new HashSet<>();
     private final List<Runnable> closedListeners = new ArrayList<>();
     private final List<Runnable> addressChangedListeners = new ArrayList<>();
+    private final List<GroupChangeListener> groupChangeListeners = new ArrayList<>();
+    private final List<IdentityChangeListener> identityChangeListeners = new ArrayList<>();
     private final CompositeDisposable disposable = new CompositeDisposable();
-    private final AtomicLong lastMessageTimestamp = new AtomicLong();
+    private final MessageTimestampAllocator timestampAllocator = new MessageTimestampAllocator(
+            MAX_MESSAGE_TIMESTAMP_SKEW);
 
     public ManagerImpl(
             SignalAccount account,
             PathConfig pathConfig,
+            AttachmentStore attachmentStore,
             AccountFileUpdater accountFileUpdater,
             ServiceEnvironmentConfig serviceEnvironmentConfig,
             String userAgent
     ) {
         this.account = account;
 
-        final var sessionLock = new ReentrantSignalSessionLock();
+        final var sessionLock = new StripedSignalSessionLock();
         this.dependencies = new SignalDependencies(serviceEnvironmentConfig,
                 userAgent,
                 account.getCredentialsProvider(),
@@ -194,7 +203,7 @@ public class ManagerImpl implements Manager {
                 executor,
                 sessionLock);
         final var avatarStore = new AvatarStore(pathConfig.avatarsPath());
-        final var attachmentStore = new AttachmentStore(pathConfig.attachmentsPath());
+        this.attachmentStore = attachmentStore;
         final var stickerPackStore = new StickerPackStore(pathConfig.stickerPacksPath());
 
         this.context = new Context(account, new AccountFileUpdater() {
@@ -237,6 +246,52 @@ public class ManagerImpl implements Manager {
                                                 .build());
                     }
                 }));
+        disposable.add(account.getGroupStore()
+                .getGroupChanges()
+                .observeOn(Schedulers.from(executor))
+                .subscribe(this::notifyGroupChangeListeners));
+        disposable.add(account.getIdentityKeyStore()
+                .getIdentityUpdates()
+                .observeOn(Schedulers.from(executor))
+                .subscribe(this::notifyIdentityChangeListeners));
+        executor.execute(() -> account.getIdentityKeyStore().loadIdentityCache());
+    }
+
+    private void notifyGroupChangeListeners(final GroupId groupId) {
+        final List<GroupChangeListener> listeners;
+        synchronized (groupChangeListeners) {
+            if (groupChangeListeners.isEmpty()) {
+                return;
+            }
+            listeners = List.copyOf(groupChangeListeners);
+        }
+        for (final var listener : listeners) {
+            try {
+                listener.handleGroupChange(groupId);
+            } catch (Throwable e) {
+                logger.warn("Group change listener failed, ignoring", e);
+            }
+        }
+    }
+
+    private void notifyIdentityChangeListeners(final ServiceId serviceId) {
+        final List<IdentityChangeListener> listeners;
+        synchronized (identityChangeListeners) {
+            if (identityChangeListeners.isEmpty()) {
+                return;
+            }
+            listeners = List.copyOf(identityChangeListeners);
+        }
+        final var recipient = account.getRecipientAddressResolver()
+                .resolveRecipientAddress(account.getRecipientResolver().resolveRecipient(serviceId))
+                .toApiRecipientAddress();
+        for (final var listener : listeners) {
+            try {
+                listener.handleIdentityChange(recipient);
+            } catch (Throwable e) {
+                logger.warn("Identity change listener failed, ignoring", e);
+            }
+        }
     }
 
     @Override
@@ -653,21 +708,7 @@ public class ManagerImpl implements Manager {
     }
 
     private long getNextMessageTimestamp() {
-        while (true) {
-            final var last = lastMessageTimestamp.get();
-            final var timestamp = System.currentTimeMillis();
-            if (last == timestamp) {
-                try {
-                    Thread.sleep(1);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-                continue;
-            }
-            if (lastMessageTimestamp.compareAndSet(last, timestamp)) {
-                return timestamp;
-            }
-        }
+        return timestampAllocator.next();
     }
 
     private SendMessageResults sendMessage(
@@ -688,10 +729,14 @@ public class ManagerImpl implements Manager {
         var results = new HashMap<RecipientIdentifier, List<SendMessageResult>>();
         long timestamp = getNextMessageTimestamp();
         messageBuilder.withTimestamp(timestamp);
+        final var directRecipients = recipients.stream()
+                .filter(r -> r instanceof RecipientIdentifier.Single single && !isSelfRecipient(single))
+                .map(RecipientIdentifier.Single.class::cast)
+                .toList();
+        results.putAll(sendDirectMessages(messageBuilder, directRecipients, editTargetTimestamp, urgent));
         for (final var recipient : recipients) {
             if (recipient instanceof RecipientIdentifier.NoteToSelf || (
-                    recipient instanceof RecipientIdentifier.Single single
-                            && new RecipientAddress(single.toPartialRecipientAddress()).matches(account.getSelfRecipientAddress())
+                    recipient instanceof RecipientIdentifier.Single single && isSelfRecipient(single)
             )) {
                 final var result = notifySelf
                         ? context.getSendHelper()
@@ -701,16 +746,6 @@ public class ManagerImpl implements Manager {
                                   urgent)
                         : context.getSendHelper().sendSelfMessage(messageBuilder, editTargetTimestamp);
                 results.put(recipient, List.of(toSendMessageResult(result)));
-            } else if (recipient instanceof RecipientIdentifier.Single single) {
-                try {
-                    final var recipientId = context.getRecipientHelper().resolveRecipient(single);
-                    final var result = context.getSendHelper()
-                            .sendMessage(messageBuilder, recipientId, editTargetTimestamp, urgent);
-                    results.put(recipient, List.of(toSendMessageResult(result)));
-                } catch (UnregisteredRecipientException e) {
-                    results.put(recipient,
-                            List.of(SendMessageResult.unregisteredFailure(single.toPartialRecipientAddress())));
-                }
             } else if (recipient instanceof RecipientIdentifier.Group(GroupId groupId)) {
                 final var result = context.getSendHelper()
                         .sendAsGroupMessage(messageBuilder, groupId, notifySelf, editTargetTimestamp, urgent);
@@ -720,6 +755,77 @@ public class ManagerImpl implements Manager {
         return new SendMessageResults(timestamp, results);
     }
 
+    private boolean isSelfRecipient(final RecipientIdentifier.Single single) {
+        return new RecipientAddress(single.toPartialRecipientAddress()).matches(account.getSelfRecipientAddress());
+    }
+
+    /**
+     * Send the message to each of the individual recipients, running up to the account's configured send parallelism
+     * sends concurrently.
+     * Session access is still serialized by the session lock, only the network round trips overlap.
+     */
+    private Map<RecipientIdentifier, List<SendMessageResult>> sendDirectMessages(
+            final SignalServiceDataMessage.Builder messageBuilder,
+            final List<RecipientIdentifier.Single> recipients,
+            final Optional<Long> editTargetTimestamp,
+            final boolean urgent
+    ) throws IOException {
+        final var results = new HashMap<RecipientIdentifier, List<SendMessageResult>>();
+        final var parallelism = Math.min(account.getSendParallelism(), recipients.size());
+        if (parallelism <= 1) {
+            for (final var recipient : recipients) {
+                results.put(recipient, sendDirectMessage(messageBuilder, recipient, editTargetTimestamp, urgent));
+            }
+            return results;
+        }
+
+        logger.debug("Sending message to {} recipients with a parallelism of {}", recipients.size(), parallelism);
+        final var permits = new Semaphore(parallelism);
+        final var futures = new LinkedHashMap<RecipientIdentifier, Future<List<SendMessageResult>>>();
+        for (final var recipient : recipients) {
+            futures.put(recipient, executor.submit(() -> {
+                permits.acquire();
+                try {
+                    return sendDirectMessage(messageBuilder, recipient, editTargetTimestamp, urgent);
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+        try {
+            for (final var entry : futures.entrySet()) {
+                results.put(entry.getKey(), entry.getValue().get());
+            }
+        } catch (InterruptedException e) {
+            futures.values().forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while sending messages", e);
+        } catch (ExecutionException e) {
+            futures.values().forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("Failed to send message", e.getCause());
+        }
+        return results;
+    }
+
+    private List<SendMessageResult> sendDirectMessage(
+            final SignalServiceDataMessage.Builder messageBuilder,
+            final RecipientIdentifier.Single recipient,
+            final Optional<Long> editTargetTimestamp,
+            final boolean urgent
+    ) {
+        try {
+            final var recipientId = context.getRecipientHelper().resolveRecipient(recipient);
+            final var result = context.getSendHelper()
+                    .sendMessage(messageBuilder, recipientId, editTargetTimestamp, urgent);
+            return List.of(toSendMessageResult(result));
+        } catch (UnregisteredRecipientException e) {
+            return List.of(SendMessageResult.unregisteredFailure(recipient.toPartialRecipientAddress()));
+        }
+    }
+
     private SendMessageResult toSendMessageResult(final org.whispersystems.signalservice.api.messages.SendMessageResult result) {
         return SendMessageResult.from(result, account.getRecipientResolver(), account.getRecipientAddressResolver());
     }
@@ -1266,9 +1372,9 @@ public class ManagerImpl implements Manager {
             // if we don't have a common group with the blocked contact we need to rotate the profile key
             shouldRotateProfileKey = blocked && (
                     shouldRotateProfileKey || account.getGroupStore()
-                            .getGroups()
+                            .getGroupIdsWithMember(recipientId)
                             .stream()
-                            .noneMatch(g -> g.isMember(selfRecipientId) && g.isMember(recipientId))
+                            .noneMatch(account.getGroupStore().getGroupIdsWithMember(selfRecipientId)::contains)
             );
         }
         if (shouldRotateProfileKey) {
@@ -1403,7 +1509,8 @@ public class ManagerImpl implements Manager {
         if (receiveThread != null || isReceivingSynchronous) {
             return;
         }
-        receiveThread = Thread.ofPlatform().name("receive-" + threadNumber.getAndIncrement()).start(() -> {
+        // Virtual threads, so a daemon with many accounts doesn't need a platform thread per receiving account
+        receiveThread = Thread.ofVirtual().name("receive-" + threadNumber.getAndIncrement()).start(() -> {
             logger.debug("Starting receiving messages");
             context.getReceiveHelper().receiveMessagesContinuously(this::passReceivedMessageToHandlers);
             logger.debug("Finished receiving messages");
@@ -1719,6 +1826,44 @@ public class ManagerImpl implements Manager {
         context.getCallManager().removeCallEventListener(listener);
     }
 
+    @Override
+    public void addAttachmentDownloadListener(final AttachmentDownloadListener listener) {
+        context.getAttachmentHelper().addAttachmentDownloadListener(listener);
+    }
+
+    @Override
+    public void removeAttachmentDownloadListener(final AttachmentDownloadListener listener) {
+        context.getAttachmentHelper().removeAttachmentDownloadListener(listener);
+    }
+
+    @Override
+    public void addGroupChangeListener(final GroupChangeListener listener) {
+        synchronized (groupChangeListeners) {
+            groupChangeListeners.add(listener);
+        }
+    }
+
+    @Override
+    public void removeGroupChangeListener(final GroupChangeListener listener) {
+        synchronized (groupChangeListeners) {
+            groupChangeListeners.remove(listener);
+        }
+    }
+
+    @Override
+    public void addIdentityChangeListener(final IdentityChangeListener listener) {
+        synchronized (identityChangeListeners) {
+            identityChangeListeners.add(listener);
+        }
+    }
+
+    @Override
+    public void removeIdentityChangeListener(final IdentityChangeListener listener) {
+        synchronized (identityChangeListeners) {
+            identityChangeListeners.remove(listener);
+        }
+    }
+
     @Override
     public InputStream retrieveAttachment(final String id) throws IOException {
         return context.getAttachmentHelper().retrieveAttachment(id).getStream();
@@ -1916,6 +2061,15 @@ public class ManagerImpl implements Manager {
         }
         context.close();
         executor.close();
+        logger.debug("Session lock usage, exclusive: {}, per address: {}",
+                dependencies.getSessionLock().getExclusiveStatistics(),
+                dependencies.getSessionLock().getStripedStatistics());
+        logger.debug("Profile fetches: {}", context.getProfileHelper().getProfileFetchStatistics());
+        logger.debug("Attachment store: {}", attachmentStore.getStatistics());
+        logger.debug("Attachment uploads: {}", context.getAttachmentHelper().getUploadStatistics());
+        logger.debug("Keep alives, authenticated: {}, unauthenticated: {}",
+                dependencies.getAuthenticatedKeepAliveStatistics(),
+                dependencies.getUnauthenticatedKeepAliveStatistics());
 
         dependencies.getAuthenticatedSignalWebSocket().disconnect();
         dependencies.getUnauthenticatedSignalWebSocket().disconnect();
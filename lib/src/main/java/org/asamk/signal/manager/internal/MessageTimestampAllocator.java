@@ -0,0 +1,43 @@
+package org.asamk.signal.manager.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Hands out unique, strictly increasing message timestamps.
+ * <p>
+ * If several timestamps are requested within the same millisecond, the following timestamps are borrowed ahead of
+ * the clock, up to the maximum skew. Only when the allocated timestamps are that far ahead of the clock, callers
+ * wait for the clock to catch up.
+ */
+class MessageTimestampAllocator {
+
+    private final AtomicLong lastTimestamp = new AtomicLong();
+    private final LongSupplier clock;
+    private final long maxSkewMillis;
+
+    MessageTimestampAllocator(final long maxSkewMillis) {
+        this(System::currentTimeMillis, maxSkewMillis);
+    }
+
+    MessageTimestampAllocator(final LongSupplier clock, final long maxSkewMillis) {
+        this.clock = clock;
+        this.maxSkewMillis = maxSkewMillis;
+    }
+
+    long next() {
+        while (true) {
+            final var last = lastTimestamp.get();
+            final var now = clock.getAsLong();
+            final var timestamp = Math.max(now, last + 1);
+            if (timestamp - now > maxSkewMillis) {
+                LockSupport.parkNanos((timestamp - now - maxSkewMillis) * 1_000_000L);
+                continue;
+            }
+            if (lastTimestamp.compareAndSet(last, timestamp)) {
+                return timestamp;
+            }
+        }
+    }
+}
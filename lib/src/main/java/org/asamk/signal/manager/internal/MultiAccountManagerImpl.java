@@ -6,6 +6,7 @@ import org.asamk.signal.manager.ProvisioningManager;
 import org.asamk.signal.manager.RegistrationManager;
 import org.asamk.signal.manager.SignalAccountFiles;
 import org.asamk.signal.manager.api.AccountCheckException;
+import org.asamk.signal.manager.api.AccountResourceUsage;
 import org.asamk.signal.manager.api.NotRegisteredException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,8 +20,13 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class MultiAccountManagerImpl implements MultiAccountManager {
 
@@ -29,19 +35,60 @@ public class MultiAccountManagerImpl implements MultiAccountManager {
     private final Set<Consumer<Manager>> onManagerAddedHandlers = new HashSet<>();
     private final Set<Consumer<Manager>> onManagerRemovedHandlers = new HashSet<>();
     private final Set<Manager> managers = new HashSet<>();
+    // Accounts that are known, but not loaded yet or unloaded after being idle
+    private final Set<String> inactiveAccountNumbers = new HashSet<>();
+    private final Map<Manager, Long> lastUsed = new HashMap<>();
+    // Accounts that are currently being loaded by getManager, so they're only loaded once
+    private final Map<String, CompletableFuture<Manager>> loadingManagers = new HashMap<>();
     private final Map<URI, ProvisioningManager> provisioningManagers = new HashMap<>();
     private final SignalAccountFiles signalAccountFiles;
+    private final ResourceManager resourceManager;
+    private final long idleTimeout;
+    private final ScheduledExecutorService hibernationScheduler;
 
-    public MultiAccountManagerImpl(final Collection<Manager> managers, final SignalAccountFiles signalAccountFiles) {
+    /**
+     * @param inactiveAccountNumbers accounts that are loaded when they're first used with {@link #getManager}
+     * @param idleTimeout            milliseconds after which unused managers are closed again, until they're used
+     *                               the next time, 0 to keep them loaded
+     */
+    public MultiAccountManagerImpl(
+            final Collection<Manager> managers,
+            final Collection<String> inactiveAccountNumbers,
+            final SignalAccountFiles signalAccountFiles,
+            final ResourceManager resourceManager,
+            final long idleTimeout
+    ) {
         this.signalAccountFiles = signalAccountFiles;
+        this.resourceManager = resourceManager;
+        this.idleTimeout = idleTimeout;
         this.managers.addAll(managers);
-        managers.forEach(m -> m.addClosedListener(() -> this.removeManager(m)));
+        this.inactiveAccountNumbers.addAll(inactiveAccountNumbers);
+        final var now = System.currentTimeMillis();
+        managers.forEach(m -> {
+            lastUsed.put(m, now);
+            m.addClosedListener(() -> this.removeManager(m));
+        });
+        if (idleTimeout > 0) {
+            hibernationScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                var t = new Thread(r, "account-hibernation");
+                t.setDaemon(true);
+                return t;
+            });
+            final var checkInterval = Math.max(1000, Math.min(idleTimeout / 4, TimeUnit.MINUTES.toMillis(1)));
+            hibernationScheduler.scheduleWithFixedDelay(this::hibernateIdleManagers,
+                    checkInterval,
+                    checkInterval,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            hibernationScheduler = null;
+        }
     }
 
     @Override
     public List<String> getAccountNumbers() {
         synchronized (managers) {
-            return managers.stream().map(Manager::getSelfNumber).toList();
+            return Stream.concat(managers.stream().map(Manager::getSelfNumber), inactiveAccountNumbers.stream())
+                    .toList();
         }
     }
 
@@ -52,14 +99,40 @@ public class MultiAccountManagerImpl implements MultiAccountManager {
         }
     }
 
+    @Override
+    public List<Manager> loadAllManagers() {
+        final List<String> accountNumbers;
+        synchronized (managers) {
+            accountNumbers = List.copyOf(inactiveAccountNumbers);
+        }
+        if (!accountNumbers.isEmpty()) {
+            logger.debug("Loading {} inactive accounts", accountNumbers.size());
+            accountNumbers.parallelStream().forEach(this::getManager);
+        }
+        return getManagers();
+    }
+
     private void addManager(final Manager m) {
         synchronized (managers) {
-            if (managers.contains(m)) {
+            if (!addManagerLocked(m)) {
                 return;
             }
-            managers.add(m);
-            m.addClosedListener(() -> this.removeManager(m));
         }
+        notifyManagerAdded(m);
+    }
+
+    private boolean addManagerLocked(final Manager m) {
+        if (managers.contains(m)) {
+            return false;
+        }
+        managers.add(m);
+        inactiveAccountNumbers.remove(m.getSelfNumber());
+        lastUsed.put(m, System.currentTimeMillis());
+        m.addClosedListener(() -> this.removeManager(m));
+        return true;
+    }
+
+    private void notifyManagerAdded(final Manager m) {
         synchronized (onManagerAddedHandlers) {
             for (final var handler : onManagerAddedHandlers) {
                 handler.accept(m);
@@ -79,7 +152,12 @@ public class MultiAccountManagerImpl implements MultiAccountManager {
             if (!managers.remove(m)) {
                 return;
             }
+            lastUsed.remove(m);
         }
+        notifyManagerRemoved(m);
+    }
+
+    private void notifyManagerRemoved(final Manager m) {
         synchronized (onManagerRemovedHandlers) {
             for (final var handler : onManagerRemovedHandlers) {
                 handler.accept(m);
@@ -96,21 +174,99 @@ public class MultiAccountManagerImpl implements MultiAccountManager {
 
     @Override
     public Manager getManager(final String number) {
+        final CompletableFuture<Manager> pendingManager;
+        final CompletableFuture<Manager> loading;
         synchronized (managers) {
             final var manager = managers.stream()
                     .filter(m -> m.getSelfNumber().equals(number))
                     .findFirst()
                     .orElse(null);
             if (manager != null) {
+                lastUsed.put(manager, System.currentTimeMillis());
                 return manager;
             }
+            pendingManager = loadingManagers.get(number);
+            if (pendingManager == null) {
+                if (inactiveAccountNumbers.contains(number)) {
+                    logger.debug("Loading account {} on first use", number);
+                }
+                loading = new CompletableFuture<>();
+                loadingManagers.put(number, loading);
+            } else {
+                loading = null;
+            }
+        }
+        if (pendingManager != null) {
+            // Another thread is already loading the account
+            return pendingManager.join();
+        }
+
+        // Loading an account is slow, so it's done without blocking the other accounts
+        Manager newManager = null;
+        try {
+            newManager = loadManager(number);
+        } finally {
+            synchronized (managers) {
+                loadingManagers.remove(number);
+                if (newManager != null) {
+                    addManagerLocked(newManager);
+                }
+            }
+            loading.complete(newManager);
+        }
+        if (newManager != null) {
+            notifyManagerAdded(newManager);
+        }
+        return newManager;
+    }
+
+    private Manager loadManager(final String number) {
+        try {
+            return signalAccountFiles.initManager(number);
+        } catch (NotRegisteredException e) {
+            synchronized (managers) {
+                inactiveAccountNumbers.remove(number);
+            }
+            logger.warn("Failed to load new manager", e);
+            return null;
+        } catch (IOException | AccountCheckException e) {
+            logger.warn("Failed to load new manager", e);
+            return null;
+        }
+    }
+
+    @Override
+    public List<AccountResourceUsage> getResourceUsage() {
+        return resourceManager.getUsage();
+    }
+
+    /**
+     * Close managers that haven't been used for the idle timeout, they're loaded again on their next use.
+     * Managers that are receiving messages for a handler are kept.
+     */
+    private void hibernateIdleManagers() {
+        final var now = System.currentTimeMillis();
+        final List<Manager> idleManagers;
+        synchronized (managers) {
+            idleManagers = lastUsed.entrySet()
+                    .stream()
+                    .filter(e -> now - e.getValue() >= idleTimeout)
+                    .map(Map.Entry::getKey)
+                    .filter(m -> !m.isReceiving())
+                    .toList();
+            for (final var m : idleManagers) {
+                managers.remove(m);
+                lastUsed.remove(m);
+                inactiveAccountNumbers.add(m.getSelfNumber());
+            }
+        }
+        for (final var m : idleManagers) {
+            logger.debug("Unloading account {} after being idle", m.getSelfNumber());
+            notifyManagerRemoved(m);
             try {
-                final var newManager = signalAccountFiles.initManager(number);
-                managers.add(newManager);
-                return newManager;
-            } catch (IOException | NotRegisteredException | AccountCheckException e) {
-                logger.warn("Failed to load new manager", e);
-                return null;
+                m.close();
+            } catch (Throwable e) {
+                logger.warn("Failed to close idle manager, ignoring", e);
             }
         }
     }
@@ -139,6 +295,12 @@ public class MultiAccountManagerImpl implements MultiAccountManager {
 
     @Override
     public void close() {
+        if (hibernationScheduler != null) {
+            hibernationScheduler.shutdownNow();
+        }
+        if (logger.isDebugEnabled()) {
+            resourceManager.getUsage().forEach(usage -> logger.debug("Resource usage: {}", usage));
+        }
         final List<Thread> closeThreads;
         synchronized (managers) {
             closeThreads = new ArrayList<>(managers).stream()
@@ -154,6 +316,7 @@ public class MultiAccountManagerImpl implements MultiAccountManager {
         }
         synchronized (managers) {
             managers.clear();
+            lastUsed.clear();
         }
     }
 }
@@ -23,6 +23,7 @@ import org.asamk.signal.manager.api.DeviceLinkUrl;
 import org.asamk.signal.manager.api.UserAlreadyExistsException;
 import org.asamk.signal.manager.config.ServiceConfig;
 import org.asamk.signal.manager.config.ServiceEnvironmentConfig;
+import org.asamk.signal.manager.storage.AttachmentStore;
 import org.asamk.signal.manager.storage.SignalAccount;
 import org.asamk.signal.manager.storage.accounts.AccountsStore;
 import org.asamk.signal.manager.util.KeyUtils;
@@ -51,6 +52,7 @@ public class ProvisioningManagerImpl implements ProvisioningManager {
     private static final Logger logger = LoggerFactory.getLogger(ProvisioningManagerImpl.class);
 
     private final PathConfig pathConfig;
+    private final AttachmentStore attachmentStore;
     private final ServiceEnvironmentConfig serviceEnvironmentConfig;
     private final String userAgent;
     private final Consumer<Manager> newManagerListener;
@@ -62,12 +64,14 @@ public class ProvisioningManagerImpl implements ProvisioningManager {
 
     public ProvisioningManagerImpl(
             PathConfig pathConfig,
+            AttachmentStore attachmentStore,
             ServiceEnvironmentConfig serviceEnvironmentConfig,
             String userAgent,
             final Consumer<Manager> newManagerListener,
             final AccountsStore accountsStore
     ) {
         this.pathConfig = pathConfig;
+        this.attachmentStore = attachmentStore;
         this.serviceEnvironmentConfig = serviceEnvironmentConfig;
         this.userAgent = userAgent;
         this.newManagerListener = newManagerListener;
@@ -165,6 +169,7 @@ public class ProvisioningManagerImpl implements ProvisioningManager {
             try {
                 m = new ManagerImpl(account,
                         pathConfig,
+                        attachmentStore,
                         new AccountFileUpdaterImpl(accountsStore, accountPath),
                         serviceEnvironmentConfig,
                         userAgent);
@@ -230,6 +235,7 @@ public class ProvisioningManagerImpl implements ProvisioningManager {
 
             final var m = new ManagerImpl(signalAccount,
                     pathConfig,
+                    attachmentStore,
                     new AccountFileUpdaterImpl(accountsStore, accountPath),
                     serviceEnvironmentConfig,
                     userAgent);
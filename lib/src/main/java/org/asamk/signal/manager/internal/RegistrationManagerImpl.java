@@ -30,6 +30,7 @@ import org.asamk.signal.manager.config.ServiceConfig;
 import org.asamk.signal.manager.config.ServiceEnvironmentConfig;
 import org.asamk.signal.manager.helper.AccountFileUpdater;
 import org.asamk.signal.manager.helper.PinHelper;
+import org.asamk.signal.manager.storage.AttachmentStore;
 import org.asamk.signal.manager.storage.SignalAccount;
 import org.asamk.signal.manager.util.KeyUtils;
 import org.asamk.signal.manager.util.NumberVerificationUtils;
@@ -61,6 +62,7 @@ public class RegistrationManagerImpl implements RegistrationManager {
 
     private SignalAccount account;
     private final PathConfig pathConfig;
+    private final AttachmentStore attachmentStore;
     private final ServiceEnvironmentConfig serviceEnvironmentConfig;
     private final String userAgent;
     private final Consumer<Manager> newManagerListener;
@@ -72,6 +74,7 @@ public class RegistrationManagerImpl implements RegistrationManager {
     public RegistrationManagerImpl(
             SignalAccount account,
             PathConfig pathConfig,
+            AttachmentStore attachmentStore,
             ServiceEnvironmentConfig serviceEnvironmentConfig,
             String userAgent,
             Consumer<Manager> newManagerListener,
@@ -79,6 +82,7 @@ public class RegistrationManagerImpl implements RegistrationManager {
     ) {
         this.account = account;
         this.pathConfig = pathConfig;
+        this.attachmentStore = attachmentStore;
         this.accountFileUpdater = accountFileUpdater;
         this.serviceEnvironmentConfig = serviceEnvironmentConfig;
         this.userAgent = userAgent;
@@ -233,7 +237,7 @@ public class RegistrationManagerImpl implements RegistrationManager {
                     account.getSignalServiceDataStore(),
                     0,
                     null,
-                    new ReentrantSignalSessionLock());
+                    new StripedSignalSessionLock());
             handleResponseException(dependencies.getAccountApi()
                     .setAccountAttributes(account.getAccountAttributes(null)));
             account.setRegistered(true);
@@ -241,6 +245,7 @@ public class RegistrationManagerImpl implements RegistrationManager {
             if (newManagerListener != null) {
                 final var m = new ManagerImpl(account,
                         pathConfig,
+                        attachmentStore,
                         accountFileUpdater,
                         serviceEnvironmentConfig,
                         userAgent);
@@ -293,7 +298,12 @@ public class RegistrationManagerImpl implements RegistrationManager {
 
         ManagerImpl m = null;
         try {
-            m = new ManagerImpl(account, pathConfig, accountFileUpdater, serviceEnvironmentConfig, userAgent);
+            m = new ManagerImpl(account,
+                    pathConfig,
+                    attachmentStore,
+                    accountFileUpdater,
+                    serviceEnvironmentConfig,
+                    userAgent);
             account = null;
 
             m.refreshPreKeys();
@@ -0,0 +1,76 @@
+package org.asamk.signal.manager.internal;
+
+import org.asamk.signal.manager.Manager;
+import org.asamk.signal.manager.api.AccountResourceUsage;
+import org.asamk.signal.manager.config.ServiceConfig;
+import org.asamk.signal.manager.storage.Database;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shares resources between all accounts loaded in the same process.
+ * <p>
+ * The database connection target is split evenly across the loaded accounts. The shares are adjusted whenever an
+ * account is loaded or closed.
+ * <p>
+ * The target isn't a hard limit, each account gets at least {@link ServiceConfig#MIN_DATABASE_CONNECTIONS_PER_ACCOUNT}
+ * connections. With more accounts than the target allows for, the total number of connections exceeds it.
+ */
+public class ResourceManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceManager.class);
+
+    private final int connectionTarget;
+    private final Map<Manager, Database> accounts = new LinkedHashMap<>();
+
+    public ResourceManager(final int connectionTarget) {
+        this.connectionTarget = connectionTarget;
+    }
+
+    public void register(final Manager manager, final Database database) {
+        synchronized (this) {
+            accounts.put(manager, database);
+            rebalance();
+        }
+        manager.addClosedListener(() -> unregister(manager));
+    }
+
+    private synchronized void unregister(final Manager manager) {
+        if (accounts.remove(manager) != null) {
+            rebalance();
+        }
+    }
+
+    static int getConnectionsPerAccount(final int connectionTarget, final int accountCount) {
+        final var share = connectionTarget / Math.max(1, accountCount);
+        return Math.clamp(share, ServiceConfig.MIN_DATABASE_CONNECTIONS_PER_ACCOUNT, Database.MAXIMUM_POOL_SIZE);
+    }
+
+    private void rebalance() {
+        final var connectionsPerAccount = getConnectionsPerAccount(connectionTarget, accounts.size());
+        logger.debug("Sharing target of {} database connections between {} accounts, {} each",
+                connectionTarget,
+                accounts.size(),
+                connectionsPerAccount);
+        for (final var database : accounts.values()) {
+            database.setMaximumPoolSize(connectionsPerAccount);
+        }
+    }
+
+    public synchronized List<AccountResourceUsage> getUsage() {
+        return accounts.entrySet().stream().map(e -> {
+            final var manager = e.getKey();
+            final var pool = e.getValue().getConnectionPoolUsage();
+            return new AccountResourceUsage(manager.getSelfNumber(),
+                    pool.maximum(),
+                    pool.active(),
+                    pool.idle(),
+                    pool.waiting(),
+                    manager.isReceiving());
+        }).toList();
+    }
+}
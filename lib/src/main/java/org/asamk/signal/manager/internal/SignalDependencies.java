@@ -24,7 +24,6 @@ import org.whispersystems.signalservice.api.SignalServiceAccountManager;
 import org.whispersystems.signalservice.api.SignalServiceDataStore;
 import org.whispersystems.signalservice.api.SignalServiceMessageReceiver;
 import org.whispersystems.signalservice.api.SignalServiceMessageSender;
-import org.whispersystems.signalservice.api.SignalSessionLock;
 import org.whispersystems.signalservice.api.account.AccountApi;
 import org.whispersystems.signalservice.api.crypto.SignalServiceCipher;
 import org.whispersystems.signalservice.api.groupsv2.ClientZkOperations;
@@ -58,6 +57,8 @@ import java.util.function.Supplier;
 public class SignalDependencies {
 
     private static final Logger logger = LoggerFactory.getLogger(SignalDependencies.class);
+    // Only used by the websockets to wait before disconnecting an unused websocket, it has no state of its own
+    private static final UptimeSleepTimer sleepTimer = new UptimeSleepTimer();
 
     private final Object LOCK = new Object();
 
@@ -67,7 +68,7 @@ public class SignalDependencies {
     private final SignalServiceDataStore dataStore;
     private final int deviceId;
     private final ExecutorService executor;
-    private final SignalSessionLock sessionLock;
+    private final StripedSignalSessionLock sessionLock;
 
     private boolean allowStories = true;
 
@@ -97,6 +98,8 @@ public class SignalDependencies {
     private Network libSignalNetwork;
     private SignalWebSocket.AuthenticatedWebSocket authenticatedSignalWebSocket;
     private SignalWebSocket.UnauthenticatedWebSocket unauthenticatedSignalWebSocket;
+    private SignalWebSocketHealthMonitor authenticatedHealthMonitor;
+    private SignalWebSocketHealthMonitor unauthenticatedHealthMonitor;
     private SignalServiceMessageReceiver messageReceiver;
     private SignalServiceMessageSender messageSender;
 
@@ -109,7 +112,7 @@ public class SignalDependencies {
             final SignalServiceDataStore dataStore,
             final int deviceId,
             final ExecutorService executor,
-            final SignalSessionLock sessionLock
+            final StripedSignalSessionLock sessionLock
     ) {
         this.serviceEnvironmentConfig = serviceEnvironmentConfig;
         this.userAgent = userAgent;
@@ -151,7 +154,7 @@ public class SignalDependencies {
         return serviceEnvironmentConfig;
     }
 
-    public SignalSessionLock getSessionLock() {
+    public StripedSignalSessionLock getSessionLock() {
         return sessionLock;
     }
 
@@ -303,34 +306,50 @@ public class SignalDependencies {
 
     public SignalWebSocket.AuthenticatedWebSocket getAuthenticatedSignalWebSocket() {
         return getOrCreate(() -> authenticatedSignalWebSocket, () -> {
-            final var timer = new UptimeSleepTimer();
-            final var healthMonitor = new SignalWebSocketHealthMonitor(timer);
+            final var healthMonitor = new SignalWebSocketHealthMonitor();
+            authenticatedHealthMonitor = healthMonitor;
 
             authenticatedSignalWebSocket = new SignalWebSocket.AuthenticatedWebSocket(() -> new LibSignalChatConnection(
                     "normal",
                     getLibSignalNetwork(),
                     credentialsProvider,
                     allowStories,
-                    healthMonitor), () -> true, timer, TimeUnit.SECONDS.toMillis(30));
+                    healthMonitor), () -> true, sleepTimer, TimeUnit.SECONDS.toMillis(30));
             healthMonitor.monitor(authenticatedSignalWebSocket);
         });
     }
 
     public SignalWebSocket.UnauthenticatedWebSocket getUnauthenticatedSignalWebSocket() {
         return getOrCreate(() -> unauthenticatedSignalWebSocket, () -> {
-            final var timer = new UptimeSleepTimer();
-            final var healthMonitor = new SignalWebSocketHealthMonitor(timer);
+            final var healthMonitor = new SignalWebSocketHealthMonitor();
+            unauthenticatedHealthMonitor = healthMonitor;
 
             unauthenticatedSignalWebSocket = new SignalWebSocket.UnauthenticatedWebSocket(() -> new LibSignalChatConnection(
                     "unidentified",
                     getLibSignalNetwork(),
                     null,
                     allowStories,
-                    healthMonitor), () -> true, timer, TimeUnit.SECONDS.toMillis(30));
+                    healthMonitor), () -> true, sleepTimer, TimeUnit.SECONDS.toMillis(30));
             healthMonitor.monitor(unauthenticatedSignalWebSocket);
         });
     }
 
+    /**
+     * @return the keep-alive statistics of the authenticated websocket, or null if it hasn't been created
+     */
+    SignalWebSocketHealthMonitor.KeepAliveStatistics getAuthenticatedKeepAliveStatistics() {
+        final var healthMonitor = authenticatedHealthMonitor;
+        return healthMonitor == null ? null : healthMonitor.getStatistics();
+    }
+
+    /**
+     * @return the keep-alive statistics of the unauthenticated websocket, or null if it hasn't been created
+     */
+    SignalWebSocketHealthMonitor.KeepAliveStatistics getUnauthenticatedKeepAliveStatistics() {
+        final var healthMonitor = unauthenticatedHealthMonitor;
+        return healthMonitor == null ? null : healthMonitor.getStatistics();
+    }
+
     public SignalServiceMessageReceiver getMessageReceiver() {
         return getOrCreate(() -> messageReceiver,
                 () -> messageReceiver = new SignalServiceMessageReceiver(getPushServiceSocket()));
@@ -366,7 +385,7 @@ public class SignalDependencies {
                         getMessageApi(),
                         getKeysApi(),
                         Optional.empty(),
-                        executor,
+                        sessionLock.propagateAddresses(executor),
                         ServiceConfig.MAX_ENVELOPE_SIZE,
                         ServiceConfig.MAX_INCREMENTAL_MACS_PER_ENVELOPE,
                         () -> true,
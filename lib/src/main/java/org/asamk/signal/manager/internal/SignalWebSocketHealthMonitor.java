@@ -1,7 +1,6 @@
 package org.asamk.signal.manager.internal;
 
 import org.jetbrains.annotations.NotNull;
-import org.signal.core.util.SleepTimer;
 import org.signal.network.util.Preconditions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,9 +8,10 @@ import org.whispersystems.signalservice.api.websocket.HealthMonitor;
 import org.whispersystems.signalservice.api.websocket.SignalWebSocket;
 import org.whispersystems.signalservice.api.websocket.WebSocketConnectionState;
 
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.io.IOException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
 import io.reactivex.rxjava3.schedulers.Schedulers;
 import kotlin.Unit;
@@ -29,64 +29,123 @@ final class SignalWebSocketHealthMonitor implements HealthMonitor {
      * This is the amount of time we will wait for a response to the keep alive before we consider the websockets dead.
      * It is required that this value be less than [KEEP_ALIVE_SEND_CADENCE]
      */
-    private static final long KEEP_ALIVE_TIMEOUT = TimeUnit.SECONDS.toMillis(20);
+    static final long KEEP_ALIVE_TIMEOUT = TimeUnit.SECONDS.toMillis(20);
 
-    private final Executor executor = Executors.newSingleThreadExecutor();
-    private final SleepTimer sleepTimer;
-    private SignalWebSocket webSocket = null;
-    private volatile KeepAliveSender keepAliveSender = null;
+    private static final KeepAliveScheduler DEFAULT_SCHEDULER = new KeepAliveScheduler() {
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(final Runnable task, final long periodMillis) {
+            return WebSocketKeepAliveScheduler.scheduleAtFixedRate(task, periodMillis);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(final Runnable task, final long delayMillis) {
+            return WebSocketKeepAliveScheduler.schedule(task, delayMillis);
+        }
+    };
+
+    private final LongSupplier clock;
+    private final KeepAliveScheduler scheduler;
+
+    private MonitoredWebSocket webSocket = null;
+    private ScheduledFuture<?> keepAliveSender = null;
     private boolean needsKeepAlive = false;
     private long lastKeepAliveReceived = 0;
 
-    public SignalWebSocketHealthMonitor(SleepTimer sleepTimer) {
-        this.sleepTimer = sleepTimer;
+    private long keepAliveResponses;
+    private long missedKeepAlives;
+    private long lastRtt;
+    private long minRtt = Long.MAX_VALUE;
+    private long maxRtt;
+    private long totalRtt;
+
+    SignalWebSocketHealthMonitor() {
+        this(System::currentTimeMillis, DEFAULT_SCHEDULER);
+    }
+
+    SignalWebSocketHealthMonitor(final LongSupplier clock, final KeepAliveScheduler scheduler) {
+        this.clock = clock;
+        this.scheduler = scheduler;
     }
 
-    void monitor(SignalWebSocket webSocket) {
+    synchronized void monitor(SignalWebSocket webSocket) {
         Preconditions.checkNotNull(webSocket);
-        Preconditions.checkArgument(this.webSocket == null, "monitor can only be called once");
+        monitor(new MonitoredWebSocket() {
+            @Override
+            public boolean shouldSendKeepAlives() {
+                return webSocket.shouldSendKeepAlives();
+            }
 
-        executor.execute(() -> {
+            @Override
+            public void sendKeepAlive() throws IOException {
+                webSocket.sendKeepAlive();
+            }
 
-            this.webSocket = webSocket;
+            @Override
+            public void forceNewWebSocket() {
+                webSocket.forceNewWebSocket();
+            }
+        });
 
-            webSocket.getState()
-                    .subscribeOn(Schedulers.computation())
-                    .observeOn(Schedulers.computation())
-                    .distinctUntilChanged()
-                    .subscribe(this::onStateChanged);
+        webSocket.getState()
+                .subscribeOn(Schedulers.computation())
+                .observeOn(Schedulers.computation())
+                .distinctUntilChanged()
+                .subscribe(this::onStateChanged);
 
-            webSocket.addKeepAliveChangeListener(() -> {
-                executor.execute(this::updateKeepAliveSenderStatus);
-                return Unit.INSTANCE;
-            });
+        webSocket.addKeepAliveChangeListener(() -> {
+            // Called by the websocket, don't take the monitor lock on its thread
+            Thread.ofVirtual().start(this::updateKeepAliveSenderStatus);
+            return Unit.INSTANCE;
         });
     }
 
-    private void onStateChanged(WebSocketConnectionState connectionState) {
-        executor.execute(() -> {
-            needsKeepAlive = connectionState == WebSocketConnectionState.CONNECTED;
+    synchronized void monitor(MonitoredWebSocket webSocket) {
+        Preconditions.checkNotNull(webSocket);
+        Preconditions.checkArgument(this.webSocket == null, "monitor can only be called once");
 
-            updateKeepAliveSenderStatus();
-        });
+        this.webSocket = webSocket;
+    }
+
+    synchronized void onStateChanged(WebSocketConnectionState connectionState) {
+        needsKeepAlive = connectionState == WebSocketConnectionState.CONNECTED;
+
+        updateKeepAliveSenderStatus();
     }
 
     @Override
-    public void onKeepAliveResponse(long sentTimestamp, boolean isIdentifiedWebSocket) {
-        final var keepAliveTime = System.currentTimeMillis();
-        executor.execute(() -> lastKeepAliveReceived = keepAliveTime);
+    public synchronized void onKeepAliveResponse(long sentTimestamp, boolean isIdentifiedWebSocket) {
+        final var keepAliveTime = clock.getAsLong();
+        lastKeepAliveReceived = keepAliveTime;
+
+        final var rtt = Math.max(0, keepAliveTime - sentTimestamp);
+        keepAliveResponses++;
+        lastRtt = rtt;
+        minRtt = Math.min(minRtt, rtt);
+        maxRtt = Math.max(maxRtt, rtt);
+        totalRtt += rtt;
     }
 
     @Override
     public void onMessageError(int status, boolean isIdentifiedWebSocket) {
     }
 
-    private void updateKeepAliveSenderStatus() {
+    synchronized KeepAliveStatistics getStatistics() {
+        return new KeepAliveStatistics(keepAliveResponses,
+                missedKeepAlives,
+                lastRtt,
+                keepAliveResponses == 0 ? 0 : minRtt,
+                maxRtt,
+                keepAliveResponses == 0 ? 0 : totalRtt / keepAliveResponses);
+    }
+
+    private synchronized void updateKeepAliveSenderStatus() {
         if (keepAliveSender == null && sendKeepAlives()) {
-            keepAliveSender = new KeepAliveSender();
-            keepAliveSender.start();
+            logger.debug("Starting keep alives");
+            lastKeepAliveReceived = clock.getAsLong();
+            keepAliveSender = scheduler.scheduleAtFixedRate(this::sendKeepAlive, KEEP_ALIVE_SEND_CADENCE);
         } else if (keepAliveSender != null && !sendKeepAlives()) {
-            keepAliveSender.shutdown();
+            logger.debug("Stopping keep alives");
+            keepAliveSender.cancel(false);
             keepAliveSender = null;
         }
     }
@@ -95,6 +154,49 @@ final class SignalWebSocketHealthMonitor implements HealthMonitor {
         return needsKeepAlive && webSocket != null && webSocket.shouldSendKeepAlives();
     }
 
+    /**
+     * Sends periodic heartbeats/keep-alives over the WebSocket to prevent connection timeouts. If
+     * the WebSocket fails to get a return heartbeat after [KEEP_ALIVE_TIMEOUT] seconds, it is forced to be recreated.
+     */
+    private void sendKeepAlive() {
+        final long keepAliveSendTime;
+        final ScheduledFuture<?> sender;
+        synchronized (this) {
+            if (keepAliveSender == null || !sendKeepAlives()) {
+                return;
+            }
+            keepAliveSendTime = clock.getAsLong();
+            sender = keepAliveSender;
+        }
+        try {
+            webSocket.sendKeepAlive();
+        } catch (Throwable e) {
+            logger.warn("Keep alive sender failed", e);
+        }
+        scheduler.schedule(() -> checkKeepAliveResponse(sender, keepAliveSendTime), KEEP_ALIVE_TIMEOUT);
+    }
+
+    private void checkKeepAliveResponse(final ScheduledFuture<?> sender, final long keepAliveSendTime) {
+        synchronized (this) {
+            // Keep alives were stopped or restarted in the meantime
+            if (keepAliveSender != sender || !sendKeepAlives()) {
+                return;
+            }
+            if (lastKeepAliveReceived >= keepAliveSendTime) {
+                return;
+            }
+            missedKeepAlives++;
+            logger.debug("Missed keep alive, last: {} needed by: {}",
+                    lastKeepAliveReceived,
+                    keepAliveSendTime + KEEP_ALIVE_TIMEOUT);
+        }
+        try {
+            webSocket.forceNewWebSocket();
+        } catch (Throwable e) {
+            logger.warn("Keep alive sender failed", e);
+        }
+    }
+
     @Override
     public void onReceivedAlerts(@NotNull final String[] strings, final boolean b) {
         if (strings.length == 0) {
@@ -104,63 +206,36 @@ final class SignalWebSocketHealthMonitor implements HealthMonitor {
     }
 
     /**
-     * Sends periodic heartbeats/keep-alives over the WebSocket to prevent connection timeouts. If
-     * the WebSocket fails to get a return heartbeat after [KEEP_ALIVE_TIMEOUT] seconds, it is forced to be recreated.
+     * The parts of the websocket that are used by the health monitor.
      */
-    private final class KeepAliveSender extends Thread {
+    interface MonitoredWebSocket {
 
-        private volatile boolean shouldKeepRunning = true;
+        boolean shouldSendKeepAlives();
 
-        @Override
-        public void run() {
-            logger.debug("[KeepAliveSender({})] started", this.threadId());
-            lastKeepAliveReceived = System.currentTimeMillis();
-
-            var keepAliveSendTime = System.currentTimeMillis();
-            while (shouldKeepRunning && sendKeepAlives()) {
-                try {
-                    final var nextKeepAliveSendTime = keepAliveSendTime + KEEP_ALIVE_SEND_CADENCE;
-                    sleepUntil(nextKeepAliveSendTime);
-
-                    if (shouldKeepRunning && sendKeepAlives()) {
-                        keepAliveSendTime = System.currentTimeMillis();
-                        webSocket.sendKeepAlive();
-                    }
-
-                    final var responseRequiredTime = keepAliveSendTime + KEEP_ALIVE_TIMEOUT;
-                    sleepUntil(responseRequiredTime);
-
-                    if (shouldKeepRunning && sendKeepAlives()) {
-                        if (lastKeepAliveReceived < keepAliveSendTime) {
-                            logger.debug("Missed keep alive, last: {} needed by: {}",
-                                    lastKeepAliveReceived,
-                                    responseRequiredTime);
-                            webSocket.forceNewWebSocket();
-                        }
-                    }
-                } catch (Throwable e) {
-                    logger.warn("Keep alive sender failed", e);
-                }
-            }
-            logger.debug("[KeepAliveSender({})] ended", threadId());
-        }
+        void sendKeepAlive() throws IOException;
 
-        void sleepUntil(long timeMillis) {
-            while (System.currentTimeMillis() < timeMillis) {
-                final var waitTime = timeMillis - System.currentTimeMillis();
-                if (waitTime > 0) {
-                    try {
-                        sleepTimer.sleep(waitTime);
-                    } catch (InterruptedException e) {
-                        logger.warn("WebSocket health monitor interrupted", e);
-                    }
-                }
-            }
-        }
+        void forceNewWebSocket();
+    }
+
+    interface KeepAliveScheduler {
 
-        void shutdown() {
-            shouldKeepRunning = false;
+        ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long periodMillis);
+
+        ScheduledFuture<?> schedule(Runnable task, long delayMillis);
+    }
+
+    public record KeepAliveStatistics(
+            long responses, long missed, long lastRttMillis, long minRttMillis, long maxRttMillis, long avgRttMillis
+    ) {
+
+        @Override
+        public String toString() {
+            return "%d responses, %d missed, rtt last %d ms, min %d ms, max %d ms, avg %d ms".formatted(responses,
+                    missed,
+                    lastRttMillis,
+                    minRttMillis,
+                    maxRttMillis,
+                    avgRttMillis);
         }
     }
 }
-
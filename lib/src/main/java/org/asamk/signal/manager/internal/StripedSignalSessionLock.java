@@ -0,0 +1,186 @@
+package org.asamk.signal.manager.internal;
+
+import org.whispersystems.signalservice.api.SignalSessionLock;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * Session lock that is striped by the name of the protocol address.
+ * <p>
+ * libsignal-service acquires the session lock without telling which sessions it is going to use. Callers that know the
+ * addresses declare them with {@link #declareAddresses}, a lock acquired on that thread then only locks the stripes of
+ * these addresses. Without declared addresses the lock is exclusive, like a single lock for the whole account.
+ * Stripes are always locked in ascending order, so locking multiple addresses can't deadlock.
+ */
+public class StripedSignalSessionLock implements SignalSessionLock {
+
+    private static final int STRIPE_COUNT = 256;
+
+    private final ReentrantReadWriteLock exclusiveLock = new ReentrantReadWriteLock();
+    private final ReentrantLock[] stripes = IntStream.range(0, STRIPE_COUNT)
+            .mapToObj(i -> new ReentrantLock())
+            .toArray(ReentrantLock[]::new);
+    private final ThreadLocal<int[]> declaredStripes = new ThreadLocal<>();
+
+    private final LockStatistics exclusiveStatistics = new LockStatistics();
+    private final LockStatistics stripedStatistics = new LockStatistics();
+
+    @Override
+    public Lock acquire() {
+        final var stripeIndexes = declaredStripes.get();
+        final var waitStart = System.nanoTime();
+        if (stripeIndexes == null) {
+            exclusiveLock.writeLock().lock();
+            final var acquired = System.nanoTime();
+            return () -> {
+                exclusiveStatistics.record(acquired - waitStart, System.nanoTime() - acquired);
+                exclusiveLock.writeLock().unlock();
+            };
+        }
+
+        exclusiveLock.readLock().lock();
+        for (final var index : stripeIndexes) {
+            stripes[index].lock();
+        }
+        final var acquired = System.nanoTime();
+        return () -> {
+            stripedStatistics.record(acquired - waitStart, System.nanoTime() - acquired);
+            for (var i = stripeIndexes.length - 1; i >= 0; i--) {
+                stripes[stripeIndexes[i]].unlock();
+            }
+            exclusiveLock.readLock().unlock();
+        };
+    }
+
+    /**
+     * Restrict session locks acquired by the current thread to the given addresses, until the returned scope is closed.
+     * Nested scopes add their addresses to the ones of the outer scope.
+     *
+     * @param addressNames names of all protocol addresses whose sessions are used inside the scope
+     */
+    public AddressScope declareAddresses(final Collection<String> addressNames) {
+        final var previousStripes = declaredStripes.get();
+        final var stripeIndexes = IntStream.concat(previousStripes == null
+                        ? IntStream.empty()
+                        : Arrays.stream(previousStripes),
+                addressNames.stream().mapToInt(name -> Math.floorMod(name.hashCode(), STRIPE_COUNT)));
+        declaredStripes.set(stripeIndexes.distinct().sorted().toArray());
+        return () -> {
+            if (previousStripes == null) {
+                declaredStripes.remove();
+            } else {
+                declaredStripes.set(previousStripes);
+            }
+        };
+    }
+
+    /**
+     * Wrap the executor, so its tasks use the addresses declared by the thread that submitted them.
+     * libsignal-service encrypts for multiple recipients on its executor, without this every task would take the
+     * exclusive lock.
+     */
+    public ExecutorService propagateAddresses(final ExecutorService executor) {
+        return new AbstractExecutorService() {
+            @Override
+            public void execute(final Runnable command) {
+                final var stripeIndexes = declaredStripes.get();
+                if (stripeIndexes == null) {
+                    executor.execute(command);
+                    return;
+                }
+                executor.execute(() -> {
+                    final var previousStripes = declaredStripes.get();
+                    declaredStripes.set(stripeIndexes);
+                    try {
+                        command.run();
+                    } finally {
+                        if (previousStripes == null) {
+                            declaredStripes.remove();
+                        } else {
+                            declaredStripes.set(previousStripes);
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void shutdown() {
+                executor.shutdown();
+            }
+
+            @Override
+            public List<Runnable> shutdownNow() {
+                return executor.shutdownNow();
+            }
+
+            @Override
+            public boolean isShutdown() {
+                return executor.isShutdown();
+            }
+
+            @Override
+            public boolean isTerminated() {
+                return executor.isTerminated();
+            }
+
+            @Override
+            public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+                return executor.awaitTermination(timeout, unit);
+            }
+        };
+    }
+
+    public Statistics getExclusiveStatistics() {
+        return exclusiveStatistics.snapshot();
+    }
+
+    public Statistics getStripedStatistics() {
+        return stripedStatistics.snapshot();
+    }
+
+    public interface AddressScope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+
+    public record Statistics(long acquisitions, long waitNanos, long maxWaitNanos, long holdNanos) {
+
+        @Override
+        public String toString() {
+            return "%d acquisitions, wait %d ms (max %d ms), hold %d ms".formatted(acquisitions,
+                    waitNanos / 1_000_000,
+                    maxWaitNanos / 1_000_000,
+                    holdNanos / 1_000_000);
+        }
+    }
+
+    private static final class LockStatistics {
+
+        private final LongAdder acquisitions = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder holdNanos = new LongAdder();
+
+        private void record(final long wait, final long hold) {
+            acquisitions.increment();
+            waitNanos.add(wait);
+            maxWaitNanos.accumulate(wait);
+            holdNanos.add(hold);
+        }
+
+        private Statistics snapshot() {
+            return new Statistics(acquisitions.sum(), waitNanos.sum(), maxWaitNanos.get(), holdNanos.sum());
+        }
+    }
+}
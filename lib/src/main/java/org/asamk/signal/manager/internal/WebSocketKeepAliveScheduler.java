@@ -0,0 +1,43 @@
+package org.asamk.signal.manager.internal;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the keep-alives of all websockets in the process from a single timer thread, instead of a mostly sleeping
+ * thread per websocket.
+ * <p>
+ * The timer thread only starts the tasks on virtual threads, so a websocket that blocks while sending a keep-alive or
+ * reconnecting doesn't delay the keep-alives of the other websockets.
+ */
+final class WebSocketKeepAliveScheduler {
+
+    private static final ScheduledThreadPoolExecutor timer = createTimer();
+
+    private WebSocketKeepAliveScheduler() {
+    }
+
+    static ScheduledFuture<?> scheduleAtFixedRate(final Runnable task, final long periodMillis) {
+        return timer.scheduleAtFixedRate(() -> runAsync(task), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    static ScheduledFuture<?> schedule(final Runnable task, final long delayMillis) {
+        return timer.schedule(() -> runAsync(task), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static void runAsync(final Runnable task) {
+        Thread.ofVirtual().name("websocket-keep-alive-task").start(task);
+    }
+
+    private static ScheduledThreadPoolExecutor createTimer() {
+        final var executor = new ScheduledThreadPoolExecutor(1, r -> {
+            var t = new Thread(r, "websocket-keep-alive");
+            t.setDaemon(true);
+            return t;
+        });
+        // Keep-alives are cancelled whenever a websocket disconnects, don't keep them in the queue until they're due
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+}
@@ -33,7 +33,7 @@ import java.util.UUID;
 public class AccountDatabase extends Database {
 
     private static final Logger logger = LoggerFactory.getLogger(AccountDatabase.class);
-    private static final long DATABASE_VERSION = 28;
+    private static final long DATABASE_VERSION = 29;
 
     private AccountDatabase(final HikariDataSource dataSource) {
         super(logger, DATABASE_VERSION, dataSource);
@@ -59,6 +59,7 @@ public class AccountDatabase extends Database {
         KeyValueStore.createSql(connection);
         CdsiStore.createSql(connection);
         UnknownStorageIdStore.createSql(connection);
+        AttachmentDownloadStore.createSql(connection);
     }
 
     @Override
@@ -623,6 +624,18 @@ public class AccountDatabase extends Database {
                                         """);
             }
         }
+        if (oldVersion < 29) {
+            logger.debug("Updating database: Create attachment download table");
+            try (final var statement = connection.createStatement()) {
+                statement.executeUpdate("""
+                                        CREATE TABLE attachment_download (
+                                          _id INTEGER PRIMARY KEY,
+                                          attachment_id TEXT UNIQUE NOT NULL,
+                                          pointer BLOB NOT NULL
+                                        ) STRICT;
+                                        """);
+            }
+        }
     }
 
     private static void createUuidMappingTable(
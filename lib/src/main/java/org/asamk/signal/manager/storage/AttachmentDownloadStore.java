@@ -0,0 +1,116 @@
+package org.asamk.signal.manager.storage;
+
+import org.asamk.signal.manager.api.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whispersystems.signalservice.api.InvalidMessageStructureException;
+import org.whispersystems.signalservice.api.messages.SignalServiceAttachmentPointer;
+import org.whispersystems.signalservice.internal.push.util.AttachmentPointerUtil;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Attachments of received messages that haven't been downloaded yet.
+ * They are stored before the received message is removed from the message cache, so the download can be resumed after
+ * a restart.
+ */
+public class AttachmentDownloadStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttachmentDownloadStore.class);
+    private static final String TABLE_ATTACHMENT_DOWNLOAD = "attachment_download";
+
+    private final Database database;
+
+    public static void createSql(Connection connection) throws SQLException {
+        // When modifying the CREATE statement here, also add a migration in AccountDatabase.java
+        try (final var statement = connection.createStatement()) {
+            statement.executeUpdate("""
+                                    CREATE TABLE attachment_download (
+                                      _id INTEGER PRIMARY KEY,
+                                      attachment_id TEXT UNIQUE NOT NULL,
+                                      pointer BLOB NOT NULL
+                                    ) STRICT;
+                                    """);
+        }
+    }
+
+    public AttachmentDownloadStore(final Database database) {
+        this.database = database;
+    }
+
+    public void addDownload(final String attachmentId, final SignalServiceAttachmentPointer pointer) {
+        final var sql = (
+                """
+                INSERT OR REPLACE INTO %s (attachment_id, pointer)
+                VALUES (?, ?)
+                """
+        ).formatted(TABLE_ATTACHMENT_DOWNLOAD);
+        try (final var connection = database.getConnection()) {
+            try (final var statement = connection.prepareStatement(sql)) {
+                statement.setString(1, attachmentId);
+                statement.setBytes(2, AttachmentPointerUtil.createAttachmentPointer(pointer).encode());
+                statement.executeUpdate();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed update attachment download store", e);
+        }
+    }
+
+    public void deleteDownload(final String attachmentId) {
+        final var sql = (
+                """
+                DELETE FROM %s
+                WHERE attachment_id = ?
+                """
+        ).formatted(TABLE_ATTACHMENT_DOWNLOAD);
+        try (final var connection = database.getConnection()) {
+            try (final var statement = connection.prepareStatement(sql)) {
+                statement.setString(1, attachmentId);
+                statement.executeUpdate();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed update attachment download store", e);
+        }
+    }
+
+    /**
+     * @return the pending downloads, with the id of the attachment
+     */
+    public List<Pair<String, SignalServiceAttachmentPointer>> getDownloads() {
+        final var sql = (
+                """
+                SELECT a.attachment_id, a.pointer
+                FROM %s a
+                """
+        ).formatted(TABLE_ATTACHMENT_DOWNLOAD);
+        try (final var connection = database.getConnection()) {
+            try (final var statement = connection.prepareStatement(sql)) {
+                try (var result = Utils.executeQueryForStream(statement, this::getDownloadFromResultSet)) {
+                    return result.filter(Objects::nonNull).toList();
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed read from attachment download store", e);
+        }
+    }
+
+    private Pair<String, SignalServiceAttachmentPointer> getDownloadFromResultSet(
+            ResultSet resultSet
+    ) throws SQLException {
+        final var attachmentId = resultSet.getString("attachment_id");
+        try {
+            final var pointer = AttachmentPointerUtil.createSignalAttachmentPointer(resultSet.getBytes("pointer"));
+            return new Pair<>(attachmentId, pointer);
+        } catch (IOException | InvalidMessageStructureException e) {
+            logger.warn("Failed to read pending download of attachment {}, ignoring: {}",
+                    attachmentId,
+                    e.getMessage());
+            return null;
+        }
+    }
+}
@@ -3,6 +3,8 @@ package org.asamk.signal.manager.storage;
 import org.asamk.signal.manager.util.IOUtils;
 import org.asamk.signal.manager.util.MimeUtils;
 import org.asamk.signal.manager.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.whispersystems.signalservice.api.messages.SignalServiceAttachmentPointer;
 import org.whispersystems.signalservice.api.messages.SignalServiceAttachmentRemoteId;
 import org.whispersystems.signalservice.api.util.StreamDetails;
@@ -11,14 +13,60 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Stores received attachments under a file name derived from their remote id.
+ * <p>
+ * The content of attachments with a digest is stored once in a content-addressed blob, the attachment files are hard
+ * links to it. An attachment that is received again, e.g. a forwarded image, isn't downloaded again.
+ * With a quota, the least recently used blobs and their attachment files are evicted once the blobs exceed it.
+ * The attachment files of each blob are listed in an index file next to it.
+ * <p>
+ * If the file system doesn't support hard links, attachments are stored without deduplication, quota and statistics.
+ */
 public class AttachmentStore {
 
+    private static final Logger logger = LoggerFactory.getLogger(AttachmentStore.class);
+    private static final String BLOBS_DIRECTORY = ".blobs";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final String LINKS_FILE_SUFFIX = ".links";
+
     private final File attachmentsPath;
+    private final File blobsPath;
+    private final long quota;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+    private final LongAdder evictedBytes = new LongAdder();
+    // Total size of the blobs, -1 until the blobs directory has been scanned
+    private long storedBytes = -1;
+    // Cleared once creating a hard link failed, following attachments are then stored without a blob
+    private volatile boolean hardLinksSupported = true;
 
-    public AttachmentStore(final File attachmentsPath) {
+    /**
+     * @param quota maximum total size of the stored attachment contents in bytes, 0 for no limit
+     */
+    public AttachmentStore(final File attachmentsPath, final long quota) {
         this.attachmentsPath = attachmentsPath;
+        this.blobsPath = new File(attachmentsPath, BLOBS_DIRECTORY);
+        this.quota = quota;
     }
 
     public void storeAttachmentPreview(
@@ -30,11 +78,72 @@ public class AttachmentStore {
                 Optional.ofNullable(pointer.getContentType())), storer);
     }
 
+    /**
+     * Store the attachment, the storer is only called if the content isn't already stored.
+     */
     public void storeAttachment(
             final SignalServiceAttachmentPointer pointer,
             final AttachmentStorer storer
     ) throws IOException {
-        storeAttachment(getAttachmentFile(pointer), storer);
+        final var attachmentFile = getAttachmentFile(pointer);
+        if (pointer.getDigest().isEmpty()) {
+            storeAttachment(attachmentFile, storer);
+            return;
+        }
+        storeAttachment(attachmentFile, pointer.getKey(), pointer.getDigest().get(), storer);
+    }
+
+    void storeAttachment(
+            final File file,
+            final byte[] key,
+            final byte[] digest,
+            final AttachmentStorer storer
+    ) throws IOException {
+        if (!hardLinksSupported) {
+            storeAttachment(file, storer);
+            return;
+        }
+        final var attachmentFile = file.toPath();
+        createAttachmentsDir();
+        IOUtils.createPrivateDirectories(blobsPath);
+        final var blobFile = getBlobFile(key, digest);
+        switch (linkBlob(blobFile, attachmentFile)) {
+            case LINKED -> {
+                hits.increment();
+                bytesSaved.add(Files.size(attachmentFile));
+                return;
+            }
+            case UNSUPPORTED -> {
+                try {
+                    Files.copy(blobFile, attachmentFile, StandardCopyOption.REPLACE_EXISTING);
+                } catch (NoSuchFileException e) {
+                    storeAttachment(file, storer);
+                }
+                return;
+            }
+            case MISSING -> {
+            }
+        }
+
+        misses.increment();
+        final var tempFile = Files.createTempFile(blobsPath.toPath(), "download", TEMP_FILE_SUFFIX);
+        try {
+            try (OutputStream output = Files.newOutputStream(tempFile)) {
+                storer.store(output);
+            }
+            try {
+                Files.move(tempFile, blobFile);
+            } catch (FileAlreadyExistsException ignored) {
+                // The same attachment was stored concurrently, the content is identical
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        switch (linkBlob(blobFile, attachmentFile)) {
+            case LINKED -> addStoredBytes(blobFile, Files.size(attachmentFile));
+            case UNSUPPORTED -> Files.move(blobFile, attachmentFile, StandardCopyOption.REPLACE_EXISTING);
+            case MISSING -> throw new IOException("Attachment was evicted while storing it");
+        }
     }
 
     public File getAttachmentFile(final SignalServiceAttachmentPointer pointer) {
@@ -46,7 +155,16 @@ public class AttachmentStore {
     public StreamDetails retrieveAttachment(final String id) throws IOException {
         final var safeId = sanitizeId(id);
         final var attachmentFile = new File(attachmentsPath, safeId);
-        return Utils.createStreamDetailsFromFile(attachmentFile);
+        final var streamDetails = Utils.createStreamDetailsFromFile(attachmentFile);
+        // Hard links share the modification time, so this marks the blob as recently used
+        if (!attachmentFile.setLastModified(System.currentTimeMillis())) {
+            logger.trace("Failed to update modification time of attachment {}", safeId);
+        }
+        return streamDetails;
+    }
+
+    public Statistics getStatistics() {
+        return new Statistics(hits.sum(), misses.sum(), bytesSaved.sum(), evictedBytes.sum());
     }
 
     private void storeAttachment(final File attachmentFile, final AttachmentStorer storer) throws IOException {
@@ -56,6 +174,152 @@ public class AttachmentStore {
         }
     }
 
+    /**
+     * Synchronized with the eviction, so a blob isn't evicted before its new attachment file is in the index.
+     */
+    private synchronized LinkResult linkBlob(final Path blobFile, final Path attachmentFile) throws IOException {
+        try {
+            // Marks the blob as recently used for the eviction
+            Files.setLastModifiedTime(blobFile, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            return LinkResult.MISSING;
+        }
+        Files.deleteIfExists(attachmentFile);
+        try {
+            createLink(attachmentFile, blobFile);
+        } catch (NoSuchFileException e) {
+            return LinkResult.MISSING;
+        } catch (UnsupportedOperationException | IOException e) {
+            logger.warn("Failed to create hard link for attachment, storing attachments without deduplication: {}",
+                    e.getMessage());
+            hardLinksSupported = false;
+            return LinkResult.UNSUPPORTED;
+        }
+
+        final var linksFile = getLinksFile(blobFile);
+        final var fileName = attachmentFile.getFileName().toString();
+        if (!readLinks(linksFile).contains(fileName)) {
+            Files.writeString(linksFile,
+                    fileName + "\n",
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+        }
+        return LinkResult.LINKED;
+    }
+
+    void createLink(final Path link, final Path existing) throws IOException {
+        Files.createLink(link, existing);
+    }
+
+    private void addStoredBytes(final Path storedBlob, final long size) {
+        if (quota <= 0) {
+            return;
+        }
+        synchronized (this) {
+            if (storedBytes < 0) {
+                storedBytes = listBlobs().stream().mapToLong(Blob::size).sum();
+            } else {
+                storedBytes += size;
+            }
+            if (storedBytes > quota) {
+                evict(storedBlob);
+            }
+        }
+    }
+
+    /**
+     * @param storedBlob the just stored blob, which is kept even if it exceeds the quota on its own
+     */
+    private void evict(final Path storedBlob) {
+        final var blobs = listBlobs();
+        var total = blobs.stream().mapToLong(Blob::size).sum();
+        // Evict down to 90% of the quota, so not every following attachment triggers an eviction
+        final var target = quota - quota / 10;
+        if (total <= target) {
+            storedBytes = total;
+            return;
+        }
+
+        var evictedCount = 0;
+        for (final var blob : blobs.stream().sorted(Comparator.comparing(Blob::lastModified)).toList()) {
+            if (total <= target) {
+                break;
+            }
+            if (blob.path().equals(storedBlob)) {
+                continue;
+            }
+            final var linksFile = getLinksFile(blob.path());
+            try {
+                for (final var fileName : readLinks(linksFile)) {
+                    Files.deleteIfExists(attachmentsPath.toPath().resolve(fileName));
+                }
+                Files.deleteIfExists(blob.path());
+                Files.deleteIfExists(linksFile);
+            } catch (IOException e) {
+                logger.warn("Failed to evict attachment {}, ignoring: {}", blob.path(), e.getMessage());
+                continue;
+            }
+            total -= blob.size();
+            evictedBytes.add(blob.size());
+            evictedCount++;
+        }
+        storedBytes = total;
+        if (evictedCount > 0) {
+            logger.debug("Evicted {} attachments to stay below the quota of {} bytes", evictedCount, quota);
+        }
+    }
+
+    private List<Blob> listBlobs() {
+        final var blobs = new ArrayList<Blob>();
+        final var files = blobsPath.listFiles();
+        if (files == null) {
+            return blobs;
+        }
+        for (final var file : files) {
+            if (file.getName().endsWith(TEMP_FILE_SUFFIX) || file.getName().endsWith(LINKS_FILE_SUFFIX)) {
+                continue;
+            }
+            try {
+                final var attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+                blobs.add(new Blob(file.toPath(), attributes.size(), attributes.lastModifiedTime()));
+            } catch (IOException e) {
+                logger.debug("Failed to read attachment blob {}, ignoring: {}", file, e.getMessage());
+            }
+        }
+        return blobs;
+    }
+
+    /**
+     * @return the names of the attachment files that are linked to the blob
+     */
+    private static List<String> readLinks(final Path linksFile) throws IOException {
+        try {
+            return Files.readAllLines(linksFile);
+        } catch (NoSuchFileException e) {
+            return List.of();
+        }
+    }
+
+    private static Path getLinksFile(final Path blobFile) {
+        return blobFile.resolveSibling(blobFile.getFileName() + LINKS_FILE_SUFFIX);
+    }
+
+    /**
+     * The blob is addressed by the key and the digest of the encrypted attachment.
+     * The digest alone would let a sender claim the content of any attachment whose digest they know.
+     */
+    private Path getBlobFile(final byte[] key, final byte[] digest) {
+        final MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+        sha256.update(key);
+        sha256.update(digest);
+        return new File(blobsPath, HexFormat.of().formatHex(sha256.digest())).toPath();
+    }
+
     private File getAttachmentPreviewFile(
             SignalServiceAttachmentRemoteId attachmentId,
             Optional<String> filename,
@@ -95,6 +359,29 @@ public class AttachmentStore {
         IOUtils.createPrivateDirectories(attachmentsPath);
     }
 
+    public record Statistics(long hits, long misses, long bytesSaved, long evictedBytes) {
+
+        @Override
+        public String toString() {
+            final var requests = hits + misses;
+            return "%d hits, %d misses (hit rate %d%%), %d bytes saved, %d bytes evicted".formatted(hits,
+                    misses,
+                    requests == 0 ? 0 : hits * 100 / requests,
+                    bytesSaved,
+                    evictedBytes);
+        }
+    }
+
+    private record Blob(Path path, long size, FileTime lastModified) {}
+
+    private enum LinkResult {
+        LINKED,
+        // The blob doesn't exist (anymore)
+        MISSING,
+        // The file system doesn't support hard links
+        UNSUPPORTED
+    }
+
     @FunctionalInterface
     public interface AttachmentStorer {
 
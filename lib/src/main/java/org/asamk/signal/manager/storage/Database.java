@@ -13,6 +13,8 @@ import java.util.function.Function;
 
 public abstract class Database implements AutoCloseable {
 
+    public static final int MAXIMUM_POOL_SIZE = 50;
+
     private final Logger logger;
     private final long databaseVersion;
     private final HikariDataSource dataSource;
@@ -47,6 +49,24 @@ public abstract class Database implements AutoCloseable {
         return dataSource.getConnection();
     }
 
+    /**
+     * Change the maximum number of connections, e.g. to share a number of connections with other databases.
+     */
+    public void setMaximumPoolSize(final int maximumPoolSize) {
+        dataSource.getHikariConfigMXBean().setMaximumPoolSize(maximumPoolSize);
+    }
+
+    public ConnectionPoolUsage getConnectionPoolUsage() {
+        final var pool = dataSource.getHikariPoolMXBean();
+        if (pool == null) {
+            return new ConnectionPoolUsage(dataSource.getMaximumPoolSize(), 0, 0, 0);
+        }
+        return new ConnectionPoolUsage(dataSource.getMaximumPoolSize(),
+                pool.getActiveConnections(),
+                pool.getIdleConnections(),
+                pool.getThreadsAwaitingConnection());
+    }
+
     @Override
     public void close() {
         dataSource.close();
@@ -99,8 +119,10 @@ public abstract class Database implements AutoCloseable {
         config.setDataSourceProperties(sqliteConfig.toProperties());
         config.setMinimumIdle(1);
         config.setConnectionTimeout(90_000);
-        config.setMaximumPoolSize(50);
+        config.setMaximumPoolSize(MAXIMUM_POOL_SIZE);
         config.setMaxLifetime(0);
         return new HikariDataSource(config);
     }
+
+    public record ConnectionPoolUsage(int maximum, int active, int idle, int waiting) {}
 }
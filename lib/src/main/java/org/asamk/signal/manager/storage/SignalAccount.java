@@ -177,6 +177,7 @@ public class SignalAccount implements Closeable {
     private RecipientStore recipientStore;
     private StickerStore stickerStore;
     private UnknownStorageIdStore unknownStorageIdStore;
+    private AttachmentDownloadStore attachmentDownloadStore;
     private ConfigurationStore configurationStore;
     private KeyValueStore keyValueStore;
     private CdsiStore cdsiStore;
@@ -404,6 +405,7 @@ public class SignalAccount implements Closeable {
     ) throws SQLException {
         getMessageCache().mergeRecipients(recipientId, toBeMergedRecipientId);
         getGroupStore().mergeRecipients(connection, recipientId, toBeMergedRecipientId);
+        getIdentityKeyStore().invalidateCache();
     }
 
     public void removeRecipient(final RecipientId recipientId) {
@@ -447,6 +449,10 @@ public class SignalAccount implements Closeable {
         return new File(getUserPath(dataPath, account), "msg-cache");
     }
 
+    private static File getMessageJournalPath(File dataPath, String account) {
+        return new File(getUserPath(dataPath, account), "msg-journal");
+    }
+
     private static File getStorageManifestFile(File dataPath, String account) {
         return new File(getUserPath(dataPath, account), "storage-manifest");
     }
@@ -1110,14 +1116,16 @@ public class SignalAccount implements Closeable {
                 preKeyMetadata.nextPreKeyId);
         accountData.getSignalServiceAccountDataStore()
                 .markAllOneTimeEcPreKeysStaleIfNecessary(System.currentTimeMillis());
+        var nextPreKeyId = preKeyMetadata.nextPreKeyId;
         for (var record : records) {
-            if (preKeyMetadata.nextPreKeyId != record.getId()) {
-                logger.error("Invalid pre key id {}, expected {}", record.getId(), preKeyMetadata.nextPreKeyId);
+            if (nextPreKeyId != record.getId()) {
+                logger.error("Invalid pre key id {}, expected {}", record.getId(), nextPreKeyId);
                 throw new AssertionError("Invalid pre key id");
             }
-            accountData.getPreKeyStore().storePreKey(record.getId(), record);
-            preKeyMetadata.nextPreKeyId = (preKeyMetadata.nextPreKeyId + 1) % PREKEY_MAXIMUM_ID;
+            nextPreKeyId = (nextPreKeyId + 1) % PREKEY_MAXIMUM_ID;
         }
+        accountData.getPreKeyStore().storePreKeys(records);
+        preKeyMetadata.nextPreKeyId = nextPreKeyId;
         save();
     }
 
@@ -1153,16 +1161,16 @@ public class SignalAccount implements Closeable {
                 preKeyMetadata.nextKyberPreKeyId);
         accountData.getSignalServiceAccountDataStore()
                 .markAllOneTimeKyberPreKeysStaleIfNecessary(System.currentTimeMillis());
+        var nextKyberPreKeyId = preKeyMetadata.nextKyberPreKeyId;
         for (var record : records) {
-            if (preKeyMetadata.nextKyberPreKeyId != record.getId()) {
-                logger.error("Invalid kyber pre key id {}, expected {}",
-                        record.getId(),
-                        preKeyMetadata.nextKyberPreKeyId);
+            if (nextKyberPreKeyId != record.getId()) {
+                logger.error("Invalid kyber pre key id {}, expected {}", record.getId(), nextKyberPreKeyId);
                 throw new AssertionError("Invalid kyber pre key id");
             }
-            accountData.getKyberPreKeyStore().storeKyberPreKey(record.getId(), record);
-            preKeyMetadata.nextKyberPreKeyId = (preKeyMetadata.nextKyberPreKeyId + 1) % PREKEY_MAXIMUM_ID;
+            nextKyberPreKeyId = (nextKyberPreKeyId + 1) % PREKEY_MAXIMUM_ID;
         }
+        accountData.getKyberPreKeyStore().storeKyberPreKeys(records);
+        preKeyMetadata.nextKyberPreKeyId = nextKyberPreKeyId;
         save();
     }
 
@@ -1269,7 +1277,23 @@ public class SignalAccount implements Closeable {
 
     public RecipientStore getRecipientStore() {
         return getOrCreate(() -> recipientStore,
-                () -> recipientStore = new RecipientStore(this::mergeRecipients,
+                () -> recipientStore = new RecipientStore(new RecipientStore.RecipientMergeHandler() {
+                    @Override
+                    public void mergeRecipients(
+                            final Connection connection,
+                            final RecipientId recipientId,
+                            final RecipientId toBeMergedRecipientId
+                    ) throws SQLException {
+                        SignalAccount.this.mergeRecipients(connection, recipientId, toBeMergedRecipientId);
+                    }
+
+                    @Override
+                    public void afterMergeCommitted() {
+                        // Identities and groups may have been loaded by another thread before the merge was committed
+                        getIdentityKeyStore().invalidateCache();
+                        getGroupStore().invalidateCache();
+                    }
+                },
                         this::getSelfRecipientAddress,
                         this::getProfileKey,
                         getAccountDatabase()));
@@ -1295,6 +1319,11 @@ public class SignalAccount implements Closeable {
         return getOrCreate(() -> unknownStorageIdStore, () -> unknownStorageIdStore = new UnknownStorageIdStore());
     }
 
+    public AttachmentDownloadStore getAttachmentDownloadStore() {
+        return getOrCreate(() -> attachmentDownloadStore,
+                () -> attachmentDownloadStore = new AttachmentDownloadStore(getAccountDatabase()));
+    }
+
     public ConfigurationStore getConfigurationStore() {
         return getOrCreate(() -> configurationStore,
                 () -> configurationStore = new ConfigurationStore(getKeyValueStore(), getRecipientStore()));
@@ -1302,7 +1331,9 @@ public class SignalAccount implements Closeable {
 
     public MessageCache getMessageCache() {
         return getOrCreate(() -> messageCache,
-                () -> messageCache = new MessageCache(getMessageCachePath(dataPath, accountPath)));
+                () -> messageCache = MessageCache.open(getMessageCachePath(dataPath, accountPath),
+                        getMessageJournalPath(dataPath, accountPath),
+                        settings.useMessageCacheJournal()));
     }
 
     public AccountDatabase getAccountDatabase() {
@@ -1504,6 +1535,22 @@ public class SignalAccount implements Closeable {
         return deviceId;
     }
 
+    public int getSendParallelism() {
+        return settings.sendParallelism();
+    }
+
+    public long getProfileTtl() {
+        return settings.profileTtl();
+    }
+
+    public int getProfileRefreshRate() {
+        return settings.profileRefreshRate();
+    }
+
+    public int getUploadParallelism() {
+        return settings.uploadParallelism();
+    }
+
     public boolean isPrimaryDevice() {
         return deviceId == SignalServiceAddress.DEFAULT_DEVICE_ID;
     }
@@ -1797,15 +1844,35 @@ public class SignalAccount implements Closeable {
         Files.delete(getFileName(dataPath, accountPath).toPath());
     }
 
+    /**
+     * Write cached session changes to the database.
+     */
+    public void flushSessions() {
+        for (final var accountData : List.of(aciAccountData, pniAccountData)) {
+            final var sessionStore = accountData.sessionStore;
+            if (sessionStore != null) {
+                sessionStore.flush();
+            }
+        }
+    }
+
     @Override
     public void close() {
         synchronized (fileChannel) {
             if (accountDatabase != null) {
+                try {
+                    flushSessions();
+                } catch (RuntimeException e) {
+                    logger.warn("Failed to write cached sessions: {}", e.getMessage());
+                }
                 accountDatabase.close();
             }
             if (messageSendLogStore != null) {
                 messageSendLogStore.close();
             }
+            if (messageCache != null) {
+                messageCache.close();
+            }
             try {
                 try {
                     lock.close();
@@ -1944,7 +2011,9 @@ public class SignalAccount implements Closeable {
 
         public SessionStore getSessionStore() {
             return getOrCreate(() -> sessionStore,
-                    () -> sessionStore = new SessionStore(getAccountDatabase(), serviceIdType));
+                    () -> sessionStore = new SessionStore(getAccountDatabase(),
+                            serviceIdType,
+                            settings.crashSafeSessions()));
         }
 
         public SignalIdentityKeyStore getIdentityKeyStore() {
@@ -30,6 +30,7 @@ import java.util.stream.StreamSupport;
 public class Utils {
 
     private static final Logger logger = LoggerFactory.getLogger(Utils.class);
+    private static final int BATCH_SIZE = 500;
 
     private Utils() {
     }
@@ -116,6 +117,42 @@ public class Utils {
         }, false);
     }
 
+    /**
+     * Execute the statement once for every item as a JDBC batch, flushed every {@value BATCH_SIZE} rows.
+     * Should be called inside a transaction, otherwise every row is still committed on its own.
+     *
+     * @return the number of updated rows
+     */
+    public static <T> int executeBatch(
+            PreparedStatement statement,
+            Iterable<T> items,
+            StatementBinder<T> binder
+    ) throws SQLException {
+        var updatedRows = 0;
+        var pendingRows = 0;
+        for (final var item : items) {
+            binder.bind(statement, item);
+            statement.addBatch();
+            if (++pendingRows == BATCH_SIZE) {
+                updatedRows += sumUpdateCounts(statement.executeBatch());
+                pendingRows = 0;
+            }
+        }
+        if (pendingRows > 0) {
+            updatedRows += sumUpdateCounts(statement.executeBatch());
+        }
+        return updatedRows;
+    }
+
+    private static int sumUpdateCounts(int[] updateCounts) {
+        var sum = 0;
+        for (final var updateCount : updateCounts) {
+            // SUCCESS_NO_INFO is negative
+            sum += Math.max(updateCount, 0);
+        }
+        return sum;
+    }
+
     public static Long getIdMapper(ResultSet resultSet) throws SQLException {
         return resultSet.getLong("_id");
     }
@@ -124,4 +161,9 @@ public class Utils {
 
         T apply(ResultSet resultSet) throws SQLException;
     }
+
+    public interface StatementBinder<T> {
+
+        void bind(PreparedStatement statement, T item) throws SQLException;
+    }
 }
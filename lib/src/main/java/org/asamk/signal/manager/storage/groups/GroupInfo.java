@@ -15,6 +15,11 @@ public sealed abstract class GroupInfo permits GroupInfoV1, GroupInfoV2 {
 
     public abstract GroupId getGroupId();
 
+    /**
+     * @return an independent copy, that can be modified without affecting this group
+     */
+    abstract GroupInfo copy();
+
     public abstract DistributionId getDistributionId();
 
     public abstract String getTitle();
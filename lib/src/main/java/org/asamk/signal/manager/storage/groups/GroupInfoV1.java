@@ -58,6 +58,19 @@ public final class GroupInfoV1 extends GroupInfo {
         return groupId;
     }
 
+    @Override
+    GroupInfoV1 copy() {
+        return new GroupInfoV1(groupId,
+                expectedV2Id,
+                name,
+                members,
+                color,
+                messageExpirationTime,
+                blocked,
+                archived,
+                storageRecord);
+    }
+
     @Override
     public DistributionId getDistributionId() {
         return null;
@@ -68,6 +68,20 @@ public final class GroupInfoV2 extends GroupInfo {
         return groupId;
     }
 
+    @Override
+    GroupInfoV2 copy() {
+        // The decoded group is immutable and can be shared
+        return new GroupInfoV2(groupId,
+                masterKey,
+                group,
+                distributionId,
+                blocked,
+                profileSharingEnabled,
+                permissionDenied,
+                storageRecord,
+                recipientResolver);
+    }
+
     public GroupMasterKey getMasterKey() {
         return masterKey;
     }
@@ -30,6 +30,10 @@ import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -37,6 +41,10 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.subjects.PublishSubject;
+import io.reactivex.rxjava3.subjects.Subject;
+
 public class GroupStore {
 
     private static final Logger logger = LoggerFactory.getLogger(GroupStore.class);
@@ -44,10 +52,25 @@ public class GroupStore {
     private static final String TABLE_GROUP_V2_MEMBER = "group_v2_member";
     private static final String TABLE_GROUP_V1 = "group_v1";
     private static final String TABLE_GROUP_V1_MEMBER = "group_v1_member";
+    private static final int MAX_CACHED_GROUPS = 1000;
 
     private final Database database;
     private final RecipientResolver recipientResolver;
     private final RecipientIdCreator recipientIdCreator;
+    // Serialized, changes are published concurrently from the receive, send and storage sync threads
+    private final Subject<GroupId> groupChanges = PublishSubject.<GroupId>create().toSerialized();
+
+    // Decoded groups by the group id they were requested with, the cached instances are never handed out
+    private final Map<GroupId, GroupInfo> cachedGroups = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<GroupId, GroupInfo> eldest) {
+            return size() > MAX_CACHED_GROUPS;
+        }
+    };
+    // Ids of all groups in the order of getGroups(), if all groups are in the cache
+    private List<GroupId> cachedGroupIds;
+    private Map<RecipientId, Set<GroupId>> memberIndex;
+    private long cacheGeneration = 0;
 
     public static void createSql(Connection connection) throws SQLException {
         // When modifying the CREATE statement here, also add a migration in AccountDatabase.java
@@ -105,6 +128,21 @@ public class GroupStore {
         this.recipientIdCreator = recipientIdCreator;
     }
 
+    /**
+     * Emits the id of a group after it was stored or deleted and the change was committed.
+     * Groups changed in a caller's transaction are only emitted by {@link #publishGroupChanges(Collection)}.
+     */
+    public Observable<GroupId> getGroupChanges() {
+        return groupChanges;
+    }
+
+    /**
+     * Publish the changes of groups that were updated in a transaction, after it was committed.
+     */
+    public void publishGroupChanges(final Collection<? extends GroupId> groupIds) {
+        groupIds.forEach(groupChanges::onNext);
+    }
+
     public void updateGroup(GroupInfo group) {
         try (final var connection = database.getConnection()) {
             connection.setAutoCommit(false);
@@ -113,6 +151,9 @@ public class GroupStore {
         } catch (SQLException e) {
             throw new RuntimeException("Failed update group store", e);
         }
+        // The group may have been loaded by another thread before the commit
+        invalidateCachedGroup(group.getGroupId());
+        groupChanges.onNext(group.getGroupId());
     }
 
     public void updateGroup(final Connection connection, final GroupInfo group) throws SQLException {
@@ -129,6 +170,10 @@ public class GroupStore {
             internalId = Utils.executeQueryForOptional(statement, res -> res.getLong("_id")).orElse(null);
         }
         insertOrReplaceGroup(connection, internalId, group);
+        invalidateCachedGroup(group.getGroupId());
+        if (connection.getAutoCommit()) {
+            groupChanges.onNext(group.getGroupId());
+        }
     }
 
     public void updateGroupEndorsements(
@@ -171,14 +216,11 @@ public class GroupStore {
                                             ON CONFLICT (group_id, recipient_id) DO UPDATE SET endorsement=excluded.endorsement
                                             """.formatted(TABLE_GROUP_V2_MEMBER);
                 try (final var statement = connection.prepareStatement(sqlInsertMember)) {
-                    for (final var entry : endorsements.entrySet()) {
-                        final var recipientId = entry.getKey();
-                        final var endorsement = entry.getValue();
-                        statement.setLong(1, internalId);
-                        statement.setLong(2, recipientId.id());
-                        statement.setBytes(3, endorsement.serialize());
-                        statement.executeUpdate();
-                    }
+                    Utils.executeBatch(statement, endorsements.entrySet(), (stmt, entry) -> {
+                        stmt.setLong(1, internalId);
+                        stmt.setLong(2, entry.getKey().id());
+                        stmt.setBytes(3, entry.getValue().serialize());
+                    });
                 }
             }
             connection.commit();
@@ -275,6 +317,7 @@ public class GroupStore {
             statement.setBytes(3, groupId.serialize());
             statement.executeUpdate();
         }
+        invalidateCachedGroup(groupId);
     }
 
     public void deleteGroup(GroupId groupId) {
@@ -304,6 +347,10 @@ public class GroupStore {
             statement.setBytes(1, groupIdV1.serialize());
             statement.executeUpdate();
         }
+        invalidateCachedGroup(groupIdV1);
+        if (connection.getAutoCommit()) {
+            groupChanges.onNext(groupIdV1);
+        }
     }
 
     public void deleteGroup(GroupIdV2 groupIdV2) {
@@ -321,6 +368,8 @@ public class GroupStore {
         } catch (SQLException e) {
             throw new RuntimeException("Failed update group store", e);
         }
+        invalidateCachedGroup(groupIdV2);
+        groupChanges.onNext(groupIdV2);
     }
 
     public GroupInfo getGroup(GroupId groupId) {
@@ -332,6 +381,28 @@ public class GroupStore {
     }
 
     public GroupInfo getGroup(final Connection connection, final GroupId groupId) throws SQLException {
+        final long generation;
+        synchronized (cachedGroups) {
+            final var cachedGroup = cachedGroups.get(groupId);
+            if (cachedGroup != null) {
+                return cachedGroup.copy();
+            }
+            generation = cacheGeneration;
+        }
+        final var group = loadGroup(connection, groupId);
+        // Groups read inside a transaction may not be committed yet
+        if (group != null && connection.getAutoCommit()) {
+            synchronized (cachedGroups) {
+                // Don't cache the group if it was modified while loading it
+                if (generation == cacheGeneration) {
+                    cachedGroups.put(groupId, group.copy());
+                }
+            }
+        }
+        return group;
+    }
+
+    private GroupInfo loadGroup(final Connection connection, final GroupId groupId) throws SQLException {
         switch (groupId) {
             case GroupIdV1 groupIdV1 -> {
                 final var group = getGroup(connection, groupIdV1);
@@ -417,7 +488,88 @@ public class GroupStore {
     }
 
     public List<GroupInfo> getGroups() {
-        return Stream.concat(getGroupsV2().stream(), getGroupsV1().stream()).toList();
+        final long generation;
+        synchronized (cachedGroups) {
+            if (cachedGroupIds != null) {
+                final var groups = new ArrayList<GroupInfo>(cachedGroupIds.size());
+                for (final var groupId : cachedGroupIds) {
+                    final var cachedGroup = cachedGroups.get(groupId);
+                    if (cachedGroup == null) {
+                        break;
+                    }
+                    groups.add(cachedGroup.copy());
+                }
+                if (groups.size() == cachedGroupIds.size()) {
+                    return groups;
+                }
+                cachedGroupIds = null;
+            }
+            generation = cacheGeneration;
+        }
+        final var groups = Stream.concat(getGroupsV2().stream(), getGroupsV1().stream()).toList();
+        if (groups.size() <= MAX_CACHED_GROUPS) {
+            synchronized (cachedGroups) {
+                if (generation == cacheGeneration) {
+                    for (final var group : groups) {
+                        cachedGroups.put(group.getGroupId(), group.copy());
+                    }
+                    cachedGroupIds = groups.stream().map(GroupInfo::getGroupId).toList();
+                }
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * @return the ids of all groups the recipient is a member of, excluding pending and requesting members
+     */
+    public Set<GroupId> getGroupIdsWithMember(final RecipientId recipientId) {
+        final long generation;
+        synchronized (cachedGroups) {
+            if (memberIndex != null) {
+                return memberIndex.getOrDefault(recipientId, Set.of());
+            }
+            generation = cacheGeneration;
+        }
+        final var index = new HashMap<RecipientId, Set<GroupId>>();
+        for (final var group : getGroups()) {
+            for (final var memberId : group.getMemberRecipientIds()) {
+                index.computeIfAbsent(memberId, k -> new HashSet<>()).add(group.getGroupId());
+            }
+        }
+        index.replaceAll((k, groupIds) -> Collections.unmodifiableSet(groupIds));
+        synchronized (cachedGroups) {
+            if (generation == cacheGeneration) {
+                memberIndex = index;
+            }
+        }
+        return index.getOrDefault(recipientId, Set.of());
+    }
+
+    /**
+     * Remove all cached groups, e.g. after groups were modified in a transaction.
+     */
+    public void invalidateCache() {
+        synchronized (cachedGroups) {
+            cachedGroups.clear();
+            cachedGroupIds = null;
+            memberIndex = null;
+            cacheGeneration++;
+        }
+    }
+
+    private void invalidateCachedGroup(final GroupId groupId) {
+        // A v1 group can also be cached with the id of the v2 group it's migrated to and vice versa
+        final var relatedGroupId = groupId instanceof GroupIdV1 groupIdV1 ? GroupUtils.getGroupIdV2(groupIdV1) : null;
+        synchronized (cachedGroups) {
+            cachedGroups.entrySet()
+                    .removeIf(e -> e.getKey().equals(groupId)
+                            || e.getKey().equals(relatedGroupId)
+                            || e.getValue().getGroupId().equals(groupId));
+            cachedGroupIds = null;
+            memberIndex = null;
+            cacheGeneration++;
+        }
     }
 
     public List<GroupIdV1> getGroupV1Ids(Connection connection) throws SQLException {
@@ -483,6 +635,7 @@ public class GroupStore {
                 logger.debug("Updated {} group v2 members when merging recipients", updatedRows);
             }
         }
+        invalidateCache();
     }
 
     public List<StorageId> getStorageIds(Connection connection) throws SQLException {
@@ -513,18 +666,16 @@ public class GroupStore {
                 """
         );
         try (final var statement = connection.prepareStatement(sql.formatted(TABLE_GROUP_V1))) {
-            for (final var entry : storageIdV1Map.entrySet()) {
-                statement.setBytes(1, entry.getValue().getRaw());
-                statement.setBytes(2, entry.getKey().serialize());
-                statement.executeUpdate();
-            }
+            Utils.executeBatch(statement, storageIdV1Map.entrySet(), (stmt, entry) -> {
+                stmt.setBytes(1, entry.getValue().getRaw());
+                stmt.setBytes(2, entry.getKey().serialize());
+            });
         }
         try (final var statement = connection.prepareStatement(sql.formatted(TABLE_GROUP_V2))) {
-            for (final var entry : storageIdV2Map.entrySet()) {
-                statement.setBytes(1, entry.getValue().getRaw());
-                statement.setBytes(2, entry.getKey().serialize());
-                statement.executeUpdate();
-            }
+            Utils.executeBatch(statement, storageIdV2Map.entrySet(), (stmt, entry) -> {
+                stmt.setBytes(1, entry.getValue().getRaw());
+                stmt.setBytes(2, entry.getKey().serialize());
+            });
         }
     }
 
@@ -563,20 +714,19 @@ public class GroupStore {
             try (final var selectStmt = connection.prepareStatement(selectSql.formatted(TABLE_GROUP_V1))) {
                 final var groupIds = Utils.executeQueryForStream(selectStmt, this::getGroupIdV1FromResultSet).toList();
                 try (final var updateStmt = connection.prepareStatement(updateSql.formatted(TABLE_GROUP_V1))) {
-                    for (final var groupId : groupIds) {
-                        updateStmt.setBytes(1, KeyUtils.createRawStorageId());
-                        updateStmt.setBytes(2, groupId.serialize());
-                    }
+                    Utils.executeBatch(updateStmt, groupIds, (stmt, groupId) -> {
+                        stmt.setBytes(1, KeyUtils.createRawStorageId());
+                        stmt.setBytes(2, groupId.serialize());
+                    });
                 }
             }
             try (final var selectStmt = connection.prepareStatement(selectSql.formatted(TABLE_GROUP_V2))) {
                 final var groupIds = Utils.executeQueryForStream(selectStmt, this::getGroupIdV2FromResultSet).toList();
                 try (final var updateStmt = connection.prepareStatement(updateSql.formatted(TABLE_GROUP_V2))) {
-                    for (final var groupId : groupIds) {
-                        updateStmt.setBytes(1, KeyUtils.createRawStorageId());
-                        updateStmt.setBytes(2, groupId.serialize());
-                        updateStmt.executeUpdate();
-                    }
+                    Utils.executeBatch(updateStmt, groupIds, (stmt, groupId) -> {
+                        stmt.setBytes(1, KeyUtils.createRawStorageId());
+                        stmt.setBytes(2, groupId.serialize());
+                    });
                 }
             }
             connection.commit();
@@ -597,6 +747,7 @@ public class GroupStore {
         } catch (SQLException e) {
             throw new RuntimeException("Failed update group store", e);
         }
+        invalidateCache();
         logger.debug("Complete groups migration took {}ms", (System.nanoTime() - start) / 1000000);
     }
 
@@ -648,12 +799,12 @@ public class GroupStore {
                                         VALUES (?, ?)
                                         ON CONFLICT (group_id, recipient_id) DO NOTHING
                                         """.formatted(TABLE_GROUP_V1_MEMBER);
+            final var groupInternalId = internalId;
             try (final var statement = connection.prepareStatement(sqlInsertMember)) {
-                for (final var recipient : groupV1.getMemberRecipientIds()) {
-                    statement.setLong(1, internalId);
-                    statement.setLong(2, recipient.id());
-                    statement.executeUpdate();
-                }
+                Utils.executeBatch(statement, groupV1.getMemberRecipientIds(), (stmt, recipient) -> {
+                    stmt.setLong(1, groupInternalId);
+                    stmt.setLong(2, recipient.id());
+                });
             }
         } else if (group instanceof GroupInfoV2 groupV2) {
             final var sql = (
@@ -17,11 +17,14 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.subjects.PublishSubject;
+import io.reactivex.rxjava3.subjects.Subject;
 
 public class IdentityKeyStore {
 
@@ -31,6 +34,10 @@ public class IdentityKeyStore {
     private final TrustNewIdentity trustNewIdentity;
     private final RecipientStore recipientStore;
     private final PublishSubject<ServiceId> identityChanges = PublishSubject.create();
+    // Serialized, updates are published concurrently from the receive, send and storage sync threads
+    private final Subject<ServiceId> identityUpdates = PublishSubject.<ServiceId>create().toSerialized();
+    private final Map<String, IdentityInfo> cachedIdentities = new HashMap<>();
+    private long cacheGeneration = 0;
 
     private boolean isRetryingDecryption = false;
 
@@ -63,6 +70,23 @@ public class IdentityKeyStore {
         return identityChanges;
     }
 
+    /**
+     * Emits the service id of an identity after it was stored, its trust level changed or it was deleted and the
+     * change was committed.
+     * Unlike {@link #getIdentityChanges()} this isn't limited to new identity keys.
+     * Identities changed in a caller's transaction are only emitted by {@link #publishIdentityUpdates(Collection)}.
+     */
+    public Observable<ServiceId> getIdentityUpdates() {
+        return identityUpdates;
+    }
+
+    /**
+     * Publish the updates of identities that were changed in a transaction, after it was committed.
+     */
+    public void publishIdentityUpdates(final Collection<? extends ServiceId> serviceIds) {
+        serviceIds.forEach(identityUpdates::onNext);
+    }
+
     public IdentityChange saveIdentity(final ServiceId serviceId, final IdentityKey identityKey) {
         return saveIdentity(serviceId.toString(), identityKey);
     }
@@ -157,6 +181,13 @@ public class IdentityKeyStore {
             return true;
         }
 
+        final var cachedIdentityInfo = getCachedIdentity(address);
+        if (cachedIdentityInfo != null && cachedIdentityInfo.getIdentityKey().equals(identityKey)) {
+            final var isTrusted = cachedIdentityInfo.isTrusted();
+            logger.trace("Trusting identity for {} for {}: {}", address, direction, isTrusted);
+            return isTrusted;
+        }
+
         try (final var connection = database.getConnection()) {
             // TODO implement possibility for different handling of incoming/outgoing trust decisions
             var identityInfo = loadIdentity(connection, address);
@@ -189,6 +220,10 @@ public class IdentityKeyStore {
     }
 
     public IdentityInfo getIdentityInfo(String address) {
+        final var cachedIdentityInfo = getCachedIdentity(address);
+        if (cachedIdentityInfo != null) {
+            return cachedIdentityInfo;
+        }
         try (final var connection = database.getConnection()) {
             return loadIdentity(connection, address);
         } catch (SQLException e) {
@@ -200,6 +235,36 @@ public class IdentityKeyStore {
         return loadIdentity(connection, address);
     }
 
+    /**
+     * Load all identities into the cache, so the first trust decisions don't need to query the database.
+     */
+    public void loadIdentityCache() {
+        final long generation;
+        synchronized (cachedIdentities) {
+            generation = cacheGeneration;
+        }
+        final var identities = getIdentities();
+        synchronized (cachedIdentities) {
+            if (generation != cacheGeneration) {
+                return;
+            }
+            for (final var identityInfo : identities) {
+                cachedIdentities.put(identityInfo.getAddress(), identityInfo);
+            }
+        }
+        logger.debug("Loaded {} identities into cache", identities.size());
+    }
+
+    /**
+     * Remove all cached identities, e.g. after identities were modified in a transaction.
+     */
+    public void invalidateCache() {
+        synchronized (cachedIdentities) {
+            cachedIdentities.clear();
+            cacheGeneration++;
+        }
+    }
+
     public List<IdentityInfo> getIdentities() {
         try (final var connection = database.getConnection()) {
             final var sql = (
@@ -238,10 +303,45 @@ public class IdentityKeyStore {
         } catch (SQLException e) {
             throw new RuntimeException("Failed update identity store", e);
         }
+        invalidateCache();
         logger.debug("Complete identities migration took {}ms", (System.nanoTime() - start) / 1000000);
     }
 
+    private IdentityInfo getCachedIdentity(final String address) {
+        synchronized (cachedIdentities) {
+            return cachedIdentities.get(address);
+        }
+    }
+
+    private void invalidateCachedIdentity(final String address) {
+        synchronized (cachedIdentities) {
+            cachedIdentities.remove(address);
+            cacheGeneration++;
+        }
+    }
+
     private IdentityInfo loadIdentity(final Connection connection, final String address) throws SQLException {
+        final long generation;
+        synchronized (cachedIdentities) {
+            generation = cacheGeneration;
+        }
+        final var identityInfo = loadIdentityFromDatabase(connection, address);
+        // Identities read inside a transaction may not be committed yet
+        if (identityInfo != null && connection.getAutoCommit()) {
+            synchronized (cachedIdentities) {
+                // Don't cache the identity if it was modified while loading it
+                if (generation == cacheGeneration) {
+                    cachedIdentities.put(address, identityInfo);
+                }
+            }
+        }
+        return identityInfo;
+    }
+
+    private IdentityInfo loadIdentityFromDatabase(
+            final Connection connection,
+            final String address
+    ) throws SQLException {
         final var sql = (
                 """
                 SELECT i.address, i.identity_key, i.added_timestamp, i.trust_level
@@ -292,7 +392,9 @@ public class IdentityKeyStore {
             statement.setInt(4, identityInfo.getTrustLevel().ordinal());
             statement.executeUpdate();
         }
+        invalidateCachedIdentity(identityInfo.getAddress());
         recipientStore.rotateStorageId(connection, identityInfo.getServiceId());
+        notifyIdentityUpdate(connection, identityInfo.getAddress());
     }
 
     private void deleteIdentity(final Connection connection, final String address) throws SQLException {
@@ -306,6 +408,19 @@ public class IdentityKeyStore {
             statement.setString(1, address);
             statement.executeUpdate();
         }
+        invalidateCachedIdentity(address);
+        notifyIdentityUpdate(connection, address);
+    }
+
+    private void notifyIdentityUpdate(final Connection connection, final String address) throws SQLException {
+        // Changes in a transaction may still be rolled back, they are published by the caller after the commit
+        if (!connection.getAutoCommit()) {
+            return;
+        }
+        final var serviceId = ServiceId.parseOrNull(address);
+        if (serviceId != null) {
+            identityUpdates.onNext(serviceId);
+        }
     }
 
     private IdentityInfo getIdentityInfoFromResultSet(ResultSet resultSet) throws SQLException {
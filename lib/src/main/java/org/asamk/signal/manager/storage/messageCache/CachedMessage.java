@@ -1,56 +1,75 @@
 package org.asamk.signal.manager.storage.messageCache;
 
-import org.asamk.signal.manager.util.MessageCacheUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.signalservice.api.messages.SignalServiceEnvelope;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 
 public final class CachedMessage {
 
     private static final Logger logger = LoggerFactory.getLogger(CachedMessage.class);
 
-    private final File file;
+    private final Entry entry;
 
     private SignalServiceEnvelope envelope;
 
-    CachedMessage(final File file) {
-        this.file = file;
+    CachedMessage(final Entry entry) {
+        this.entry = entry;
     }
 
-    CachedMessage(final File file, SignalServiceEnvelope envelope) {
-        this.file = file;
+    CachedMessage(final Entry entry, SignalServiceEnvelope envelope) {
+        this.entry = entry;
         this.envelope = envelope;
     }
 
-    File getFile() {
-        return file;
+    Entry getEntry() {
+        return entry;
     }
 
     public SignalServiceEnvelope loadEnvelope() {
         if (envelope == null) {
             try {
-                envelope = MessageCacheUtils.loadEnvelope(file);
+                envelope = entry.load();
             } catch (Exception e) {
-                logger.error("Failed to load cached message envelope “{}”: {}", file, e.getMessage(), e);
+                logger.error("Failed to load cached message envelope “{}”: {}", entry, e.getMessage(), e);
             }
         }
         return envelope;
     }
 
     public void delete() {
-        try {
-            Files.delete(file.toPath());
-        } catch (IOException e) {
-            logger.warn("Failed to delete cached message file “{}”, ignoring: {}", file, e.getMessage());
+        entry.delete();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
         }
-        // Delete parent directory, if empty
-        try {
-            Files.delete(file.toPath().getParent());
-        } catch (IOException ignored) {
+        if (!(o instanceof CachedMessage that)) {
+            return false;
         }
+        return entry.equals(that.entry);
+    }
+
+    @Override
+    public int hashCode() {
+        return entry.hashCode();
+    }
+
+    /**
+     * Location of a cached message in one of the message cache backends.
+     */
+    interface Entry {
+
+        SignalServiceEnvelope load() throws IOException;
+
+        void delete();
+
+        /**
+         * @return the raw id of the recipient this message is stored for, or null if the sender is unknown
+         */
+        Long rawRecipientId();
     }
 }
@@ -0,0 +1,200 @@
+package org.asamk.signal.manager.storage.messageCache;
+
+import org.asamk.signal.manager.storage.recipients.RecipientId;
+import org.asamk.signal.manager.util.IOUtils;
+import org.asamk.signal.manager.util.MessageCacheUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whispersystems.signalservice.api.messages.SignalServiceEnvelope;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Message cache that stores each envelope in a separate file, in a directory per recipient.
+ */
+public final class FileMessageCache implements MessageCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileMessageCache.class);
+
+    private final File messageCachePath;
+
+    public FileMessageCache(final File messageCachePath) {
+        this.messageCachePath = messageCachePath;
+    }
+
+    @Override
+    public Iterable<CachedMessage> getCachedMessages() {
+        if (!messageCachePath.exists()) {
+            return Collections.emptyList();
+        }
+
+        return Arrays.stream(Objects.requireNonNull(messageCachePath.listFiles())).flatMap(dir -> {
+            if (dir.isFile()) {
+                return Stream.of(new FileEntry(dir, null));
+            }
+
+            final var files = Objects.requireNonNull(dir.listFiles());
+            if (files.length == 0) {
+                try {
+                    Files.delete(dir.toPath());
+                } catch (IOException e) {
+                    logger.warn("Failed to delete cache dir “{}”, ignoring: {}", dir, e.getMessage());
+                }
+                return Stream.empty();
+            }
+            final var rawRecipientId = parseRawRecipientId(dir.getName());
+            return Arrays.stream(files).filter(File::isFile).map(file -> new FileEntry(file, rawRecipientId));
+        }).map(CachedMessage::new).toList();
+    }
+
+    @Override
+    public CachedMessage cacheMessage(SignalServiceEnvelope envelope, RecipientId recipientId) {
+        return cacheMessage(envelope, getRawRecipientId(recipientId));
+    }
+
+    CachedMessage cacheMessage(SignalServiceEnvelope envelope, Long rawRecipientId) {
+        final var now = System.currentTimeMillis();
+
+        File cacheFile;
+        try {
+            cacheFile = getMessageCacheFile(rawRecipientId, now, envelope.getTimestamp());
+        } catch (IOException e) {
+            logger.warn("Failed to create recipient folder in disk cache: {}", e.getMessage());
+            throw new RuntimeException(e);
+        }
+
+        final var cachedMessage = new CachedMessage(new FileEntry(cacheFile, rawRecipientId), envelope);
+        try {
+            MessageCacheUtils.storeEnvelope(envelope, cacheFile);
+            return cachedMessage;
+        } catch (IOException e) {
+            logger.warn("Failed to store encrypted message in disk cache, ignoring: {}", e.getMessage());
+            return cachedMessage;
+        }
+    }
+
+    @Override
+    public CachedMessage replaceSender(CachedMessage cachedMessage, RecipientId sender) throws IOException {
+        final var file = ((FileEntry) cachedMessage.getEntry()).file();
+        final var rawRecipientId = getRawRecipientId(sender);
+        final var cacheFile = getMessageCacheFile(rawRecipientId, file.getName());
+        if (cacheFile.equals(file)) {
+            return cachedMessage;
+        }
+        logger.debug("Moving cached message {} to {}", file.toPath(), cacheFile.toPath());
+        Files.move(file.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return new CachedMessage(new FileEntry(cacheFile, rawRecipientId));
+    }
+
+    @Override
+    public void deleteMessages(final RecipientId recipientId) {
+        final var recipientMessageCachePath = getMessageCachePath(getRawRecipientId(recipientId));
+        if (!recipientMessageCachePath.exists()) {
+            return;
+        }
+
+        for (var file : Objects.requireNonNull(recipientMessageCachePath.listFiles())) {
+            if (!file.isFile()) {
+                continue;
+            }
+
+            try {
+                Files.delete(file.toPath());
+            } catch (IOException e) {
+                logger.warn("Failed to delete cache file “{}”, ignoring: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    private static Long getRawRecipientId(RecipientId recipientId) {
+        return recipientId == null ? null : recipientId.id();
+    }
+
+    private static Long parseRawRecipientId(String dirName) {
+        try {
+            return Long.parseLong(dirName);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private File getMessageCachePath(Long rawRecipientId) {
+        if (rawRecipientId == null) {
+            return messageCachePath;
+        }
+
+        var sender = String.valueOf(rawRecipientId);
+        return new File(messageCachePath, sender.replace("/", "_"));
+    }
+
+    private File getMessageCacheFile(Long rawRecipientId, String filename) throws IOException {
+        var cachePath = getMessageCachePath(rawRecipientId);
+        IOUtils.createPrivateDirectories(cachePath);
+        return new File(cachePath, filename);
+    }
+
+    private File getMessageCacheFile(Long rawRecipientId, long now, long timestamp) throws IOException {
+        var cachePath = getMessageCachePath(rawRecipientId);
+        IOUtils.createPrivateDirectories(cachePath);
+        return new File(cachePath, now + "_" + timestamp);
+    }
+
+    @Override
+    public void mergeRecipients(final RecipientId recipientId, final RecipientId toBeMergedRecipientId) {
+        final var toBeMergedMessageCachePath = getMessageCachePath(getRawRecipientId(toBeMergedRecipientId));
+        if (!toBeMergedMessageCachePath.exists()) {
+            return;
+        }
+
+        for (var file : Objects.requireNonNull(toBeMergedMessageCachePath.listFiles())) {
+            if (!file.isFile()) {
+                continue;
+            }
+
+            try {
+                final var cacheFile = getMessageCacheFile(getRawRecipientId(recipientId), file.getName());
+                Files.move(file.toPath(), cacheFile.toPath());
+            } catch (IOException e) {
+                logger.warn("Failed to move cache file “{}”, ignoring: {}", file, e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private record FileEntry(File file, Long rawRecipientId) implements CachedMessage.Entry {
+
+        @Override
+        public SignalServiceEnvelope load() throws IOException {
+            return MessageCacheUtils.loadEnvelope(file);
+        }
+
+        @Override
+        public void delete() {
+            try {
+                Files.delete(file.toPath());
+            } catch (IOException e) {
+                logger.warn("Failed to delete cached message file “{}”, ignoring: {}", file, e.getMessage());
+            }
+            // Delete parent directory, if empty
+            try {
+                Files.delete(file.toPath().getParent());
+            } catch (IOException ignored) {
+            }
+        }
+
+        @Override
+        public String toString() {
+            return file.toString();
+        }
+    }
+}
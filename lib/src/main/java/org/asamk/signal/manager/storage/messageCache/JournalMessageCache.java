@@ -0,0 +1,473 @@
+package org.asamk.signal.manager.storage.messageCache;
+
+import org.asamk.signal.manager.storage.recipients.RecipientId;
+import org.asamk.signal.manager.util.IOUtils;
+import org.asamk.signal.manager.util.MessageCacheUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whispersystems.signalservice.api.messages.SignalServiceEnvelope;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Message cache that appends envelopes to a log of segment files.
+ * <p>
+ * Each record has the layout {@code type(1) id(8) recipient(8) length(4) payload(length) crc32(4)}.
+ * Handled messages are marked with tombstone records, sender changes with move records. The index of live entries is
+ * kept in memory and rebuilt from the segments on startup. Once the dead records outweigh the live entries, the live
+ * entries are compacted into a new segment and the old segments are deleted.
+ */
+public final class JournalMessageCache implements MessageCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalMessageCache.class);
+
+    private static final Pattern SEGMENT_PATTERN = Pattern.compile("segment-(\\d+)\\.log");
+    private static final long SEGMENT_MAX_SIZE = 8 * 1024 * 1024;
+    private static final long COMPACTION_MIN_DEAD_BYTES = 1024 * 1024;
+
+    private static final byte RECORD_ENTRY = 1;
+    private static final byte RECORD_TOMBSTONE = 2;
+    private static final byte RECORD_MOVE = 3;
+    private static final int HEADER_SIZE = 1 + 8 + 8 + 4;
+    private static final int CRC_SIZE = 4;
+    private static final long NO_RECIPIENT = Long.MIN_VALUE;
+
+    private final Object LOCK = new Object();
+    private final File journalPath;
+    private final TreeMap<Long, IndexEntry> index = new TreeMap<>();
+    private final List<Integer> segments = new ArrayList<>();
+
+    private long nextId = 1;
+    private FileChannel activeSegment;
+    private long activeSegmentSize;
+    private long totalBytes;
+    private long liveBytes;
+
+    public JournalMessageCache(final File journalPath) {
+        this.journalPath = journalPath;
+        try {
+            IOUtils.createPrivateDirectories(journalPath);
+            loadSegments();
+            maybeCompact();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open message cache journal " + journalPath, e);
+        }
+    }
+
+    static void deleteJournal(final File journalPath) {
+        final var files = journalPath.listFiles();
+        if (files != null) {
+            for (final var file : files) {
+                try {
+                    Files.delete(file.toPath());
+                } catch (IOException e) {
+                    logger.warn("Failed to delete journal file “{}”, ignoring: {}", file, e.getMessage());
+                }
+            }
+        }
+        try {
+            Files.delete(journalPath.toPath());
+        } catch (IOException e) {
+            logger.warn("Failed to delete journal dir “{}”, ignoring: {}", journalPath, e.getMessage());
+        }
+    }
+
+    @Override
+    public Iterable<CachedMessage> getCachedMessages() {
+        synchronized (LOCK) {
+            return index.keySet().stream().map(id -> new CachedMessage(new JournalEntry(this, id))).toList();
+        }
+    }
+
+    @Override
+    public CachedMessage cacheMessage(final SignalServiceEnvelope envelope, final RecipientId recipientId) {
+        return cacheMessage(envelope, recipientId == null ? null : recipientId.id());
+    }
+
+    CachedMessage cacheMessage(final SignalServiceEnvelope envelope, final Long rawRecipientId) {
+        final var payload = new ByteArrayOutputStream();
+        synchronized (LOCK) {
+            final var id = nextId++;
+            final var cachedMessage = new CachedMessage(new JournalEntry(this, id), envelope);
+            try {
+                MessageCacheUtils.storeEnvelope(envelope, payload);
+                final var segment = segments.getLast();
+                final var payloadOffset = append(RECORD_ENTRY, id, rawRecipientId, payload.toByteArray());
+                index.put(id, new IndexEntry(segment, payloadOffset, payload.size(), rawRecipientId));
+                liveBytes += recordSize(payload.size());
+            } catch (IOException e) {
+                logger.warn("Failed to store encrypted message in message cache journal, ignoring: {}",
+                        e.getMessage());
+            }
+            return cachedMessage;
+        }
+    }
+
+    @Override
+    public CachedMessage replaceSender(final CachedMessage cachedMessage, final RecipientId sender) throws IOException {
+        final var id = ((JournalEntry) cachedMessage.getEntry()).id();
+        synchronized (LOCK) {
+            final var entry = index.get(id);
+            if (entry == null || Objects.equals(entry.rawRecipientId(), sender.id())) {
+                return cachedMessage;
+            }
+            logger.debug("Moving cached message {} to recipient {}", id, sender.id());
+            move(id, entry, sender.id());
+            return cachedMessage;
+        }
+    }
+
+    @Override
+    public void deleteMessages(final RecipientId recipientId) {
+        synchronized (LOCK) {
+            for (final var id : getEntryIds(recipientId.id())) {
+                delete(id);
+            }
+        }
+    }
+
+    @Override
+    public void mergeRecipients(final RecipientId recipientId, final RecipientId toBeMergedRecipientId) {
+        synchronized (LOCK) {
+            for (final var id : getEntryIds(toBeMergedRecipientId.id())) {
+                try {
+                    move(id, index.get(id), recipientId.id());
+                } catch (IOException e) {
+                    logger.warn("Failed to move cached message {}, ignoring: {}", id, e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (LOCK) {
+            if (activeSegment == null) {
+                return;
+            }
+            try {
+                activeSegment.force(false);
+                activeSegment.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close message cache journal: {}", e.getMessage());
+            }
+            activeSegment = null;
+        }
+    }
+
+    private SignalServiceEnvelope load(final long id) throws IOException {
+        final byte[] payload;
+        synchronized (LOCK) {
+            final var entry = index.get(id);
+            if (entry == null) {
+                return null;
+            }
+            // Read while holding the lock, so the segment isn't deleted by a concurrent compaction
+            payload = readPayload(entry);
+        }
+        return MessageCacheUtils.loadEnvelope(new ByteArrayInputStream(payload));
+    }
+
+    private void delete(final long id) {
+        synchronized (LOCK) {
+            final var entry = index.remove(id);
+            if (entry == null) {
+                return;
+            }
+            liveBytes -= recordSize(entry.payloadLength());
+            try {
+                append(RECORD_TOMBSTONE, id, null, new byte[0]);
+            } catch (IOException e) {
+                logger.warn("Failed to mark cached message {} as handled, ignoring: {}", id, e.getMessage());
+            }
+            maybeCompact();
+        }
+    }
+
+    private Long getRawRecipientId(final long id) {
+        synchronized (LOCK) {
+            final var entry = index.get(id);
+            return entry == null ? null : entry.rawRecipientId();
+        }
+    }
+
+    private List<Long> getEntryIds(final Long rawRecipientId) {
+        return index.entrySet()
+                .stream()
+                .filter(e -> Objects.equals(e.getValue().rawRecipientId(), rawRecipientId))
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private void move(final long id, final IndexEntry entry, final Long rawRecipientId) throws IOException {
+        append(RECORD_MOVE, id, rawRecipientId, new byte[0]);
+        index.put(id, entry.withRawRecipientId(rawRecipientId));
+    }
+
+    private void loadSegments() throws IOException {
+        final var files = Objects.requireNonNull(journalPath.listFiles());
+        for (final var file : files) {
+            final var matcher = SEGMENT_PATTERN.matcher(file.getName());
+            if (matcher.matches()) {
+                segments.add(Integer.parseInt(matcher.group(1)));
+            }
+        }
+        segments.sort(Integer::compareTo);
+        for (final var segment : segments) {
+            totalBytes += scanSegment(segment);
+        }
+        for (final var entry : index.values()) {
+            liveBytes += recordSize(entry.payloadLength());
+        }
+        if (segments.isEmpty()) {
+            segments.add(1);
+        }
+        openActiveSegment(segments.getLast());
+        logger.debug("Loaded message cache journal with {} cached messages in {} segments",
+                index.size(),
+                segments.size());
+    }
+
+    private long scanSegment(final int segment) throws IOException {
+        final var file = getSegmentFile(segment);
+        try (final var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final var size = channel.size();
+            final var header = ByteBuffer.allocate(HEADER_SIZE);
+            var position = 0L;
+            while (position < size) {
+                header.clear();
+                if (size - position < HEADER_SIZE + CRC_SIZE) {
+                    break;
+                }
+                readFully(channel, header, position);
+                header.flip();
+                final var type = header.get();
+                final var id = header.getLong();
+                final var recipient = header.getLong();
+                final var length = header.getInt();
+                if (length < 0 || size - position - HEADER_SIZE - CRC_SIZE < length) {
+                    break;
+                }
+                final var body = ByteBuffer.allocate(length + CRC_SIZE);
+                readFully(channel, body, position + HEADER_SIZE);
+                body.flip();
+                final var payload = new byte[length];
+                body.get(payload);
+                if (body.getInt() != crc(header.array(), payload)) {
+                    break;
+                }
+
+                final var rawRecipientId = recipient == NO_RECIPIENT ? null : recipient;
+                switch (type) {
+                    case RECORD_ENTRY -> index.put(id,
+                            new IndexEntry(segment, position + HEADER_SIZE, length, rawRecipientId));
+                    case RECORD_TOMBSTONE -> index.remove(id);
+                    case RECORD_MOVE -> {
+                        final var entry = index.get(id);
+                        if (entry != null) {
+                            index.put(id, entry.withRawRecipientId(rawRecipientId));
+                        }
+                    }
+                    default -> logger.warn("Unknown record type {} in message cache journal, ignoring", type);
+                }
+                nextId = Math.max(nextId, id + 1);
+                position += recordSize(length);
+            }
+            if (position < size) {
+                // Incomplete record from an interrupted write
+                logger.warn("Truncating corrupted message cache journal segment “{}” at {}", file, position);
+                channel.truncate(position);
+            }
+            return position;
+        }
+    }
+
+    private long append(
+            final byte type,
+            final long id,
+            final Long rawRecipientId,
+            final byte[] payload
+    ) throws IOException {
+        final var buffer = ByteBuffer.allocate(recordSize(payload.length));
+        buffer.put(type);
+        buffer.putLong(id);
+        buffer.putLong(rawRecipientId == null ? NO_RECIPIENT : rawRecipientId);
+        buffer.putInt(payload.length);
+        buffer.put(payload);
+        buffer.putInt(crc(buffer.array(), HEADER_SIZE + payload.length));
+        buffer.flip();
+
+        final var recordOffset = activeSegmentSize;
+        while (buffer.hasRemaining()) {
+            activeSegment.write(buffer, activeSegmentSize + buffer.position());
+        }
+        activeSegmentSize += buffer.limit();
+        totalBytes += buffer.limit();
+
+        if (activeSegmentSize >= SEGMENT_MAX_SIZE) {
+            activeSegment.close();
+            final var nextSegment = segments.getLast() + 1;
+            segments.add(nextSegment);
+            openActiveSegment(nextSegment);
+        }
+        return recordOffset + HEADER_SIZE;
+    }
+
+    private void maybeCompact() {
+        final var deadBytes = totalBytes - liveBytes;
+        if (deadBytes < COMPACTION_MIN_DEAD_BYTES || deadBytes < liveBytes) {
+            return;
+        }
+        try {
+            compact();
+        } catch (IOException e) {
+            logger.warn("Failed to compact message cache journal, ignoring: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Copy all live entries into a new segment and delete all previous segments.
+     * If this is interrupted, replaying the old segments before the new one still results in the same index.
+     */
+    private void compact() throws IOException {
+        final var oldSegments = List.copyOf(segments);
+        final var newSegment = oldSegments.getLast() + 1;
+        final var newSegmentFile = getSegmentFile(newSegment);
+        final var newIndex = new TreeMap<Long, IndexEntry>();
+        var size = 0L;
+        try (final var channel = FileChannel.open(newSegmentFile.toPath(),
+                StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE)) {
+            for (final var e : index.entrySet()) {
+                final var entry = e.getValue();
+                final var payload = readPayload(entry);
+                final var buffer = ByteBuffer.allocate(recordSize(payload.length));
+                buffer.put(RECORD_ENTRY);
+                buffer.putLong(e.getKey());
+                buffer.putLong(entry.rawRecipientId() == null ? NO_RECIPIENT : entry.rawRecipientId());
+                buffer.putInt(payload.length);
+                buffer.put(payload);
+                buffer.putInt(crc(buffer.array(), HEADER_SIZE + payload.length));
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, size + buffer.position());
+                }
+                newIndex.put(e.getKey(),
+                        new IndexEntry(newSegment, size + HEADER_SIZE, payload.length, entry.rawRecipientId()));
+                size += buffer.limit();
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(newSegmentFile.toPath());
+            throw e;
+        }
+
+        activeSegment.close();
+        for (final var segment : oldSegments) {
+            Files.deleteIfExists(getSegmentFile(segment).toPath());
+        }
+        logger.debug("Compacted message cache journal from {} to {} bytes", totalBytes, size);
+        segments.clear();
+        segments.add(newSegment);
+        index.clear();
+        index.putAll(newIndex);
+        totalBytes = size;
+        liveBytes = size;
+        openActiveSegment(newSegment);
+    }
+
+    private byte[] readPayload(final IndexEntry entry) throws IOException {
+        final var buffer = ByteBuffer.allocate(entry.payloadLength());
+        try (final var channel = FileChannel.open(getSegmentFile(entry.segment()).toPath(),
+                StandardOpenOption.READ)) {
+            readFully(channel, buffer, entry.payloadOffset());
+        }
+        return buffer.array();
+    }
+
+    private void openActiveSegment(final int segment) throws IOException {
+        final var file = getSegmentFile(segment);
+        if (!file.exists()) {
+            IOUtils.createPrivateFile(file);
+        }
+        activeSegment = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+        activeSegmentSize = activeSegment.size();
+    }
+
+    private File getSegmentFile(final int segment) {
+        return new File(journalPath, "segment-" + segment + ".log");
+    }
+
+    private static void readFully(
+            final FileChannel channel,
+            final ByteBuffer buffer,
+            final long position
+    ) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of message cache journal segment");
+            }
+        }
+    }
+
+    private static int recordSize(final int payloadLength) {
+        return HEADER_SIZE + payloadLength + CRC_SIZE;
+    }
+
+    private static int crc(final byte[] header, final byte[] payload) {
+        final var crc = new CRC32();
+        crc.update(header, 0, HEADER_SIZE);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static int crc(final byte[] record, final int length) {
+        final var crc = new CRC32();
+        crc.update(record, 0, length);
+        return (int) crc.getValue();
+    }
+
+    private record IndexEntry(int segment, long payloadOffset, int payloadLength, Long rawRecipientId) {
+
+        IndexEntry withRawRecipientId(final Long rawRecipientId) {
+            return new IndexEntry(segment, payloadOffset, payloadLength, rawRecipientId);
+        }
+    }
+
+    private record JournalEntry(JournalMessageCache cache, long id) implements CachedMessage.Entry {
+
+        @Override
+        public SignalServiceEnvelope load() throws IOException {
+            return cache.load(id);
+        }
+
+        @Override
+        public void delete() {
+            cache.delete(id);
+        }
+
+        @Override
+        public Long rawRecipientId() {
+            return cache.getRawRecipientId(id);
+        }
+
+        @Override
+        public String toString() {
+            return "journal entry " + id;
+        }
+    }
+}
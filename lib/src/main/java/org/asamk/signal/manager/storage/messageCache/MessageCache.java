@@ -1,142 +1,75 @@
 package org.asamk.signal.manager.storage.messageCache;
 
 import org.asamk.signal.manager.storage.recipients.RecipientId;
-import org.asamk.signal.manager.util.IOUtils;
-import org.asamk.signal.manager.util.MessageCacheUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.signalservice.api.messages.SignalServiceEnvelope;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Objects;
-import java.util.stream.Stream;
 
-public class MessageCache {
+/**
+ * Stores received envelopes on disk, before they are acknowledged to the server, until they have been handled.
+ */
+public sealed interface MessageCache extends AutoCloseable permits FileMessageCache, JournalMessageCache {
 
-    private static final Logger logger = LoggerFactory.getLogger(MessageCache.class);
+    Iterable<CachedMessage> getCachedMessages();
 
-    private final File messageCachePath;
+    CachedMessage cacheMessage(SignalServiceEnvelope envelope, RecipientId recipientId);
 
-    public MessageCache(final File messageCachePath) {
-        this.messageCachePath = messageCachePath;
-    }
-
-    public Iterable<CachedMessage> getCachedMessages() {
-        if (!messageCachePath.exists()) {
-            return Collections.emptyList();
-        }
-
-        return Arrays.stream(Objects.requireNonNull(messageCachePath.listFiles())).flatMap(dir -> {
-            if (dir.isFile()) {
-                return Stream.of(dir);
-            }
-
-            final var files = Objects.requireNonNull(dir.listFiles());
-            if (files.length == 0) {
-                try {
-                    Files.delete(dir.toPath());
-                } catch (IOException e) {
-                    logger.warn("Failed to delete cache dir “{}”, ignoring: {}", dir, e.getMessage());
-                }
-                return Stream.empty();
-            }
-            return Arrays.stream(files).filter(File::isFile);
-        }).map(CachedMessage::new).toList();
-    }
-
-    public CachedMessage cacheMessage(SignalServiceEnvelope envelope, RecipientId recipientId) {
-        final var now = System.currentTimeMillis();
-
-        File cacheFile;
-        try {
-            cacheFile = getMessageCacheFile(recipientId, now, envelope.getTimestamp());
-        } catch (IOException e) {
-            logger.warn("Failed to create recipient folder in disk cache: {}", e.getMessage());
-            throw new RuntimeException(e);
-        }
+    CachedMessage replaceSender(CachedMessage cachedMessage, RecipientId sender) throws IOException;
 
-        final var cachedMessage = new CachedMessage(cacheFile, envelope);
-        try {
-            MessageCacheUtils.storeEnvelope(envelope, cacheFile);
-            return cachedMessage;
-        } catch (IOException e) {
-            logger.warn("Failed to store encrypted message in disk cache, ignoring: {}", e.getMessage());
-            return cachedMessage;
-        }
-    }
-
-    public CachedMessage replaceSender(CachedMessage cachedMessage, RecipientId sender) throws IOException {
-        final var cacheFile = getMessageCacheFile(sender, cachedMessage.getFile().getName());
-        if (cacheFile.equals(cachedMessage.getFile())) {
-            return cachedMessage;
-        }
-        logger.debug("Moving cached message {} to {}", cachedMessage.getFile().toPath(), cacheFile.toPath());
-        Files.move(cachedMessage.getFile().toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-        return new CachedMessage(cacheFile);
-    }
+    void deleteMessages(RecipientId recipientId);
 
-    public void deleteMessages(final RecipientId recipientId) {
-        final var recipientMessageCachePath = getMessageCachePath(recipientId);
-        if (!recipientMessageCachePath.exists()) {
-            return;
-        }
+    void mergeRecipients(RecipientId recipientId, RecipientId toBeMergedRecipientId);
 
-        for (var file : Objects.requireNonNull(recipientMessageCachePath.listFiles())) {
-            if (!file.isFile()) {
-                continue;
-            }
+    @Override
+    void close();
 
-            try {
-                Files.delete(file.toPath());
-            } catch (IOException e) {
-                logger.warn("Failed to delete cache file “{}”, ignoring: {}", file, e.getMessage());
+    /**
+     * Open the message cache of an account.
+     * Messages still stored by the other backend are migrated to the selected one.
+     *
+     * @param messageCachePath path of the per-message file cache
+     * @param journalPath      path of the segmented journal cache
+     * @param useJournal       if the journal backend should be used
+     */
+    static MessageCache open(final File messageCachePath, final File journalPath, final boolean useJournal) {
+        if (useJournal) {
+            final var journal = new JournalMessageCache(journalPath);
+            if (messageCachePath.exists()) {
+                migrate(new FileMessageCache(messageCachePath), journal);
             }
+            return journal;
         }
-    }
 
-    private File getMessageCachePath(RecipientId recipientId) {
-        if (recipientId == null) {
-            return messageCachePath;
+        final var fileCache = new FileMessageCache(messageCachePath);
+        if (journalPath.exists()) {
+            try (final var journal = new JournalMessageCache(journalPath)) {
+                migrate(journal, fileCache);
+            }
+            JournalMessageCache.deleteJournal(journalPath);
         }
-
-        var sender = String.valueOf(recipientId.id());
-        return new File(messageCachePath, sender.replace("/", "_"));
-    }
-
-    private File getMessageCacheFile(RecipientId recipientId, String filename) throws IOException {
-        var cachePath = getMessageCachePath(recipientId);
-        IOUtils.createPrivateDirectories(cachePath);
-        return new File(cachePath, filename);
+        return fileCache;
     }
 
-    private File getMessageCacheFile(RecipientId recipientId, long now, long timestamp) throws IOException {
-        var cachePath = getMessageCachePath(recipientId);
-        IOUtils.createPrivateDirectories(cachePath);
-        return new File(cachePath, now + "_" + timestamp);
-    }
-
-    public void mergeRecipients(final RecipientId recipientId, final RecipientId toBeMergedRecipientId) {
-        final var toBeMergedMessageCachePath = getMessageCachePath(toBeMergedRecipientId);
-        if (!toBeMergedMessageCachePath.exists()) {
-            return;
-        }
-
-        for (var file : Objects.requireNonNull(toBeMergedMessageCachePath.listFiles())) {
-            if (!file.isFile()) {
-                continue;
-            }
-
-            try {
-                final var cacheFile = getMessageCacheFile(recipientId, file.getName());
-                Files.move(file.toPath(), cacheFile.toPath());
-            } catch (IOException e) {
-                logger.warn("Failed to move cache file “{}”, ignoring: {}", file, e.getMessage(), e);
+    private static void migrate(final MessageCache from, final MessageCache to) {
+        final Logger logger = LoggerFactory.getLogger(MessageCache.class);
+        var count = 0;
+        for (final var cachedMessage : from.getCachedMessages()) {
+            final var envelope = cachedMessage.loadEnvelope();
+            if (envelope != null) {
+                final var rawRecipientId = cachedMessage.getEntry().rawRecipientId();
+                switch (to) {
+                    case FileMessageCache fileMessageCache -> fileMessageCache.cacheMessage(envelope, rawRecipientId);
+                    case JournalMessageCache journal -> journal.cacheMessage(envelope, rawRecipientId);
+                }
+                count++;
             }
+            cachedMessage.delete();
+        }
+        if (count > 0) {
+            logger.info("Migrated {} cached messages to {}", count, to.getClass().getSimpleName());
         }
     }
 }
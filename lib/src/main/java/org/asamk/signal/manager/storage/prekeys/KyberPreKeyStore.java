@@ -15,6 +15,7 @@ import org.whispersystems.signalservice.api.push.ServiceIdType;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 
 import static org.asamk.signal.manager.config.ServiceConfig.PREKEY_ARCHIVE_AGE;
@@ -128,6 +129,33 @@ public class KyberPreKeyStore implements SignalServiceKyberPreKeyStore {
         }
     }
 
+    /**
+     * Store the one-time kyber pre keys with a batched statement in a single transaction.
+     */
+    public void storeKyberPreKeys(final Collection<KyberPreKeyRecord> records) {
+        final var sql = (
+                """
+                INSERT INTO %s (account_id_type, key_id, serialized, is_last_resort, timestamp)
+                VALUES (?, ?, ?, ?, ?)
+                """
+        ).formatted(TABLE_KYBER_PRE_KEY);
+        try (final var connection = database.getConnection()) {
+            connection.setAutoCommit(false);
+            try (final var statement = connection.prepareStatement(sql)) {
+                Utils.executeBatch(statement, records, (stmt, record) -> {
+                    stmt.setInt(1, accountIdType);
+                    stmt.setInt(2, record.getId());
+                    stmt.setBytes(3, record.serialize());
+                    stmt.setBoolean(4, false);
+                    stmt.setLong(5, record.getTimestamp());
+                });
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed update kyber_pre_key store", e);
+        }
+    }
+
     @Override
     public boolean containsKyberPreKey(final int keyId) {
         return getPreKey(keyId) != null;
@@ -17,6 +17,7 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 
 public class PreKeyStore implements SignalServicePreKeyStore {
 
@@ -80,6 +81,39 @@ public class PreKeyStore implements SignalServicePreKeyStore {
         }
     }
 
+    /**
+     * Store the pre keys with a batched statement in a single transaction.
+     */
+    public void storePreKeys(final Collection<PreKeyRecord> records) {
+        final var sql = (
+                """
+                INSERT INTO %s (account_id_type, key_id, public_key, private_key)
+                VALUES (?, ?, ?, ?)
+                """
+        ).formatted(TABLE_PRE_KEY);
+        final var keyPairs = new LinkedHashMap<Integer, ECKeyPair>();
+        for (final var record : records) {
+            try {
+                keyPairs.put(record.getId(), record.getKeyPair());
+            } catch (InvalidKeyException ignored) {
+            }
+        }
+        try (final var connection = database.getConnection()) {
+            connection.setAutoCommit(false);
+            try (final var statement = connection.prepareStatement(sql)) {
+                Utils.executeBatch(statement, keyPairs.entrySet(), (stmt, entry) -> {
+                    stmt.setInt(1, accountIdType);
+                    stmt.setInt(2, entry.getKey());
+                    stmt.setBytes(3, entry.getValue().getPublicKey().serialize());
+                    stmt.setBytes(4, entry.getValue().getPrivateKey().serialize());
+                });
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed update pre_key store", e);
+        }
+    }
+
     @Override
     public boolean containsPreKey(int preKeyId) {
         return getPreKey(preKeyId) != null;
@@ -42,6 +42,7 @@ public class RecipientStore implements RecipientIdCreator, RecipientResolver, Re
 
     private static final Logger logger = LoggerFactory.getLogger(RecipientStore.class);
     private static final String TABLE_RECIPIENT = "recipient";
+    private static final int BULK_QUERY_CHUNK_SIZE = 500;
     private static final String SQL_IS_CONTACT = "r.given_name IS NOT NULL OR r.family_name IS NOT NULL OR r.nick_name IS NOT NULL OR r.nick_name_given_name IS NOT NULL OR r.nick_name_family_name IS NOT NULL OR r.note IS NOT NULL OR r.expiration_time > 0 OR r.profile_sharing = TRUE OR r.color IS NOT NULL OR r.blocked = TRUE OR r.archived = TRUE";
 
     private final RecipientMergeHandler recipientMergeHandler;
@@ -376,6 +377,54 @@ public class RecipientStore implements RecipientIdCreator, RecipientResolver, Re
         }
     }
 
+    /**
+     * Load the given recipients in bulk, with contact and profile set to null if not available.
+     * Unknown recipient ids are missing from the returned map.
+     */
+    public Map<RecipientId, Recipient> getRecipients(Collection<RecipientId> recipientIds) {
+        if (recipientIds.isEmpty()) {
+            return Map.of();
+        }
+        final var ids = recipientIds.stream().map(RecipientId::id).distinct().toList();
+        final var selfAddress = selfAddressProvider.getSelfAddress();
+        final var result = new HashMap<RecipientId, Recipient>(ids.size());
+        try (final var connection = database.getConnection()) {
+            for (var i = 0; i < ids.size(); i += BULK_QUERY_CHUNK_SIZE) {
+                final var chunk = ids.subList(i, Math.min(i + BULK_QUERY_CHUNK_SIZE, ids.size()));
+                final var sql = (
+                        """
+                        SELECT r._id,
+                               r.number, r.aci, r.pni, r.username,
+                               r.profile_key, r.profile_key_credential,
+                               r.given_name, r.family_name, r.nick_name, r.nick_name_given_name, r.nick_name_family_name, r.note, r.expiration_time, r.expiration_time_version, r.mute_until, r.hide_story, r.profile_sharing, r.color, r.blocked, r.archived, r.hidden, r.unregistered_timestamp,
+                               r.profile_last_update_timestamp, r.profile_given_name, r.profile_family_name, r.profile_about, r.profile_about_emoji, r.profile_avatar_url_path, r.profile_mobile_coin_address, r.profile_unidentified_access_mode, r.profile_capabilities, r.profile_phone_number_sharing,
+                               r.discoverable,
+                               r.storage_record,
+                               (%s) AS is_contact
+                        FROM %s r
+                        WHERE r._id IN (%s)
+                        """
+                ).formatted(SQL_IS_CONTACT, TABLE_RECIPIENT, String.join(",", Collections.nCopies(chunk.size(), "?")));
+                try (final var statement = connection.prepareStatement(sql)) {
+                    for (var j = 0; j < chunk.size(); j++) {
+                        statement.setLong(j + 1, chunk.get(j));
+                    }
+                    try (var stream = Utils.executeQueryForStream(statement, this::getBulkRecipientFromResultSet)) {
+                        stream.forEach(r -> result.put(r.getRecipientId(),
+                                r.getAddress().matches(selfAddress)
+                                        ? Recipient.newBuilder(r)
+                                        .withProfileKey(selfProfileKeyProvider.getSelfProfileKey())
+                                        .build()
+                                        : r));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed read from recipient store", e);
+        }
+        return result;
+    }
+
     public Recipient getRecipient(Connection connection, StorageId storageId) throws SQLException {
         final var sql = (
                 """
@@ -551,11 +600,10 @@ public class RecipientStore implements RecipientIdCreator, RecipientResolver, Re
                 final var recipientIds = Utils.executeQueryForStream(selectStmt, this::getRecipientIdFromResultSet)
                         .toList();
                 try (final var updateStmt = connection.prepareStatement(updateSql)) {
-                    for (final var recipientId : recipientIds) {
-                        updateStmt.setBytes(1, KeyUtils.createRawStorageId());
-                        updateStmt.setLong(2, recipientId.id());
-                        updateStmt.executeUpdate();
-                    }
+                    Utils.executeBatch(updateStmt, recipientIds, (stmt, recipientId) -> {
+                        stmt.setBytes(1, KeyUtils.createRawStorageId());
+                        stmt.setLong(2, recipientId.id());
+                    });
                 }
             }
             connection.commit();
@@ -708,11 +756,10 @@ public class RecipientStore implements RecipientIdCreator, RecipientResolver, Re
                 """
         ).formatted(TABLE_RECIPIENT);
         try (final var statement = connection.prepareStatement(sql)) {
-            for (final var entry : storageIdMap.entrySet()) {
-                statement.setBytes(1, entry.getValue().getRaw());
-                statement.setLong(2, entry.getKey().id());
-                statement.executeUpdate();
-            }
+            Utils.executeBatch(statement, storageIdMap.entrySet(), (stmt, entry) -> {
+                stmt.setBytes(1, entry.getValue().getRaw());
+                stmt.setLong(2, entry.getKey().id());
+            });
         }
     }
 
@@ -1181,6 +1228,7 @@ public class RecipientStore implements RecipientIdCreator, RecipientResolver, Re
             } catch (SQLException e) {
                 throw new RuntimeException("Failed update recipient store", e);
             }
+            recipientMergeHandler.afterMergeCommitted();
         }
         return pair.first();
     }
@@ -1554,6 +1602,18 @@ public class RecipientStore implements RecipientIdCreator, RecipientResolver, Re
                 getStorageRecordFromResultSet(resultSet));
     }
 
+    private Recipient getBulkRecipientFromResultSet(final ResultSet resultSet) throws SQLException {
+        return new Recipient(getRecipientIdFromResultSet(resultSet),
+                getRecipientAddressFromResultSet(resultSet),
+                resultSet.getBoolean("is_contact") ? getContactFromResultSet(resultSet) : null,
+                getProfileKeyFromResultSet(resultSet),
+                getExpiringProfileKeyCredentialFromResultSet(resultSet),
+                resultSet.getString("profile_capabilities") == null ? null : getProfileFromResultSet(resultSet),
+                getDiscoverableFromResultSet(resultSet),
+                getUnregisteredTimestampFromResultSet(resultSet),
+                getStorageRecordFromResultSet(resultSet));
+    }
+
     private Contact getContactFromResultSet(ResultSet resultSet) throws SQLException {
         final var unregisteredTimestamp = resultSet.getLong("unregistered_timestamp");
         return new Contact(resultSet.getString("given_name"),
@@ -1654,6 +1714,13 @@ public class RecipientStore implements RecipientIdCreator, RecipientResolver, Re
                 RecipientId recipientId,
                 RecipientId toBeMergedRecipientId
         ) throws SQLException;
+
+        /**
+         * Called after a transaction in which recipients were merged has been committed.
+         * For merges in a transaction of the caller, the caller is responsible for updating caches after its commit.
+         */
+        default void afterMergeCommitted() {
+        }
     }
 
     private class HelperStore implements MergeRecipientHelper.Store {
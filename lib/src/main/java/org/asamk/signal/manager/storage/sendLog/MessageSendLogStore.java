@@ -354,15 +354,15 @@ public class MessageSendLogStore implements AutoCloseable {
                         INSERT INTO %s (address, device_id, content_id)
                         VALUES (?,?,?)
                         """.formatted(TABLE_MESSAGE_SEND_LOG);
+        final var rows = recipientDevices.stream()
+                .flatMap(r -> r.deviceIds().stream().map(deviceId -> new RecipientDevice(r.serviceId(), deviceId)))
+                .toList();
         try (final var statement = connection.prepareStatement(sql)) {
-            for (final var recipientDevice : recipientDevices) {
-                for (final var deviceId : recipientDevice.deviceIds()) {
-                    statement.setString(1, recipientDevice.serviceId().toString());
-                    statement.setInt(2, deviceId);
-                    statement.setLong(3, contentId);
-                    statement.executeUpdate();
-                }
-            }
+            Utils.executeBatch(statement, rows, (stmt, row) -> {
+                stmt.setString(1, row.serviceId().toString());
+                stmt.setInt(2, row.deviceId());
+                stmt.setLong(3, contentId);
+            });
         }
     }
 
@@ -407,4 +407,6 @@ public class MessageSendLogStore implements AutoCloseable {
     }
 
     private record RecipientDevices(ServiceId serviceId, List<Integer> deviceIds) {}
+
+    private record RecipientDevice(ServiceId serviceId, int deviceId) {}
 }
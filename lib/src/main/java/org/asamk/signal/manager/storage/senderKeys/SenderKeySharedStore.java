@@ -95,11 +95,10 @@ public class SenderKeySharedStore {
                     """
             ).formatted(TABLE_SENDER_KEY_SHARED);
             try (final var statement = connection.prepareStatement(sql)) {
-                for (final var entry : entriesToDelete) {
-                    statement.setString(1, entry.address());
-                    statement.setInt(2, entry.deviceId());
-                    statement.executeUpdate();
-                }
+                Utils.executeBatch(statement, entriesToDelete, (stmt, entry) -> {
+                    stmt.setString(1, entry.address());
+                    stmt.setInt(2, entry.deviceId());
+                });
             }
             connection.commit();
         } catch (SQLException e) {
@@ -202,14 +201,15 @@ public class SenderKeySharedStore {
                 ON CONFLICT (address, device_id, distribution_id) DO UPDATE SET timestamp=excluded.timestamp
                 """
         ).formatted(TABLE_SENDER_KEY_SHARED);
+        final var distributionIdBytes = UuidUtil.toByteArray(distributionId.asUuid());
+        final var timestamp = System.currentTimeMillis();
         try (final var statement = connection.prepareStatement(sql)) {
-            for (final var entry : newEntries) {
-                statement.setString(1, entry.address());
-                statement.setInt(2, entry.deviceId());
-                statement.setBytes(3, UuidUtil.toByteArray(distributionId.asUuid()));
-                statement.setLong(4, System.currentTimeMillis());
-                statement.executeUpdate();
-            }
+            Utils.executeBatch(statement, newEntries, (stmt, entry) -> {
+                stmt.setString(1, entry.address());
+                stmt.setInt(2, entry.deviceId());
+                stmt.setBytes(3, distributionIdBytes);
+                stmt.setLong(4, timestamp);
+            });
         }
     }
 
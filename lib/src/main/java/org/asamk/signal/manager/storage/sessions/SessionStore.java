@@ -18,21 +18,56 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class SessionStore implements SignalServiceSessionStore {
 
     private static final String TABLE_SESSION = "session";
     private static final Logger logger = LoggerFactory.getLogger(SessionStore.class);
-
-    private final Map<Key, SessionRecord> cachedSessions = new HashMap<>();
+    static final int SESSION_CACHE_SIZE = 4000;
+    static final int MAX_DIRTY_SESSIONS = 100;
+    private static final int BULK_QUERY_CHUNK_SIZE = 500;
+
+    /**
+     * Least recently used sessions, guarded by its own monitor together with {@link #dirtySessions}.
+     */
+    private final Map<Key, SessionRecord> cachedSessions = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Key, SessionRecord> eldest) {
+            return size() > SESSION_CACHE_SIZE;
+        }
+    };
+    /**
+     * Device ids of all sessions per address, only contains addresses whose device ids have been fully loaded.
+     * Guarded by the monitor of {@link #cachedSessions}.
+     */
+    private final Map<String, Set<Integer>> cachedDeviceIds = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Set<Integer>> eldest) {
+            return size() > SESSION_CACHE_SIZE;
+        }
+    };
+    /**
+     * Serialized sessions that have been stored but not yet written to the database.
+     */
+    private final Map<Key, byte[]> dirtySessions = new LinkedHashMap<>();
+    /**
+     * Held while writing to the database, so an older flushed record can't overwrite a newer one.
+     */
+    private final Object writeLock = new Object();
 
     private final Database database;
     private final int accountIdType;
+    private final boolean writeThrough;
 
     public static void createSql(Connection connection) throws SQLException {
         // When modifying the CREATE statement here, also add a migration in AccountDatabase.java
@@ -51,13 +86,25 @@ public class SessionStore implements SignalServiceSessionStore {
     }
 
     public SessionStore(final Database database, final ServiceIdType serviceIdType) {
+        this(database, serviceIdType, false);
+    }
+
+    /**
+     * @param writeThrough write stored sessions to the database immediately, instead of in batches
+     */
+    public SessionStore(final Database database, final ServiceIdType serviceIdType, final boolean writeThrough) {
         this.database = database;
         this.accountIdType = Utils.getAccountIdType(serviceIdType);
+        this.writeThrough = writeThrough;
     }
 
     @Override
     public SessionRecord loadSession(SignalProtocolAddress address) {
         final var key = getKey(address);
+        final var cachedSession = getCachedSession(key);
+        if (cachedSession != null) {
+            return cachedSession;
+        }
         try (final var connection = database.getConnection()) {
             final var sessionRecord = Objects.requireNonNullElseGet(loadSession(connection, key), SessionRecord::new);
             synchronized (cachedSessions) {
@@ -71,53 +118,179 @@ public class SessionStore implements SignalServiceSessionStore {
 
     @Override
     public List<SessionRecord> loadExistingSessions(final List<SignalProtocolAddress> addresses) throws NoSessionException {
-        final var keys = addresses.stream().map(this::getKey).toList();
+        final var missingAddressNames = addresses.stream()
+                .filter(address -> getCachedSession(getKey(address)) == null)
+                .map(SignalProtocolAddress::getName)
+                .distinct()
+                .toList();
+        final var loadedSessions = missingAddressNames.isEmpty()
+                ? Map.<SignalProtocolAddress, SessionRecord>of()
+                : loadSessions(missingAddressNames);
+
+        final var sessions = new ArrayList<SessionRecord>();
+        for (final var address : addresses) {
+            final var cachedSession = getCachedSession(getKey(address));
+            final var sessionRecord = cachedSession != null ? cachedSession : loadedSessions.get(address);
+            if (sessionRecord != null) {
+                sessions.add(sessionRecord);
+            }
+        }
 
-        try (final var connection = database.getConnection()) {
-            final var sessions = new ArrayList<SessionRecord>();
-            for (final var key : keys) {
-                final var sessionRecord = loadSession(connection, key);
-                if (sessionRecord != null) {
-                    sessions.add(sessionRecord);
+        if (sessions.size() != addresses.size()) {
+            String message = "Mismatch! Asked for "
+                    + addresses.size()
+                    + " sessions, but only found "
+                    + sessions.size()
+                    + "!";
+            logger.warn(message);
+            throw new NoSessionException(message);
+        }
+
+        return sessions;
+    }
+
+    /**
+     * Load the sessions of all devices of the given addresses with a few bulk queries.
+     * Only addresses whose sessions aren't all cached yet are queried.
+     * The sessions and device ids are kept in the cache, so following lookups for these addresses, like the ones
+     * done while encrypting a group message, don't need a query per address.
+     */
+    public Map<SignalProtocolAddress, SessionRecord> loadSessions(final Collection<String> addressNames) {
+        final var sessions = new HashMap<SignalProtocolAddress, SessionRecord>();
+        final var names = new ArrayList<String>();
+        synchronized (cachedSessions) {
+            for (final var name : new LinkedHashSet<>(addressNames)) {
+                if (!addCachedSessions(name, sessions)) {
+                    names.add(name);
                 }
             }
+        }
+        if (names.isEmpty()) {
+            return sessions;
+        }
 
-            if (sessions.size() != addresses.size()) {
-                String message = "Mismatch! Asked for "
-                        + addresses.size()
-                        + " sessions, but only found "
-                        + sessions.size()
-                        + "!";
-                logger.warn(message);
-                throw new NoSessionException(message);
+        final var deviceIds = new HashMap<String, Set<Integer>>(names.size());
+        names.forEach(name -> deviceIds.put(name, new HashSet<>()));
+        try (final var connection = database.getConnection()) {
+            for (var i = 0; i < names.size(); i += BULK_QUERY_CHUNK_SIZE) {
+                final var chunk = names.subList(i, Math.min(i + BULK_QUERY_CHUNK_SIZE, names.size()));
+                final var sql = (
+                        """
+                        SELECT s.address, s.device_id, s.record
+                        FROM %s AS s
+                        WHERE s.account_id_type = ? AND s.address IN (%s)
+                        """
+                ).formatted(TABLE_SESSION, String.join(",", Collections.nCopies(chunk.size(), "?")));
+                final List<Pair<Key, SessionRecord>> records;
+                try (final var statement = connection.prepareStatement(sql)) {
+                    statement.setInt(1, accountIdType);
+                    for (var j = 0; j < chunk.size(); j++) {
+                        statement.setString(j + 2, chunk.get(j));
+                    }
+                    try (final var result = Utils.executeQueryForStream(statement,
+                            res -> new Pair<>(getKeyFromResultSet(res), getSessionRecordFromResultSet(res)))) {
+                        records = result.toList();
+                    }
+                }
+                synchronized (cachedSessions) {
+                    for (final var record : records) {
+                        final var key = record.first();
+                        deviceIds.get(key.address()).add(key.deviceId());
+                        // Sessions that are already cached may have been changed since they were written
+                        var session = getCachedSession(key);
+                        if (session == null && record.second() != null) {
+                            session = record.second();
+                            cachedSessions.put(key, session);
+                        }
+                        if (session != null) {
+                            sessions.put(new SignalProtocolAddress(key.address(), key.deviceId()), session);
+                        }
+                    }
+                }
             }
-
-            return sessions;
         } catch (SQLException e) {
             throw new RuntimeException("Failed read from session store", e);
         }
+        synchronized (cachedSessions) {
+            for (final var key : dirtySessions.keySet()) {
+                final var ids = deviceIds.get(key.address());
+                if (ids != null && ids.add(key.deviceId())) {
+                    final var session = getCachedSession(key);
+                    if (session != null) {
+                        sessions.put(new SignalProtocolAddress(key.address(), key.deviceId()), session);
+                    }
+                }
+            }
+            cachedDeviceIds.putAll(deviceIds);
+        }
+        logger.trace("Loaded sessions for {} of {} addresses from the database", names.size(), addressNames.size());
+        return sessions;
+    }
+
+    /**
+     * Adds the cached sessions of all devices of the address, must be called with the monitor of
+     * {@link #cachedSessions} held.
+     *
+     * @return false if the device ids or one of the sessions of the address aren't cached
+     */
+    private boolean addCachedSessions(final String address, final Map<SignalProtocolAddress, SessionRecord> sessions) {
+        final var deviceIds = cachedDeviceIds.get(address);
+        if (deviceIds == null) {
+            return false;
+        }
+        final var addressSessions = new HashMap<SignalProtocolAddress, SessionRecord>(deviceIds.size());
+        for (final var deviceId : deviceIds) {
+            final var session = getCachedSession(new Key(address, deviceId));
+            if (session == null) {
+                return false;
+            }
+            addressSessions.put(new SignalProtocolAddress(address, deviceId), session);
+        }
+        sessions.putAll(addressSessions);
+        return true;
     }
 
     @Override
     public List<Integer> getSubDeviceSessions(String name) {
         final var serviceId = ServiceId.parseOrThrow(name);
-        // get all sessions for recipient except primary device session
+        final var address = serviceId.toString();
+        synchronized (cachedSessions) {
+            final var deviceIds = cachedDeviceIds.get(address);
+            if (deviceIds != null) {
+                // get all sessions for recipient except primary device session
+                return deviceIds.stream().filter(deviceId -> deviceId != 1).sorted().toList();
+            }
+        }
+
         final var sql = (
                 """
                 SELECT s.device_id
                 FROM %s AS s
-                WHERE s.account_id_type = ? AND s.address = ? AND s.device_id != 1
+                WHERE s.account_id_type = ? AND s.address = ?
                 """
         ).formatted(TABLE_SESSION);
+        final Set<Integer> loadedDeviceIds;
         try (final var connection = database.getConnection()) {
             try (final var statement = connection.prepareStatement(sql)) {
                 statement.setInt(1, accountIdType);
-                statement.setString(2, serviceId.toString());
-                return Utils.executeQueryForStream(statement, res -> res.getInt("device_id")).toList();
+                statement.setString(2, address);
+                try (final var result = Utils.executeQueryForStream(statement, res -> res.getInt("device_id"))) {
+                    loadedDeviceIds = result.collect(Collectors.toCollection(HashSet::new));
+                }
             }
         } catch (SQLException e) {
             throw new RuntimeException("Failed read from session store", e);
         }
+        synchronized (cachedSessions) {
+            // Sessions that haven't been flushed yet are not in the database
+            dirtySessions.keySet()
+                    .stream()
+                    .filter(key -> key.address().equals(address))
+                    .forEach(key -> loadedDeviceIds.add(key.deviceId()));
+            cachedDeviceIds.put(address, loadedDeviceIds);
+            // get all sessions for recipient except primary device session
+            return loadedDeviceIds.stream().filter(deviceId -> deviceId != 1).sorted().toList();
+        }
     }
 
     public boolean isCurrentRatchetKey(ServiceId serviceId, int deviceId, ECPublicKey ratchetKey) {
@@ -134,14 +307,55 @@ public class SessionStore implements SignalServiceSessionStore {
         }
     }
 
+    /**
+     * Stores the session in the cache, it's written to the database with the next {@link #flush()}, or immediately
+     * in write-through mode.
+     * The record is serialized immediately, so later changes to it are not stored without another call.
+     */
     @Override
     public void storeSession(SignalProtocolAddress address, SessionRecord session) {
         final var key = getKey(address);
+        final var serialized = session.serialize();
 
-        try (final var connection = database.getConnection()) {
-            storeSession(connection, key, session);
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed read from session store", e);
+        final boolean needsFlush;
+        synchronized (cachedSessions) {
+            cachedSessions.put(key, session);
+            dirtySessions.put(key, serialized);
+            addCachedDeviceId(key);
+            needsFlush = writeThrough || dirtySessions.size() >= MAX_DIRTY_SESSIONS;
+        }
+        if (needsFlush) {
+            flush();
+        }
+    }
+
+    /**
+     * Write all stored sessions, that haven't been written yet, to the database in a single transaction.
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            final Map<Key, byte[]> sessions;
+            synchronized (cachedSessions) {
+                if (dirtySessions.isEmpty()) {
+                    return;
+                }
+                sessions = new LinkedHashMap<>(dirtySessions);
+                dirtySessions.clear();
+            }
+            try (final var connection = database.getConnection()) {
+                connection.setAutoCommit(false);
+                for (final var entry : sessions.entrySet()) {
+                    writeSession(connection, entry.getKey(), entry.getValue());
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                synchronized (cachedSessions) {
+                    // Keep the sessions for the next flush, unless they have been stored again in the meantime
+                    sessions.forEach(dirtySessions::putIfAbsent);
+                }
+                throw new RuntimeException("Failed update session store", e);
+            }
+            logger.trace("Flushed {} sessions", sessions.size());
         }
     }
 
@@ -163,10 +377,12 @@ public class SessionStore implements SignalServiceSessionStore {
     public void deleteSession(SignalProtocolAddress address) {
         final var key = getKey(address);
 
-        try (final var connection = database.getConnection()) {
-            deleteSession(connection, key);
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed update session store", e);
+        synchronized (writeLock) {
+            try (final var connection = database.getConnection()) {
+                deleteSession(connection, key);
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed update session store", e);
+            }
         }
     }
 
@@ -177,10 +393,12 @@ public class SessionStore implements SignalServiceSessionStore {
     }
 
     public void deleteAllSessions(ServiceId serviceId) {
-        try (final var connection = database.getConnection()) {
-            deleteAllSessions(connection, serviceId.toString());
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed update session store", e);
+        synchronized (writeLock) {
+            try (final var connection = database.getConnection()) {
+                deleteAllSessions(connection, serviceId.toString());
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed update session store", e);
+            }
         }
     }
 
@@ -188,47 +406,38 @@ public class SessionStore implements SignalServiceSessionStore {
     public void archiveSession(final SignalProtocolAddress address) {
         final var key = getKey(address);
 
-        try (final var connection = database.getConnection()) {
-            connection.setAutoCommit(false);
-            final var session = loadSession(connection, key);
-            if (session != null) {
-                session.archiveCurrentState();
-                storeSession(connection, key, session);
+        synchronized (writeLock) {
+            try (final var connection = database.getConnection()) {
+                connection.setAutoCommit(false);
+                final var session = loadSession(connection, key);
+                if (session != null) {
+                    session.archiveCurrentState();
+                    storeSession(connection, key, session);
 
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed update session store", e);
             }
-            connection.commit();
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed update session store", e);
         }
     }
 
     @Override
     public Map<SignalProtocolAddress, SessionRecord> getAllAddressesWithActiveSessions(final List<String> addressNames) {
-        final var serviceIdsCommaSeparated = addressNames.stream()
-                .map(address -> "'" + address.replaceAll("'", "''") + "'")
-                .collect(Collectors.joining(","));
-        final var sql = (
-                """
-                SELECT s.address, s.device_id, s.record
-                FROM %s AS s
-                WHERE s.account_id_type = ? AND s.address IN (%s)
-                """
-        ).formatted(TABLE_SESSION, serviceIdsCommaSeparated);
-        try (final var connection = database.getConnection()) {
-            try (final var statement = connection.prepareStatement(sql)) {
-                statement.setInt(1, accountIdType);
-                return Utils.executeQueryForStream(statement,
-                                res -> new Pair<>(getKeyFromResultSet(res), getSessionRecordFromResultSet(res)))
-                        .filter(pair -> isActive(pair.second()))
-                        .collect(Collectors.toMap(pair -> new SignalProtocolAddress(pair.first().address(),
-                                pair.first().deviceId()), Pair::second));
-            }
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed read from session store", e);
-        }
+        return loadSessions(addressNames).entrySet()
+                .stream()
+                .filter(entry -> isActive(entry.getValue()))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
     }
 
     public void archiveAllSessions() {
+        synchronized (writeLock) {
+            flush();
+            archiveAllSessionsLocked();
+        }
+    }
+
+    private void archiveAllSessionsLocked() {
         final var sql = (
                 """
                 SELECT s.address, s.device_id, s.record
@@ -257,6 +466,13 @@ public class SessionStore implements SignalServiceSessionStore {
     }
 
     public void archiveSessions(final ServiceId serviceId) {
+        synchronized (writeLock) {
+            flush();
+            archiveSessionsLocked(serviceId);
+        }
+    }
+
+    private void archiveSessionsLocked(final ServiceId serviceId) {
         final var sql = (
                 """
                 SELECT s.address, s.device_id, s.record
@@ -288,6 +504,13 @@ public class SessionStore implements SignalServiceSessionStore {
     void addLegacySessions(final Collection<Pair<Key, SessionRecord>> sessions) {
         logger.debug("Migrating legacy sessions to database");
         long start = System.nanoTime();
+        synchronized (writeLock) {
+            addLegacySessionsLocked(sessions);
+        }
+        logger.debug("Complete sessions migration took {}ms", (System.nanoTime() - start) / 1000000);
+    }
+
+    private void addLegacySessionsLocked(final Collection<Pair<Key, SessionRecord>> sessions) {
         try (final var connection = database.getConnection()) {
             connection.setAutoCommit(false);
             for (final var pair : sessions) {
@@ -297,19 +520,44 @@ public class SessionStore implements SignalServiceSessionStore {
         } catch (SQLException e) {
             throw new RuntimeException("Failed update session store", e);
         }
-        logger.debug("Complete sessions migration took {}ms", (System.nanoTime() - start) / 1000000);
     }
 
     private Key getKey(final SignalProtocolAddress address) {
         return new Key(address.getName(), address.getDeviceId());
     }
 
-    private SessionRecord loadSession(Connection connection, final Key key) throws SQLException {
+    private SessionRecord getCachedSession(final Key key) {
         synchronized (cachedSessions) {
             final var session = cachedSessions.get(key);
             if (session != null) {
                 return session;
             }
+            final var serialized = dirtySessions.get(key);
+            if (serialized == null) {
+                return null;
+            }
+            try {
+                final var dirtySession = new SessionRecord(serialized);
+                cachedSessions.put(key, dirtySession);
+                return dirtySession;
+            } catch (Exception e) {
+                logger.warn("Failed to load session, resetting session: {}", e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    private void addCachedDeviceId(final Key key) {
+        final var deviceIds = cachedDeviceIds.get(key.address());
+        if (deviceIds != null) {
+            deviceIds.add(key.deviceId());
+        }
+    }
+
+    private SessionRecord loadSession(Connection connection, final Key key) throws SQLException {
+        final var cachedSession = getCachedSession(key);
+        if (cachedSession != null) {
+            return cachedSession;
         }
         final var sql = (
                 """
@@ -322,7 +570,14 @@ public class SessionStore implements SignalServiceSessionStore {
             statement.setInt(1, accountIdType);
             statement.setString(2, key.address());
             statement.setInt(3, key.deviceId());
-            return Utils.executeQueryForOptional(statement, this::getSessionRecordFromResultSet).orElse(null);
+            final var session = Utils.executeQueryForOptional(statement, this::getSessionRecordFromResultSet)
+                    .orElse(null);
+            if (session != null) {
+                synchronized (cachedSessions) {
+                    cachedSessions.putIfAbsent(key, session);
+                }
+            }
+            return session;
         }
     }
 
@@ -349,8 +604,14 @@ public class SessionStore implements SignalServiceSessionStore {
     ) throws SQLException {
         synchronized (cachedSessions) {
             cachedSessions.put(key, session);
+            dirtySessions.remove(key);
+            addCachedDeviceId(key);
         }
 
+        writeSession(connection, key, session.serialize());
+    }
+
+    private void writeSession(final Connection connection, final Key key, final byte[] record) throws SQLException {
         final var sql = """
                         INSERT INTO %s (account_id_type, address, device_id, record)
                         VALUES (?, ?, ?, ?)
@@ -360,14 +621,16 @@ public class SessionStore implements SignalServiceSessionStore {
             statement.setInt(1, accountIdType);
             statement.setString(2, key.address());
             statement.setInt(3, key.deviceId());
-            statement.setBytes(4, session.serialize());
+            statement.setBytes(4, record);
             statement.executeUpdate();
         }
     }
 
     private void deleteAllSessions(final Connection connection, final String address) throws SQLException {
         synchronized (cachedSessions) {
-            cachedSessions.clear();
+            cachedSessions.keySet().removeIf(key -> key.address().equals(address));
+            dirtySessions.keySet().removeIf(key -> key.address().equals(address));
+            cachedDeviceIds.remove(address);
         }
 
         final var sql = (
@@ -386,6 +649,11 @@ public class SessionStore implements SignalServiceSessionStore {
     private void deleteSession(Connection connection, final Key key) throws SQLException {
         synchronized (cachedSessions) {
             cachedSessions.remove(key);
+            dirtySessions.remove(key);
+            final var deviceIds = cachedDeviceIds.get(key.address());
+            if (deviceIds != null) {
+                deviceIds.remove(key.deviceId());
+            }
         }
 
         final var sql = (
@@ -8,6 +8,7 @@ import org.asamk.signal.manager.jobs.RefreshRecipientsJob;
 import org.asamk.signal.manager.storage.SignalAccount;
 import org.asamk.signal.manager.storage.recipients.RecipientAddress;
 import org.asamk.signal.manager.util.KeyUtils;
+import org.signal.core.models.ServiceId;
 import org.signal.core.models.ServiceId.ACI;
 import org.signal.core.models.ServiceId.PNI;
 import org.signal.libsignal.protocol.IdentityKey;
@@ -23,7 +24,10 @@ import org.whispersystems.signalservice.internal.storage.protos.ContactRecord.Id
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.regex.Pattern;
@@ -46,6 +50,7 @@ public class ContactRecordProcessor extends DefaultStorageRecordProcessor<Signal
     private final SignalAccount account;
     private final Connection connection;
     private final JobExecutor jobExecutor;
+    private final List<ServiceId> updatedIdentities = new ArrayList<>();
 
     public ContactRecordProcessor(SignalAccount account, Connection connection, final JobExecutor jobExecutor) {
         this.account = account;
@@ -56,6 +61,14 @@ public class ContactRecordProcessor extends DefaultStorageRecordProcessor<Signal
         this.selfNumber = account.getNumber();
     }
 
+    /**
+     * @return the service ids of the stored identities, their changes are only visible after the transaction was
+     * committed
+     */
+    public List<ServiceId> getUpdatedIdentities() {
+        return Collections.unmodifiableList(updatedIdentities);
+    }
+
     /**
      * Error cases:
      * - You can't have a contact record without an ACI or PNI.
@@ -342,6 +355,7 @@ public class ContactRecordProcessor extends DefaultStorageRecordProcessor<Signal
                     account.getIdentityKeyStore()
                             .setIdentityTrustLevel(connection, address.aci().get(), identityKey, trustLevel);
                 }
+                updatedIdentities.add(address.aci().get());
             } catch (InvalidKeyException e) {
                 logger.warn("Received invalid contact identity key from storage");
             }
@@ -13,7 +13,10 @@ import org.whispersystems.signalservice.internal.storage.protos.GroupV1Record;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -24,12 +27,20 @@ public final class GroupV1RecordProcessor extends DefaultStorageRecordProcessor<
     private static final Logger logger = LoggerFactory.getLogger(GroupV1RecordProcessor.class);
     private final SignalAccount account;
     private final Connection connection;
+    private final List<GroupId> updatedGroupIds = new ArrayList<>();
 
     public GroupV1RecordProcessor(SignalAccount account, Connection connection) {
         this.account = account;
         this.connection = connection;
     }
 
+    /**
+     * @return the ids of the stored groups, their changes are only visible after the transaction was committed
+     */
+    public List<GroupId> getUpdatedGroupIds() {
+        return Collections.unmodifiableList(updatedGroupIds);
+    }
+
     /**
      * We want to catch:
      * - Invalid group IDs
@@ -115,6 +126,7 @@ public final class GroupV1RecordProcessor extends DefaultStorageRecordProcessor<
         if (group != null) {
             group.setBlocked(groupV1Proto.blocked);
             account.getGroupStore().updateGroup(connection, group);
+            updatedGroupIds.add(group.getGroupId());
             account.getGroupStore()
                     .storeStorageRecord(connection, group.getGroupId(), groupV1Record.getId(), groupV1Proto.encode());
         }
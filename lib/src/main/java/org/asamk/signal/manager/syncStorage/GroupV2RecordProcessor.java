@@ -1,5 +1,6 @@
 package org.asamk.signal.manager.syncStorage;
 
+import org.asamk.signal.manager.api.GroupId;
 import org.asamk.signal.manager.groups.GroupUtils;
 import org.asamk.signal.manager.storage.SignalAccount;
 import org.asamk.signal.manager.util.KeyUtils;
@@ -14,7 +15,10 @@ import org.whispersystems.signalservice.internal.storage.protos.GroupV2Record;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import okio.ByteString;
@@ -24,12 +28,20 @@ public final class GroupV2RecordProcessor extends DefaultStorageRecordProcessor<
     private static final Logger logger = LoggerFactory.getLogger(GroupV2RecordProcessor.class);
     private final SignalAccount account;
     private final Connection connection;
+    private final List<GroupId> updatedGroupIds = new ArrayList<>();
 
     public GroupV2RecordProcessor(SignalAccount account, Connection connection) {
         this.account = account;
         this.connection = connection;
     }
 
+    /**
+     * @return the ids of the stored groups, their changes are only visible after the transaction was committed
+     */
+    public List<GroupId> getUpdatedGroupIds() {
+        return Collections.unmodifiableList(updatedGroupIds);
+    }
+
     @Override
     protected boolean isInvalid(SignalGroupV2Record remote) {
         return remote.getProto().masterKey.size() != GroupMasterKey.SIZE;
@@ -95,6 +107,7 @@ public final class GroupV2RecordProcessor extends DefaultStorageRecordProcessor<
         group.setBlocked(groupV2Proto.blocked);
         group.setProfileSharingEnabled(groupV2Proto.whitelisted);
         account.getGroupStore().updateGroup(connection, group);
+        updatedGroupIds.add(group.getGroupId());
         account.getGroupStore()
                 .storeStorageRecord(connection, group.getGroupId(), groupV2Record.getId(), groupV2Proto.encode());
     }
@@ -0,0 +1,143 @@
+package org.asamk.signal.manager.helper;
+
+import org.asamk.signal.manager.api.AttachmentDownload;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AttachmentDownloadQueueTest {
+
+    @Test
+    void smallerAttachmentsAreDownloadedFirst() throws Exception {
+        final var queue = new AttachmentDownloadQueue(1, 1, 1, 10_000);
+        final var order = new CopyOnWriteArrayList<String>();
+        final var release = new CountDownLatch(1);
+
+        queue.enqueue(new File("large"), 1000, () -> {
+            await(release);
+            order.add("large");
+        });
+        queue.enqueue(new File("medium"), 200, () -> order.add("medium"));
+        queue.enqueue(new File("unknown"), Long.MAX_VALUE, () -> order.add("unknown"));
+        queue.enqueue(new File("small"), 100, () -> order.add("small"));
+        assertTrue(queue.isPending("small"));
+
+        release.countDown();
+        queue.close();
+        assertEquals(List.of("large", "small", "medium", "unknown"), order);
+        assertFalse(queue.isPending("small"));
+    }
+
+    @Test
+    void failedDownloadsAreRetried() throws Exception {
+        final var queue = new AttachmentDownloadQueue(2, 3, 1, 10_000);
+        final var result = new CompletableFuture<AttachmentDownload>();
+        queue.addListener(result::complete);
+        final var attempts = new AtomicInteger();
+
+        queue.enqueue(new File("a.jpg"), 10, () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new IOException("Connection reset");
+            }
+        });
+
+        final var download = result.get(10, TimeUnit.SECONDS);
+        assertEquals("a.jpg", download.id());
+        assertEquals(AttachmentDownload.Status.DOWNLOADED, download.status());
+        assertEquals(3, download.attempts());
+        queue.close();
+    }
+
+    @Test
+    void finallyFailedDownloadsAreReported() throws Exception {
+        final var queue = new AttachmentDownloadQueue(2, 2, 1, 10_000);
+        final var result = new CompletableFuture<AttachmentDownload>();
+        queue.addListener(result::complete);
+
+        queue.enqueue(new File("a.jpg"), 10, () -> {
+            throw new IOException("Not found");
+        });
+        queue.awaitDownload("a.jpg");
+
+        final var download = result.get(10, TimeUnit.SECONDS);
+        assertEquals(AttachmentDownload.Status.FAILED, download.status());
+        assertEquals(2, download.attempts());
+        assertEquals("Not found", download.error());
+        assertFalse(queue.isPending("a.jpg"));
+        queue.close();
+    }
+
+    @Test
+    void pendingDownloadIsOnlyQueuedOnce() throws Exception {
+        final var queue = new AttachmentDownloadQueue(1, 1, 1, 10_000);
+        final var downloads = new AtomicInteger();
+        final var release = new CountDownLatch(1);
+
+        queue.enqueue(new File("a.jpg"), 10, () -> {
+            await(release);
+            downloads.incrementAndGet();
+        });
+        queue.enqueue(new File("a.jpg"), 10, downloads::incrementAndGet);
+
+        release.countDown();
+        queue.close();
+        assertEquals(1, downloads.get());
+    }
+
+    @Test
+    void heldDownloadsStartOnlyWhenReleased() throws Exception {
+        final var queue = new AttachmentDownloadQueue(1, 1, 1, 10_000);
+        final var downloads = new AtomicInteger();
+
+        queue.hold(new File("a.jpg"), 10, downloads::incrementAndGet);
+        assertTrue(queue.isPending("a.jpg"));
+        Thread.sleep(50);
+        assertEquals(0, downloads.get());
+
+        queue.startHeld();
+        queue.awaitDownload("a.jpg");
+        assertEquals(1, downloads.get());
+        queue.close();
+    }
+
+    @Test
+    void closeDropsUnfinishedDownloadsAfterTimeout() throws Exception {
+        final var queue = new AttachmentDownloadQueue(1, 3, 1, 50);
+        final var results = new CopyOnWriteArrayList<AttachmentDownload>();
+        queue.addListener(results::add);
+        final var started = new CountDownLatch(1);
+
+        queue.enqueue(new File("a.jpg"), 10, () -> {
+            started.countDown();
+            await(new CountDownLatch(1));
+        });
+        queue.hold(new File("b.jpg"), 10, () -> {});
+        started.await();
+
+        queue.close();
+        queue.awaitDownload("a.jpg");
+        assertFalse(queue.isPending("a.jpg"));
+        assertFalse(queue.isPending("b.jpg"));
+        // Dropped downloads are resumed later, so they're not reported as failed
+        assertTrue(results.isEmpty());
+    }
+
+    private static void await(final CountDownLatch latch) throws IOException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.asamk.signal.manager.helper;
+
+import org.junit.jupiter.api.Test;
+import org.signal.network.exceptions.PushNetworkException;
+import org.whispersystems.signalservice.api.util.StreamDetails;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AttachmentHelperTest {
+
+    @Test
+    void interruptedUploadIsResumedWithSameUploadSpec() throws Exception {
+        final var uploadSpecs = new AtomicInteger();
+        final var usedUploadSpecs = new ArrayList<String>();
+        final var resumedUploads = new LongAdder();
+
+        final var pointer = AttachmentHelper.uploadResumable(() -> "spec" + uploadSpecs.incrementAndGet(),
+                uploadSpec -> {
+                    usedUploadSpecs.add(uploadSpec);
+                    if (usedUploadSpecs.size() < 3) {
+                        throw new PushNetworkException(new IOException("Connection reset"));
+                    }
+                    return "pointer";
+                },
+                3,
+                resumedUploads);
+
+        assertEquals("pointer", pointer);
+        assertEquals(1, uploadSpecs.get());
+        assertEquals(List.of("spec1", "spec1", "spec1"), usedUploadSpecs);
+        assertEquals(2, resumedUploads.sum());
+    }
+
+    @Test
+    void interruptedUploadStopsAfterMaxAttempts() {
+        final var attempts = new AtomicInteger();
+        final var resumedUploads = new LongAdder();
+
+        assertThrows(PushNetworkException.class,
+                () -> AttachmentHelper.uploadResumable(() -> "spec", uploadSpec -> {
+                    attempts.incrementAndGet();
+                    throw new PushNetworkException(new IOException("Connection reset"));
+                }, 3, resumedUploads));
+
+        assertEquals(3, attempts.get());
+        assertEquals(2, resumedUploads.sum());
+    }
+
+    @Test
+    void uploadCacheKeyDependsOnContentAndMetadata() throws IOException {
+        final var key = getUploadCacheKey(new byte[]{1, 2, 3}, Optional.of("a.jpg"));
+
+        assertEquals(key, getUploadCacheKey(new byte[]{1, 2, 3}, Optional.of("a.jpg")));
+        assertNotEquals(key, getUploadCacheKey(new byte[]{1, 2, 4}, Optional.of("a.jpg")));
+        assertNotEquals(key, getUploadCacheKey(new byte[]{1, 2, 3}, Optional.of("b.jpg")));
+    }
+
+    private static String getUploadCacheKey(final byte[] content, final Optional<String> fileName) throws IOException {
+        final var streamDetails = new StreamDetails(new ByteArrayInputStream(content), "image/jpeg", content.length);
+        return AttachmentHelper.getUploadCacheKey(streamDetails, fileName, false);
+    }
+}
@@ -0,0 +1,54 @@
+package org.asamk.signal.manager.helper;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AttachmentUploadCacheTest {
+
+    private static final long MAX_AGE = 1000;
+
+    @Test
+    void recentUploadIsReused() {
+        final var cache = createCache();
+        final var pointer = new Pointer("a", 100);
+
+        cache.put("key", pointer);
+
+        assertEquals(pointer, cache.get("key", 100 + MAX_AGE - 1));
+        assertNull(cache.get("otherKey", 100));
+    }
+
+    @Test
+    void expiredUploadIsNotReused() {
+        final var cache = createCache();
+        cache.put("key", new Pointer("a", 100));
+
+        assertNull(cache.get("key", 100 + MAX_AGE));
+        // The expired entry is removed
+        assertNull(cache.get("key", 100));
+    }
+
+    @Test
+    void leastRecentlyUsedUploadIsEvicted() {
+        final var cache = createCache();
+        for (var i = 0; i < AttachmentUploadCache.MAX_ENTRIES; i++) {
+            cache.put("key" + i, new Pointer("p" + i, 0));
+        }
+
+        // Marks the first entry as recently used
+        cache.get("key0", 0);
+        cache.put("new", new Pointer("new", 0));
+
+        assertEquals(new Pointer("p0", 0), cache.get("key0", 0));
+        assertNull(cache.get("key1", 0));
+        assertEquals(new Pointer("new", 0), cache.get("new", 0));
+    }
+
+    private static AttachmentUploadCache<Pointer> createCache() {
+        return new AttachmentUploadCache<>(MAX_AGE, Pointer::uploadTimestamp);
+    }
+
+    private record Pointer(String id, long uploadTimestamp) {}
+}
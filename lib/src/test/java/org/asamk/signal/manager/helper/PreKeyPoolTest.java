@@ -0,0 +1,75 @@
+package org.asamk.signal.manager.helper;
+
+import org.asamk.signal.manager.util.KeyUtils;
+import org.junit.jupiter.api.Test;
+import org.signal.libsignal.protocol.IdentityKeyPair;
+import org.signal.libsignal.protocol.InvalidKeyException;
+import org.signal.libsignal.protocol.state.KyberPreKeyRecord;
+
+import static org.asamk.signal.manager.config.ServiceConfig.PREKEY_BATCH_SIZE;
+import static org.asamk.signal.manager.config.ServiceConfig.PREKEY_MAXIMUM_ID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PreKeyPoolTest {
+
+    @Test
+    void preparedPreKeysAreHandedOut() {
+        final var pool = new PreKeyPool();
+        final var offset = PREKEY_MAXIMUM_ID - 10;
+
+        pool.preparePreKeys(offset);
+        final var preKeys = pool.takePreKeys(offset);
+
+        assertEquals(PREKEY_BATCH_SIZE, preKeys.size());
+        for (var i = 0; i < preKeys.size(); i++) {
+            assertEquals((offset + i) % PREKEY_MAXIMUM_ID, preKeys.get(i).getId());
+        }
+    }
+
+    @Test
+    void preparedPreKeysWithOtherOffsetAreDiscarded() {
+        final var pool = new PreKeyPool();
+
+        pool.preparePreKeys(1);
+        final var preKeys = pool.takePreKeys(500);
+
+        assertEquals(500, preKeys.getFirst().getId());
+    }
+
+    @Test
+    void preKeysAreGeneratedWithoutPreparedBatch() {
+        final var pool = new PreKeyPool();
+
+        final var preKeys = pool.takePreKeys(42);
+
+        assertEquals(PREKEY_BATCH_SIZE, preKeys.size());
+        assertEquals(42, preKeys.getFirst().getId());
+    }
+
+    @Test
+    void preparedKyberPreKeysAreOnlyUsedForTheSameIdentity() throws Exception {
+        final var pool = new PreKeyPool();
+        final var identityKeyPair = KeyUtils.generateIdentityKeyPair();
+        final var otherIdentityKeyPair = KeyUtils.generateIdentityKeyPair();
+
+        pool.prepareKyberPreKeys(1, identityKeyPair);
+        final var kyberPreKeys = pool.takeKyberPreKeys(1, identityKeyPair);
+        pool.prepareKyberPreKeys(1, identityKeyPair);
+        final var otherKyberPreKeys = pool.takeKyberPreKeys(1, otherIdentityKeyPair);
+
+        assertEquals(PREKEY_BATCH_SIZE, kyberPreKeys.size());
+        assertTrue(isSignedBy(kyberPreKeys.getFirst(), identityKeyPair));
+        assertEquals(1, otherKyberPreKeys.getFirst().getId());
+        assertTrue(isSignedBy(otherKyberPreKeys.getFirst(), otherIdentityKeyPair));
+    }
+
+    private static boolean isSignedBy(
+            final KyberPreKeyRecord record,
+            final IdentityKeyPair identityKeyPair
+    ) throws InvalidKeyException {
+        return identityKeyPair.getPublicKey()
+                .getPublicKey()
+                .verifySignature(record.getKeyPair().getPublicKey().serialize(), record.getSignature());
+    }
+}
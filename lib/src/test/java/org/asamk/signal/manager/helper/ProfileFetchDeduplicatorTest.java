@@ -0,0 +1,93 @@
+package org.asamk.signal.manager.helper;
+
+import org.junit.jupiter.api.Test;
+import org.whispersystems.signalservice.api.push.exceptions.NotFoundException;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.subjects.SingleSubject;
+
+import static org.asamk.signal.manager.storage.recipients.TestRecipientId.createTestId;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.whispersystems.signalservice.api.profiles.SignalServiceProfile.RequestType.PROFILE;
+import static org.whispersystems.signalservice.api.profiles.SignalServiceProfile.RequestType.PROFILE_AND_CREDENTIAL;
+
+class ProfileFetchDeduplicatorTest {
+
+    @Test
+    void concurrentRequestsShareOneFetch() {
+        final var deduplicator = new ProfileFetchDeduplicator<String>();
+        final var response = SingleSubject.<String>create();
+        final var fetches = new AtomicInteger();
+
+        final var first = deduplicator.fetch(createTestId(1), PROFILE_AND_CREDENTIAL, () -> {
+            fetches.incrementAndGet();
+            return response;
+        }).test();
+        final var second = deduplicator.fetch(createTestId(1), PROFILE, () -> {
+            fetches.incrementAndGet();
+            return response;
+        }).test();
+        response.onSuccess("profile");
+
+        assertEquals(1, fetches.get());
+        first.assertValue("profile");
+        second.assertValue("profile");
+        assertEquals(new ProfileHelper.ProfileFetchStatistics(1, 1, 0), deduplicator.getStatistics());
+    }
+
+    @Test
+    void completedFetchIsNotShared() {
+        final var deduplicator = new ProfileFetchDeduplicator<String>();
+        final var fetches = new AtomicInteger();
+
+        for (var i = 0; i < 2; i++) {
+            deduplicator.fetch(createTestId(1), PROFILE, () -> Single.just("profile" + fetches.incrementAndGet()))
+                    .test()
+                    .assertValue("profile" + (i + 1));
+        }
+
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    void failedFetchIsNotRetriedUntilBackoffExpires() {
+        final var clock = new AtomicLong(1000);
+        final var deduplicator = new ProfileFetchDeduplicator<String>(clock::get);
+        final var fetches = new AtomicInteger();
+
+        for (var i = 0; i < 2; i++) {
+            deduplicator.fetch(createTestId(1), PROFILE, () -> {
+                fetches.incrementAndGet();
+                return Single.error(new NotFoundException("Profile not found"));
+            }).test().assertError(NotFoundException.class);
+        }
+        assertEquals(1, fetches.get());
+        assertEquals(new ProfileHelper.ProfileFetchStatistics(1, 0, 1), deduplicator.getStatistics());
+
+        clock.addAndGet(ProfileFetchDeduplicator.FAILED_FETCH_RETRY_DELAY);
+        deduplicator.fetch(createTestId(1), PROFILE, () -> {
+            fetches.incrementAndGet();
+            return Single.just("profile");
+        }).test().assertValue("profile");
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    void fetchFailedWithNetworkErrorIsRetriedImmediately() {
+        final var deduplicator = new ProfileFetchDeduplicator<String>();
+        final var fetches = new AtomicInteger();
+
+        for (var i = 0; i < 2; i++) {
+            deduplicator.fetch(createTestId(1), PROFILE, () -> {
+                fetches.incrementAndGet();
+                return Single.error(new IOException("Connection reset"));
+            }).test().assertError(IOException.class);
+        }
+
+        assertEquals(2, fetches.get());
+    }
+}
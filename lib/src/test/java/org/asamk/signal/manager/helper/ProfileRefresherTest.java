@@ -0,0 +1,53 @@
+package org.asamk.signal.manager.helper;
+
+import org.asamk.signal.manager.api.Profile;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.asamk.signal.manager.storage.recipients.TestRecipientId.createTestId;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProfileRefresherTest {
+
+    private static final long PROFILE_TTL = TimeUnit.HOURS.toMillis(1);
+
+    @Test
+    void refreshAheadIsRequiredAfterThreeQuartersOfTheTtl() {
+        try (final var refresher = new ProfileRefresher(1000, 1, recipientId -> {})) {
+            assertFalse(refresher.isRefreshAheadRequired(0, 749));
+            assertTrue(refresher.isRefreshAheadRequired(0, 750));
+        }
+    }
+
+    @Test
+    void mostRecentlyActiveOutdatedRecipientIsRefreshedFirst() {
+        final var now = System.currentTimeMillis();
+        try (final var refresher = new ProfileRefresher(PROFILE_TTL, 1, recipientId -> {})) {
+            refresher.markActive(createTestId(1), profileUpdatedAt(now - PROFILE_TTL));
+            refresher.markActive(createTestId(2), null);
+            refresher.markActive(createTestId(3), profileUpdatedAt(now));
+
+            assertEquals(createTestId(2), refresher.nextRecipientToRefresh(now));
+            assertEquals(createTestId(1), refresher.nextRecipientToRefresh(now));
+            assertNull(refresher.nextRecipientToRefresh(now));
+        }
+    }
+
+    @Test
+    void inactiveRecipientsAreNotRefreshed() {
+        final var now = System.currentTimeMillis();
+        try (final var refresher = new ProfileRefresher(PROFILE_TTL, 1, recipientId -> {})) {
+            refresher.markActive(createTestId(1), null);
+
+            assertNull(refresher.nextRecipientToRefresh(now + PROFILE_TTL + 1000));
+        }
+    }
+
+    private static Profile profileUpdatedAt(final long timestamp) {
+        return Profile.newBuilder().withLastUpdateTimestamp(timestamp).build();
+    }
+}
@@ -0,0 +1,62 @@
+package org.asamk.signal.manager.helper;
+
+import org.asamk.signal.manager.helper.ReceiveHelper.EndOfStream;
+import org.asamk.signal.manager.helper.ReceiveHelper.QueueEmpty;
+import org.asamk.signal.manager.helper.ReceiveHelper.ReceivedEnvelope;
+import org.asamk.signal.manager.helper.ReceiveHelper.ReceivedItem;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ReceiveHelperTest {
+
+    @Test
+    void dispatchContinuesAfterFailedHandlerAndFlush() throws Exception {
+        final var first = new ReceivedEnvelope(null, 1);
+        final var second = new ReceivedEnvelope(null, 2);
+        final var queue = new ArrayBlockingQueue<ReceivedItem>(4);
+        queue.addAll(List.of(first, new QueueEmpty(), second, new EndOfStream()));
+        final var dispatched = new ArrayList<ReceivedItem>();
+
+        runDispatchLoop(queue, item -> {
+            dispatched.add(item);
+            if (item == first) {
+                throw new RuntimeException("Failed to handle message");
+            } else if (item instanceof QueueEmpty) {
+                throw new RuntimeException("Failed to flush sessions");
+            }
+        });
+
+        assertEquals(List.of(first, new QueueEmpty(), second, new EndOfStream()), dispatched);
+    }
+
+    @Test
+    void dispatchStopsAfterFailedEndOfStream() throws Exception {
+        final var queue = new ArrayBlockingQueue<ReceivedItem>(1);
+        queue.add(new EndOfStream());
+
+        runDispatchLoop(queue, item -> {
+            throw new RuntimeException("Failed to flush sessions");
+        });
+
+        assertEquals(0, queue.size());
+    }
+
+    private static void runDispatchLoop(
+            final ArrayBlockingQueue<ReceivedItem> queue,
+            final Consumer<ReceivedItem> dispatcher
+    ) throws InterruptedException {
+        final var thread = Thread.ofVirtual().start(() -> ReceiveHelper.runDispatchLoop(queue, () -> {
+            throw new RuntimeException("Failed to retry messages");
+        }, dispatcher));
+        thread.join(Duration.ofSeconds(10));
+        assertFalse(thread.isAlive());
+    }
+}
@@ -0,0 +1,74 @@
+package org.asamk.signal.manager.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageTimestampAllocatorTest {
+
+    @Test
+    void borrowsAheadOfFrozenClockWithinSkew() {
+        final var allocator = new MessageTimestampAllocator(() -> 1000L, 10);
+        for (var i = 0; i <= 10; i++) {
+            assertEquals(1000L + i, allocator.next());
+        }
+    }
+
+    @Test
+    void catchesUpWithClock() {
+        final var clock = new AtomicLong(1000L);
+        final var allocator = new MessageTimestampAllocator(clock::get, 10);
+        assertEquals(1000L, allocator.next());
+        assertEquals(1001L, allocator.next());
+        clock.set(2000L);
+        assertEquals(2000L, allocator.next());
+    }
+
+    @Test
+    void waitsWhenSkewIsExhausted() {
+        final var clock = new AtomicLong(1000L);
+        final var allocator = new MessageTimestampAllocator(clock::get, 2);
+        allocator.next();
+        allocator.next();
+        allocator.next();
+        Thread.ofVirtual().start(() -> clock.set(1005L));
+        assertEquals(1005L, allocator.next());
+    }
+
+    @Test
+    void uniqueAndMonotonicUnderConcurrency() throws Exception {
+        // Large skew, so the test doesn't have to wait for the clock
+        final var allocator = new MessageTimestampAllocator(System::currentTimeMillis, 1_000_000);
+        final var threads = 1000;
+        final var perThread = 200;
+        final var results = new ConcurrentLinkedQueue<List<Long>>();
+        try (final var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var t = 0; t < threads; t++) {
+                executor.submit(() -> {
+                    final var timestamps = new ArrayList<Long>(perThread);
+                    for (var i = 0; i < perThread; i++) {
+                        timestamps.add(allocator.next());
+                    }
+                    results.add(timestamps);
+                });
+            }
+        }
+
+        final var all = new HashSet<Long>();
+        for (final var timestamps : results) {
+            for (var i = 1; i < timestamps.size(); i++) {
+                assertTrue(timestamps.get(i) > timestamps.get(i - 1));
+            }
+            all.addAll(timestamps);
+        }
+        assertEquals(threads * perThread, all.size());
+    }
+}
@@ -0,0 +1,29 @@
+package org.asamk.signal.manager.internal;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ResourceManagerTest {
+
+    @Test
+    void singleAccountKeepsFullPool() {
+        assertEquals(50, ResourceManager.getConnectionsPerAccount(200, 1));
+    }
+
+    @Test
+    void targetIsSplitEvenly() {
+        assertEquals(20, ResourceManager.getConnectionsPerAccount(200, 10));
+    }
+
+    @Test
+    void targetIsReachedWithMinimumConnections() {
+        assertEquals(2, ResourceManager.getConnectionsPerAccount(200, 100));
+    }
+
+    @Test
+    void targetIsExceededWithMoreAccounts() {
+        // The target isn't a hard limit, 300 accounts use 600 connections
+        assertEquals(2, ResourceManager.getConnectionsPerAccount(200, 300));
+    }
+}
@@ -0,0 +1,151 @@
+package org.asamk.signal.manager.internal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.whispersystems.signalservice.api.websocket.WebSocketConnectionState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SignalWebSocketHealthMonitorTest {
+
+    private final AtomicLong clock = new AtomicLong(1000);
+    private final TestScheduler scheduler = new TestScheduler();
+    private final TestWebSocket webSocket = new TestWebSocket();
+    private final SignalWebSocketHealthMonitor monitor = new SignalWebSocketHealthMonitor(clock::get, scheduler);
+
+    @AfterEach
+    void tearDown() {
+        scheduler.futures.shutdownNow();
+    }
+
+    @Test
+    void keepAlivesAreCancelledOnDisconnect() {
+        monitor.monitor(webSocket);
+
+        monitor.onStateChanged(WebSocketConnectionState.CONNECTED);
+        assertEquals(1, scheduler.periodicTasks.size());
+        final var keepAliveSender = scheduler.periodicTasks.getFirst();
+
+        monitor.onStateChanged(WebSocketConnectionState.DISCONNECTED);
+        assertTrue(keepAliveSender.future().isCancelled());
+
+        keepAliveSender.task().run();
+        assertEquals(0, webSocket.keepAlives.get());
+    }
+
+    @Test
+    void missedKeepAliveForcesNewWebSocket() {
+        monitor.monitor(webSocket);
+        monitor.onStateChanged(WebSocketConnectionState.CONNECTED);
+
+        clock.addAndGet(30_000);
+        scheduler.periodicTasks.getFirst().task().run();
+        assertEquals(1, webSocket.keepAlives.get());
+
+        clock.addAndGet(SignalWebSocketHealthMonitor.KEEP_ALIVE_TIMEOUT);
+        scheduler.delayedTasks.getFirst().task().run();
+
+        assertEquals(1, webSocket.newWebSockets.get());
+        assertEquals(1, monitor.getStatistics().missed());
+    }
+
+    @Test
+    void answeredKeepAliveKeepsWebSocket() {
+        monitor.monitor(webSocket);
+        monitor.onStateChanged(WebSocketConnectionState.CONNECTED);
+
+        clock.addAndGet(30_000);
+        scheduler.periodicTasks.getFirst().task().run();
+        final var sentTimestamp = clock.get();
+        clock.addAndGet(150);
+        monitor.onKeepAliveResponse(sentTimestamp, true);
+        clock.addAndGet(SignalWebSocketHealthMonitor.KEEP_ALIVE_TIMEOUT);
+        scheduler.delayedTasks.getFirst().task().run();
+
+        assertEquals(0, webSocket.newWebSockets.get());
+        assertEquals(0, monitor.getStatistics().missed());
+    }
+
+    @Test
+    void roundTripTimesAreRecorded() {
+        monitor.monitor(webSocket);
+
+        monitor.onKeepAliveResponse(clock.get() - 100, true);
+        monitor.onKeepAliveResponse(clock.get() - 300, true);
+        monitor.onKeepAliveResponse(clock.get() - 200, true);
+
+        final var statistics = monitor.getStatistics();
+        assertEquals(3, statistics.responses());
+        assertEquals(200, statistics.lastRttMillis());
+        assertEquals(100, statistics.minRttMillis());
+        assertEquals(300, statistics.maxRttMillis());
+        assertEquals(200, statistics.avgRttMillis());
+    }
+
+    @Test
+    void noKeepAlivesAreSentWhenWebSocketDoesNotNeedThem() {
+        webSocket.shouldSendKeepAlives = false;
+        monitor.monitor(webSocket);
+
+        monitor.onStateChanged(WebSocketConnectionState.CONNECTED);
+
+        assertTrue(scheduler.periodicTasks.isEmpty());
+    }
+
+    private record ScheduledTask(Runnable task, ScheduledFuture<?> future) {}
+
+    /**
+     * Records the tasks instead of running them, the tests run them manually.
+     */
+    private static class TestScheduler implements SignalWebSocketHealthMonitor.KeepAliveScheduler {
+
+        private final ScheduledThreadPoolExecutor futures = new ScheduledThreadPoolExecutor(1);
+        private final List<ScheduledTask> periodicTasks = new ArrayList<>();
+        private final List<ScheduledTask> delayedTasks = new ArrayList<>();
+
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(final Runnable task, final long periodMillis) {
+            final var future = futures.schedule(() -> {}, 1, TimeUnit.DAYS);
+            periodicTasks.add(new ScheduledTask(task, future));
+            return future;
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(final Runnable task, final long delayMillis) {
+            final var future = futures.schedule(() -> {}, 1, TimeUnit.DAYS);
+            delayedTasks.add(new ScheduledTask(task, future));
+            return future;
+        }
+    }
+
+    private static class TestWebSocket implements SignalWebSocketHealthMonitor.MonitoredWebSocket {
+
+        private final AtomicInteger keepAlives = new AtomicInteger();
+        private final AtomicInteger newWebSockets = new AtomicInteger();
+        private boolean shouldSendKeepAlives = true;
+
+        @Override
+        public boolean shouldSendKeepAlives() {
+            return shouldSendKeepAlives;
+        }
+
+        @Override
+        public void sendKeepAlive() {
+            keepAlives.incrementAndGet();
+        }
+
+        @Override
+        public void forceNewWebSocket() {
+            newWebSockets.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.asamk.signal.manager.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StripedSignalSessionLockTest {
+
+    private final StripedSignalSessionLock sessionLock = new StripedSignalSessionLock();
+
+    @Test
+    void differentAddressesDoNotBlock() throws Exception {
+        try (final var ignored = sessionLock.declareAddresses(List.of("a"))) {
+            try (final var lock = sessionLock.acquire()) {
+                acquireInOtherThread(List.of("b")).get(1, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    @Test
+    void sameAddressBlocks() throws Exception {
+        final CompletableFuture<Void> other;
+        try (final var ignored = sessionLock.declareAddresses(List.of("a"))) {
+            try (final var lock = sessionLock.acquire()) {
+                other = acquireInOtherThread(List.of("b", "a"));
+                assertThrows(TimeoutException.class, () -> other.get(100, TimeUnit.MILLISECONDS));
+            }
+        }
+        other.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void undeclaredAddressesAreExclusive() throws Exception {
+        final CompletableFuture<Void> other;
+        try (final var ignored = sessionLock.declareAddresses(List.of("a"))) {
+            try (final var lock = sessionLock.acquire()) {
+                other = acquireInOtherThread(null);
+                assertThrows(TimeoutException.class, () -> other.get(100, TimeUnit.MILLISECONDS));
+            }
+        }
+        other.get(1, TimeUnit.SECONDS);
+        assertEquals(1, sessionLock.getExclusiveStatistics().acquisitions());
+        assertEquals(1, sessionLock.getStripedStatistics().acquisitions());
+    }
+
+    @Test
+    void executorTasksUseDeclaredAddresses() throws Exception {
+        try (final var executor = sessionLock.propagateAddresses(Executors.newSingleThreadExecutor())) {
+            try (final var ignored = sessionLock.declareAddresses(List.of("a"))) {
+                executor.submit(() -> sessionLock.acquire().close()).get(1, TimeUnit.SECONDS);
+            }
+            executor.submit(() -> sessionLock.acquire().close()).get(1, TimeUnit.SECONDS);
+        }
+        assertEquals(1, sessionLock.getStripedStatistics().acquisitions());
+        assertEquals(1, sessionLock.getExclusiveStatistics().acquisitions());
+    }
+
+    @Test
+    void overlappingAddressSetsDoNotDeadlock() throws Exception {
+        final var start = new CountDownLatch(1);
+        final var first = CompletableFuture.runAsync(() -> lockRepeatedly(start, List.of("a", "b", "c")));
+        final var second = CompletableFuture.runAsync(() -> lockRepeatedly(start, List.of("c", "b", "a")));
+        start.countDown();
+        CompletableFuture.allOf(first, second).get(10, TimeUnit.SECONDS);
+    }
+
+    private CompletableFuture<Void> acquireInOtherThread(final List<String> addressNames) {
+        return CompletableFuture.runAsync(() -> {
+            if (addressNames == null) {
+                sessionLock.acquire().close();
+                return;
+            }
+            try (final var ignored = sessionLock.declareAddresses(addressNames)) {
+                sessionLock.acquire().close();
+            }
+        });
+    }
+
+    private void lockRepeatedly(final CountDownLatch start, final List<String> addressNames) {
+        try {
+            start.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        for (var i = 0; i < 10_000; i++) {
+            // Declared one by one, like nested send scopes
+            try (final var outer = sessionLock.declareAddresses(List.of(addressNames.getFirst()))) {
+                try (final var inner = sessionLock.declareAddresses(addressNames.subList(1, addressNames.size()))) {
+                    sessionLock.acquire().close();
+                }
+            }
+        }
+    }
+}
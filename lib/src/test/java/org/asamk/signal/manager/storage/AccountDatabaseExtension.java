@@ -0,0 +1,64 @@
+package org.asamk.signal.manager.storage;
+
+import org.asamk.signal.manager.storage.recipients.RecipientAddress;
+import org.asamk.signal.manager.storage.recipients.RecipientId;
+import org.asamk.signal.manager.storage.recipients.RecipientStore;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.signal.core.models.ServiceId.ACI;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * Creates an empty account database in a temporary directory for each test, with a recipient store for it.
+ * <p>
+ * Register it with {@code @RegisterExtension}, the database is ready before the {@code @BeforeEach} methods of the
+ * test run and is closed and deleted after the test.
+ */
+public class AccountDatabaseExtension implements BeforeEachCallback, AfterEachCallback {
+
+    private Path directory;
+    private AccountDatabase database;
+    private RecipientStore recipientStore;
+
+    @Override
+    public void beforeEach(final ExtensionContext context) throws Exception {
+        directory = Files.createTempDirectory("signal-cli-test");
+        database = AccountDatabase.init(directory.resolve("account.db").toFile());
+        final var self = new RecipientAddress(ACI.from(UUID.randomUUID()));
+        recipientStore = new RecipientStore((connection, recipientId, toBeMergedRecipientId) -> {},
+                () -> self,
+                () -> null,
+                database);
+    }
+
+    @Override
+    public void afterEach(final ExtensionContext context) throws IOException {
+        database.close();
+        try (final var paths = Files.walk(directory)) {
+            for (final var path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    public AccountDatabase database() {
+        return database;
+    }
+
+    public RecipientStore recipientStore() {
+        return recipientStore;
+    }
+
+    /**
+     * @return a new recipient with a random ACI
+     */
+    public RecipientId createRecipient() {
+        return recipientStore.resolveRecipient(new RecipientAddress(ACI.from(UUID.randomUUID())));
+    }
+}
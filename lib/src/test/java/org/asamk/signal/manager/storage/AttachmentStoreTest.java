@@ -0,0 +1,131 @@
+package org.asamk.signal.manager.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AttachmentStoreTest {
+
+    private static final byte[] KEY = {1, 2, 3};
+    private static final byte[] DIGEST = {4, 5, 6};
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void identicalAttachmentIsDownloadedOnce() throws IOException {
+        final var store = new AttachmentStore(tempDir, 0);
+        final var downloads = new AtomicInteger();
+        final AttachmentStore.AttachmentStorer storer = output -> {
+            downloads.incrementAndGet();
+            output.write(new byte[]{42, 43});
+        };
+
+        store.storeAttachment(new File(tempDir, "first.jpg"), KEY, DIGEST, storer);
+        store.storeAttachment(new File(tempDir, "second.jpg"), KEY, DIGEST, storer);
+
+        assertEquals(1, downloads.get());
+        assertArrayEquals(new byte[]{42, 43}, Files.readAllBytes(new File(tempDir, "second.jpg").toPath()));
+        try (final var streamDetails = store.retrieveAttachment("first.jpg")) {
+            assertArrayEquals(new byte[]{42, 43}, streamDetails.getStream().readAllBytes());
+        }
+        final var statistics = store.getStatistics();
+        assertEquals(1, statistics.hits());
+        assertEquals(1, statistics.misses());
+        assertEquals(2, statistics.bytesSaved());
+    }
+
+    @Test
+    void sameDigestWithOtherKeyIsDownloadedAgain() throws IOException {
+        final var store = new AttachmentStore(tempDir, 0);
+        final var downloads = new AtomicInteger();
+        final AttachmentStore.AttachmentStorer storer = output -> output.write(downloads.incrementAndGet());
+
+        store.storeAttachment(new File(tempDir, "first.jpg"), KEY, DIGEST, storer);
+        store.storeAttachment(new File(tempDir, "second.jpg"), new byte[]{9}, DIGEST, storer);
+
+        assertEquals(2, downloads.get());
+    }
+
+    @Test
+    void leastRecentlyUsedAttachmentsAreEvicted() throws IOException {
+        final var store = new AttachmentStore(tempDir, 25);
+        final AttachmentStore.AttachmentStorer storer = output -> output.write(new byte[10]);
+
+        store.storeAttachment(new File(tempDir, "a.jpg"), KEY, new byte[]{1}, storer);
+        store.storeAttachment(new File(tempDir, "b.jpg"), KEY, new byte[]{2}, storer);
+        // Mark "a" as older than "b"
+        Files.setLastModifiedTime(new File(tempDir, "a.jpg").toPath(), FileTime.fromMillis(1000));
+        store.storeAttachment(new File(tempDir, "c.jpg"), KEY, new byte[]{3}, storer);
+
+        assertFalse(new File(tempDir, "a.jpg").exists());
+        assertTrue(new File(tempDir, "b.jpg").exists());
+        assertTrue(new File(tempDir, "c.jpg").exists());
+        assertEquals(10, store.getStatistics().evictedBytes());
+    }
+
+    @Test
+    void storedAttachmentIsKeptEvenAboveQuota() throws IOException {
+        final var store = new AttachmentStore(tempDir, 5);
+
+        store.storeAttachment(new File(tempDir, "a.jpg"), KEY, DIGEST, output -> output.write(new byte[10]));
+
+        assertTrue(new File(tempDir, "a.jpg").exists());
+    }
+
+    @Test
+    void evictionRemovesAllAttachmentFilesOfBlob() throws IOException {
+        final var store = new AttachmentStore(tempDir, 25);
+        final AttachmentStore.AttachmentStorer storer = output -> output.write(new byte[10]);
+
+        store.storeAttachment(new File(tempDir, "a1.jpg"), KEY, new byte[]{1}, storer);
+        store.storeAttachment(new File(tempDir, "a2.jpg"), KEY, new byte[]{1}, storer);
+        store.storeAttachment(new File(tempDir, "b.jpg"), KEY, new byte[]{2}, storer);
+        // Mark "a" as older than "b"
+        Files.setLastModifiedTime(new File(tempDir, "a1.jpg").toPath(), FileTime.fromMillis(1000));
+        store.storeAttachment(new File(tempDir, "c.jpg"), KEY, new byte[]{3}, storer);
+
+        assertFalse(new File(tempDir, "a1.jpg").exists());
+        assertFalse(new File(tempDir, "a2.jpg").exists());
+        assertTrue(new File(tempDir, "b.jpg").exists());
+        assertEquals(10, store.getStatistics().evictedBytes());
+    }
+
+    @Test
+    void withoutHardLinksAttachmentsAreStoredWithoutDeduplication() throws IOException {
+        final var store = new AttachmentStore(tempDir, 15) {
+            @Override
+            void createLink(final Path link, final Path existing) {
+                throw new UnsupportedOperationException("Hard links aren't supported");
+            }
+        };
+        final var downloads = new AtomicInteger();
+        final AttachmentStore.AttachmentStorer storer = output -> {
+            downloads.incrementAndGet();
+            output.write(new byte[10]);
+        };
+
+        store.storeAttachment(new File(tempDir, "first.jpg"), KEY, DIGEST, storer);
+        store.storeAttachment(new File(tempDir, "second.jpg"), KEY, DIGEST, storer);
+
+        assertEquals(2, downloads.get());
+        assertEquals(10, Files.size(new File(tempDir, "first.jpg").toPath()));
+        assertEquals(10, Files.size(new File(tempDir, "second.jpg").toPath()));
+        assertArrayEquals(new String[0], new File(tempDir, ".blobs").list());
+        final var statistics = store.getStatistics();
+        assertEquals(0, statistics.hits());
+        assertEquals(0, statistics.bytesSaved());
+        assertEquals(0, statistics.evictedBytes());
+    }
+}
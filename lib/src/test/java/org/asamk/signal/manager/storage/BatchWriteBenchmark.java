@@ -0,0 +1,134 @@
+package org.asamk.signal.manager.storage;
+
+import org.asamk.signal.manager.api.GroupId;
+import org.asamk.signal.manager.storage.groups.GroupInfoV1;
+import org.asamk.signal.manager.storage.groups.GroupStore;
+import org.asamk.signal.manager.storage.recipients.RecipientId;
+import org.asamk.signal.manager.util.KeyUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.whispersystems.signalservice.api.storage.StorageId;
+
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the write throughput of single statements with batched statements.
+ * Excluded from the test task, run it with {@code ./gradlew :lib:benchmark}.
+ */
+@Tag("benchmark")
+class BatchWriteBenchmark {
+
+    private static final int ROW_COUNT = 2000;
+
+    @RegisterExtension
+    final AccountDatabaseExtension db = new AccountDatabaseExtension();
+
+    private GroupStore groupStore;
+    private List<RecipientId> recipients;
+
+    @BeforeEach
+    void setUp() {
+        groupStore = new GroupStore(db.database(), db.recipientStore(), db.recipientStore());
+        recipients = IntStream.range(0, ROW_COUNT).mapToObj(i -> db.createRecipient()).toList();
+    }
+
+    @Test
+    void storageIdUpdates() throws SQLException {
+        final var singleDuration = measure(() -> {
+            try (final var connection = db.database().getConnection()) {
+                connection.setAutoCommit(false);
+                try (final var statement = connection.prepareStatement(
+                        "UPDATE recipient SET storage_id = ? WHERE _id = ?")) {
+                    for (final var recipientId : recipients) {
+                        statement.setBytes(1, KeyUtils.createRawStorageId());
+                        statement.setLong(2, recipientId.id());
+                        statement.executeUpdate();
+                    }
+                }
+                connection.commit();
+            }
+        });
+
+        final var storageIds = new HashMap<RecipientId, StorageId>();
+        for (final var recipientId : recipients) {
+            storageIds.put(recipientId, StorageId.forContact(KeyUtils.createRawStorageId()));
+        }
+        final var batchedDuration = measure(() -> {
+            try (final var connection = db.database().getConnection()) {
+                connection.setAutoCommit(false);
+                db.recipientStore().updateStorageIds(connection, storageIds);
+                connection.commit();
+            }
+        });
+
+        print("Storage id updates", singleDuration, batchedDuration);
+    }
+
+    @Test
+    void largeGroupMemberInserts() throws SQLException {
+        final var singleGroup = createGroup();
+        final var singleDuration = measure(() -> {
+            try (final var connection = db.database().getConnection()) {
+                connection.setAutoCommit(false);
+                final long internalId;
+                try (final var statement = connection.prepareStatement("SELECT _id FROM group_v1 WHERE group_id = ?")) {
+                    statement.setBytes(1, singleGroup.getGroupId().serialize());
+                    internalId = Utils.executeQuerySingleRow(statement, Utils::getIdMapper);
+                }
+                try (final var statement = connection.prepareStatement(
+                        "INSERT INTO group_v1_member (group_id, recipient_id) VALUES (?, ?)")) {
+                    for (final var recipientId : recipients) {
+                        statement.setLong(1, internalId);
+                        statement.setLong(2, recipientId.id());
+                        statement.executeUpdate();
+                    }
+                }
+                connection.commit();
+            }
+        });
+
+        final var batchedGroup = createGroup();
+        batchedGroup.addMembers(recipients);
+        final var batchedDuration = measure(() -> groupStore.updateGroup(batchedGroup));
+
+        print("Group member inserts", singleDuration, batchedDuration);
+    }
+
+    private GroupInfoV1 createGroup() {
+        final var id = new byte[16];
+        new SecureRandom().nextBytes(id);
+        final var group = new GroupInfoV1(GroupId.v1(id));
+        groupStore.updateGroup(group);
+        return group;
+    }
+
+    private static long measure(final Operation operation) throws SQLException {
+        final var start = System.nanoTime();
+        operation.run();
+        return System.nanoTime() - start;
+    }
+
+    private static void print(final String name, final long singleDuration, final long batchedDuration) {
+        System.out.printf("%s for %d rows: single statements %d rows/s, batched statements %d rows/s%n",
+                name,
+                ROW_COUNT,
+                rowsPerSecond(singleDuration),
+                rowsPerSecond(batchedDuration));
+    }
+
+    private static long rowsPerSecond(final long duration) {
+        return ROW_COUNT * TimeUnit.SECONDS.toNanos(1) / Math.max(duration, 1);
+    }
+
+    private interface Operation {
+
+        void run() throws SQLException;
+    }
+}
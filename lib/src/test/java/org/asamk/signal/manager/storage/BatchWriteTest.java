@@ -0,0 +1,93 @@
+package org.asamk.signal.manager.storage;
+
+import org.asamk.signal.manager.api.GroupId;
+import org.asamk.signal.manager.storage.groups.GroupInfoV1;
+import org.asamk.signal.manager.storage.groups.GroupStore;
+import org.asamk.signal.manager.storage.recipients.RecipientId;
+import org.asamk.signal.manager.util.KeyUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.whispersystems.signalservice.api.storage.StorageId;
+
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BatchWriteTest {
+
+    private static final int ROW_COUNT = 2000;
+
+    @RegisterExtension
+    final AccountDatabaseExtension db = new AccountDatabaseExtension();
+
+    private GroupStore groupStore;
+    private List<RecipientId> recipients;
+
+    @BeforeEach
+    void setUp() {
+        groupStore = new GroupStore(db.database(), db.recipientStore(), db.recipientStore());
+        recipients = IntStream.range(0, ROW_COUNT).mapToObj(i -> db.createRecipient()).toList();
+    }
+
+    @Test
+    void storageIdUpdates() throws SQLException {
+        final var storageIds = new HashMap<RecipientId, StorageId>();
+        for (final var recipientId : recipients) {
+            storageIds.put(recipientId, StorageId.forContact(KeyUtils.createRawStorageId()));
+        }
+        try (final var connection = db.database().getConnection()) {
+            connection.setAutoCommit(false);
+            db.recipientStore().updateStorageIds(connection, storageIds);
+            connection.commit();
+        }
+
+        try (final var connection = db.database().getConnection()) {
+            for (final var entry : storageIds.entrySet()) {
+                assertArrayEquals(entry.getValue().getRaw(),
+                        db.recipientStore().getStorageId(connection, entry.getKey()).getRaw());
+            }
+        }
+    }
+
+    @Test
+    void largeGroupMemberInserts() throws SQLException {
+        final var group = createGroup();
+        group.addMembers(recipients);
+        groupStore.updateGroup(group);
+
+        assertEquals(ROW_COUNT, groupStore.getGroup(group.getGroupId()).getMemberRecipientIds().size());
+        try (final var connection = db.database().getConnection()) {
+            try (final var statement = connection.prepareStatement("SELECT COUNT(*) FROM group_v1_member")) {
+                assertEquals(ROW_COUNT, Utils.executeQuerySingleRow(statement, res -> res.getInt(1)));
+            }
+        }
+    }
+
+    @Test
+    void executeBatchCountsRowsOfAllFlushes() throws SQLException {
+        try (final var connection = db.database().getConnection()) {
+            connection.setAutoCommit(false);
+            try (final var statement = connection.prepareStatement(
+                    "UPDATE recipient SET storage_id = NULL WHERE _id = ?")) {
+                final Utils.StatementBinder<RecipientId> binder = (stmt, id) -> stmt.setLong(1, id.id());
+                assertEquals(ROW_COUNT, Utils.executeBatch(statement, recipients, binder));
+                assertEquals(0, Utils.executeBatch(statement, List.of(), binder));
+            }
+            connection.commit();
+        }
+    }
+
+    private GroupInfoV1 createGroup() {
+        final var id = new byte[16];
+        new SecureRandom().nextBytes(id);
+        final var group = new GroupInfoV1(GroupId.v1(id));
+        groupStore.updateGroup(group);
+        return group;
+    }
+}
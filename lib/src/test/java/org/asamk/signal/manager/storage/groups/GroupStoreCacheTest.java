@@ -0,0 +1,81 @@
+package org.asamk.signal.manager.storage.groups;
+
+import org.asamk.signal.manager.api.GroupId;
+import org.asamk.signal.manager.api.GroupIdV1;
+import org.asamk.signal.manager.storage.AccountDatabaseExtension;
+import org.asamk.signal.manager.storage.recipients.RecipientId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.security.SecureRandom;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GroupStoreCacheTest {
+
+    @RegisterExtension
+    final AccountDatabaseExtension db = new AccountDatabaseExtension();
+
+    private GroupStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new GroupStore(db.database(), db.recipientStore(), db.recipientStore());
+    }
+
+    @Test
+    void returnedGroupsCanBeModifiedWithoutAffectingCache() {
+        final var groupId = createGroup(Set.of(db.createRecipient()));
+
+        store.getGroup(groupId).setBlocked(true);
+        assertFalse(store.getGroup(groupId).isBlocked());
+
+        final var group = store.getGroup(groupId);
+        group.setBlocked(true);
+        store.updateGroup(group);
+        assertTrue(store.getGroup(groupId).isBlocked());
+        assertTrue(store.getGroups().getFirst().isBlocked());
+    }
+
+    @Test
+    void getGroupsSeesNewGroups() {
+        createGroup(Set.of(db.createRecipient()));
+        assertEquals(1, store.getGroups().size());
+
+        createGroup(Set.of(db.createRecipient()));
+        assertEquals(2, store.getGroups().size());
+
+        store.deleteGroup(store.getGroups().getFirst().getGroupId());
+        assertEquals(1, store.getGroups().size());
+    }
+
+    @Test
+    void memberIndexFollowsMembershipChanges() {
+        final var alice = db.createRecipient();
+        final var bob = db.createRecipient();
+        final var groupId = createGroup(Set.of(alice, bob));
+        final var otherGroupId = createGroup(Set.of(alice));
+
+        assertEquals(Set.of(groupId, otherGroupId), store.getGroupIdsWithMember(alice));
+        assertEquals(Set.of(groupId), store.getGroupIdsWithMember(bob));
+
+        final var group = (GroupInfoV1) store.getGroup(groupId);
+        group.removeMember(bob);
+        store.updateGroup(group);
+        assertEquals(Set.of(), store.getGroupIdsWithMember(bob));
+        assertEquals(Set.of(groupId, otherGroupId), store.getGroupIdsWithMember(alice));
+    }
+
+    private GroupIdV1 createGroup(final Set<RecipientId> members) {
+        final var id = new byte[16];
+        new SecureRandom().nextBytes(id);
+        final var group = new GroupInfoV1(GroupId.v1(id));
+        group.addMembers(members);
+        store.updateGroup(group);
+        return group.getGroupId();
+    }
+}
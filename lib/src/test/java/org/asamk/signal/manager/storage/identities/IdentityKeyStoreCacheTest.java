@@ -0,0 +1,88 @@
+package org.asamk.signal.manager.storage.identities;
+
+import org.asamk.signal.manager.api.TrustLevel;
+import org.asamk.signal.manager.api.TrustNewIdentity;
+import org.asamk.signal.manager.storage.AccountDatabaseExtension;
+import org.asamk.signal.manager.util.KeyUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.signal.core.models.ServiceId.ACI;
+import org.signal.libsignal.protocol.state.IdentityKeyStore.Direction;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdentityKeyStoreCacheTest {
+
+    @RegisterExtension
+    final AccountDatabaseExtension db = new AccountDatabaseExtension();
+
+    private IdentityKeyStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new IdentityKeyStore(db.database(), TrustNewIdentity.ON_FIRST_USE, db.recipientStore());
+    }
+
+    @Test
+    void trustLevelChangesAreVisible() {
+        final var aci = ACI.from(UUID.randomUUID());
+        final var identityKey = KeyUtils.generateIdentityKeyPair().getPublicKey();
+
+        assertTrue(store.isTrustedIdentity(aci, identityKey, Direction.RECEIVING));
+        assertTrue(store.isTrustedIdentity(aci, identityKey, Direction.RECEIVING));
+
+        store.setIdentityTrustLevel(aci, identityKey, TrustLevel.UNTRUSTED);
+        assertFalse(store.isTrustedIdentity(aci, identityKey, Direction.RECEIVING));
+
+        store.setIdentityTrustLevel(aci, identityKey, TrustLevel.TRUSTED_VERIFIED);
+        assertTrue(store.isTrustedIdentity(aci, identityKey, Direction.RECEIVING));
+    }
+
+    @Test
+    void changedIdentityIsNotTrusted() {
+        final var aci = ACI.from(UUID.randomUUID());
+        final var identityKey = KeyUtils.generateIdentityKeyPair().getPublicKey();
+        final var newIdentityKey = KeyUtils.generateIdentityKeyPair().getPublicKey();
+
+        assertTrue(store.isTrustedIdentity(aci, identityKey, Direction.RECEIVING));
+        assertFalse(store.isTrustedIdentity(aci, newIdentityKey, Direction.RECEIVING));
+
+        store.saveIdentity(aci, newIdentityKey);
+        assertFalse(store.isTrustedIdentity(aci, newIdentityKey, Direction.RECEIVING));
+        assertFalse(store.isTrustedIdentity(aci, identityKey, Direction.RECEIVING));
+        assertEquals(newIdentityKey, store.getIdentityInfo(aci).getIdentityKey());
+    }
+
+    @Test
+    void deletedIdentityIsTrustedOnFirstUseAgain() {
+        final var aci = ACI.from(UUID.randomUUID());
+        final var identityKey = KeyUtils.generateIdentityKeyPair().getPublicKey();
+        final var newIdentityKey = KeyUtils.generateIdentityKeyPair().getPublicKey();
+
+        assertTrue(store.isTrustedIdentity(aci, identityKey, Direction.RECEIVING));
+        store.deleteIdentity(aci);
+        assertNull(store.getIdentityInfo(aci));
+        assertTrue(store.isTrustedIdentity(aci, newIdentityKey, Direction.RECEIVING));
+    }
+
+    @Test
+    void loadedCacheMatchesDatabase() {
+        final var aci = ACI.from(UUID.randomUUID());
+        final var identityKey = KeyUtils.generateIdentityKeyPair().getPublicKey();
+        store.saveIdentity(aci, identityKey);
+        store.setIdentityTrustLevel(aci, identityKey, TrustLevel.TRUSTED_VERIFIED);
+
+        final var restartedStore = new IdentityKeyStore(db.database(),
+                TrustNewIdentity.ON_FIRST_USE,
+                db.recipientStore());
+        restartedStore.loadIdentityCache();
+        assertEquals(TrustLevel.TRUSTED_VERIFIED, restartedStore.getIdentityInfo(aci).getTrustLevel());
+        assertTrue(restartedStore.isTrustedIdentity(aci, identityKey, Direction.SENDING));
+    }
+}
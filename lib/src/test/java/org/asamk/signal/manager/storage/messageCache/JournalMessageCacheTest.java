@@ -0,0 +1,113 @@
+package org.asamk.signal.manager.storage.messageCache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.whispersystems.signalservice.api.messages.SignalServiceEnvelope;
+import org.whispersystems.signalservice.internal.push.Envelope;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.asamk.signal.manager.storage.recipients.TestRecipientId.createTestId;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalMessageCacheTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void cachedMessagesSurviveReopen() {
+        final var journalPath = new File(tempDir, "msg-journal");
+        try (final var cache = new JournalMessageCache(journalPath)) {
+            cache.cacheMessage(envelope(1), createTestId(1));
+            cache.cacheMessage(envelope(2), null);
+            final var handled = cache.cacheMessage(envelope(3), createTestId(2));
+            handled.delete();
+        }
+
+        try (final var cache = new JournalMessageCache(journalPath)) {
+            final var messages = list(cache.getCachedMessages());
+            assertEquals(2, messages.size());
+            assertEquals(1, messages.get(0).loadEnvelope().getTimestamp());
+            assertEquals(1L, messages.get(0).getEntry().rawRecipientId());
+            assertEquals(2, messages.get(1).loadEnvelope().getTimestamp());
+            assertNull(messages.get(1).getEntry().rawRecipientId());
+        }
+    }
+
+    @Test
+    void replaceSenderAndMergeRecipients() throws Exception {
+        final var journalPath = new File(tempDir, "msg-journal");
+        try (final var cache = new JournalMessageCache(journalPath)) {
+            final var unknownSender = cache.cacheMessage(envelope(1), null);
+            cache.cacheMessage(envelope(2), createTestId(3));
+            cache.replaceSender(unknownSender, createTestId(2));
+            cache.mergeRecipients(createTestId(4), createTestId(3));
+        }
+
+        try (final var cache = new JournalMessageCache(journalPath)) {
+            final var messages = list(cache.getCachedMessages());
+            assertEquals(2L, messages.get(0).getEntry().rawRecipientId());
+            assertEquals(4L, messages.get(1).getEntry().rawRecipientId());
+
+            cache.deleteMessages(createTestId(4));
+            assertEquals(1, list(cache.getCachedMessages()).size());
+        }
+    }
+
+    @Test
+    void compactionKeepsLiveEntries() {
+        final var journalPath = new File(tempDir, "msg-journal");
+        try (final var cache = new JournalMessageCache(journalPath)) {
+            final var kept = cache.cacheMessage(envelope(0), createTestId(1));
+            for (var i = 1; i < 20_000; i++) {
+                cache.cacheMessage(envelope(i), createTestId(1)).delete();
+            }
+            assertEquals(0, kept.loadEnvelope().getTimestamp());
+        }
+
+        final var segments = journalPath.listFiles();
+        assertEquals(1, segments.length);
+        assertTrue(segments[0].length() < 1024 * 1024);
+        try (final var cache = new JournalMessageCache(journalPath)) {
+            final var messages = list(cache.getCachedMessages());
+            assertEquals(1, messages.size());
+            assertEquals(0, messages.getFirst().loadEnvelope().getTimestamp());
+        }
+    }
+
+    @Test
+    void migrateFromFileCache() {
+        final var messageCachePath = new File(tempDir, "msg-cache");
+        final var journalPath = new File(tempDir, "msg-journal");
+        final var fileCache = new FileMessageCache(messageCachePath);
+        fileCache.cacheMessage(envelope(1), createTestId(5));
+        fileCache.cacheMessage(envelope(2), null);
+
+        try (final var cache = MessageCache.open(messageCachePath, journalPath, true)) {
+            final var messages = list(cache.getCachedMessages());
+            assertEquals(2, messages.size());
+            assertFalse(fileCache.getCachedMessages().iterator().hasNext());
+        }
+
+        try (final var cache = MessageCache.open(messageCachePath, journalPath, false)) {
+            assertEquals(2, list(cache.getCachedMessages()).size());
+            assertFalse(journalPath.exists());
+        }
+    }
+
+    private static SignalServiceEnvelope envelope(long timestamp) {
+        return new SignalServiceEnvelope(new Envelope.Builder().timestamp(timestamp).build(), timestamp);
+    }
+
+    private static List<CachedMessage> list(Iterable<CachedMessage> messages) {
+        final var list = new ArrayList<CachedMessage>();
+        messages.forEach(list::add);
+        return list;
+    }
+}
@@ -0,0 +1,42 @@
+package org.asamk.signal.manager.storage.prekeys;
+
+import org.asamk.signal.manager.storage.AccountDatabaseExtension;
+import org.asamk.signal.manager.util.KeyUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.whispersystems.signalservice.api.push.ServiceIdType;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PreKeyStoreTest {
+
+    @RegisterExtension
+    final AccountDatabaseExtension db = new AccountDatabaseExtension();
+
+    @Test
+    void batchOfPreKeysIsStored() throws Exception {
+        final var store = new PreKeyStore(db.database(), ServiceIdType.ACI);
+        final var records = KeyUtils.generatePreKeyRecords(42);
+
+        store.storePreKeys(records);
+
+        for (final var record : records) {
+            assertArrayEquals(record.serialize(), store.loadPreKey(record.getId()).serialize());
+        }
+    }
+
+    @Test
+    void batchOfKyberPreKeysIsStored() throws Exception {
+        final var store = new KyberPreKeyStore(db.database(), ServiceIdType.ACI);
+        final var identityKeyPair = KeyUtils.generateIdentityKeyPair();
+        final var records = KeyUtils.generateKyberPreKeyRecords(42, identityKeyPair.getPrivateKey());
+
+        store.storeKyberPreKeys(records);
+
+        assertEquals(records.size(), store.loadKyberPreKeys().size());
+        for (final var record : records) {
+            assertArrayEquals(record.serialize(), store.loadKyberPreKey(record.getId()).serialize());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.asamk.signal.manager.storage.sessions;
+
+import org.asamk.signal.manager.storage.AccountDatabaseExtension;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.signal.core.models.ServiceId.ACI;
+import org.signal.libsignal.protocol.SignalProtocolAddress;
+import org.signal.libsignal.protocol.state.SessionRecord;
+import org.whispersystems.signalservice.api.push.ServiceIdType;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Compares loading the sessions of all members of a large group with a query per device, with the bulk queries
+ * and with the already cached sessions.
+ * Excluded from the test task, run it with {@code ./gradlew :lib:benchmark}.
+ */
+@Tag("benchmark")
+class SessionStoreBulkLookupBenchmark {
+
+    private static final int MEMBER_COUNT = 1000;
+
+    @RegisterExtension
+    final AccountDatabaseExtension db = new AccountDatabaseExtension();
+
+    private List<String> members;
+
+    @BeforeEach
+    void setUp() {
+        members = IntStream.range(0, MEMBER_COUNT).mapToObj(i -> ACI.from(UUID.randomUUID()).toString()).toList();
+
+        final var store = new SessionStore(db.database(), ServiceIdType.ACI);
+        for (var i = 0; i < members.size(); i++) {
+            store.storeSession(new SignalProtocolAddress(members.get(i), 1), new SessionRecord());
+            // Every third member has a linked device
+            if (i % 3 == 0) {
+                store.storeSession(new SignalProtocolAddress(members.get(i), 2), new SessionRecord());
+            }
+        }
+        store.flush();
+    }
+
+    @Test
+    void sessionLookup() {
+        final var singleStore = new SessionStore(db.database(), ServiceIdType.ACI);
+        final var singleStart = System.nanoTime();
+        for (final var member : members) {
+            singleStore.loadSession(new SignalProtocolAddress(member, 1));
+            for (final var deviceId : singleStore.getSubDeviceSessions(member)) {
+                singleStore.loadSession(new SignalProtocolAddress(member, deviceId));
+            }
+        }
+        final var singleDuration = System.nanoTime() - singleStart;
+
+        final var bulkStore = new SessionStore(db.database(), ServiceIdType.ACI);
+        final var bulkStart = System.nanoTime();
+        bulkStore.loadSessions(members);
+        final var bulkDuration = System.nanoTime() - bulkStart;
+
+        final var cachedStart = System.nanoTime();
+        bulkStore.loadSessions(members);
+        final var cachedDuration = System.nanoTime() - cachedStart;
+
+        System.out.printf(
+                "Session lookup for %d members: single queries %d ms, bulk queries %d ms, cached sessions %d ms%n",
+                MEMBER_COUNT,
+                TimeUnit.NANOSECONDS.toMillis(singleDuration),
+                TimeUnit.NANOSECONDS.toMillis(bulkDuration),
+                TimeUnit.NANOSECONDS.toMillis(cachedDuration));
+    }
+}
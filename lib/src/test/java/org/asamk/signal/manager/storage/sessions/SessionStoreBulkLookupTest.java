@@ -0,0 +1,117 @@
+package org.asamk.signal.manager.storage.sessions;
+
+import org.asamk.signal.manager.storage.AccountDatabaseExtension;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.signal.core.models.ServiceId.ACI;
+import org.signal.libsignal.protocol.SignalProtocolAddress;
+import org.signal.libsignal.protocol.state.SessionRecord;
+import org.whispersystems.signalservice.api.push.ServiceIdType;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionStoreBulkLookupTest {
+
+    private static final int MEMBER_COUNT = 1000;
+
+    @RegisterExtension
+    final AccountDatabaseExtension db = new AccountDatabaseExtension();
+
+    private List<String> members;
+
+    @BeforeEach
+    void setUp() {
+        members = IntStream.range(0, MEMBER_COUNT).mapToObj(i -> ACI.from(UUID.randomUUID()).toString()).toList();
+
+        final var store = new SessionStore(db.database(), ServiceIdType.ACI);
+        for (var i = 0; i < members.size(); i++) {
+            store.storeSession(new SignalProtocolAddress(members.get(i), 1), new SessionRecord());
+            // Every third member has a linked device
+            if (i % 3 == 0) {
+                store.storeSession(new SignalProtocolAddress(members.get(i), 2), new SessionRecord());
+            }
+        }
+        store.flush();
+    }
+
+    @Test
+    void bulkLookupMatchesSingleLookups() {
+        final var singleStore = new SessionStore(db.database(), ServiceIdType.ACI);
+        final var singleResult = lookupAllDevices(singleStore);
+
+        final var bulkStore = new SessionStore(db.database(), ServiceIdType.ACI);
+        final var loaded = bulkStore.loadSessions(members);
+        final var bulkResult = lookupAllDevices(bulkStore);
+
+        assertEquals(singleResult, bulkResult);
+        assertEquals(singleResult, loaded.keySet());
+        assertEquals(MEMBER_COUNT + (MEMBER_COUNT + 2) / 3, bulkResult.size());
+    }
+
+    @Test
+    void repeatedBulkLookupUsesCachedSessions() throws Exception {
+        final var store = new SessionStore(db.database(), ServiceIdType.ACI);
+        final var loaded = store.loadSessions(members);
+
+        try (final var connection = db.database().getConnection()) {
+            try (final var statement = connection.prepareStatement("DELETE FROM session")) {
+                statement.executeUpdate();
+            }
+        }
+
+        assertEquals(loaded, store.loadSessions(members));
+    }
+
+    @Test
+    void bulkLookupIncludesUnflushedSessions() {
+        final var store = new SessionStore(db.database(), ServiceIdType.ACI);
+        final var member = members.get(1);
+        store.storeSession(new SignalProtocolAddress(member, 3), new SessionRecord());
+
+        final var loaded = store.loadSessions(List.of(member));
+        assertEquals(Set.of(new SignalProtocolAddress(member, 1), new SignalProtocolAddress(member, 3)),
+                loaded.keySet());
+        assertEquals(List.of(3), store.getSubDeviceSessions(member));
+
+        store.deleteSession(new SignalProtocolAddress(member, 3));
+        assertEquals(List.of(), store.getSubDeviceSessions(member));
+    }
+
+    @Test
+    void subDeviceSessionsAreCachedAfterBulkLookup() {
+        final var store = new SessionStore(db.database(), ServiceIdType.ACI);
+        store.loadSessions(members);
+        final var member = members.getFirst();
+
+        assertEquals(List.of(2), store.getSubDeviceSessions(member));
+        store.storeSession(new SignalProtocolAddress(member, 4), new SessionRecord());
+        assertEquals(List.of(2, 4), store.getSubDeviceSessions(member));
+
+        store.deleteAllSessions(member);
+        assertTrue(store.getSubDeviceSessions(member).isEmpty());
+    }
+
+    private Set<SignalProtocolAddress> lookupAllDevices(final SessionStore store) {
+        final var addresses = new HashSet<SignalProtocolAddress>();
+        for (final var member : members) {
+            final var deviceIds = new ArrayList<Integer>();
+            deviceIds.add(1);
+            deviceIds.addAll(store.getSubDeviceSessions(member));
+            for (final var deviceId : deviceIds) {
+                final var address = new SignalProtocolAddress(member, deviceId);
+                store.loadSession(address);
+                addresses.add(address);
+            }
+        }
+        return addresses;
+    }
+}
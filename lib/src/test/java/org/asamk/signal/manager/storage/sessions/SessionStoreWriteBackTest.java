@@ -0,0 +1,121 @@
+package org.asamk.signal.manager.storage.sessions;
+
+import org.asamk.signal.manager.Settings;
+import org.asamk.signal.manager.api.ServiceEnvironment;
+import org.asamk.signal.manager.storage.AccountDatabase;
+import org.asamk.signal.manager.storage.AccountDatabaseExtension;
+import org.asamk.signal.manager.storage.SignalAccount;
+import org.asamk.signal.manager.util.KeyUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.signal.core.models.ServiceId.ACI;
+import org.signal.libsignal.protocol.SignalProtocolAddress;
+import org.signal.libsignal.protocol.state.SessionRecord;
+import org.whispersystems.signalservice.api.push.ServiceIdType;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SessionStoreWriteBackTest {
+
+    @RegisterExtension
+    final AccountDatabaseExtension db = new AccountDatabaseExtension();
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void sessionsAreWrittenOnFlush() throws SQLException {
+        final var store = new SessionStore(db.database(), ServiceIdType.ACI);
+
+        store.storeSession(createAddress(), new SessionRecord());
+        assertEquals(0, countSessionRows());
+
+        store.flush();
+        assertEquals(1, countSessionRows());
+    }
+
+    @Test
+    void repeatedlyStoredSessionIsWrittenOnce() throws SQLException {
+        final var store = new SessionStore(db.database(), ServiceIdType.ACI);
+        final var address = createAddress();
+
+        // Three stores of the same session count once against the dirty limit
+        for (var i = 0; i < 3; i++) {
+            store.storeSession(address, new SessionRecord());
+        }
+        for (var i = 0; i < SessionStore.MAX_DIRTY_SESSIONS - 2; i++) {
+            store.storeSession(createAddress(), new SessionRecord());
+        }
+        assertEquals(0, countSessionRows());
+
+        store.storeSession(createAddress(), new SessionRecord());
+        assertEquals(SessionStore.MAX_DIRTY_SESSIONS, countSessionRows());
+    }
+
+    @Test
+    void evictedDirtySessionIsStillWritten() throws SQLException {
+        final var store = new SessionStore(db.database(), ServiceIdType.ACI);
+        final var address = createAddress();
+        store.storeSession(address, new SessionRecord());
+
+        for (var i = 0; i < SessionStore.SESSION_CACHE_SIZE; i++) {
+            store.loadSession(createAddress());
+        }
+        assertEquals(0, countSessionRows());
+
+        store.flush();
+        assertEquals(1, countSessionRows());
+        final var otherStore = new SessionStore(db.database(), ServiceIdType.ACI);
+        assertEquals(1, otherStore.loadSessions(List.of(address.getName())).size());
+    }
+
+    @Test
+    void writeThroughStoresSessionsImmediately() throws SQLException {
+        final var store = new SessionStore(db.database(), ServiceIdType.ACI, true);
+
+        store.storeSession(createAddress(), new SessionRecord());
+
+        assertEquals(1, countSessionRows());
+    }
+
+    @Test
+    void sessionsAreWrittenWhenAccountIsClosed() throws Exception {
+        final var address = createAddress();
+        try (final var account = SignalAccount.create(tempDir,
+                "test",
+                "+491234567890",
+                ServiceEnvironment.LIVE,
+                KeyUtils.generateIdentityKeyPair(),
+                KeyUtils.generateIdentityKeyPair(),
+                KeyUtils.createProfileKey(),
+                Settings.DEFAULT)) {
+            account.getAccountData(ServiceIdType.ACI).getSessionStore().storeSession(address, new SessionRecord());
+        }
+
+        try (final var database = AccountDatabase.init(new File(tempDir, "test.d/account.db"))) {
+            final var sessions = new SessionStore(database, ServiceIdType.ACI).loadSessions(List.of(address.getName()));
+            assertEquals(1, sessions.size());
+        }
+    }
+
+    private int countSessionRows() throws SQLException {
+        try (final var connection = db.database().getConnection()) {
+            try (final var statement = connection.prepareStatement("SELECT COUNT(*) FROM session")) {
+                try (final var result = statement.executeQuery()) {
+                    result.next();
+                    return result.getInt(1);
+                }
+            }
+        }
+    }
+
+    private static SignalProtocolAddress createAddress() {
+        return new SignalProtocolAddress(ACI.from(UUID.randomUUID()).toString(), 1);
+    }
+}
@@ -36,6 +36,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static net.sourceforge.argparse4j.DefaultSettings.VERSION_0_9_0_DEFAULT_SETTINGS;
 import static org.asamk.signal.dbus.DbusCommandHandler.initDbusClient;
@@ -114,6 +115,73 @@ public class App {
                 .action(Arguments.storeTrue())
                 .setDefault(cfg.disableSendLog() != null ? cfg.disableSendLog() : false);
 
+        parser.addArgument("--message-cache-journal")
+                .help("Store received messages in an append-only journal, instead of one file per message, until they are handled.")
+                .action(Arguments.storeTrue())
+                .setDefault(cfg.messageCacheJournal() != null ? cfg.messageCacheJournal() : false);
+
+        parser.addArgument("--send-parallelism")
+                .help("Maximum number of direct messages sent concurrently per account, when sending to multiple recipients.")
+                .type(int.class)
+                .choices(Arguments.range(1, Integer.MAX_VALUE))
+                .setDefault(cfg.sendParallelism() != null
+                        ? cfg.sendParallelism()
+                        : Settings.DEFAULT.sendParallelism());
+
+        parser.addArgument("--crash-safe-sessions")
+                .help("Write session changes to disk immediately, instead of in batches.")
+                .action(Arguments.storeTrue())
+                .setDefault(cfg.crashSafeSessions() != null ? cfg.crashSafeSessions() : false);
+
+        parser.addArgument("--profile-ttl")
+                .help("Minutes after which profiles of other users are refreshed.")
+                .type(int.class)
+                .choices(Arguments.range(1, Integer.MAX_VALUE))
+                .setDefault(cfg.profileTtl() != null
+                        ? cfg.profileTtl()
+                        : (int) TimeUnit.MILLISECONDS.toMinutes(Settings.DEFAULT.profileTtl()));
+
+        parser.addArgument("--profile-refresh-rate")
+                .help("Maximum number of profiles refreshed per minute in the background before they expire, 0 to refresh them only when used.")
+                .type(int.class)
+                .choices(Arguments.range(0, Integer.MAX_VALUE))
+                .setDefault(cfg.profileRefreshRate() != null
+                        ? cfg.profileRefreshRate()
+                        : Settings.DEFAULT.profileRefreshRate());
+
+        parser.addArgument("--attachment-quota")
+                .help("Maximum size of received attachments in MiB, the least recently used are deleted when exceeded (0 for no limit).")
+                .type(int.class)
+                .choices(Arguments.range(0, Integer.MAX_VALUE))
+                .setDefault(cfg.attachmentQuota() != null ? cfg.attachmentQuota() : 0);
+
+        parser.addArgument("--upload-parallelism")
+                .help("Maximum number of attachments of a message uploaded concurrently.")
+                .type(int.class)
+                .choices(Arguments.range(1, Integer.MAX_VALUE))
+                .setDefault(cfg.uploadParallelism() != null
+                        ? cfg.uploadParallelism()
+                        : Settings.DEFAULT.uploadParallelism());
+
+        parser.addArgument("--lazy-accounts")
+                .help("In multi-account mode, load accounts only when they are first used.")
+                .action(Arguments.storeTrue())
+                .setDefault(cfg.lazyAccounts() != null ? cfg.lazyAccounts() : false);
+
+        parser.addArgument("--account-idle-timeout")
+                .help("With --lazy-accounts, minutes after which unused accounts are unloaded again (0 to keep them loaded).")
+                .type(int.class)
+                .choices(Arguments.range(0, Integer.MAX_VALUE))
+                .setDefault(cfg.accountIdleTimeout() != null ? cfg.accountIdleTimeout() : 0);
+
+        parser.addArgument("--database-connection-target")
+                .help("Target number of database connections of all loaded accounts. Each account uses at least 2, so the target is exceeded with many accounts.")
+                .type(int.class)
+                .choices(Arguments.range(1, Integer.MAX_VALUE))
+                .setDefault(cfg.databaseConnectionTarget() != null
+                        ? cfg.databaseConnectionTarget()
+                        : Settings.DEFAULT.databaseConnectionTarget());
+
         parser.epilog(
                 "The global arguments are shown with 'signal-cli -h' and need to come before the subcommand, while the subcommand-specific arguments (shown with 'signal-cli SUBCOMMAND -h') need to be given after the subcommand.");
 
@@ -253,12 +321,33 @@ public class App {
                 : trustNewIdentityCli == TrustNewIdentityCli.ALWAYS ? TrustNewIdentity.ALWAYS : TrustNewIdentity.NEVER;
 
         final var disableSendLog = Boolean.TRUE.equals(ns.getBoolean("disable-send-log"));
+        final var messageCacheJournal = Boolean.TRUE.equals(ns.getBoolean("message-cache-journal"));
+        final var sendParallelism = ns.getInt("send-parallelism");
+        final var crashSafeSessions = Boolean.TRUE.equals(ns.getBoolean("crash-safe-sessions"));
+        final var profileTtl = TimeUnit.MINUTES.toMillis(ns.getInt("profile-ttl"));
+        final var profileRefreshRate = ns.getInt("profile-refresh-rate");
+        final var attachmentQuota = ns.getInt("attachment-quota") * 1024L * 1024L;
+        final var uploadParallelism = ns.getInt("upload-parallelism");
+        final var lazyAccounts = Boolean.TRUE.equals(ns.getBoolean("lazy-accounts"));
+        final var accountIdleTimeout = TimeUnit.MINUTES.toMillis(ns.getInt("account-idle-timeout"));
+        final var databaseConnectionTarget = ns.getInt("database-connection-target");
 
         try {
             return new SignalAccountFiles(dataPath,
                     serviceEnvironment,
                     BaseConfig.USER_AGENT,
-                    new Settings(trustNewIdentity, disableSendLog));
+                    new Settings(trustNewIdentity,
+                            disableSendLog,
+                            messageCacheJournal,
+                            sendParallelism,
+                            crashSafeSessions,
+                            profileTtl,
+                            profileRefreshRate,
+                            attachmentQuota,
+                            uploadParallelism,
+                            lazyAccounts,
+                            accountIdleTimeout,
+                            databaseConnectionTarget));
         } catch (IOException e) {
             throw new IOErrorException("Failed to read local accounts list", e);
         }
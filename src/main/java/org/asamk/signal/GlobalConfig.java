@@ -14,6 +14,16 @@ public record GlobalConfig(
         @JsonProperty("serviceEnvironment") ServiceEnvironmentCli serviceEnvironment,
         @JsonProperty("trustNewIdentities") TrustNewIdentityCli trustNewIdentities,
         @JsonProperty("disableSendLog") Boolean disableSendLog,
+        @JsonProperty("messageCacheJournal") Boolean messageCacheJournal,
+        @JsonProperty("sendParallelism") Integer sendParallelism,
+        @JsonProperty("crashSafeSessions") Boolean crashSafeSessions,
+        @JsonProperty("profileTtl") Integer profileTtl,
+        @JsonProperty("profileRefreshRate") Integer profileRefreshRate,
+        @JsonProperty("attachmentQuota") Integer attachmentQuota,
+        @JsonProperty("uploadParallelism") Integer uploadParallelism,
+        @JsonProperty("lazyAccounts") Boolean lazyAccounts,
+        @JsonProperty("accountIdleTimeout") Integer accountIdleTimeout,
+        @JsonProperty("databaseConnectionTarget") Integer databaseConnectionTarget,
         @JsonProperty("account") String account
 ) {
 
@@ -28,9 +38,40 @@ public record GlobalConfig(
             ServiceEnvironmentCli.LIVE,
             TrustNewIdentityCli.ON_FIRST_USE,
             null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
             null);
 
     public static GlobalConfig empty() {
-        return new GlobalConfig(null, null, null, null, null, null, null, null, null, null, null, null);
+        return new GlobalConfig(null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null);
     }
 }
@@ -637,7 +637,9 @@ public class ReceiveMessageHandler implements Manager.ReceiveMessageHandler {
         }
         if (attachment.file().isPresent()) {
             var file = attachment.file().get();
-            if (file.exists()) {
+            if (attachment.isDownloadPending()) {
+                writer.println("Downloading to: {}", file);
+            } else if (file.exists()) {
                 writer.println("Stored plaintext in: {}", file);
             }
         }
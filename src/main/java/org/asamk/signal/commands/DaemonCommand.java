@@ -13,7 +13,8 @@ import org.asamk.signal.commands.exceptions.IOErrorException;
 import org.asamk.signal.commands.exceptions.UserErrorException;
 import org.asamk.signal.dbus.DbusHandler;
 import org.asamk.signal.http.HttpServerHandler;
-import org.asamk.signal.json.JsonReceiveMessageHandler;
+import org.asamk.signal.json.JsonReceiveEventBus;
+import org.asamk.signal.json.JsonReceiveEventReplayBuffer;
 import org.asamk.signal.jsonrpc.SocketHandler;
 import org.asamk.signal.manager.Manager;
 import org.asamk.signal.manager.MultiAccountManager;
@@ -21,6 +22,7 @@ import org.asamk.signal.output.JsonWriter;
 import org.asamk.signal.output.OutputWriter;
 import org.asamk.signal.output.PlainTextWriter;
 import org.asamk.signal.util.IOUtils;
+import org.asamk.signal.util.SubscriberQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -91,6 +93,26 @@ public class DaemonCommand implements MultiLocalCommand, LocalCommand {
         subparser.addArgument("--send-read-receipts")
                 .help("Send read receipts for all incoming data messages (in addition to the default delivery receipts)")
                 .action(Arguments.storeTrue());
+        subparser.addArgument("--receive-batch-size")
+                .type(int.class)
+                .help("Maximum number of envelopes to fetch from the server at once, before handling them (default 100).");
+        subparser.addArgument("--subscriber-queue-size")
+                .type(int.class)
+                .choices(Arguments.range(1, Integer.MAX_VALUE))
+                .setDefault(SubscriberQueue.Config.DEFAULT_CAPACITY)
+                .help("Maximum number of received messages queued for each subscriber (default 1000).");
+        subparser.addArgument("--subscriber-overflow")
+                .help("Specify what happens when the queue of a subscriber is full.")
+                .type(Arguments.enumStringType(SubscriberQueue.OverflowPolicy.class))
+                .setDefault(SubscriberQueue.OverflowPolicy.BLOCK);
+        subparser.addArgument("--sse-replay-size")
+                .type(int.class)
+                .choices(Arguments.range(0, Integer.MAX_VALUE))
+                .setDefault(JsonReceiveEventReplayBuffer.Config.DEFAULT_CAPACITY)
+                .help("Number of received messages per account kept for reconnecting SSE clients (default 1000).");
+        subparser.addArgument("--sse-replay-dir")
+                .type(File.class)
+                .help("Store received messages evicted from the SSE replay buffer in this directory.");
     }
 
     @Override
@@ -109,11 +131,15 @@ public class DaemonCommand implements MultiLocalCommand, LocalCommand {
         final var noReceiveStdOut = Boolean.TRUE.equals(ns.getBoolean("no-receive-stdout"));
         final var receiveMode = ns.<ReceiveMode>get("receive-mode");
         final var receiveConfig = getReceiveConfig(ns);
+        final var queueConfig = getSubscriberQueueConfig(ns);
 
         m.setReceiveConfig(receiveConfig);
-        addDefaultReceiveHandler(m, noReceiveStdOut ? null : outputWriter, receiveMode != ReceiveMode.ON_START);
+        addDefaultReceiveHandler(m,
+                noReceiveStdOut ? null : outputWriter,
+                receiveMode != ReceiveMode.ON_START,
+                queueConfig);
 
-        try (final var daemonHandler = new SingleAccountDaemonHandler(m, receiveMode)) {
+        try (final var daemonHandler = new SingleAccountDaemonHandler(m, receiveMode, queueConfig)) {
             setup(ns, daemonHandler);
 
             m.addClosedListener(Shutdown::triggerShutdown);
@@ -136,16 +162,23 @@ public class DaemonCommand implements MultiLocalCommand, LocalCommand {
         final var noReceiveStdOut = Boolean.TRUE.equals(ns.getBoolean("no-receive-stdout"));
         final var receiveMode = ns.<ReceiveMode>get("receive-mode");
         final var receiveConfig = getReceiveConfig(ns);
+        final var queueConfig = getSubscriberQueueConfig(ns);
         c.getManagers().forEach(m -> {
             m.setReceiveConfig(receiveConfig);
-            addDefaultReceiveHandler(m, noReceiveStdOut ? null : outputWriter, receiveMode != ReceiveMode.ON_START);
+            addDefaultReceiveHandler(m,
+                    noReceiveStdOut ? null : outputWriter,
+                    receiveMode != ReceiveMode.ON_START,
+                    queueConfig);
         });
         c.addOnManagerAddedHandler(m -> {
             m.setReceiveConfig(receiveConfig);
-            addDefaultReceiveHandler(m, noReceiveStdOut ? null : outputWriter, receiveMode != ReceiveMode.ON_START);
+            addDefaultReceiveHandler(m,
+                    noReceiveStdOut ? null : outputWriter,
+                    receiveMode != ReceiveMode.ON_START,
+                    queueConfig);
         });
 
-        try (final var daemonHandler = new MultiAccountDaemonHandler(c, receiveMode)) {
+        try (final var daemonHandler = new MultiAccountDaemonHandler(c, receiveMode, queueConfig)) {
             setup(ns, daemonHandler);
 
             synchronized (this) {
@@ -188,7 +221,9 @@ public class DaemonCommand implements MultiLocalCommand, LocalCommand {
         final var httpAddress = ns.getString("http");
         if (httpAddress != null) {
             final var address = IOUtils.parseInetSocketAddress(httpAddress);
-            daemonHandler.runHttp(address);
+            final var replayConfig = new JsonReceiveEventReplayBuffer.Config(ns.getInt("sse-replay-size"),
+                    ns.<File>get("sse-replay-dir"));
+            daemonHandler.runHttp(address, replayConfig);
         }
 
         final var isDbusSystem = Boolean.TRUE.equals(ns.getBoolean("dbus-system"));
@@ -213,29 +248,49 @@ public class DaemonCommand implements MultiLocalCommand, LocalCommand {
         }
     }
 
-    private void addDefaultReceiveHandler(Manager m, OutputWriter outputWriter, final boolean isWeakListener) {
-        final var handler = switch (outputWriter) {
-            case PlainTextWriter writer -> new ReceiveMessageHandler(m, writer);
-            case JsonWriter writer -> new JsonReceiveMessageHandler(m, writer);
-            case null -> Manager.ReceiveMessageHandler.EMPTY;
-        };
-        m.addReceiveHandler(handler, isWeakListener);
+    private static SubscriberQueue.Config getSubscriberQueueConfig(final Namespace ns) {
+        return new SubscriberQueue.Config(ns.getInt("subscriber-queue-size"),
+                ns.<SubscriberQueue.OverflowPolicy>get("subscriber-overflow"));
+    }
+
+    private void addDefaultReceiveHandler(
+            Manager m,
+            OutputWriter outputWriter,
+            final boolean isWeakListener,
+            final SubscriberQueue.Config queueConfig
+    ) {
+        switch (outputWriter) {
+            case PlainTextWriter writer -> m.addReceiveHandler(new ReceiveMessageHandler(m, writer), isWeakListener);
+            // Received messages must not be lost on stdout, so it always waits for the writer to catch up
+            case JsonWriter writer -> JsonReceiveEventBus.forManager(m)
+                    .subscribe("stdout",
+                            writer::write,
+                            isWeakListener,
+                            new SubscriberQueue.Config(queueConfig.capacity(), SubscriberQueue.OverflowPolicy.BLOCK),
+                            () -> {});
+            case null -> m.addReceiveHandler(Manager.ReceiveMessageHandler.EMPTY, isWeakListener);
+        }
     }
 
     private static abstract class DaemonHandler implements AutoCloseable {
 
         protected final ReceiveMode receiveMode;
+        protected final SubscriberQueue.Config queueConfig;
         protected final List<AutoCloseable> closeables = new ArrayList<>();
 
-        protected DaemonHandler(final ReceiveMode receiveMode) {
+        protected DaemonHandler(final ReceiveMode receiveMode, final SubscriberQueue.Config queueConfig) {
             this.receiveMode = receiveMode;
+            this.queueConfig = queueConfig;
         }
 
         public abstract void runSocket(ServerSocketChannel serverChannel) throws CommandException;
 
         public abstract void runDbus(boolean isDbusSystem, final String busname) throws CommandException;
 
-        public abstract void runHttp(InetSocketAddress address) throws CommandException;
+        public abstract void runHttp(
+                InetSocketAddress address,
+                JsonReceiveEventReplayBuffer.Config replayConfig
+        ) throws CommandException;
 
         protected final void runSocket(final SocketHandler socketHandler) {
             socketHandler.init();
@@ -275,14 +330,18 @@ public class DaemonCommand implements MultiLocalCommand, LocalCommand {
 
         private final Manager m;
 
-        public SingleAccountDaemonHandler(final Manager m, final ReceiveMode receiveMode) {
-            super(receiveMode);
+        public SingleAccountDaemonHandler(
+                final Manager m,
+                final ReceiveMode receiveMode,
+                final SubscriberQueue.Config queueConfig
+        ) {
+            super(receiveMode, queueConfig);
             this.m = m;
         }
 
         @Override
         public void runSocket(final ServerSocketChannel serverChannel) {
-            runSocket(new SocketHandler(serverChannel, m, receiveMode == ReceiveMode.MANUAL));
+            runSocket(new SocketHandler(serverChannel, m, receiveMode == ReceiveMode.MANUAL, queueConfig));
         }
 
         @Override
@@ -291,8 +350,11 @@ public class DaemonCommand implements MultiLocalCommand, LocalCommand {
         }
 
         @Override
-        public void runHttp(InetSocketAddress address) throws CommandException {
-            runHttp(new HttpServerHandler(address, m));
+        public void runHttp(
+                final InetSocketAddress address,
+                final JsonReceiveEventReplayBuffer.Config replayConfig
+        ) throws CommandException {
+            runHttp(new HttpServerHandler(address, m, queueConfig, replayConfig));
         }
     }
 
@@ -300,14 +362,18 @@ public class DaemonCommand implements MultiLocalCommand, LocalCommand {
 
         private final MultiAccountManager c;
 
-        public MultiAccountDaemonHandler(final MultiAccountManager c, final ReceiveMode receiveMode) {
-            super(receiveMode);
+        public MultiAccountDaemonHandler(
+                final MultiAccountManager c,
+                final ReceiveMode receiveMode,
+                final SubscriberQueue.Config queueConfig
+        ) {
+            super(receiveMode, queueConfig);
             this.c = c;
         }
 
         @Override
         public void runSocket(final ServerSocketChannel serverChannel) {
-            runSocket(new SocketHandler(serverChannel, c, receiveMode == ReceiveMode.MANUAL));
+            runSocket(new SocketHandler(serverChannel, c, receiveMode == ReceiveMode.MANUAL, queueConfig));
         }
 
         @Override
@@ -316,8 +382,11 @@ public class DaemonCommand implements MultiLocalCommand, LocalCommand {
         }
 
         @Override
-        public void runHttp(final InetSocketAddress address) throws CommandException {
-            runHttp(new HttpServerHandler(address, c));
+        public void runHttp(
+                final InetSocketAddress address,
+                final JsonReceiveEventReplayBuffer.Config replayConfig
+        ) throws CommandException {
+            runHttp(new HttpServerHandler(address, c, queueConfig, replayConfig));
         }
     }
 }
@@ -65,6 +65,9 @@ public class ReceiveCommand implements LocalCommand, JsonRpcSingleCommand<Receiv
         subparser.addArgument("--send-read-receipts")
                 .help("Send read receipts for all incoming data messages (in addition to the default delivery receipts)")
                 .action(Arguments.storeTrue());
+        subparser.addArgument("--receive-batch-size")
+                .type(int.class)
+                .help("Maximum number of envelopes to fetch from the server at once, before handling them (default 100).");
     }
 
     @Override
@@ -925,6 +925,36 @@ public class DbusManagerImpl implements Manager {
         // Not supported over DBus
     }
 
+    @Override
+    public void addAttachmentDownloadListener(final AttachmentDownloadListener listener) {
+        // Not supported over DBus
+    }
+
+    @Override
+    public void removeAttachmentDownloadListener(final AttachmentDownloadListener listener) {
+        // Not supported over DBus
+    }
+
+    @Override
+    public void addGroupChangeListener(final GroupChangeListener listener) {
+        // Not supported over DBus
+    }
+
+    @Override
+    public void removeGroupChangeListener(final GroupChangeListener listener) {
+        // Not supported over DBus
+    }
+
+    @Override
+    public void addIdentityChangeListener(final IdentityChangeListener listener) {
+        // Not supported over DBus
+    }
+
+    @Override
+    public void removeIdentityChangeListener(final IdentityChangeListener listener) {
+        // Not supported over DBus
+    }
+
     // --- Voice call methods (not supported over DBus) ---
 
     @Override
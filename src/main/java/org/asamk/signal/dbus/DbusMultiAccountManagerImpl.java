@@ -6,6 +6,7 @@ import org.asamk.signal.manager.Manager;
 import org.asamk.signal.manager.MultiAccountManager;
 import org.asamk.signal.manager.ProvisioningManager;
 import org.asamk.signal.manager.RegistrationManager;
+import org.asamk.signal.manager.api.AccountResourceUsage;
 import org.freedesktop.dbus.DBusPath;
 import org.freedesktop.dbus.connections.impl.DBusConnection;
 import org.freedesktop.dbus.exceptions.DBusException;
@@ -80,6 +81,12 @@ public class DbusMultiAccountManagerImpl implements MultiAccountManager {
                 busname);
     }
 
+    @Override
+    public List<AccountResourceUsage> getResourceUsage() {
+        // Not supported over DBus
+        return List.of();
+    }
+
     @Override
     public URI getNewProvisioningDeviceLinkUri() throws TimeoutException, IOException {
         try {
@@ -1,6 +1,8 @@
 package org.asamk.signal.dbus;
 
 import org.asamk.Signal;
+import org.freedesktop.dbus.connections.impl.DBusConnection;
+import org.freedesktop.dbus.exceptions.DBusException;
 import org.freedesktop.dbus.interfaces.Properties;
 import org.freedesktop.dbus.types.Variant;
 
@@ -67,4 +69,17 @@ public abstract class DbusProperties implements Properties {
                     return o instanceof Variant<?> variant ? variant : new Variant<>(o);
                 }));
     }
+
+    /**
+     * Emit a PropertiesChanged signal with the current values of all readable properties.
+     */
+    void emitPropertiesChanged(final DBusConnection connection) throws DBusException {
+        for (final var handler : handlers) {
+            final var interfaceName = handler.getInterfaceName();
+            connection.sendMessage(new PropertiesChanged(getObjectPath(),
+                    interfaceName,
+                    GetAll(interfaceName),
+                    List.of()));
+        }
+    }
 }
@@ -50,11 +50,11 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -73,9 +73,12 @@ public class DbusSignalImpl implements Signal, AutoCloseable {
     private final boolean noReceiveOnStart;
 
     private DBusPath thisDevice;
-    private final List<StructDevice> devices = new ArrayList<>();
-    private final List<StructGroup> groups = new ArrayList<>();
-    private final List<StructIdentity> identities = new ArrayList<>();
+    // Exported objects by their object path, so changes only export or unexport the affected objects
+    private final Map<String, DbusSignalDeviceImpl> devices = new LinkedHashMap<>();
+    private final Map<String, StructGroup> groups = new LinkedHashMap<>();
+    private final Map<String, DbusSignalIdentityImpl> identities = new LinkedHashMap<>();
+    private final Manager.GroupChangeListener groupChangeListener = this::updateGroup;
+    private final Manager.IdentityChangeListener identityChangeListener = this::updateIdentity;
     private DbusReceiveMessageHandler dbusMessageHandler;
     private int subscriberCount;
 
@@ -100,6 +103,8 @@ public class DbusSignalImpl implements Signal, AutoCloseable {
 
     public void initObjects() {
         exportObjects();
+        m.addGroupChangeListener(groupChangeListener);
+        m.addIdentityChangeListener(identityChangeListener);
         if (!noReceiveOnStart) {
             subscribeReceive();
         }
@@ -120,10 +125,12 @@ public class DbusSignalImpl implements Signal, AutoCloseable {
             m.removeReceiveHandler(dbusMessageHandler);
             dbusMessageHandler = null;
         }
+        m.removeGroupChangeListener(groupChangeListener);
+        m.removeIdentityChangeListener(identityChangeListener);
         unExportObjects();
     }
 
-    private void unExportObjects() {
+    private synchronized void unExportObjects() {
         unExportDevices();
         unExportGroups();
         unExportConfiguration();
@@ -207,8 +214,7 @@ public class DbusSignalImpl implements Signal, AutoCloseable {
 
     @Override
     public DBusPath getDevice(long deviceId) {
-        updateDevices();
-        final var deviceOptional = devices.stream().filter(g -> g.getId().equals(deviceId)).findFirst();
+        final var deviceOptional = listDevices().stream().filter(g -> g.getId().equals(deviceId)).findFirst();
         if (deviceOptional.isEmpty()) {
             throw new Error.DeviceNotFound("Device not found");
         }
@@ -216,9 +222,9 @@ public class DbusSignalImpl implements Signal, AutoCloseable {
     }
 
     @Override
-    public List<StructDevice> listDevices() {
+    public synchronized List<StructDevice> listDevices() {
         updateDevices();
-        return this.devices;
+        return this.devices.values().stream().map(DbusSignalDeviceImpl::toStructDevice).toList();
     }
 
     @Override
@@ -594,19 +600,24 @@ public class DbusSignalImpl implements Signal, AutoCloseable {
     }
 
     @Override
-    public DBusPath getGroup(final byte[] groupId) {
-        updateGroups();
-        final var groupOptional = groups.stream().filter(g -> Arrays.equals(g.getId(), groupId)).findFirst();
-        if (groupOptional.isEmpty()) {
+    public synchronized DBusPath getGroup(final byte[] groupId) {
+        var group = groups.get(getGroupObjectPath(objectPath, groupId));
+        if (group == null) {
+            // The change event for a new group may not have been handled yet
+            updateGroup(getGroupId(groupId));
+            group = groups.get(getGroupObjectPath(objectPath, groupId));
+        }
+        if (group == null) {
             throw new Error.GroupNotFound("Group not found");
         }
-        return groupOptional.get().getObjectPath();
+        return group.getObjectPath();
     }
 
     @Override
-    public List<StructGroup> listGroups() {
+    public synchronized List<StructGroup> listGroups() {
+        // Reconcile with the stored groups, changes made without a change event are exported as well
         updateGroups();
-        return groups;
+        return List.copyOf(groups.values());
     }
 
     @Override
@@ -655,7 +666,7 @@ public class DbusSignalImpl implements Signal, AutoCloseable {
             final var memberIdentifiers = getSingleRecipientIdentifiers(members, m.getSelfNumber());
             if (groupId == null) {
                 final var results = m.createGroup(name, memberIdentifiers, avatar);
-                updateGroups();
+                updateGroup(results.first());
                 checkGroupSendMessageResults(results.second().timestamp(), results.second().results());
                 return results.first().serialize();
             } else {
@@ -990,7 +1001,7 @@ public class DbusSignalImpl implements Signal, AutoCloseable {
         return basePath + "/Devices/" + deviceId;
     }
 
-    private void updateDevices() {
+    private synchronized void updateDevices() {
         List<org.asamk.signal.manager.api.Device> linkedDevices;
         try {
             linkedDevices = m.getLinkedDevices();
@@ -998,49 +1009,85 @@ public class DbusSignalImpl implements Signal, AutoCloseable {
             throw new Error.Failure("Failed to get linked devices: " + e.getMessage());
         }
 
-        unExportDevices();
-
+        final var removedPaths = new HashSet<>(this.devices.keySet());
         linkedDevices.forEach(d -> {
-            final var object = new DbusSignalDeviceImpl(d);
-            final var deviceObjectPath = object.getObjectPath();
-            exportObject(object);
+            final var deviceObjectPath = getDeviceObjectPath(objectPath, d.id());
+            removedPaths.remove(deviceObjectPath);
+            final var object = this.devices.get(deviceObjectPath);
+            if (object == null) {
+                final var newObject = new DbusSignalDeviceImpl(d);
+                exportObject(newObject);
+                this.devices.put(deviceObjectPath, newObject);
+            } else if (object.update(d)) {
+                emitPropertiesChanged(object);
+            }
             if (d.isThisDevice()) {
                 thisDevice = new DBusPath(deviceObjectPath);
             }
-            this.devices.add(new StructDevice(new DBusPath(deviceObjectPath), (long) d.id(), emptyIfNull(d.name())));
         });
+        removedPaths.forEach(this::unExportDevice);
     }
 
     private void unExportDevices() {
-        this.devices.stream()
-                .map(StructDevice::getObjectPath)
-                .map(DBusPath::getPath)
-                .forEach(connection::unExportObject);
-        this.devices.clear();
+        List.copyOf(this.devices.keySet()).forEach(this::unExportDevice);
+    }
+
+    private void unExportDevice(final String deviceObjectPath) {
+        this.devices.remove(deviceObjectPath);
+        connection.unExportObject(deviceObjectPath);
     }
 
     private static String getGroupObjectPath(String basePath, byte[] groupId) {
         return basePath + "/Groups/" + makeValidObjectPathElement(Base64.getEncoder().encodeToString(groupId));
     }
 
-    private void updateGroups() {
+    private synchronized void updateGroups() {
         List<org.asamk.signal.manager.api.Group> groups;
         groups = m.getGroups();
 
-        unExportGroups();
-
+        final var removedPaths = new HashSet<>(this.groups.keySet());
         groups.forEach(g -> {
-            final var object = new DbusSignalGroupImpl(g.groupId());
-            exportObject(object);
-            this.groups.add(new StructGroup(new DBusPath(object.getObjectPath()),
-                    g.groupId().serialize(),
-                    emptyIfNull(g.title())));
+            final var groupObjectPath = getGroupObjectPath(objectPath, g.groupId().serialize());
+            removedPaths.remove(groupObjectPath);
+            if (this.groups.put(groupObjectPath, toStructGroup(groupObjectPath, g)) == null) {
+                exportObject(new DbusSignalGroupImpl(g.groupId()));
+            }
         });
+        removedPaths.forEach(this::unExportGroup);
+    }
+
+    /**
+     * Export, unexport or update only the object of the changed group.
+     */
+    private synchronized void updateGroup(final GroupId groupId) {
+        final var group = m.getGroup(groupId);
+        final var groupObjectPath = getGroupObjectPath(objectPath, groupId.serialize());
+        if (group == null) {
+            if (this.groups.containsKey(groupObjectPath)) {
+                unExportGroup(groupObjectPath);
+            }
+            return;
+        }
+
+        final var object = new DbusSignalGroupImpl(groupId);
+        if (this.groups.put(groupObjectPath, toStructGroup(groupObjectPath, group)) == null) {
+            exportObject(object);
+        } else {
+            emitPropertiesChanged(object);
+        }
+    }
+
+    private StructGroup toStructGroup(final String groupObjectPath, final org.asamk.signal.manager.api.Group group) {
+        return new StructGroup(new DBusPath(groupObjectPath), group.groupId().serialize(), emptyIfNull(group.title()));
     }
 
     private void unExportGroups() {
-        this.groups.stream().map(StructGroup::getObjectPath).map(DBusPath::getPath).forEach(connection::unExportObject);
-        this.groups.clear();
+        List.copyOf(this.groups.keySet()).forEach(this::unExportGroup);
+    }
+
+    private void unExportGroup(final String groupObjectPath) {
+        this.groups.remove(groupObjectPath);
+        connection.unExportObject(groupObjectPath);
     }
 
     private static String getConfigurationObjectPath(String basePath) {
@@ -1067,19 +1114,61 @@ public class DbusSignalImpl implements Signal, AutoCloseable {
         }
     }
 
-    private void updateIdentities() {
+    private void emitPropertiesChanged(final DbusProperties object) {
+        try {
+            object.emitPropertiesChanged(connection);
+        } catch (DBusException e) {
+            logger.warn("Failed to emit properties changed signal (" + object.getObjectPath() + "): " + e.getMessage());
+        }
+    }
+
+    private synchronized void updateIdentities() {
         List<org.asamk.signal.manager.api.Identity> identities;
         identities = m.getIdentities();
 
-        unExportIdentities();
+        updateIdentityObjects(this.identities.keySet(), identities);
+    }
 
+    /**
+     * Export, unexport or update only the identity objects of the changed recipient.
+     */
+    private synchronized void updateIdentity(final org.asamk.signal.manager.api.RecipientAddress recipient) {
+        final var identities = m.getIdentities(RecipientIdentifier.Single.fromAddress(recipient));
+
+        final var previousPaths = this.identities.entrySet()
+                .stream()
+                .filter(e -> e.getValue().identity.recipient().matches(recipient))
+                .map(Map.Entry::getKey)
+                .toList();
+        updateIdentityObjects(previousPaths, identities);
+    }
+
+    /**
+     * @param previousPaths the currently exported objects for the identities, the ones not in identities are unexported
+     */
+    private void updateIdentityObjects(
+            final Collection<String> previousPaths,
+            final List<org.asamk.signal.manager.api.Identity> identities
+    ) {
+        final var removedPaths = new HashSet<>(previousPaths);
         identities.forEach(i -> {
-            final var object = new DbusSignalIdentityImpl(i);
-            exportObject(object);
-            this.identities.add(new StructIdentity(new DBusPath(object.getObjectPath()),
-                    i.recipient().uuid().map(UUID::toString).orElse(""),
-                    i.recipient().number().orElse("")));
+            final var identityObjectPath = getIdentityObjectPath(objectPath, i);
+            removedPaths.remove(identityObjectPath);
+            final var object = this.identities.get(identityObjectPath);
+            if (object == null) {
+                final var newObject = new DbusSignalIdentityImpl(i);
+                exportObject(newObject);
+                this.identities.put(identityObjectPath, newObject);
+            } else if (object.update(i)) {
+                emitPropertiesChanged(object);
+            }
         });
+        removedPaths.forEach(this::unExportIdentity);
+    }
+
+    private static String getIdentityObjectPath(String basePath, org.asamk.signal.manager.api.Identity identity) {
+        return getIdentityObjectPath(basePath,
+                identity.recipient().getLegacyIdentifier() + "_" + identity.recipient().getIdentifier());
     }
 
     private static String getIdentityObjectPath(String basePath, String id) {
@@ -1087,16 +1176,19 @@ public class DbusSignalImpl implements Signal, AutoCloseable {
     }
 
     private void unExportIdentities() {
-        this.identities.stream()
-                .map(StructIdentity::getObjectPath)
-                .map(DBusPath::getPath)
-                .forEach(connection::unExportObject);
-        this.identities.clear();
+        List.copyOf(this.identities.keySet()).forEach(this::unExportIdentity);
+    }
+
+    private void unExportIdentity(final String identityObjectPath) {
+        this.identities.remove(identityObjectPath);
+        connection.unExportObject(identityObjectPath);
     }
 
     @Override
-    public DBusPath getIdentity(String number) throws Error.Failure {
-        final var found = identities.stream()
+    public synchronized DBusPath getIdentity(String number) throws Error.Failure {
+        final var found = identities.values()
+                .stream()
+                .map(DbusSignalIdentityImpl::toStructIdentity)
                 .filter(identity -> identity.getNumber().equals(number) || identity.getUuid().equals(number))
                 .findFirst();
 
@@ -1107,32 +1199,53 @@ public class DbusSignalImpl implements Signal, AutoCloseable {
     }
 
     @Override
-    public List<StructIdentity> listIdentities() {
+    public synchronized List<StructIdentity> listIdentities() {
         updateIdentities();
-        return this.identities;
+        return this.identities.values().stream().map(DbusSignalIdentityImpl::toStructIdentity).toList();
     }
 
     public class DbusSignalIdentityImpl extends DbusProperties implements Signal.Identity {
 
-        private final org.asamk.signal.manager.api.Identity identity;
+        private volatile org.asamk.signal.manager.api.Identity identity;
 
         public DbusSignalIdentityImpl(final org.asamk.signal.manager.api.Identity identity) {
             this.identity = identity;
             super.addPropertiesHandler(new DbusInterfacePropertiesHandler("org.asamk.Signal.Identity",
-                    List.of(new DbusProperty<>("Number", () -> identity.recipient().number().orElse("")),
+                    List.of(new DbusProperty<>("Number", () -> this.identity.recipient().number().orElse("")),
                             new DbusProperty<>("Uuid",
-                                    () -> identity.recipient().uuid().map(UUID::toString).orElse("")),
-                            new DbusProperty<>("Fingerprint", identity::fingerprint),
-                            new DbusProperty<>("SafetyNumber", identity::safetyNumber),
-                            new DbusProperty<>("ScannableSafetyNumber", identity::scannableSafetyNumber),
-                            new DbusProperty<>("TrustLevel", identity::trustLevel),
-                            new DbusProperty<>("AddedDate", identity::dateAddedTimestamp))));
+                                    () -> this.identity.recipient().uuid().map(UUID::toString).orElse("")),
+                            new DbusProperty<>("Fingerprint", () -> this.identity.fingerprint()),
+                            new DbusProperty<>("SafetyNumber", () -> this.identity.safetyNumber()),
+                            new DbusProperty<>("ScannableSafetyNumber",
+                                    () -> this.identity.scannableSafetyNumber()),
+                            new DbusProperty<>("TrustLevel", () -> this.identity.trustLevel()),
+                            new DbusProperty<>("AddedDate", () -> this.identity.dateAddedTimestamp()))));
         }
 
         @Override
         public String getObjectPath() {
-            return getIdentityObjectPath(objectPath,
-                    identity.recipient().getLegacyIdentifier() + "_" + identity.recipient().getIdentifier());
+            return getIdentityObjectPath(objectPath, identity);
+        }
+
+        /**
+         * @return true if any property of the identity changed
+         */
+        private boolean update(final org.asamk.signal.manager.api.Identity identity) {
+            final var previous = this.identity;
+            this.identity = identity;
+            return !previous.recipient().equals(identity.recipient())
+                    || !Arrays.equals(previous.fingerprint(), identity.fingerprint())
+                    || !Objects.equals(previous.safetyNumber(), identity.safetyNumber())
+                    || !Arrays.equals(previous.scannableSafetyNumber(), identity.scannableSafetyNumber())
+                    || previous.trustLevel() != identity.trustLevel()
+                    || previous.dateAddedTimestamp() != identity.dateAddedTimestamp();
+        }
+
+        private StructIdentity toStructIdentity() {
+            final var identity = this.identity;
+            return new StructIdentity(new DBusPath(getObjectPath()),
+                    identity.recipient().uuid().map(UUID::toString).orElse(""),
+                    identity.recipient().number().orElse(""));
         }
 
         @Override
@@ -1143,7 +1256,7 @@ public class DbusSignalImpl implements Signal, AutoCloseable {
             } catch (UnregisteredRecipientException e) {
                 throw new Error.Failure("The user " + e.getSender().getIdentifier() + " is not registered.");
             }
-            updateIdentities();
+            updateIdentity(identity.recipient());
         }
 
         @Override
@@ -1170,20 +1283,20 @@ public class DbusSignalImpl implements Signal, AutoCloseable {
             } catch (UnregisteredRecipientException e) {
                 throw new Error.Failure("The user " + e.getSender().getIdentifier() + " is not registered.");
             }
-            updateIdentities();
+            updateIdentity(identity.recipient());
         }
     }
 
     public class DbusSignalDeviceImpl extends DbusProperties implements Signal.Device {
 
-        private final org.asamk.signal.manager.api.Device device;
+        private volatile org.asamk.signal.manager.api.Device device;
 
         public DbusSignalDeviceImpl(final org.asamk.signal.manager.api.Device device) {
             super.addPropertiesHandler(new DbusInterfacePropertiesHandler("org.asamk.Signal.Device",
-                    List.of(new DbusProperty<>("Id", device::id),
-                            new DbusProperty<>("Name", () -> emptyIfNull(device.name()), this::setDeviceName),
-                            new DbusProperty<>("Created", device::created),
-                            new DbusProperty<>("LastSeen", device::lastSeen))));
+                    List.of(new DbusProperty<>("Id", () -> this.device.id()),
+                            new DbusProperty<>("Name", () -> emptyIfNull(this.device.name()), this::setDeviceName),
+                            new DbusProperty<>("Created", () -> this.device.created()),
+                            new DbusProperty<>("LastSeen", () -> this.device.lastSeen()))));
             this.device = device;
         }
 
@@ -1192,6 +1305,20 @@ public class DbusSignalImpl implements Signal, AutoCloseable {
             return getDeviceObjectPath(objectPath, device.id());
         }
 
+        /**
+         * @return true if any property of the device changed
+         */
+        private boolean update(final org.asamk.signal.manager.api.Device device) {
+            final var previous = this.device;
+            this.device = device;
+            return !previous.equals(device);
+        }
+
+        private StructDevice toStructDevice() {
+            final var device = this.device;
+            return new StructDevice(new DBusPath(getObjectPath()), (long) device.id(), emptyIfNull(device.name()));
+        }
+
         @Override
         public void removeDevice() throws Error.Failure {
             try {
@@ -1367,7 +1494,7 @@ public class DbusSignalImpl implements Signal, AutoCloseable {
             } catch (IOException e) {
                 throw new Error.Failure(e.getMessage());
             }
-            updateGroups();
+            updateGroup(groupId);
         }
 
         @Override
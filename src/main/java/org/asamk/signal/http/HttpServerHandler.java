@@ -5,14 +5,15 @@ import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
 
 import org.asamk.signal.commands.Commands;
-import org.asamk.signal.json.JsonReceiveMessageHandler;
+import org.asamk.signal.json.JsonReceiveEventBus;
+import org.asamk.signal.json.JsonReceiveEventReplayBuffer;
 import org.asamk.signal.jsonrpc.JsonRpcReader;
 import org.asamk.signal.jsonrpc.JsonRpcResponse;
 import org.asamk.signal.jsonrpc.JsonRpcSender;
 import org.asamk.signal.jsonrpc.SignalJsonRpcCommandHandler;
 import org.asamk.signal.manager.Manager;
 import org.asamk.signal.manager.MultiAccountManager;
-import org.asamk.signal.manager.api.Pair;
+import org.asamk.signal.util.SubscriberQueue;
 import org.asamk.signal.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,21 +42,45 @@ public class HttpServerHandler implements AutoCloseable {
     private HttpServer server;
     private final AtomicBoolean shutdown = new AtomicBoolean(false);
     private final Set<String> allowedHosts;
+    private final SubscriberQueue.Config queueConfig;
+    private final JsonReceiveEventReplayBuffer.Config replayConfig;
 
     public HttpServerHandler(final InetSocketAddress address, final Manager m) {
+        this(address, m, SubscriberQueue.Config.DEFAULT, JsonReceiveEventReplayBuffer.Config.DEFAULT);
+    }
+
+    public HttpServerHandler(
+            final InetSocketAddress address,
+            final Manager m,
+            final SubscriberQueue.Config queueConfig,
+            final JsonReceiveEventReplayBuffer.Config replayConfig
+    ) {
         this.address = address;
         commandHandler = new SignalJsonRpcCommandHandler(m, Commands::getCommand);
         this.c = null;
         this.m = m;
         this.allowedHosts = buildAllowedHosts(address);
+        this.queueConfig = queueConfig;
+        this.replayConfig = replayConfig;
     }
 
     public HttpServerHandler(final InetSocketAddress address, final MultiAccountManager c) {
+        this(address, c, SubscriberQueue.Config.DEFAULT, JsonReceiveEventReplayBuffer.Config.DEFAULT);
+    }
+
+    public HttpServerHandler(
+            final InetSocketAddress address,
+            final MultiAccountManager c,
+            final SubscriberQueue.Config queueConfig,
+            final JsonReceiveEventReplayBuffer.Config replayConfig
+    ) {
         this.address = address;
         commandHandler = new SignalJsonRpcCommandHandler(c, Commands::getCommand);
         this.c = c;
         this.m = null;
         this.allowedHosts = buildAllowedHosts(address);
+        this.queueConfig = queueConfig;
+        this.replayConfig = replayConfig;
     }
 
     public void init() throws IOException {
@@ -71,6 +96,15 @@ public class HttpServerHandler implements AutoCloseable {
         server.createContext("/api/v1/events", this::handleEventsEndpoint);
         server.createContext("/api/v1/check", this::handleCheckEndpoint);
 
+        if (replayConfig.capacity() > 0) {
+            if (m != null) {
+                enableReplay(m);
+            } else {
+                c.getManagers().forEach(this::enableReplay);
+                c.addOnManagerAddedHandler(this::enableReplay);
+            }
+        }
+
         server.start();
         logger.info("Started HTTP server on {}", address);
         // If we're listening on any local address (0.0.0.0 or ::), skip Host header validation
@@ -201,7 +235,10 @@ public class HttpServerHandler implements AutoCloseable {
             httpExchange.getResponseBody().flush();
 
             final var shouldStop = new AtomicBoolean(false);
-            final var handlers = subscribeReceiveHandlers(managers, sender, () -> {
+            final var eventStream = new ReceiveEventStream(sender,
+                    managers,
+                    httpExchange.getRequestHeaders().getFirst("Last-Event-ID"));
+            final var handlers = eventStream.subscribe("sse-" + httpExchange.getRemoteAddress(), queueConfig, () -> {
                 shouldStop.set(true);
                 synchronized (this) {
                     this.notifyAll();
@@ -224,8 +261,8 @@ public class HttpServerHandler implements AutoCloseable {
                     }
                 }
             } finally {
-                for (final var pair : handlers) {
-                    unsubscribeReceiveHandler(pair);
+                for (final var subscription : handlers) {
+                    unsubscribeReceiveHandler(subscription);
                 }
                 try {
                     httpExchange.getResponseBody().close();
@@ -258,7 +295,7 @@ public class HttpServerHandler implements AutoCloseable {
         if (c != null) {
             final var account = query.get("account");
             if (account == null || account.isEmpty()) {
-                return c.getManagers();
+                return c.loadAllManagers();
             } else {
                 final var manager = c.getManager(account);
                 if (manager == null) {
@@ -270,33 +307,12 @@ public class HttpServerHandler implements AutoCloseable {
         throw new AssertionError("Unreachable state");
     }
 
-    private List<Pair<Manager, Manager.ReceiveMessageHandler>> subscribeReceiveHandlers(
-            final List<Manager> managers,
-            final ServerSentEventSender sender,
-            Callable unsubscribe
-    ) {
-        return managers.stream().map(m1 -> {
-            final var receiveMessageHandler = new JsonReceiveMessageHandler(m1, s -> {
-                try {
-                    sender.sendEvent(null, "receive", List.of(objectMapper.writeValueAsString(s)));
-                } catch (IOException e) {
-                    unsubscribe.call();
-                }
-            });
-            m1.addReceiveHandler(receiveMessageHandler);
-            return new Pair<>(m1, (Manager.ReceiveMessageHandler) receiveMessageHandler);
-        }).toList();
-    }
-
-    private void unsubscribeReceiveHandler(final Pair<Manager, Manager.ReceiveMessageHandler> pair) {
-        final var m = pair.first();
-        final var handler = pair.second();
-        m.removeReceiveHandler(handler);
+    private void enableReplay(final Manager m) {
+        JsonReceiveEventBus.forManager(m).enableReplay(replayConfig);
     }
 
-    private interface Callable {
-
-        void call();
+    private void unsubscribeReceiveHandler(final JsonReceiveEventBus.Subscription subscription) {
+        subscription.unsubscribe();
     }
 
     private Set<String> buildAllowedHosts(final InetSocketAddress address) {
@@ -0,0 +1,134 @@
+package org.asamk.signal.http;
+
+import org.asamk.signal.json.JsonReceiveEvent;
+import org.asamk.signal.json.JsonReceiveEventBus;
+import org.asamk.signal.manager.Manager;
+import org.asamk.signal.util.SubscriberQueue;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+/**
+ * Streams the receive events of one or more accounts to a SSE client.
+ * <p>
+ * Every event is sent with an id. For a single account it's the event id, for multiple accounts it contains the last
+ * event id of each account, e.g. {@code +123=1000,+456=2000}. When a client reconnects with this id in the
+ * {@code Last-Event-ID} header, the events it missed are replayed from the accounts' replay buffers before live events
+ * are streamed.
+ */
+class ReceiveEventStream {
+
+    private final ServerSentEventSender sender;
+    private final List<JsonReceiveEventBus> buses;
+    private final Map<Manager, Long> lastSentEventIds = new LinkedHashMap<>();
+    private final CountDownLatch replayDone = new CountDownLatch(1);
+
+    ReceiveEventStream(
+            final ServerSentEventSender sender,
+            final List<Manager> managers,
+            final String lastEventIdHeader
+    ) {
+        this.sender = sender;
+        this.buses = managers.stream().map(JsonReceiveEventBus::forManager).toList();
+        final var lastEventIds = parseLastEventId(lastEventIdHeader, managers);
+        for (final var bus : buses) {
+            final var m = bus.getManager();
+            // Determined before subscribing, newer events are either replayed or received live
+            final var lastEventId = bus.getLastEventId();
+            final var clientEventId = lastEventIds.get(m);
+            lastSentEventIds.put(m, clientEventId == null ? lastEventId : Math.min(clientEventId, lastEventId));
+        }
+    }
+
+    /**
+     * Subscribe to all accounts and replay the missed events.
+     *
+     * @param onClose called when the client can't be written to anymore or is disconnected by the overflow policy
+     */
+    List<JsonReceiveEventBus.Subscription> subscribe(
+            final String name,
+            final SubscriberQueue.Config queueConfig,
+            final Runnable onClose
+    ) {
+        final var subscriptions = buses.stream().map(bus -> bus.subscribe(name, event -> {
+            try {
+                replayDone.await();
+                send(bus.getManager(), event);
+            } catch (InterruptedException ignored) {
+            } catch (IOException e) {
+                onClose.run();
+            }
+        }, false, queueConfig, onClose)).toList();
+
+        try {
+            for (final var bus : buses) {
+                final long lastSentEventId;
+                synchronized (this) {
+                    lastSentEventId = lastSentEventIds.get(bus.getManager());
+                }
+                for (final var event : bus.getEventsAfter(lastSentEventId)) {
+                    send(bus.getManager(), event);
+                }
+            }
+        } catch (IOException e) {
+            onClose.run();
+        } finally {
+            replayDone.countDown();
+        }
+        return subscriptions;
+    }
+
+    private synchronized void send(final Manager m, final JsonReceiveEvent event) throws IOException {
+        if (event.id() <= lastSentEventIds.get(m)) {
+            // Already sent by the replay
+            return;
+        }
+        lastSentEventIds.put(m, event.id());
+        sender.sendEvent(formatEventId(), "receive", event.bytes());
+    }
+
+    private String formatEventId() {
+        if (lastSentEventIds.size() == 1) {
+            return String.valueOf(lastSentEventIds.values().iterator().next());
+        }
+        return lastSentEventIds.entrySet()
+                .stream()
+                .map(e -> e.getKey().getSelfNumber() + "=" + e.getValue())
+                .collect(Collectors.joining(","));
+    }
+
+    private static Map<Manager, Long> parseLastEventId(final String lastEventId, final List<Manager> managers) {
+        final var result = new HashMap<Manager, Long>();
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return result;
+        }
+        try {
+            if (!lastEventId.contains("=")) {
+                if (managers.size() == 1) {
+                    result.put(managers.getFirst(), Long.parseLong(lastEventId.trim()));
+                }
+                return result;
+            }
+            final var eventIdsByAccount = new HashMap<String, Long>();
+            for (final var part : lastEventId.split(",")) {
+                final var pair = part.split("=", 2);
+                eventIdsByAccount.put(pair[0].trim(), Long.parseLong(pair[1].trim()));
+            }
+            for (final var m : managers) {
+                final var eventId = eventIdsByAccount.get(m.getSelfNumber());
+                if (eventId != null) {
+                    result.put(m, eventId);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            // Not an id sent by us, stream only new events
+            result.clear();
+        }
+        return result;
+    }
+}
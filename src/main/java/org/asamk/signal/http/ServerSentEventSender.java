@@ -1,9 +1,8 @@
 package org.asamk.signal.http;
 
-import java.io.BufferedWriter;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 
@@ -13,10 +12,14 @@ import java.util.List;
  */
 public class ServerSentEventSender {
 
-    private final BufferedWriter writer;
+    private static final byte[] DATA_EMPTY = "data\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DATA_PREFIX = "data:".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] KEEP_ALIVE = ":\n".getBytes(StandardCharsets.UTF_8);
+
+    private final BufferedOutputStream outputStream;
 
     public ServerSentEventSender(final OutputStream outputStream) {
-        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        this.outputStream = new BufferedOutputStream(outputStream);
     }
 
     /**
@@ -25,31 +28,54 @@ public class ServerSentEventSender {
      * @param data  Event data, each entry must not contain newline chars.
      */
     public synchronized void sendEvent(String id, String event, List<String> data) throws IOException {
-        if (id != null) {
-            writer.write("id:");
-            writer.write(id);
-            writer.write("\n");
-        }
-        if (event != null) {
-            writer.write("event:");
-            writer.write(event);
-            writer.write("\n");
-        }
+        writeHeader(id, event);
         if (data.isEmpty()) {
-            writer.write("data\n");
+            outputStream.write(DATA_EMPTY);
         } else {
             for (final var d : data) {
-                writer.write("data:");
-                writer.write(d);
-                writer.write("\n");
+                writeDataLine(d.getBytes(StandardCharsets.UTF_8));
             }
         }
-        writer.write("\n");
-        writer.flush();
+        outputStream.write('\n');
+        outputStream.flush();
+    }
+
+    /**
+     * @param id    Event id
+     * @param event Event type
+     * @param data  UTF-8 encoded event data, must not contain newline chars. The array is written as is, so it can
+     *              be shared between multiple senders.
+     */
+    public synchronized void sendEvent(String id, String event, byte[] data) throws IOException {
+        writeHeader(id, event);
+        writeDataLine(data);
+        outputStream.write('\n');
+        outputStream.flush();
     }
 
     public synchronized void sendKeepAlive() throws IOException {
-        writer.write(":\n");
-        writer.flush();
+        outputStream.write(KEEP_ALIVE);
+        outputStream.flush();
+    }
+
+    private void writeHeader(final String id, final String event) throws IOException {
+        if (id != null) {
+            writeField("id:", id);
+        }
+        if (event != null) {
+            writeField("event:", event);
+        }
+    }
+
+    private void writeField(final String name, final String value) throws IOException {
+        outputStream.write(name.getBytes(StandardCharsets.UTF_8));
+        outputStream.write(value.getBytes(StandardCharsets.UTF_8));
+        outputStream.write('\n');
+    }
+
+    private void writeDataLine(final byte[] data) throws IOException {
+        outputStream.write(DATA_PREFIX);
+        outputStream.write(data);
+        outputStream.write('\n');
     }
 }
@@ -13,7 +13,8 @@ record JsonAttachment(
         Integer width,
         Integer height,
         String caption,
-        Long uploadTimestamp
+        Long uploadTimestamp,
+        boolean downloadPending
 ) {
 
     static JsonAttachment from(MessageEnvelope.Data.Attachment attachment) {
@@ -32,6 +33,7 @@ record JsonAttachment(
                 width,
                 height,
                 caption,
-                uploadTimestamp);
+                uploadTimestamp,
+                attachment.isDownloadPending());
     }
 }
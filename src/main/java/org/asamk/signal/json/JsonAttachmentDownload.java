@@ -0,0 +1,23 @@
+package org.asamk.signal.json;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import org.asamk.signal.manager.api.AttachmentDownload;
+
+import io.micronaut.jsonschema.JsonSchema;
+
+@JsonSchema(title = "AttachmentDownload")
+record JsonAttachmentDownload(
+        String id,
+        String status,
+        int attempts,
+        @JsonInclude(JsonInclude.Include.NON_NULL) String error
+) {
+
+    static JsonAttachmentDownload from(AttachmentDownload download) {
+        return new JsonAttachmentDownload(download.id(),
+                download.status().name(),
+                download.attempts(),
+                download.error());
+    }
+}
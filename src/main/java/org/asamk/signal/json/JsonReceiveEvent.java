@@ -0,0 +1,55 @@
+package org.asamk.signal.json;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.databind.util.RawValue;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A received message that has already been serialized to JSON.
+ * The same instance is shared by all subscribers of a {@link JsonReceiveEventBus}, so the envelope is only
+ * converted and encoded once, no matter how many clients are attached.
+ */
+public final class JsonReceiveEvent {
+
+    private final long id;
+    private final byte[] json;
+    private volatile RawValue rawValue;
+
+    JsonReceiveEvent(final long id, final byte[] json) {
+        this.id = id;
+        this.json = json;
+    }
+
+    /**
+     * @return the event id, increasing monotonically for the events of an account
+     */
+    public long id() {
+        return id;
+    }
+
+    /**
+     * @return the UTF-8 encoded JSON object, must not be modified
+     */
+    public byte[] bytes() {
+        return json;
+    }
+
+    public String string() {
+        return (String) toRawValue().rawValue();
+    }
+
+    /**
+     * Lets Jackson embed the already serialized JSON, when the event is written with a JsonWriter.
+     * The JSON is only decoded once, the same value is shared by all subscribers.
+     */
+    @JsonValue
+    public RawValue toRawValue() {
+        var value = rawValue;
+        if (value == null) {
+            value = new RawValue(new String(json, StandardCharsets.UTF_8));
+            rawValue = value;
+        }
+        return value;
+    }
+}
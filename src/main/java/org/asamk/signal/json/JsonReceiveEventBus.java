@@ -0,0 +1,253 @@
+package org.asamk.signal.json;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.asamk.signal.manager.Manager;
+import org.asamk.signal.manager.api.AttachmentDownload;
+import org.asamk.signal.manager.api.MessageEnvelope;
+import org.asamk.signal.util.SubscriberQueue;
+import org.asamk.signal.util.Util;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Fans out received messages of a single account to all JSON subscribers (JSON-RPC, SSE and stdout).
+ * Each envelope is converted to JSON once and the encoded event is shared by all subscribers.
+ * Attachments that finished downloading in the background are announced as separate events.
+ * Every subscriber has its own bounded {@link SubscriberQueue}, so a slow subscriber doesn't delay the others.
+ * <p>
+ * Events get monotonically increasing ids. They start at the current time in milliseconds multiplied by 1000, so ids of
+ * a later run are larger than the ids of an earlier one.
+ */
+public class JsonReceiveEventBus {
+
+    private static final Map<Manager, JsonReceiveEventBus> buses = new HashMap<>();
+
+    private final Manager m;
+    private final ObjectMapper objectMapper = Util.createJsonObjectMapper();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicLong nextEventId = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    private volatile JsonReceiveEventReplayBuffer replayBuffer;
+    private volatile Handler activeHandler;
+    private volatile Thread dispatchThread;
+
+    private JsonReceiveEventBus(final Manager m) {
+        this.m = m;
+    }
+
+    public static JsonReceiveEventBus forManager(final Manager m) {
+        final JsonReceiveEventBus bus;
+        synchronized (buses) {
+            final var existingBus = buses.get(m);
+            if (existingBus != null) {
+                return existingBus;
+            }
+            bus = new JsonReceiveEventBus(m);
+            buses.put(m, bus);
+        }
+        m.addAttachmentDownloadListener(bus::handleAttachmentDownload);
+        m.addClosedListener(() -> {
+            synchronized (buses) {
+                buses.remove(m);
+            }
+            final var replayBuffer = bus.replayBuffer;
+            if (replayBuffer != null) {
+                replayBuffer.close();
+            }
+        });
+        return bus;
+    }
+
+    public Manager getManager() {
+        return m;
+    }
+
+    /**
+     * Keep the most recent events, so they can be replayed with {@link #getEventsAfter(long)}.
+     * Events are recorded even without subscribers, but receiving isn't started for it.
+     */
+    public void enableReplay(final JsonReceiveEventReplayBuffer.Config config) {
+        synchronized (this) {
+            if (replayBuffer != null) {
+                return;
+            }
+            final var buffer = new JsonReceiveEventReplayBuffer(config, m.getSelfNumber());
+            nextEventId.accumulateAndGet(buffer.getLastSpilledEventId() + 1, Math::max);
+            replayBuffer = buffer;
+        }
+        updateRegistration();
+    }
+
+    /**
+     * @return the id of the newest event, or the id before the first event if there hasn't been one yet
+     */
+    public long getLastEventId() {
+        return nextEventId.get() - 1;
+    }
+
+    /**
+     * @return the recorded events with an id larger than the given id, oldest first
+     */
+    public List<JsonReceiveEvent> getEventsAfter(final long eventId) {
+        final var buffer = replayBuffer;
+        return buffer == null ? List.of() : buffer.getEventsAfter(eventId);
+    }
+
+    /**
+     * Add a subscriber for received messages.
+     *
+     * @param name           name of the subscriber, used for logging
+     * @param isWeakListener if all subscribers are weak listeners, the bus doesn't start receiving messages by itself
+     * @param onDisconnect   called if the subscriber is disconnected because its queue overflowed
+     */
+    public Subscription subscribe(
+            final String name,
+            final Consumer<JsonReceiveEvent> subscriber,
+            final boolean isWeakListener,
+            final SubscriberQueue.Config queueConfig,
+            final Runnable onDisconnect
+    ) {
+        final var subscription = new Subscription(name, subscriber, isWeakListener, queueConfig, onDisconnect);
+        subscriptions.add(subscription);
+        updateRegistration();
+        return subscription;
+    }
+
+    private void unsubscribe(final Subscription subscription) {
+        if (subscriptions.remove(subscription)) {
+            // Closing the queue first releases a receive thread blocked on it
+            subscription.queue.close();
+            updateRegistration();
+        }
+    }
+
+    /**
+     * Registers a single handler with the manager, strong if any subscriber is strong.
+     * When switching between weak and strong, the new handler is added before the old one is removed,
+     * only the active handler dispatches events, so no event is lost or delivered twice.
+     */
+    private void updateRegistration() {
+        if (Thread.currentThread() == dispatchThread) {
+            // The manager is iterating its handlers on this thread, so they can't be modified here
+            Thread.ofVirtual().start(this::updateRegistration);
+            return;
+        }
+        synchronized (this) {
+            final var previousHandler = activeHandler;
+            if (subscriptions.isEmpty() && replayBuffer == null) {
+                activeHandler = null;
+            } else {
+                final var isWeakListener = subscriptions.stream().allMatch(Subscription::isWeakListener);
+                if (previousHandler != null && previousHandler.isWeakListener == isWeakListener) {
+                    return;
+                }
+                final var handler = new Handler(isWeakListener);
+                activeHandler = handler;
+                m.addReceiveHandler(handler, isWeakListener);
+            }
+            if (previousHandler != null) {
+                m.removeReceiveHandler(previousHandler);
+            }
+        }
+    }
+
+    private void handleAttachmentDownload(final AttachmentDownload download) {
+        if (activeHandler == null) {
+            return;
+        }
+        dispatch(Map.of("account", m.getSelfNumber(), "attachmentDownload", JsonAttachmentDownload.from(download)));
+    }
+
+    private void dispatch(final MessageEnvelope envelope, final Throwable exception) {
+        dispatch(JsonReceiveMessageHandler.toJsonObject(m, envelope, exception));
+    }
+
+    private void dispatch(final Object jsonObject) {
+        final JsonReceiveEvent event;
+        try {
+            event = new JsonReceiveEvent(nextEventId.getAndIncrement(), objectMapper.writeValueAsBytes(jsonObject));
+        } catch (JsonProcessingException e) {
+            // Some issue with json serialization, probably caused by a bug
+            throw new AssertionError(e);
+        }
+
+        // Record the event before handing it to the subscribers, so a subscriber that is added concurrently finds it
+        // either in its queue or in the replay buffer
+        final var buffer = replayBuffer;
+        if (buffer != null) {
+            buffer.add(event);
+        }
+
+        dispatchThread = Thread.currentThread();
+        try {
+            for (final var subscription : subscriptions) {
+                subscription.queue.offer(event);
+            }
+        } finally {
+            dispatchThread = null;
+        }
+    }
+
+    private class Handler implements Manager.ReceiveMessageHandler {
+
+        private final boolean isWeakListener;
+
+        private Handler(final boolean isWeakListener) {
+            this.isWeakListener = isWeakListener;
+        }
+
+        @Override
+        public void handleMessage(final MessageEnvelope envelope, final Throwable e) {
+            if (activeHandler == this) {
+                dispatch(envelope, e);
+            }
+        }
+    }
+
+    public final class Subscription {
+
+        private final boolean isWeakListener;
+        private final SubscriberQueue<JsonReceiveEvent> queue;
+
+        private Subscription(
+                final String name,
+                final Consumer<JsonReceiveEvent> subscriber,
+                final boolean isWeakListener,
+                final SubscriberQueue.Config queueConfig,
+                final Runnable onDisconnect
+        ) {
+            this.isWeakListener = isWeakListener;
+            this.queue = new SubscriberQueue<>(m.getSelfNumber() + "-" + name, queueConfig, subscriber, () -> {
+                unsubscribe();
+                onDisconnect.run();
+            });
+        }
+
+        public Manager getManager() {
+            return m;
+        }
+
+        public boolean isWeakListener() {
+            return isWeakListener;
+        }
+
+        public int getQueueDepth() {
+            return queue.getDepth();
+        }
+
+        public long getDroppedCount() {
+            return queue.getDroppedCount();
+        }
+
+        public void unsubscribe() {
+            JsonReceiveEventBus.this.unsubscribe(this);
+        }
+    }
+}
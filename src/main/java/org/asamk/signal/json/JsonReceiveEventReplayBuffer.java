@@ -0,0 +1,253 @@
+package org.asamk.signal.json;
+
+import org.asamk.signal.util.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the most recent receive events of an account, so SSE clients can catch up after reconnecting.
+ * <p>
+ * Events evicted from memory can be appended to a spill file with the record layout {@code id(8) length(4)
+ * payload(length)}. When the spill file gets too large, it replaces the previous one, so at most two spill files are
+ * kept per account. On close the events in memory are spilled as well, so they can be replayed after a restart.
+ */
+public class JsonReceiveEventReplayBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(JsonReceiveEventReplayBuffer.class);
+
+    private static final long SPILL_FILE_MAX_SIZE = 16 * 1024 * 1024;
+    private static final int RECORD_HEADER_SIZE = 8 + 4;
+
+    private final int capacity;
+    private final ArrayDeque<JsonReceiveEvent> events;
+    private final File spillFile;
+    private final File previousSpillFile;
+
+    private FileChannel spillChannel;
+    private boolean spillFailed;
+    private long lastSpilledEventId = -1;
+
+    public JsonReceiveEventReplayBuffer(final Config config, final String account) {
+        this.capacity = config.capacity();
+        this.events = new ArrayDeque<>(capacity);
+        if (config.spillDirectory() == null) {
+            this.spillFile = null;
+            this.previousSpillFile = null;
+        } else {
+            final var fileName = account.replaceAll("[^A-Za-z0-9+_-]", "_");
+            this.spillFile = new File(config.spillDirectory(), fileName + ".events");
+            this.previousSpillFile = new File(config.spillDirectory(), fileName + ".events.old");
+            scanSpillFile(previousSpillFile, false);
+            scanSpillFile(spillFile, true);
+        }
+    }
+
+    /**
+     * @return the id of the newest event spilled by a previous run, or -1
+     */
+    public synchronized long getLastSpilledEventId() {
+        return lastSpilledEventId;
+    }
+
+    public synchronized void add(final JsonReceiveEvent event) {
+        if (events.size() >= capacity) {
+            spill(events.pollFirst());
+        }
+        events.addLast(event);
+    }
+
+    /**
+     * The spill files are only opened while holding the lock, they are read without blocking {@link #add}.
+     *
+     * @return all available events with an id larger than the given id, oldest first
+     */
+    public List<JsonReceiveEvent> getEventsAfter(final long eventId) {
+        final var eventsInMemory = new ArrayList<JsonReceiveEvent>();
+        final List<SpilledFile> spilledFiles;
+        final long oldestIdInMemory;
+        synchronized (this) {
+            final var oldestEventInMemory = events.peekFirst();
+            oldestIdInMemory = oldestEventInMemory == null ? Long.MAX_VALUE : oldestEventInMemory.id();
+            spilledFiles = spillFile != null && oldestIdInMemory > eventId + 1 ? openSpilledFiles() : List.of();
+            for (final var event : events) {
+                if (event.id() > eventId) {
+                    eventsInMemory.add(event);
+                }
+            }
+        }
+
+        final var result = new ArrayList<JsonReceiveEvent>();
+        for (final var spilledFile : spilledFiles) {
+            readSpilledEvents(spilledFile, eventId, oldestIdInMemory, result);
+        }
+        result.addAll(eventsInMemory);
+        return result;
+    }
+
+    public synchronized void close() {
+        if (spillFile != null) {
+            while (!events.isEmpty()) {
+                spill(events.pollFirst());
+            }
+        }
+        if (spillChannel != null) {
+            try {
+                spillChannel.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close event spill file, ignoring: {}", e.getMessage());
+            }
+            spillChannel = null;
+        }
+    }
+
+    private void spill(final JsonReceiveEvent event) {
+        if (spillFile == null || spillFailed || event.id() <= lastSpilledEventId) {
+            return;
+        }
+        try {
+            if (spillChannel == null) {
+                spillChannel = openSpillChannel();
+            }
+            if (spillChannel.size() >= SPILL_FILE_MAX_SIZE) {
+                spillChannel.close();
+                Files.move(spillFile.toPath(), previousSpillFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                spillChannel = openSpillChannel();
+            }
+            final var json = event.bytes();
+            final var buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + json.length);
+            buffer.putLong(event.id()).putInt(json.length).put(json).flip();
+            while (buffer.hasRemaining()) {
+                spillChannel.write(buffer);
+            }
+            lastSpilledEventId = event.id();
+        } catch (IOException e) {
+            logger.warn("Failed to write event spill file {}, only keeping events in memory: {}",
+                    spillFile,
+                    e.getMessage());
+            spillFailed = true;
+        }
+    }
+
+    /**
+     * The spill file contains decrypted messages, so it's only readable by the user, like the rest of the data
+     * directory.
+     */
+    private FileChannel openSpillChannel() throws IOException {
+        IOUtils.createPrivateDirectories(spillFile.getParentFile());
+        if (!spillFile.exists()) {
+            IOUtils.createPrivateFile(spillFile);
+        }
+        return FileChannel.open(spillFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Find the last spilled event id and drop an incomplete record left over by a crash, so new records can be
+     * appended.
+     */
+    private void scanSpillFile(final File file, final boolean truncateIncompleteRecord) {
+        if (!file.exists()) {
+            return;
+        }
+        long validLength = 0;
+        try (final var input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                final var id = input.readLong();
+                final var length = input.readInt();
+                input.skipNBytes(length);
+                lastSpilledEventId = id;
+                validLength += RECORD_HEADER_SIZE + length;
+            }
+        } catch (EOFException ignored) {
+        } catch (IOException e) {
+            logger.warn("Failed to read event spill file {}, ignoring: {}", file, e.getMessage());
+            return;
+        }
+        if (truncateIncompleteRecord && file.length() > validLength) {
+            logger.debug("Event spill file {} ends with an incomplete record, truncating it", file);
+            try (final var channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            } catch (IOException e) {
+                logger.warn("Failed to truncate event spill file {}, ignoring: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Open the existing spill files and remember their current size, so only complete records are read, even if
+     * events are spilled or the files are rotated while reading them.
+     */
+    private List<SpilledFile> openSpilledFiles() {
+        final var spilledFiles = new ArrayList<SpilledFile>(2);
+        for (final var file : List.of(previousSpillFile, spillFile)) {
+            try {
+                final var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                spilledFiles.add(new SpilledFile(file, channel, channel.size()));
+            } catch (NoSuchFileException ignored) {
+            } catch (IOException e) {
+                logger.warn("Failed to open event spill file {}, ignoring: {}", file, e.getMessage());
+            }
+        }
+        return spilledFiles;
+    }
+
+    private static void readSpilledEvents(
+            final SpilledFile spilledFile,
+            final long afterEventId,
+            final long beforeEventId,
+            final List<JsonReceiveEvent> result
+    ) {
+        final var stream = Channels.newInputStream(spilledFile.channel());
+        try (final var input = new DataInputStream(new BufferedInputStream(stream))) {
+            var position = 0L;
+            while (position + RECORD_HEADER_SIZE <= spilledFile.size()) {
+                final var id = input.readLong();
+                final var length = input.readInt();
+                position += RECORD_HEADER_SIZE + length;
+                if (position > spilledFile.size()) {
+                    break;
+                }
+                if (id <= afterEventId || id >= beforeEventId) {
+                    input.skipNBytes(length);
+                    continue;
+                }
+                final var json = new byte[length];
+                input.readFully(json);
+                result.add(new JsonReceiveEvent(id, json));
+            }
+        } catch (EOFException e) {
+            logger.debug("Event spill file {} ends with an incomplete record, ignoring it", spilledFile.file());
+        } catch (IOException e) {
+            logger.warn("Failed to read event spill file {}, ignoring: {}", spilledFile.file(), e.getMessage());
+        }
+    }
+
+    /**
+     * @param capacity       number of events kept in memory
+     * @param spillDirectory directory for events evicted from memory, or null to keep them only in memory
+     */
+    public record Config(int capacity, File spillDirectory) {
+
+        public static final int DEFAULT_CAPACITY = 1000;
+
+        public static final Config DEFAULT = new Config(DEFAULT_CAPACITY, null);
+    }
+
+    private record SpilledFile(File file, FileChannel channel, long size) {}
+}
@@ -0,0 +1,8 @@
+package org.asamk.signal.jsonrpc;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+
+/**
+ * A JSON-RPC notification whose params have already been serialized to a JSON object, so they are written as is.
+ */
+record JsonRpcRawNotification(String jsonrpc, String method, RawValue params) {}
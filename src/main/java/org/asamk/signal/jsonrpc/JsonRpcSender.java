@@ -1,5 +1,7 @@
 package org.asamk.signal.jsonrpc;
 
+import com.fasterxml.jackson.databind.util.RawValue;
+
 import org.asamk.signal.output.JsonWriter;
 
 import java.util.List;
@@ -16,6 +18,13 @@ public class JsonRpcSender {
         jsonWriter.write(request);
     }
 
+    /**
+     * Send a notification whose params have already been serialized to a JSON object.
+     */
+    public void sendRawNotification(String method, RawValue params) {
+        jsonWriter.write(new JsonRpcRawNotification("2.0", method, params));
+    }
+
     public void sendBatchRequests(List<JsonRpcRequest> requests) {
         jsonWriter.write(requests);
     }
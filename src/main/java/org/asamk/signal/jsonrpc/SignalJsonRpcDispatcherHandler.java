@@ -4,7 +4,6 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ContainerNode;
 import com.fasterxml.jackson.databind.node.IntNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
@@ -15,11 +14,12 @@ import org.asamk.signal.commands.JsonRpcSingleCommand;
 import org.asamk.signal.commands.exceptions.CommandException;
 import org.asamk.signal.commands.exceptions.UserErrorException;
 import org.asamk.signal.json.JsonCallEvent;
-import org.asamk.signal.json.JsonReceiveMessageHandler;
+import org.asamk.signal.json.JsonReceiveEventBus;
 import org.asamk.signal.manager.Manager;
 import org.asamk.signal.manager.MultiAccountManager;
 import org.asamk.signal.manager.api.Pair;
 import org.asamk.signal.output.JsonWriter;
+import org.asamk.signal.util.SubscriberQueue;
 import org.asamk.signal.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,6 +30,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -42,8 +43,10 @@ public class SignalJsonRpcDispatcherHandler {
     private final JsonRpcSender jsonRpcSender;
     private final JsonRpcReader jsonRpcReader;
     private final boolean noReceiveOnStart;
+    private final SubscriberQueue.Config queueConfig;
+    private final Runnable closeConnection;
 
-    private final Map<Integer, ArrayList<Pair<Manager, Manager.ReceiveMessageHandler>>> receiveHandlers = new HashMap<>();
+    private final Map<Integer, ArrayList<JsonReceiveEventBus.Subscription>> receiveHandlers = new ConcurrentHashMap<>();
     private final Map<Integer, ArrayList<Pair<Manager, Manager.CallEventListener>>> callEventHandlers = new HashMap<>();
     private SignalJsonRpcCommandHandler commandHandler;
 
@@ -51,8 +54,24 @@ public class SignalJsonRpcDispatcherHandler {
             final JsonWriter jsonWriter,
             final Supplier<String> lineSupplier,
             final boolean noReceiveOnStart
+    ) {
+        this(jsonWriter, lineSupplier, noReceiveOnStart, SubscriberQueue.Config.DEFAULT, () -> {});
+    }
+
+    /**
+     * @param queueConfig     outbound queue configuration for each receive subscription
+     * @param closeConnection closes the connection, if a subscription is disconnected by the overflow policy
+     */
+    public SignalJsonRpcDispatcherHandler(
+            final JsonWriter jsonWriter,
+            final Supplier<String> lineSupplier,
+            final boolean noReceiveOnStart,
+            final SubscriberQueue.Config queueConfig,
+            final Runnable closeConnection
     ) {
         this.noReceiveOnStart = noReceiveOnStart;
+        this.queueConfig = queueConfig;
+        this.closeConnection = closeConnection;
         this.objectMapper = Util.createJsonObjectMapper();
         this.jsonRpcSender = new JsonRpcSender(jsonWriter);
         this.jsonRpcReader = new JsonRpcReader(jsonRpcSender, lineSupplier);
@@ -62,7 +81,8 @@ public class SignalJsonRpcDispatcherHandler {
         this.commandHandler = new SignalJsonRpcCommandHandler(c, this::getCommand);
 
         if (!noReceiveOnStart) {
-            this.subscribeReceive(c.getManagers(), true);
+            // Lazily loaded accounts don't receive messages until they're loaded
+            this.subscribeReceive(c.loadAllManagers(), true);
             c.addOnManagerAddedHandler(m -> subscribeReceive(m, true));
             c.addOnManagerRemovedHandler(this::unsubscribeReceive);
         }
@@ -156,32 +176,31 @@ public class SignalJsonRpcDispatcherHandler {
         return subscriptionId;
     }
 
-    private Pair<Manager, Manager.ReceiveMessageHandler> createReceiveHandler(
+    private JsonReceiveEventBus.Subscription createReceiveHandler(
             final Manager m,
             final int subscriptionId,
             final boolean internalSubscription
     ) {
-        final var receiveMessageHandler = new JsonReceiveMessageHandler(m, s -> {
-            ContainerNode<?> params;
-            if (internalSubscription) {
-                params = objectMapper.valueToTree(s);
-            } else {
-                final var paramsNode = new ObjectNode(objectMapper.getNodeFactory());
-                paramsNode.set("subscription", IntNode.valueOf(subscriptionId));
-                paramsNode.set("result", objectMapper.valueToTree(s));
-                params = paramsNode;
-            }
-            final var jsonRpcRequest = JsonRpcRequest.forNotification("receive", params, null);
+        // The event is embedded as already serialized JSON, so it isn't converted again for every subscription
+        return JsonReceiveEventBus.forManager(m).subscribe("jsonrpc-" + subscriptionId, event -> {
             try {
-                jsonRpcSender.sendRequest(jsonRpcRequest);
+                if (internalSubscription) {
+                    jsonRpcSender.sendRawNotification("receive", event.toRawValue());
+                } else {
+                    final var params = new ObjectNode(objectMapper.getNodeFactory());
+                    params.set("subscription", IntNode.valueOf(subscriptionId));
+                    params.putRawValue("result", event.toRawValue());
+                    jsonRpcSender.sendRequest(JsonRpcRequest.forNotification("receive", params, null));
+                }
             } catch (AssertionError e) {
                 if (e.getCause() instanceof ClosedChannelException) {
                     unsubscribeReceive(subscriptionId);
                 }
             }
+        }, false, queueConfig, () -> {
+            unsubscribeReceive(subscriptionId);
+            closeConnection.run();
         });
-        m.addReceiveHandler(receiveMessageHandler);
-        return new Pair<>(m, receiveMessageHandler);
     }
 
     private boolean unsubscribeReceive(final int subscriptionId) {
@@ -198,7 +217,7 @@ public class SignalJsonRpcDispatcherHandler {
     private void unsubscribeReceive(final Manager m) {
         final var subscriptionId = receiveHandlers.entrySet()
                 .stream()
-                .filter(e -> e.getValue().size() == 1 && e.getValue().getFirst().first().equals(m))
+                .filter(e -> e.getValue().size() == 1 && e.getValue().getFirst().getManager().equals(m))
                 .map(Map.Entry::getKey)
                 .findFirst();
         subscriptionId.ifPresent(this::unsubscribeReceive);
@@ -215,10 +234,8 @@ public class SignalJsonRpcDispatcherHandler {
         }
     }
 
-    private void unsubscribeReceiveHandler(final Pair<Manager, Manager.ReceiveMessageHandler> pair) {
-        final var m = pair.first();
-        final var handler = pair.second();
-        m.removeReceiveHandler(handler);
+    private void unsubscribeReceiveHandler(final JsonReceiveEventBus.Subscription subscription) {
+        subscription.unsubscribe();
     }
 
     private Command getCommand(final String method) {
@@ -260,7 +277,7 @@ public class SignalJsonRpcDispatcherHandler {
                 final MultiAccountManager c,
                 final JsonWriter jsonWriter
         ) throws CommandException {
-            final var subscriptionId = subscribeReceive(c.getManagers(), false);
+            final var subscriptionId = subscribeReceive(c.loadAllManagers(), false);
             jsonWriter.write(subscriptionId);
         }
     }
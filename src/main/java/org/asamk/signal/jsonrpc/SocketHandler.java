@@ -4,6 +4,7 @@ import org.asamk.signal.manager.Manager;
 import org.asamk.signal.manager.MultiAccountManager;
 import org.asamk.signal.output.JsonWriterImpl;
 import org.asamk.signal.util.IOUtils;
+import org.asamk.signal.util.SubscriberQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,21 +32,30 @@ public class SocketHandler implements AutoCloseable {
     private final List<AutoCloseable> channels = new ArrayList<>();
     private final Consumer<SocketChannel> socketHandler;
     private final boolean noReceiveOnStart;
+    private final SubscriberQueue.Config queueConfig;
 
-    public SocketHandler(final ServerSocketChannel serverChannel, final Manager m, final boolean noReceiveOnStart) {
+    public SocketHandler(
+            final ServerSocketChannel serverChannel,
+            final Manager m,
+            final boolean noReceiveOnStart,
+            final SubscriberQueue.Config queueConfig
+    ) {
         this.serverChannel = serverChannel;
         this.socketHandler = channel -> getSignalJsonRpcDispatcherHandler(channel).handleConnection(m);
         this.noReceiveOnStart = noReceiveOnStart;
+        this.queueConfig = queueConfig;
     }
 
     public SocketHandler(
             final ServerSocketChannel serverChannel,
             final MultiAccountManager c,
-            final boolean noReceiveOnStart
+            final boolean noReceiveOnStart,
+            final SubscriberQueue.Config queueConfig
     ) {
         this.serverChannel = serverChannel;
         this.socketHandler = channel -> getSignalJsonRpcDispatcherHandler(channel).handleConnection(c);
         this.noReceiveOnStart = noReceiveOnStart;
+        this.queueConfig = queueConfig;
     }
 
     public void init() {
@@ -115,6 +125,12 @@ public class SocketHandler implements AutoCloseable {
         final var lineSupplier = IOUtils.getLineSupplier(Channels.newReader(c, StandardCharsets.UTF_8));
         final var jsonOutputWriter = new JsonWriterImpl(Channels.newWriter(c, StandardCharsets.UTF_8));
 
-        return new SignalJsonRpcDispatcherHandler(jsonOutputWriter, lineSupplier, noReceiveOnStart);
+        return new SignalJsonRpcDispatcherHandler(jsonOutputWriter, lineSupplier, noReceiveOnStart, queueConfig, () -> {
+            try {
+                c.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close channel", e);
+            }
+        });
     }
 }
@@ -178,19 +178,151 @@ public final class Scrubber {
             "sa",
             "app"));
 
+    private static final int UUID_CANDIDATE = 1;
+    private static final int E164_CANDIDATE = 1 << 1;
+    private static final int EMAIL_CANDIDATE = 1 << 2;
+    private static final int GROUP_V2_ID_CANDIDATE = 1 << 3;
+    private static final int GROUP_V1_ID_CANDIDATE = 1 << 4;
+    private static final int DOMAIN_CANDIDATE = 1 << 5;
+    private static final int IPV4_CANDIDATE = 1 << 6;
+    private static final int ALL_CANDIDATES = (1 << 7) - 1;
+
     public static CharSequence scrub(CharSequence in) {
+        return scrub(in, findCandidates(in));
+    }
 
-        in = scrubUuids(in);
-        in = scrubE164(in);
-        in = scrubEmail(in);
-        in = scrubGroupV2Ids(in);
-        in = scrubGroupV1Ids(in);
-        in = scrubDomains(in);
-        in = scrubIpv4(in);
+    /**
+     * Runs all passes regardless of candidates, for comparison with {@link #scrub(CharSequence)} in tests.
+     */
+    static CharSequence scrubAllPasses(CharSequence in) {
+        return scrub(in, ALL_CANDIDATES);
+    }
+
+    private static CharSequence scrub(CharSequence in, int candidates) {
+        if ((candidates & UUID_CANDIDATE) != 0) {
+            in = scrubUuids(in);
+        }
+        if ((candidates & E164_CANDIDATE) != 0) {
+            in = scrubE164(in);
+        }
+        if ((candidates & EMAIL_CANDIDATE) != 0) {
+            in = scrubEmail(in);
+        }
+        if ((candidates & GROUP_V2_ID_CANDIDATE) != 0) {
+            in = scrubGroupV2Ids(in);
+        }
+        if ((candidates & GROUP_V1_ID_CANDIDATE) != 0) {
+            in = scrubGroupV1Ids(in);
+        }
+        if ((candidates & DOMAIN_CANDIDATE) != 0) {
+            in = scrubDomains(in);
+        }
+        if ((candidates & IPV4_CANDIDATE) != 0) {
+            in = scrubIpv4(in);
+        }
 
         return in;
     }
 
+    /**
+     * Scans the input once to find the patterns that could match, so only their regex passes need to run.
+     * <p>
+     * Each condition is necessary for a match of its pattern, but not sufficient. The conditions are checked on the
+     * original input, so they also have to cover what earlier passes produce. The replacements only consist of '*',
+     * '-', '.', '@' and parts of the original input, which don't create new candidates. Only the group id passes drop
+     * the id's terminator, joining the text around it, so after a group id candidate all later passes are run if there
+     * is any '.' in the input.
+     */
+    private static int findCandidates(CharSequence in) {
+        var candidates = 0;
+        var hexRun = 0;
+        var groupIdRun = 0;
+        var maxGroupIdRun = 0;
+        var hasGroupV2Terminator = false;
+        var hasGroupV1Terminator = false;
+        var hasDot = false;
+        final var length = in.length();
+        for (var i = 0; i < length; i++) {
+            final var c = in.charAt(i);
+            final var next = i + 1 < length ? in.charAt(i + 1) : 0;
+            switch (c) {
+                case '-' -> {
+                    if (hexRun >= 8) {
+                        candidates |= UUID_CANDIDATE;
+                    }
+                }
+                case '_' -> {
+                    if (hexRun >= 8) {
+                        candidates |= UUID_CANDIDATE;
+                    }
+                    if (isDigit(next)) {
+                        candidates |= E164_CANDIDATE;
+                    }
+                    hasGroupV2Terminator = true;
+                    hasGroupV1Terminator |= next == '_';
+                }
+                case '+' -> {
+                    if (isDigit(next)) {
+                        candidates |= E164_CANDIDATE;
+                    }
+                }
+                case '%' -> {
+                    if (next == '2' && i + 3 < length && in.charAt(i + 2) == 'B' && isDigit(in.charAt(i + 3))) {
+                        candidates |= E164_CANDIDATE;
+                    }
+                }
+                case '@' -> candidates |= EMAIL_CANDIDATE;
+                case '=' -> {
+                    hasGroupV2Terminator = true;
+                    hasGroupV1Terminator |= next == '=';
+                }
+                case '.' -> {
+                    hasDot = true;
+                    final var previous = i > 0 ? in.charAt(i - 1) : 0;
+                    if (isAsciiLetterOrDigit(previous) && (isAsciiLetterOrDigit(next) || next == '-')) {
+                        candidates |= DOMAIN_CANDIDATE;
+                    }
+                    if (isDigit(previous) && isDigit(next)) {
+                        candidates |= IPV4_CANDIDATE;
+                    }
+                }
+                default -> {
+                }
+            }
+            hexRun = isHexDigit(c) ? hexRun + 1 : 0;
+            groupIdRun = isGroupIdChar(c) ? groupIdRun + 1 : 0;
+            maxGroupIdRun = Math.max(maxGroupIdRun, groupIdRun);
+        }
+        // A group id consists of 2 + 39 + 2 (v2) or 2 + 18 + 2 (v1) id characters followed by its terminator.
+        // Dropping a v2 terminator may create a v1 terminator, e.g. "_=_" -> "__"
+        if (hasGroupV2Terminator && maxGroupIdRun >= 43) {
+            candidates |= GROUP_V2_ID_CANDIDATE | GROUP_V1_ID_CANDIDATE;
+        }
+        if (hasGroupV1Terminator && maxGroupIdRun >= 22) {
+            candidates |= GROUP_V1_ID_CANDIDATE;
+        }
+        if ((candidates & GROUP_V1_ID_CANDIDATE) != 0 && hasDot) {
+            candidates |= DOMAIN_CANDIDATE | IPV4_CANDIDATE;
+        }
+        return candidates;
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isHexDigit(int c) {
+        return isDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static boolean isAsciiLetterOrDigit(int c) {
+        return isDigit(c) || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isGroupIdChar(int c) {
+        return isAsciiLetterOrDigit(c) || c == '/' || c == '_' || c == '+' || c == '-';
+    }
+
     private static CharSequence scrubE164(CharSequence in) {
         return scrub(in,
                 E164_PATTERN,
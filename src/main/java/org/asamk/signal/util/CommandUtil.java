@@ -152,7 +152,13 @@ public class CommandUtil {
         final var ignoreAvatars = Boolean.TRUE.equals(ns.getBoolean("ignore-avatars"));
         final var ignoreStickers = Boolean.TRUE.equals(ns.getBoolean("ignore-stickers"));
         final var sendReadReceipts = Boolean.TRUE.equals(ns.getBoolean("send-read-receipts"));
-
-        return new ReceiveConfig(ignoreAttachments, ignoreStories, ignoreAvatars, ignoreStickers, sendReadReceipts);
+        final var batchSize = ns.getInt("receive-batch-size");
+
+        return new ReceiveConfig(ignoreAttachments,
+                ignoreStories,
+                ignoreAvatars,
+                ignoreStickers,
+                sendReadReceipts,
+                batchSize == null ? ReceiveConfig.DEFAULT_BATCH_SIZE : batchSize);
     }
 }
@@ -62,6 +62,16 @@ public class IOUtils {
         }
     }
 
+    public static void createPrivateFile(File path) throws IOException {
+        final var file = path.toPath();
+        try {
+            Set<PosixFilePermission> perms = EnumSet.of(OWNER_READ, OWNER_WRITE);
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(perms));
+        } catch (UnsupportedOperationException e) {
+            Files.createFile(file);
+        }
+    }
+
     public static File getDataHomeDir() {
         var dataHome = System.getenv("XDG_DATA_HOME");
         if (dataHome != null) {
@@ -0,0 +1,233 @@
+package org.asamk.signal.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Bounded outbound queue for a single subscriber, drained by its own virtual thread.
+ * A slow subscriber only fills its own queue, what happens when it is full is decided by the {@link OverflowPolicy}.
+ */
+public class SubscriberQueue<T> implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SubscriberQueue.class);
+
+    private final String name;
+    private final Config config;
+    private final Consumer<T> consumer;
+    private final Runnable onDisconnect;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final ArrayDeque<T> queue = new ArrayDeque<>();
+    private boolean closed;
+    private long deliveredCount;
+    private long droppedCount;
+    private int maxDepth;
+
+    /**
+     * @param onDisconnect called when the subscriber is disconnected by the {@link OverflowPolicy#DISCONNECT} policy
+     */
+    public SubscriberQueue(
+            final String name,
+            final Config config,
+            final Consumer<T> consumer,
+            final Runnable onDisconnect
+    ) {
+        this.name = name;
+        this.config = config;
+        this.consumer = consumer;
+        this.onDisconnect = onDisconnect;
+        Thread.ofVirtual().name("subscriber-" + name).start(this::drain);
+    }
+
+    public void offer(final T item) {
+        var disconnect = false;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            if (queue.size() >= config.capacity()) {
+                switch (config.overflowPolicy()) {
+                    case BLOCK -> {
+                        try {
+                            while (!closed && queue.size() >= config.capacity()) {
+                                notFull.await();
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            onDropped(1);
+                            return;
+                        }
+                        if (closed) {
+                            return;
+                        }
+                    }
+                    case DROP_OLDEST -> {
+                        queue.pollFirst();
+                        onDropped(1);
+                    }
+                    case DISCONNECT -> {
+                        onDropped(queue.size() + 1);
+                        queue.clear();
+                        closed = true;
+                        notEmpty.signalAll();
+                        disconnect = true;
+                    }
+                }
+            }
+            if (!disconnect) {
+                queue.addLast(item);
+                maxDepth = Math.max(maxDepth, queue.size());
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (disconnect) {
+            logger.warn("Subscriber {} can't keep up, disconnecting", name);
+            onDisconnect.run();
+        }
+    }
+
+    /**
+     * Stop accepting new items, items already in the queue are still delivered.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMaxDepth() {
+        lock.lock();
+        try {
+            return maxDepth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDeliveredCount() {
+        lock.lock();
+        try {
+            return deliveredCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDroppedCount() {
+        lock.lock();
+        try {
+            return droppedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onDropped(final int count) {
+        final var previousDroppedCount = droppedCount;
+        droppedCount += count;
+        // Log the first drop and then roughly every thousand drops, so a stuck subscriber doesn't flood the log
+        if (previousDroppedCount == 0 || previousDroppedCount / 1000 != droppedCount / 1000) {
+            logger.warn("Subscriber {} queue is full, dropped {} events so far", name, droppedCount);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            final T item;
+            lock.lock();
+            try {
+                while (queue.isEmpty() && !closed) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                item = queue.pollFirst();
+                if (item == null) {
+                    break;
+                }
+                notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                consumer.accept(item);
+            } catch (Throwable e) {
+                logger.warn("Subscriber {} failed, ignoring", name, e);
+            }
+
+            lock.lock();
+            try {
+                deliveredCount++;
+            } finally {
+                lock.unlock();
+            }
+        }
+        logger.debug("Subscriber {} closed, delivered {} events, dropped {}, max queue depth {}",
+                name,
+                getDeliveredCount(),
+                getDroppedCount(),
+                getMaxDepth());
+    }
+
+    public record Config(int capacity, OverflowPolicy overflowPolicy) {
+
+        public static final int DEFAULT_CAPACITY = 1000;
+
+        public static final Config DEFAULT = new Config(DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+    }
+
+    public enum OverflowPolicy {
+        /**
+         * Wait until the subscriber has caught up, this delays receiving messages for the account.
+         */
+        BLOCK {
+            @Override
+            public String toString() {
+                return "block";
+            }
+        },
+        /**
+         * Discard the oldest queued event.
+         */
+        DROP_OLDEST {
+            @Override
+            public String toString() {
+                return "drop-oldest";
+            }
+        },
+        /**
+         * Discard all queued events and disconnect the subscriber.
+         */
+        DISCONNECT {
+            @Override
+            public String toString() {
+                return "disconnect";
+            }
+        },
+    }
+}
@@ -0,0 +1,36 @@
+package org.asamk.signal.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ServerSentEventSenderTest {
+
+    @Test
+    void rawDataMatchesStringData() throws Exception {
+        final var data = "{\"account\":\"+10000000000\",\"text\":\"h\u00e4llo\"}";
+
+        final var stringOutput = new ByteArrayOutputStream();
+        new ServerSentEventSender(stringOutput).sendEvent(null, "receive", List.of(data));
+
+        final var rawOutput = new ByteArrayOutputStream();
+        new ServerSentEventSender(rawOutput).sendEvent(null, "receive", data.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("event:receive\ndata:" + data + "\n\n", rawOutput.toString(StandardCharsets.UTF_8));
+        assertEquals(stringOutput.toString(StandardCharsets.UTF_8), rawOutput.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void eventWithIdAndNoData() throws Exception {
+        final var output = new ByteArrayOutputStream();
+        final var sender = new ServerSentEventSender(output);
+        sender.sendEvent("42", null, List.of());
+        sender.sendKeepAlive();
+
+        assertEquals("id:42\ndata\n\n:\n", output.toString(StandardCharsets.UTF_8));
+    }
+}
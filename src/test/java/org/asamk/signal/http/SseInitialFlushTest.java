@@ -532,5 +532,29 @@ class SseInitialFlushTest {
         @Override
         public void removeCallEventListener(CallEventListener listener) {
         }
+
+        @Override
+        public void addAttachmentDownloadListener(AttachmentDownloadListener listener) {
+        }
+
+        @Override
+        public void removeAttachmentDownloadListener(AttachmentDownloadListener listener) {
+        }
+
+        @Override
+        public void addGroupChangeListener(GroupChangeListener listener) {
+        }
+
+        @Override
+        public void removeGroupChangeListener(GroupChangeListener listener) {
+        }
+
+        @Override
+        public void addIdentityChangeListener(IdentityChangeListener listener) {
+        }
+
+        @Override
+        public void removeIdentityChangeListener(IdentityChangeListener listener) {
+        }
     }
 }
@@ -0,0 +1,76 @@
+package org.asamk.signal.json;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JsonReceiveEventReplayBufferTest {
+
+    private static final String ACCOUNT = "+10000000000";
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void memoryOnlyKeepsNewestEvents() {
+        final var buffer = new JsonReceiveEventReplayBuffer(new JsonReceiveEventReplayBuffer.Config(3, null), ACCOUNT);
+        for (var id = 1; id <= 5; id++) {
+            buffer.add(event(id));
+        }
+
+        assertEquals(List.of(3L, 4L, 5L), ids(buffer.getEventsAfter(0)));
+        assertEquals(List.of(5L), ids(buffer.getEventsAfter(4)));
+        assertEquals(List.of(), ids(buffer.getEventsAfter(5)));
+    }
+
+    @Test
+    void evictedEventsAreReplayedFromSpillFile() {
+        final var buffer = new JsonReceiveEventReplayBuffer(new JsonReceiveEventReplayBuffer.Config(3, tempDir),
+                ACCOUNT);
+        for (var id = 1; id <= 10; id++) {
+            buffer.add(event(id));
+        }
+
+        final var events = buffer.getEventsAfter(2);
+        assertEquals(List.of(3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L), ids(events));
+        assertEquals("{\"id\":3}", events.getFirst().string());
+    }
+
+    @Test
+    void eventsAreKeptAcrossRestart() throws IOException {
+        final var config = new JsonReceiveEventReplayBuffer.Config(3, tempDir);
+        final var buffer = new JsonReceiveEventReplayBuffer(config, ACCOUNT);
+        for (var id = 1; id <= 5; id++) {
+            buffer.add(event(id));
+        }
+        buffer.close();
+
+        // Simulate a crash in the middle of writing a record
+        Files.write(new File(tempDir, ACCOUNT + ".events").toPath(),
+                new byte[]{0, 0, 0},
+                StandardOpenOption.APPEND);
+
+        final var restartedBuffer = new JsonReceiveEventReplayBuffer(config, ACCOUNT);
+        assertEquals(5, restartedBuffer.getLastSpilledEventId());
+        for (var id = 6; id <= 9; id++) {
+            restartedBuffer.add(event(id));
+        }
+        assertEquals(List.of(4L, 5L, 6L, 7L, 8L, 9L), ids(restartedBuffer.getEventsAfter(3)));
+    }
+
+    private static JsonReceiveEvent event(final long id) {
+        return new JsonReceiveEvent(id, ("{\"id\":" + id + "}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<Long> ids(final List<JsonReceiveEvent> events) {
+        return events.stream().map(JsonReceiveEvent::id).toList();
+    }
+}
@@ -4,6 +4,7 @@ import org.asamk.signal.manager.Manager;
 import org.asamk.signal.manager.MultiAccountManager;
 import org.asamk.signal.manager.ProvisioningManager;
 import org.asamk.signal.manager.RegistrationManager;
+import org.asamk.signal.manager.api.AccountResourceUsage;
 import org.asamk.signal.manager.api.CallInfo;
 import org.asamk.signal.manager.api.CallOffer;
 import org.asamk.signal.manager.api.Configuration;
@@ -115,6 +116,30 @@ class SubscribeCallEventsTest {
             listeners.remove(listener);
         }
 
+        @Override
+        public void addAttachmentDownloadListener(AttachmentDownloadListener listener) {
+        }
+
+        @Override
+        public void removeAttachmentDownloadListener(AttachmentDownloadListener listener) {
+        }
+
+        @Override
+        public void addGroupChangeListener(GroupChangeListener listener) {
+        }
+
+        @Override
+        public void removeGroupChangeListener(GroupChangeListener listener) {
+        }
+
+        @Override
+        public void addIdentityChangeListener(IdentityChangeListener listener) {
+        }
+
+        @Override
+        public void removeIdentityChangeListener(IdentityChangeListener listener) {
+        }
+
         @Override
         public String getSelfNumber() {
             return selfNumber;
@@ -610,6 +635,11 @@ class SubscribeCallEventsTest {
             return managers.stream().filter(m -> phoneNumber.equals(m.getSelfNumber())).findFirst().orElse(null);
         }
 
+        @Override
+        public List<AccountResourceUsage> getResourceUsage() {
+            return List.of();
+        }
+
         @Override
         public URI getNewProvisioningDeviceLinkUri() {
             return null;
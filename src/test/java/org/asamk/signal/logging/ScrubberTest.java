@@ -0,0 +1,95 @@
+package org.asamk.signal.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ScrubberTest {
+
+    private static final List<String> LOG_LINES = List.of(
+            "2026-10-18T12:00:00.123Z [receive-0] DEBUG o.a.s.m.helper.IncomingMessageHandler - Handling message",
+            "INFO  ManagerImpl - Sending message to +4915112345678 and +12025550123",
+            "DEBUG SendHelper - Sending to 3f2504e0-4f89-11d3-9a0c-0305e82c3301 (device 2)",
+            "DEBUG JobExecutor - Running JOB::3f2504e0-4f89-11d3-9a0c-0305e82c3301",
+            "WARN  AccountHelper - Failed to resolve user@example.com: not found",
+            "DEBUG GroupHelper - Updating group aGVsbG8gd29ybGQgdGhpcyBpcyBhIGdyb3VwIGlkIGZvcg==",
+            "DEBUG GroupHelper - Updating group dGhpcyBpcyBhIHYxIGdyb3Vw==",
+            "DEBUG DbusSignalImpl - Exporting /org/asamk/Signal/_4915112345678/Groups/aGVsbG8gd29ybGQgdGhpcyBpcyBhIGdyb3VwIGlkIGZvcg__",
+            "DEBUG PushServiceSocket - Connecting to chat.signal.org (76.223.92.165:443)",
+            "DEBUG OkHttp - GET https://cdn.example.org/attachments/abc?token=123 HTTP/1.1",
+            "DEBUG OkHttp - GET https://storage.whispersystems.org/v1/groups",
+            "INFO  App - signal-cli 0.14.5 started with 10.0.0.1 and 256.1.1.1",
+            "TRACE Utils - Data: %2B4915112345678 _4915112345678 +49151",
+            "DEBUG Foo - mixed ABCDEF01-2345-6789-ABCD-EF0123456789 and abcdef01_2345_6789_abcd_ef0123456789",
+            "DEBUG Foo - mail to a@b, x@y.com; host my.domain.co.uk and www.example.museum",
+            "");
+
+    private static final List<String> FRAGMENTS = List.of("3f2504e0",
+            "-4f89-11d3-9a0c-",
+            "0305e82c3301",
+            "JOB::",
+            "+",
+            "%2B",
+            "_",
+            "4915112345678",
+            "12",
+            "@",
+            "user",
+            "example.com",
+            ".",
+            "org",
+            "signal.org",
+            "192.168.",
+            "1",
+            "==",
+            "=",
+            "__",
+            "aGVsbG8gd29ybGQgdGhpcyBpcyBh",
+            "/org/asamk/Signal/",
+            "Groups/",
+            " ",
+            "/",
+            "-",
+            "ABC",
+            "z",
+            "=.",
+            "_=_",
+            "7.8");
+
+    @Test
+    void realisticLogLinesAreScrubbedLikeAllPasses() {
+        for (final var line : LOG_LINES) {
+            assertScrubbedLikeAllPasses(line);
+        }
+    }
+
+    @Test
+    void randomLinesAreScrubbedLikeAllPasses() {
+        final var random = new Random(42);
+        for (var i = 0; i < 50_000; i++) {
+            final var line = new StringBuilder();
+            final var fragments = random.nextInt(12);
+            for (var j = 0; j < fragments; j++) {
+                if (random.nextInt(4) == 0) {
+                    line.append((char) (' ' + random.nextInt(95)));
+                } else {
+                    line.append(FRAGMENTS.get(random.nextInt(FRAGMENTS.size())));
+                }
+            }
+            assertScrubbedLikeAllPasses(line.toString());
+        }
+    }
+
+    @Test
+    void lineWithoutCandidatesIsReturnedUnchanged() {
+        final var line = "DEBUG ReceiveHelper - Received 12 envelopes";
+        assertEquals(line, Scrubber.scrub(line));
+    }
+
+    private static void assertScrubbedLikeAllPasses(final String line) {
+        assertEquals(Scrubber.scrubAllPasses(line).toString(), Scrubber.scrub(line).toString(), line);
+    }
+}
@@ -0,0 +1,130 @@
+package org.asamk.signal.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SubscriberQueueTest {
+
+    @Test
+    void deliversInOrder() throws Exception {
+        final var received = new CopyOnWriteArrayList<Integer>();
+        final var done = new CountDownLatch(100);
+        final var queue = new SubscriberQueue<Integer>("test", SubscriberQueue.Config.DEFAULT, i -> {
+            received.add(i);
+            done.countDown();
+        }, () -> {});
+        for (var i = 0; i < 100; i++) {
+            queue.offer(i);
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(100, received.size());
+        for (var i = 0; i < 100; i++) {
+            assertEquals(i, received.get(i));
+        }
+        queue.close();
+    }
+
+    @Test
+    void dropOldestKeepsNewestItems() throws Exception {
+        final var blocker = new CountDownLatch(1);
+        final var received = new CopyOnWriteArrayList<Integer>();
+        final var queue = new SubscriberQueue<Integer>("test",
+                new SubscriberQueue.Config(2, SubscriberQueue.OverflowPolicy.DROP_OLDEST),
+                i -> {
+                    awaitUninterruptibly(blocker);
+                    received.add(i);
+                },
+                () -> {});
+        queue.offer(0);
+        // Wait until the first item is taken by the stuck subscriber
+        waitFor(() -> queue.getDepth() == 0);
+        for (var i = 1; i <= 5; i++) {
+            queue.offer(i);
+        }
+
+        assertEquals(2, queue.getDepth());
+        assertEquals(3, queue.getDroppedCount());
+        blocker.countDown();
+        waitFor(() -> received.size() == 3);
+        assertEquals(List.of(0, 4, 5), received);
+        queue.close();
+    }
+
+    @Test
+    void disconnectDropsQueueAndNotifies() throws Exception {
+        final var blocker = new CountDownLatch(1);
+        final var disconnected = new AtomicBoolean();
+        final var queue = new SubscriberQueue<Integer>("test",
+                new SubscriberQueue.Config(1, SubscriberQueue.OverflowPolicy.DISCONNECT),
+                i -> awaitUninterruptibly(blocker),
+                () -> disconnected.set(true));
+        queue.offer(0);
+        waitFor(() -> queue.getDepth() == 0);
+        queue.offer(1);
+        assertFalse(disconnected.get());
+        queue.offer(2);
+
+        assertTrue(disconnected.get());
+        assertEquals(2, queue.getDroppedCount());
+        queue.offer(3);
+        assertEquals(0, queue.getDepth());
+        blocker.countDown();
+    }
+
+    @Test
+    void blockWaitsForSubscriber() throws Exception {
+        final var blocker = new CountDownLatch(1);
+        final var received = new CopyOnWriteArrayList<Integer>();
+        final var queue = new SubscriberQueue<Integer>("test",
+                new SubscriberQueue.Config(1, SubscriberQueue.OverflowPolicy.BLOCK),
+                i -> {
+                    awaitUninterruptibly(blocker);
+                    received.add(i);
+                },
+                () -> {});
+        queue.offer(0);
+        waitFor(() -> queue.getDepth() == 0);
+        queue.offer(1);
+
+        final var producer = Thread.ofVirtual().start(() -> queue.offer(2));
+        producer.join(200);
+        assertTrue(producer.isAlive());
+
+        blocker.countDown();
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+        waitFor(() -> received.size() == 3);
+        assertEquals(List.of(0, 1, 2), received);
+        assertEquals(0, queue.getDroppedCount());
+        queue.close();
+    }
+
+    private static void awaitUninterruptibly(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void waitFor(final BooleanSupplier condition) throws InterruptedException {
+        final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not met in time");
+            }
+            Thread.sleep(5);
+        }
+    }
+}